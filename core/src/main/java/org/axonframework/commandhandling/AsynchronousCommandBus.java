@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import org.axonframework.eventhandling.SequencingPolicy;
+import org.axonframework.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+
+import static java.lang.String.format;
+
+/**
+ * Implementation of the CommandBus that dispatches commands asynchronously on a fixed number of worker threads. Each
+ * worker processes the commands assigned to it one at a time, in the order they were dispatched.
+ * <p/>
+ * Commands are assigned to a worker using the {@link SequencingPolicy} given at construction time. Commands with the
+ * same sequence identifier are always handled by the same worker. When the policy returns <code>null</code>, the
+ * command is assigned to the workers in a round-robin fashion.
+ * <p/>
+ * Only when the policy returns the identifier of the aggregate targeted by the command, are commands for a single
+ * aggregate guaranteed to be handled by a single thread. In that case, repositories used exclusively by this command
+ * bus do not need to acquire pessimistic locks to prevent concurrent modifications. With any other policy, commands
+ * for the same aggregate may be handled concurrently, and repositories must lock aggregates as usual.
+ * <p/>
+ * The calling thread returns as soon as a handler has been found for the command and the command has been handed over
+ * to a worker. The callback is invoked by the worker thread when handling is complete.
+ * <p/>
+ * Batches dispatched using {@link #dispatchBatch(java.util.List, CommandCallback)} are split up per worker. Each
+ * worker handles the commands assigned to it in batches of its own, so that a worker never handles commands assigned
+ * to another worker.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class AsynchronousCommandBus extends SimpleCommandBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsynchronousCommandBus.class);
+
+    private final ExecutorService[] workers;
+    private final SequencingPolicy<Object> sequencingPolicy;
+    private final AtomicInteger roundRobinCounter = new AtomicInteger();
+
+    /**
+     * Initializes an AsynchronousCommandBus with the given number of <code>workerCount</code> threads, which uses the
+     * given <code>sequencingPolicy</code> to assign commands to workers. The mbeans for management information are
+     * registered.
+     *
+     * @param workerCount      The number of worker threads processing commands
+     * @param sequencingPolicy The policy providing the sequence identifier (e.g. the target aggregate identifier) of a
+     *                         command
+     */
+    public AsynchronousCommandBus(int workerCount, SequencingPolicy<Object> sequencingPolicy) {
+        this(workerCount, sequencingPolicy, true);
+    }
+
+    /**
+     * Initializes an AsynchronousCommandBus with the given number of <code>workerCount</code> threads, which uses the
+     * given <code>sequencingPolicy</code> to assign commands to workers. The registration of mbeans for management
+     * information is optional.
+     *
+     * @param workerCount      The number of worker threads processing commands
+     * @param sequencingPolicy The policy providing the sequence identifier (e.g. the target aggregate identifier) of a
+     *                         command
+     * @param registerMBeans   true to register the mbeans, false for not registering them.
+     */
+    public AsynchronousCommandBus(int workerCount, SequencingPolicy<Object> sequencingPolicy,
+                                  boolean registerMBeans) {
+        super(registerMBeans);
+        Assert.isTrue(workerCount > 0, "The number of workers must be at least 1.");
+        Assert.notNull(sequencingPolicy, "A SequencingPolicy must be provided.");
+        this.sequencingPolicy = sequencingPolicy;
+        this.workers = new ExecutorService[workerCount];
+        for (int t = 0; t < workerCount; t++) {
+            workers[t] = Executors.newSingleThreadExecutor(new WorkerThreadFactory(t));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation returns as soon as the command has been assigned to a worker. Any exceptions resulting from
+     * the handling of the command are logged.
+     */
+    @Override
+    public void dispatch(final Object command) {
+        dispatch(command, new LoggingCallback(command));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation returns as soon as the command has been assigned to a worker. The given
+     * <code>callback</code> is invoked in the worker thread.
+     */
+    @SuppressWarnings({"unchecked"})
+    @Override
+    public <R> void dispatch(final Object command, final CommandCallback<R> callback) {
+        final CommandHandler handler = findCommandHandlerFor(command);
+        workerFor(command).execute(new Runnable() {
+            @Override
+            public void run() {
+                Object result;
+                try {
+                    result = doDispatch(command, handler);
+                } catch (Throwable throwable) {
+                    callback.onFailure(throwable);
+                    return;
+                }
+                callback.onSuccess((R) result);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation assigns each command to a worker, using the sequencing policy, and returns as soon as all
+     * commands have been handed over. Each worker handles the commands assigned to it in batches, in the order they
+     * appear in the given list. The given <code>callback</code> is invoked in the worker threads. Therefore, the order
+     * in which the callback is invoked is only guaranteed for commands assigned to the same worker.
+     */
+    @Override
+    protected <R> void doDispatchBatch(List<?> commands, List<CommandHandler> handlers,
+                                       final CommandCallback<R> callback) {
+        Map<ExecutorService, WorkerBatch> batches = new LinkedHashMap<ExecutorService, WorkerBatch>();
+        for (int t = 0; t < commands.size(); t++) {
+            ExecutorService worker = workerFor(commands.get(t));
+            WorkerBatch batch = batches.get(worker);
+            if (batch == null) {
+                batch = new WorkerBatch();
+                batches.put(worker, batch);
+            }
+            batch.commands.add(commands.get(t));
+            batch.handlers.add(handlers.get(t));
+        }
+        for (Map.Entry<ExecutorService, WorkerBatch> entry : batches.entrySet()) {
+            final WorkerBatch batch = entry.getValue();
+            entry.getKey().execute(new Runnable() {
+                @Override
+                public void run() {
+                    AsynchronousCommandBus.super.doDispatchBatch(batch.commands, batch.handlers, callback);
+                }
+            });
+        }
+    }
+
+    private ExecutorService workerFor(Object command) {
+        Object sequenceIdentifier = sequencingPolicy.getSequenceIdentifierFor(command);
+        int hash;
+        if (sequenceIdentifier == null) {
+            hash = roundRobinCounter.getAndIncrement();
+        } else {
+            hash = sequenceIdentifier.hashCode();
+        }
+        return workers[(hash & Integer.MAX_VALUE) % workers.length];
+    }
+
+    /**
+     * Shuts down the worker threads of this command bus. Commands that have already been dispatched are processed
+     * before the workers stop. Any attempts to dispatch commands after shutdown will result in a {@link
+     * java.util.concurrent.RejectedExecutionException}.
+     * <p/>
+     * This method waits for at most <code>timeout</code> milliseconds for each worker to finish processing.
+     *
+     * @param timeout The number of milliseconds to wait for each worker to finish processing
+     * @return <code>true</code> if all workers have finished processing, <code>false</code> if the timeout expired
+     *
+     * @throws InterruptedException if the thread was interrupted while waiting for the workers to finish
+     */
+    public boolean shutdown(long timeout) throws InterruptedException {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        boolean terminated = true;
+        for (ExecutorService worker : workers) {
+            terminated = worker.awaitTermination(timeout, TimeUnit.MILLISECONDS) && terminated;
+        }
+        return terminated;
+    }
+
+    /**
+     * Shuts down the worker threads of this command bus, without waiting for them to finish processing. Commands that
+     * have already been dispatched are processed before the workers stop.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    private static final class WorkerBatch {
+
+        private final List<Object> commands = new ArrayList<Object>();
+        private final List<CommandHandler> handlers = new ArrayList<CommandHandler>();
+    }
+
+    private static class LoggingCallback implements CommandCallback<Object> {
+
+        private final Object command;
+
+        public LoggingCallback(Object command) {
+            this.command = command;
+        }
+
+        @Override
+        public void onSuccess(Object result) {
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            logger.error(format("Processing of a [%s] resulted in an exception: ",
+                                command.getClass().getSimpleName()), cause);
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private final int workerIndex;
+
+        private WorkerThreadFactory(int workerIndex) {
+            this.workerIndex = workerIndex;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "AsynchronousCommandBus-worker-" + workerIndex);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
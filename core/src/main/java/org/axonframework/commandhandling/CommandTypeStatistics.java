@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of the statistics gathered for a single type of command by the {@link SimpleCommandBus}. All durations are
+ * expressed in microseconds.
+ * <p/>
+ * The dispatch latency is the time between the start of the dispatching process and the moment the UnitOfWork was
+ * committed. The handler time is the time spent in the interceptors and the command handler. The commit time is the
+ * time spent committing the UnitOfWork.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class CommandTypeStatistics {
+
+    private final String commandType;
+    private final long handledCount;
+    private final long failureCount;
+    private final long[] dispatchLatency;
+    private final long[] handlerTime;
+    private final long[] commitTime;
+
+    /**
+     * Initializes a snapshot of the statistics for the given <code>commandType</code>. The percentile arrays must
+     * contain the 50th, 99th and 99.9th percentile, in that order.
+     *
+     * @param commandType     The name of the type of command
+     * @param handledCount    The number of commands successfully handled
+     * @param failureCount    The number of commands that failed
+     * @param dispatchLatency The percentiles of the dispatch latency
+     * @param handlerTime     The percentiles of the handler time
+     * @param commitTime      The percentiles of the commit time
+     */
+    @ConstructorProperties({"commandType", "handledCount", "failureCount",
+            "dispatchLatencyPercentiles", "handlerTimePercentiles", "commitTimePercentiles"})
+    public CommandTypeStatistics(String commandType, long handledCount, long failureCount,
+                                 long[] dispatchLatency, long[] handlerTime, long[] commitTime) {
+        this.commandType = commandType;
+        this.handledCount = handledCount;
+        this.failureCount = failureCount;
+        this.dispatchLatency = dispatchLatency.clone();
+        this.handlerTime = handlerTime.clone();
+        this.commitTime = commitTime.clone();
+    }
+
+    /**
+     * Returns the (simple) name of the type of command these statistics apply to.
+     *
+     * @return the name of the type of command
+     */
+    public String getCommandType() {
+        return commandType;
+    }
+
+    /**
+     * Returns the number of commands of this type that were handled successfully.
+     *
+     * @return the number of commands handled successfully
+     */
+    public long getHandledCount() {
+        return handledCount;
+    }
+
+    /**
+     * Returns the number of commands of this type that failed, either during handling or during the commit of the
+     * UnitOfWork. Only commands that are finally reported as failed are counted. Commands dispatched in a batch that
+     * is rolled back and retried in smaller batches are not counted as failed when the retry succeeds. Rolled back
+     * batches are counted separately, see {@link SimpleCommandBusStatistics#getRolledBackBatchCount()}.
+     *
+     * @return the number of failed commands
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * Returns the 50th, 99th and 99.9th percentile of the dispatch latency, in that order.
+     *
+     * @return the percentiles of the dispatch latency in microseconds
+     */
+    public long[] getDispatchLatencyPercentiles() {
+        return dispatchLatency.clone();
+    }
+
+    /**
+     * Returns the 50th, 99th and 99.9th percentile of the time spent in interceptors and the command handler, in that
+     * order.
+     *
+     * @return the percentiles of the handler time in microseconds
+     */
+    public long[] getHandlerTimePercentiles() {
+        return handlerTime.clone();
+    }
+
+    /**
+     * Returns the 50th, 99th and 99.9th percentile of the time spent committing the UnitOfWork, in that order.
+     *
+     * @return the percentiles of the commit time in microseconds
+     */
+    public long[] getCommitTimePercentiles() {
+        return commitTime.clone();
+    }
+}
@@ -18,10 +18,11 @@ package org.axonframework.commandhandling;
 
 import org.axonframework.unitofwork.UnitOfWork;
 
-import java.util.Iterator;
-
 /**
  * Mechanism that takes care of interceptor and event handler execution.
+ * <p/>
+ * The chain walks over a fixed array of interceptors, which is shared between all chains created for the same
+ * configuration. Each instance of this class is meant to process a single command.
  *
  * @author Allard Buijze
  * @since 0.5
@@ -30,23 +31,25 @@ class DefaultInterceptorChain implements InterceptorChain {
 
     private final Object command;
     private final CommandHandler handler;
-    private Iterator<? extends CommandHandlerInterceptor> chain;
-    private UnitOfWork unitOfWork;
+    private final CommandHandlerInterceptor[] chain;
+    private final UnitOfWork unitOfWork;
+    private int position = 0;
 
     /**
      * Initialize the default interceptor chain to dispatch the given <code>command</code>, through the
-     * <code>chain</code>, to the <code>handler</code>.
+     * <code>chain</code>, to the <code>handler</code>. The given <code>chain</code> array must not be modified while
+     * this chain is in use.
      *
      * @param command    The command to dispatch through the interceptor chain
      * @param unitOfWork The UnitOfWork the command is executed in
      * @param handler    The handler for the command
-     * @param chain      The interceptor composing the chain
+     * @param chain      The interceptors composing the chain
      */
     public DefaultInterceptorChain(Object command, UnitOfWork unitOfWork, CommandHandler<?> handler,
-                                   Iterable<? extends CommandHandlerInterceptor> chain) {
+                                   CommandHandlerInterceptor[] chain) {
         this.command = command;
         this.handler = handler;
-        this.chain = chain.iterator();
+        this.chain = chain;
         this.unitOfWork = unitOfWork;
     }
 
@@ -56,8 +59,8 @@ class DefaultInterceptorChain implements InterceptorChain {
     @SuppressWarnings({"unchecked"})
     @Override
     public Object proceed(Object commandProceedWith) throws Throwable {
-        if (chain.hasNext()) {
-            return chain.next().handle(commandProceedWith, unitOfWork, this);
+        if (position < chain.length) {
+            return chain[position++].handle(commandProceedWith, unitOfWork, this);
         } else {
             return handler.handle(commandProceedWith, unitOfWork);
         }
@@ -20,10 +20,11 @@ import org.axonframework.monitoring.jmx.JmxConfiguration;
 import org.axonframework.unitofwork.DefaultUnitOfWorkFactory;
 import org.axonframework.unitofwork.UnitOfWork;
 import org.axonframework.unitofwork.UnitOfWorkFactory;
+import org.axonframework.util.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -44,11 +45,13 @@ import static java.lang.String.format;
 public class SimpleCommandBus implements CommandBus {
 
     private static final Logger logger = LoggerFactory.getLogger(SimpleCommandBus.class);
+    private static final CommandHandlerInterceptor[] NO_INTERCEPTORS = new CommandHandlerInterceptor[0];
 
     private final ConcurrentMap<Class<?>, CommandHandler<?>> subscriptions = new ConcurrentHashMap<Class<?>, CommandHandler<?>>();
     private final SimpleCommandBusStatistics statistics = new SimpleCommandBusStatistics();
-    private volatile Iterable<? extends CommandHandlerInterceptor> interceptors = Collections.emptyList();
+    private volatile CommandHandlerInterceptor[] interceptors = NO_INTERCEPTORS;
     private UnitOfWorkFactory unitOfWorkFactory = new DefaultUnitOfWorkFactory();
+    private int maxBatchSize = 100;
 
     /**
      * Initializes the SimpleCommandBus and registers the mbeans for management information.
@@ -94,7 +97,94 @@ public class SimpleCommandBus implements CommandBus {
         }
     }
 
-    private CommandHandler findCommandHandlerFor(Object command) {
+    /**
+     * Dispatches the given <code>commands</code> in batches, where all commands in a batch are handled in a single
+     * UnitOfWork. This means that changes to an aggregate made by several commands in a batch are stored (and their
+     * events appended to the event store) only once, and that any transaction started by interceptors is shared by all
+     * commands in the batch.
+     * <p/>
+     * The list of commands is split into batches of at most {@link #setMaxBatchSize(int) maxBatchSize} commands. When
+     * handling or committing a batch fails, the batch is rolled back and split in two halves, which are each retried
+     * in a separate UnitOfWork. This continues until the failing command is handled in a UnitOfWork of its own. This
+     * means that command handlers may be invoked more than once for the same command.
+     * <p/>
+     * The given <code>callback</code> is invoked once for each command, in the order the commands appear in the given
+     * list, after the UnitOfWork in which the command was handled has been committed or rolled back.
+     * <p/>
+     * Note that command handlers may observe changes made by previous commands in the same batch, as the batch shares
+     * a single UnitOfWork.
+     *
+     * @param commands The commands to dispatch
+     * @param callback The callback to invoke for each command when its processing is complete
+     * @param <R>      The type of the expected result
+     * @throws NoHandlerForCommandException when no command handler is registered for one of the given
+     *                                      <code>commands</code>. In that case, none of the commands is dispatched.
+     */
+    public <R> void dispatchBatch(List<?> commands, CommandCallback<R> callback) {
+        List<CommandHandler> handlers = new ArrayList<CommandHandler>(commands.size());
+        for (Object command : commands) {
+            handlers.add(findCommandHandlerFor(command));
+        }
+        statistics.recordReceivedCommands(commands.size());
+        doDispatchBatch(commands, handlers, callback);
+    }
+
+    /**
+     * Performs the actual dispatching of the given <code>commands</code> to the given <code>handlers</code> in the
+     * calling thread, in batches of at most {@link #setMaxBatchSize(int) maxBatchSize} commands. See {@link
+     * #dispatchBatch(java.util.List, CommandCallback)} for details about the handling of failed batches.
+     *
+     * @param commands The commands to dispatch
+     * @param handlers The handlers to dispatch the commands to, in the same order as the commands
+     * @param callback The callback to invoke for each command when its processing is complete
+     * @param <R>      The type of the expected result
+     */
+    protected <R> void doDispatchBatch(List<?> commands, List<CommandHandler> handlers, CommandCallback<R> callback) {
+        for (int start = 0; start < commands.size(); start += maxBatchSize) {
+            int end = Math.min(start + maxBatchSize, commands.size());
+            handleBatch(commands.subList(start, end), handlers.subList(start, end), callback);
+        }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private <R> void handleBatch(List<?> commands, List<CommandHandler> handlers, CommandCallback<R> callback) {
+        if (commands.size() == 1) {
+            try {
+                callback.onSuccess((R) doDispatch(commands, handlers).get(0));
+            } catch (Throwable throwable) {
+                statistics.recordFailedCommand(commands.get(0).getClass());
+                callback.onFailure(throwable);
+            }
+            return;
+        }
+        List<Object> results;
+        try {
+            results = doDispatch(commands, handlers);
+        } catch (Throwable throwable) {
+            // the commands are retried, so they are only counted as failed when they fail on their own
+            statistics.recordRolledBackBatch();
+            logger.info(format("Processing of a batch of %s commands failed. Retrying in two separate batches.",
+                               commands.size()),
+                        throwable);
+            int half = commands.size() / 2;
+            handleBatch(commands.subList(0, half), handlers.subList(0, half), callback);
+            handleBatch(commands.subList(half, commands.size()), handlers.subList(half, handlers.size()), callback);
+            return;
+        }
+        for (Object result : results) {
+            callback.onSuccess((R) result);
+        }
+    }
+
+    /**
+     * Finds the handler subscribed to the type of the given <code>command</code>.
+     *
+     * @param command The command to find the handler for
+     * @return the handler subscribed to the type of command
+     *
+     * @throws NoHandlerForCommandException when no handler is subscribed to the given type of command
+     */
+    protected CommandHandler findCommandHandlerFor(Object command) {
         final CommandHandler handler = subscriptions.get(command.getClass());
         if (handler == null) {
             throw new NoHandlerForCommandException(format("No handler was subscribed to commands of type [%s]",
@@ -103,14 +193,60 @@ public class SimpleCommandBus implements CommandBus {
         return handler;
     }
 
-    private Object doDispatch(Object command, CommandHandler commandHandler) throws Throwable {
+    /**
+     * Performs the actual dispatching of the given <code>command</code> to the given <code>commandHandler</code> in the
+     * calling thread. A UnitOfWork is started before the command passes through the interceptor chain, and is committed
+     * or rolled back depending on the outcome of the handling.
+     *
+     * @param command        The command to dispatch
+     * @param commandHandler The handler to dispatch the command to
+     * @return the result of the command handler
+     *
+     * @throws Throwable any exception raised by the interceptors, the handler or the commit of the UnitOfWork
+     */
+    protected Object doDispatch(Object command, CommandHandler commandHandler) throws Throwable {
+        long startTime = System.nanoTime();
         statistics.recordReceivedCommand();
         UnitOfWork unitOfWork = unitOfWorkFactory.createUnitOfWork();
-        InterceptorChain chain = new DefaultInterceptorChain(command, unitOfWork, commandHandler, interceptors);
         try {
-            Object returnValue = chain.proceed();
+            long handlerStartTime = System.nanoTime();
+            Object returnValue = invokeHandler(command, unitOfWork, commandHandler, interceptors);
+            long commitStartTime = System.nanoTime();
             unitOfWork.commit();
+            long endTime = System.nanoTime();
+            statistics.recordHandledCommand(command.getClass(), endTime - startTime,
+                                            commitStartTime - handlerStartTime, endTime - commitStartTime);
             return returnValue;
+        } catch (Throwable throwable) {
+            statistics.recordFailedCommand(command.getClass());
+            if (unitOfWork.isStarted()) {
+                unitOfWork.rollback(throwable);
+            }
+            throw throwable;
+        }
+    }
+
+    private List<Object> doDispatch(List<?> commands, List<CommandHandler> commandHandlers) throws Throwable {
+        long startTime = System.nanoTime();
+        CommandHandlerInterceptor[] currentInterceptors = interceptors;
+        UnitOfWork unitOfWork = unitOfWorkFactory.createUnitOfWork();
+        try {
+            List<Object> returnValues = new ArrayList<Object>(commands.size());
+            long[] handlerTimes = new long[commands.size()];
+            for (int i = 0; i < commands.size(); i++) {
+                long handlerStartTime = System.nanoTime();
+                returnValues.add(invokeHandler(commands.get(i), unitOfWork, commandHandlers.get(i),
+                                               currentInterceptors));
+                handlerTimes[i] = System.nanoTime() - handlerStartTime;
+            }
+            long commitStartTime = System.nanoTime();
+            unitOfWork.commit();
+            long endTime = System.nanoTime();
+            for (int i = 0; i < commands.size(); i++) {
+                statistics.recordHandledCommand(commands.get(i).getClass(), endTime - startTime, handlerTimes[i],
+                                                endTime - commitStartTime);
+            }
+            return returnValues;
         } catch (Throwable throwable) {
             if (unitOfWork.isStarted()) {
                 unitOfWork.rollback(throwable);
@@ -119,6 +255,15 @@ public class SimpleCommandBus implements CommandBus {
         }
     }
 
+    @SuppressWarnings({"unchecked"})
+    private Object invokeHandler(Object command, UnitOfWork unitOfWork, CommandHandler commandHandler,
+                                 CommandHandlerInterceptor[] currentInterceptors) throws Throwable {
+        if (currentInterceptors.length == 0) {
+            return commandHandler.handle(command, unitOfWork);
+        }
+        return new DefaultInterceptorChain(command, unitOfWork, commandHandler, currentInterceptors).proceed();
+    }
+
     /**
      * Subscribe the given <code>handler</code> to commands of type <code>commandType</code>. If a subscription already
      * exists for the given type, then the new handler takes over the subscription.
@@ -146,11 +291,14 @@ public class SimpleCommandBus implements CommandBus {
      * Registers the given list of interceptors to the command bus. All incoming commands will pass throught the
      * interceptors at the given order before the command is passed to the handler for processing. After handling, the
      * <code>afterCommandHandling</code> methods are invoked on the interceptors in the reverse order.
+     * <p/>
+     * The given list is copied when this method is invoked. Changes made to the list afterwards are not reflected in
+     * the interceptors used by this command bus.
      *
      * @param interceptors The interceptors to invoke when commands are dispatched
      */
     public void setInterceptors(List<? extends CommandHandlerInterceptor> interceptors) {
-        this.interceptors = interceptors;
+        this.interceptors = interceptors.toArray(new CommandHandlerInterceptor[interceptors.size()]);
     }
 
     /**
@@ -167,6 +315,17 @@ public class SimpleCommandBus implements CommandBus {
         }
     }
 
+    /**
+     * Sets the maximum number of commands handled in a single UnitOfWork by {@link #dispatchBatch(java.util.List,
+     * CommandCallback)}. Defaults to 100.
+     *
+     * @param maxBatchSize The maximum number of commands to handle in a single UnitOfWork
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        Assert.isTrue(maxBatchSize > 0, "The maximum batch size must be at least 1.");
+        this.maxBatchSize = maxBatchSize;
+    }
+
     /**
      * Sets the UnitOfWorkFactory that provides the UnitOfWork instances for handling incoming commands. Defaults to a
      * {@link DefaultUnitOfWorkFactory}.
@@ -16,17 +16,26 @@
 
 package org.axonframework.commandhandling;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.management.StandardMBean;
 
 /**
  * <p>Statistics object to store information about the internals of the <code>SimpleCommandBus</code>.</p> <p>You can
  * request information about the registered handlers but also about the number of received commands.</p> <p>Next to
- * requesting information it is also possible to reset the counters</p> <p>Finally, the statistics are only gathered
- * when explicitly enabled. By default they are switched off.</p>
+ * requesting information it is also possible to reset the counters</p> <p>For each type of command, histograms of the
+ * dispatch latency, handler time and commit time are kept, as well as the number of failures. These histograms use a
+ * fixed amount of memory per type of command and are updated without locking. A command is only counted as failed when
+ * its callback is notified of the failure. Batches of commands that are rolled back and retried in smaller batches are
+ * counted separately.</p> <p>Finally, the statistics are only
+ * gathered when explicitly enabled. By default they are switched off.</p>
  *
  * @author Jettro Coenradie
  * @author Allard Buijze
@@ -36,7 +45,10 @@ class SimpleCommandBusStatistics extends StandardMBean implements SimpleCommandB
 
     private AtomicLong handlerCounter = new AtomicLong(0);
     private AtomicLong receivedCommandCounter = new AtomicLong(0);
+    private AtomicLong rolledBackBatchCounter = new AtomicLong(0);
     private List<String> handlerTypes = new CopyOnWriteArrayList<String>();
+    private final ConcurrentMap<Class<?>, CommandTypeCounters> commandTypeCounters =
+            new ConcurrentHashMap<Class<?>, CommandTypeCounters>();
 
     /**
      * Creates an instance of this statistics MBean.
@@ -65,6 +77,17 @@ class SimpleCommandBusStatistics extends StandardMBean implements SimpleCommandB
         return receivedCommandCounter.get();
     }
 
+    /**
+     * Returns the amount of batches of commands that have been rolled back and retried in smaller batches, from the
+     * beginning of starting up or after the last reset.
+     *
+     * @return long representing the amount of rolled back batches
+     */
+    @Override
+    public long getRolledBackBatchCount() {
+        return rolledBackBatchCounter.get();
+    }
+
     /**
      * Returns a list with the names of the types of the registered handlers.
      *
@@ -83,6 +106,30 @@ class SimpleCommandBusStatistics extends StandardMBean implements SimpleCommandB
         receivedCommandCounter.set(0);
     }
 
+    /**
+     * Returns the statistics gathered for each type of command that has been dispatched since startup or the last
+     * reset.
+     *
+     * @return a list of statistics, one entry per type of command
+     */
+    @Override
+    public List<CommandTypeStatistics> getCommandTypeStatistics() {
+        List<CommandTypeStatistics> statistics = new ArrayList<CommandTypeStatistics>(commandTypeCounters.size());
+        for (Map.Entry<Class<?>, CommandTypeCounters> entry : commandTypeCounters.entrySet()) {
+            statistics.add(entry.getValue().snapshot(entry.getKey().getSimpleName()));
+        }
+        return statistics;
+    }
+
+    /**
+     * Resets the statistics gathered for each type of command, as well as the rolled back batch counter.
+     */
+    @Override
+    public void resetCommandTypeStatistics() {
+        commandTypeCounters.clear();
+        rolledBackBatchCounter.set(0);
+    }
+
     /**
      * Indicate a new handler with the provided name is registered. Multiple handlers with the same name are supported.
      *
@@ -110,4 +157,81 @@ class SimpleCommandBusStatistics extends StandardMBean implements SimpleCommandB
     void recordReceivedCommand() {
         receivedCommandCounter.incrementAndGet();
     }
+
+    /**
+     * Indicate the given number of commands is received.
+     *
+     * @param count The number of commands received
+     */
+    void recordReceivedCommands(int count) {
+        receivedCommandCounter.addAndGet(count);
+    }
+
+    /**
+     * Indicate a command of the given <code>commandType</code> was handled successfully. All durations are in
+     * nanoseconds.
+     *
+     * @param commandType     The type of command handled
+     * @param dispatchLatency The time between the start of dispatching and the commit of the UnitOfWork
+     * @param handlerTime     The time spent in interceptors and the command handler
+     * @param commitTime      The time spent committing the UnitOfWork
+     */
+    void recordHandledCommand(Class<?> commandType, long dispatchLatency, long handlerTime, long commitTime) {
+        CommandTypeCounters counters = countersFor(commandType);
+        counters.dispatchLatency.record(dispatchLatency);
+        counters.handlerTime.record(handlerTime);
+        counters.commitTime.record(commitTime);
+    }
+
+    /**
+     * Indicate a command of the given <code>commandType</code> failed, either in the handler or during commit, and its
+     * callback has been notified of the failure.
+     *
+     * @param commandType The type of command that failed
+     */
+    void recordFailedCommand(Class<?> commandType) {
+        countersFor(commandType).failures.incrementAndGet();
+    }
+
+    /**
+     * Indicate a batch of commands has been rolled back. The commands in the batch are retried in smaller batches, so
+     * they are not counted as failed.
+     */
+    void recordRolledBackBatch() {
+        rolledBackBatchCounter.incrementAndGet();
+    }
+
+    private CommandTypeCounters countersFor(Class<?> commandType) {
+        CommandTypeCounters counters = commandTypeCounters.get(commandType);
+        if (counters == null) {
+            CommandTypeCounters newCounters = new CommandTypeCounters();
+            counters = commandTypeCounters.putIfAbsent(commandType, newCounters);
+            if (counters == null) {
+                counters = newCounters;
+            }
+        }
+        return counters;
+    }
+
+    private static final class CommandTypeCounters {
+
+        private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+        private final LatencyHistogram handlerTime = new LatencyHistogram();
+        private final LatencyHistogram commitTime = new LatencyHistogram();
+        private final AtomicLong failures = new AtomicLong();
+
+        private CommandTypeStatistics snapshot(String commandType) {
+            return new CommandTypeStatistics(commandType, dispatchLatency.getCount(), failures.get(),
+                                             percentilesOf(dispatchLatency),
+                                             percentilesOf(handlerTime),
+                                             percentilesOf(commitTime));
+        }
+
+        private static long[] percentilesOf(LatencyHistogram histogram) {
+            return new long[]{
+                    TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(0.5)),
+                    TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(0.99)),
+                    TimeUnit.NANOSECONDS.toMicros(histogram.getPercentile(0.999))};
+        }
+    }
 }
@@ -54,4 +54,25 @@ public interface SimpleCommandBusStatisticsMXBean {
      * Reset the amount of commands received counter.
      */
     void resetReceivedCommandsCounter();
+
+    /**
+     * Returns the amount of batches of commands that have been rolled back and retried in smaller batches. The commands
+     * in these batches are only counted as failed when they fail on their own.
+     *
+     * @return long representing the amount of rolled back batches
+     */
+    long getRolledBackBatchCount();
+
+    /**
+     * Returns the statistics for each type of command dispatched, containing the number of handled and failed
+     * commands, and the 50th, 99th and 99.9th percentile of the dispatch latency, handler time and commit time.
+     *
+     * @return the statistics per type of command
+     */
+    List<CommandTypeStatistics> getCommandTypeStatistics();
+
+    /**
+     * Reset the statistics gathered per type of command, as well as the amount of rolled back batches.
+     */
+    void resetCommandTypeStatistics();
 }
@@ -22,12 +22,20 @@ import org.axonframework.unitofwork.CurrentUnitOfWork;
 import org.axonframework.unitofwork.UnitOfWork;
 import org.axonframework.unitofwork.UnitOfWorkListenerAdapter;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Abstract implementation of a {@link org.axonframework.commandhandling.CommandHandlerInterceptor} that starts a
  * transaction and binds a {@link UnitOfWork} to the current thread.
  * <p/>
  * Upon successful execution of the command, the transaction is committed. If execution fails, the UnitOfWork and the
  * transaction are rolled back.
+ * <p/>
+ * A single transaction is started for each UnitOfWork. When several commands are handled in the same UnitOfWork (see
+ * {@link org.axonframework.commandhandling.SimpleCommandBus#dispatchBatch(java.util.List,
+ * org.axonframework.commandhandling.CommandCallback)}), they all take part in the same transaction.
  *
  * @author Allard Buijze
  * @param <T> The type of object representing the transaction
@@ -35,10 +43,22 @@ import org.axonframework.unitofwork.UnitOfWorkListenerAdapter;
  */
 public abstract class TransactionInterceptor<T> implements CommandHandlerInterceptor {
 
+    private final Set<UnitOfWork> transactionalUnitsOfWork =
+            Collections.newSetFromMap(new ConcurrentHashMap<UnitOfWork, Boolean>());
+
     @Override
     public Object handle(Object command, UnitOfWork unitOfWork, InterceptorChain interceptorChain) throws Throwable {
-        T transaction = startTransaction();
-        CurrentUnitOfWork.get().registerListener(new TransactionalUnitOfWork(transaction));
+        UnitOfWork currentUnitOfWork = CurrentUnitOfWork.get();
+        if (transactionalUnitsOfWork.add(currentUnitOfWork)) {
+            T transaction;
+            try {
+                transaction = startTransaction();
+            } catch (RuntimeException e) {
+                transactionalUnitsOfWork.remove(currentUnitOfWork);
+                throw e;
+            }
+            currentUnitOfWork.registerListener(new TransactionalUnitOfWork(transaction, currentUnitOfWork));
+        }
         return interceptorChain.proceed();
     }
 
@@ -69,14 +89,17 @@ public abstract class TransactionInterceptor<T> implements CommandHandlerInterce
     private final class TransactionalUnitOfWork extends UnitOfWorkListenerAdapter {
 
         private final T transaction;
+        private final UnitOfWork unitOfWork;
 
         /**
          * Creates an instance of the listener, tied to the given <code>transaction</code>.
          *
          * @param transaction the transaction assigned to the Unit Of Work.
+         * @param unitOfWork  the Unit Of Work the transaction is assigned to
          */
-        private TransactionalUnitOfWork(T transaction) {
+        private TransactionalUnitOfWork(T transaction, UnitOfWork unitOfWork) {
             this.transaction = transaction;
+            this.unitOfWork = unitOfWork;
         }
 
         /**
@@ -96,5 +119,13 @@ public abstract class TransactionInterceptor<T> implements CommandHandlerInterce
         public void afterCommit() {
             commitTransaction(transaction);
         }
+
+        /**
+         * This method releases the Unit Of Work, allowing a new transaction to be started if it is reused.
+         */
+        @Override
+        public void onCleanup() {
+            transactionalUnitsOfWork.remove(unitOfWork);
+        }
     }
 }
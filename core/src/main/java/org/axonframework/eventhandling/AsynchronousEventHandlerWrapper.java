@@ -18,16 +18,21 @@ package org.axonframework.eventhandling;
 
 import org.axonframework.domain.Event;
 
+import java.util.List;
 import java.util.concurrent.Executor;
 
 /**
  * The AsynchronousEventHandlerWrapper can wrap any event listener to give it asynchronous behavior. The wrapper will
  * schedule all incoming events for processing, making the calling thread return immediately.
+ * <p/>
+ * If the wrapped event listener is a {@link BatchEventListener}, all events processed in a single transaction are
+ * passed to it as a single batch.
  *
  * @author Allard Buijze
  * @since 0.3
  */
-public class AsynchronousEventHandlerWrapper extends AsynchronousExecutionWrapper<Event> implements EventListenerProxy {
+public class AsynchronousEventHandlerWrapper extends AsynchronousExecutionWrapper<Event>
+        implements EventListenerProxy, SelectiveEventListener, BoundedEventListener {
 
     private final EventListener eventListener;
 
@@ -77,6 +82,18 @@ public class AsynchronousEventHandlerWrapper extends AsynchronousExecutionWrappe
         schedule(event);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation delegates to the wrapped event listener if it is a {@link SelectiveEventListener}. Otherwise,
+     * it returns <code>true</code>.
+     */
+    @Override
+    public boolean canHandle(Class<? extends Event> eventType) {
+        return !(eventListener instanceof SelectiveEventListener)
+                || ((SelectiveEventListener) eventListener).canHandle(eventType);
+    }
+
     @Override
     public Object getTarget() {
         return eventListener;
@@ -86,4 +103,30 @@ public class AsynchronousEventHandlerWrapper extends AsynchronousExecutionWrappe
     protected void doHandle(Event event) {
         eventListener.handle(event);
     }
+
+    @Override
+    protected boolean isBatchHandlingSupported() {
+        return eventListener instanceof BatchEventListener;
+    }
+
+    @Override
+    protected void doHandleBatch(List<Event> events) {
+        ((BatchEventListener) eventListener).handleBatch(events);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRejectedEventCount() {
+        return getRejectedTaskCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSpilledEventCount() {
+        return getSpilledTaskCount();
+    }
 }
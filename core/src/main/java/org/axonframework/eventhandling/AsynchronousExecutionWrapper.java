@@ -16,20 +16,42 @@
 
 package org.axonframework.eventhandling;
 
+import org.axonframework.util.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedList;
+import java.io.File;
+import java.util.AbstractQueue;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Abstract implementation that schedules tasks for execution. This implementation allows for certain tasks to be
  * executed sequentially, while other (groups of) tasks are processed in parallel.
+ * <p/>
+ * By default, a scheduler is created for each sequence identifier that has tasks waiting for processing. When the
+ * number of distinct sequence identifiers is very large (e.g. when using the {@link SequentialPerAggregatePolicy}),
+ * creating and cleaning up these schedulers becomes a significant overhead. In that case, the wrapper can be
+ * configured to use a fixed number of stripes (see {@link #setStripeCount(int)}). Each sequence identifier is then
+ * assigned to one of the stripes, which process their tasks sequentially, in transactional batches.
+ * <p/>
+ * By default, the number of tasks waiting for processing is unbounded. To keep memory usage bounded when tasks are
+ * scheduled faster than they can be processed, a maximum can be configured for the wrapper as a whole (see {@link
+ * #setMaxPendingTasks(int)}) and for each sequence (see {@link #setMaxPendingTasksPerSequence(int)}). The {@link
+ * OverflowStrategy} defines what happens to tasks scheduled while that maximum has been reached. Tasks spilled to disk
+ * are moved back into memory by a task on the executor, so that threads processing tasks never read from disk.
  *
  * @param <T> The type of object defining the task
  * @author Allard Buijze
@@ -42,8 +64,17 @@ public abstract class AsynchronousExecutionWrapper<T> {
     private final ConcurrentMap<Object, EventProcessingScheduler<T>> transactions =
             new ConcurrentHashMap<Object, EventProcessingScheduler<T>>();
     private final SequencingPolicy<? super T> sequencingPolicy;
-    private final BlockingQueue<T> concurrentEventQueue = new LinkedBlockingQueue<T>();
+    private final Queue<T> concurrentEventQueue = new CapacityBoundQueue(new LinkedBlockingQueue<T>(), 0);
     private final TransactionManager transactionManager;
+    private volatile Stripes stripes;
+    private volatile Semaphore pendingTaskPermits;
+    private volatile int maxPendingTasksPerSequence;
+    private volatile OverflowStrategy overflowStrategy = OverflowStrategy.BLOCK;
+    private volatile File spillDirectory;
+    private volatile DiskSpillBuffer<T> spillBuffer;
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final Runnable spillBufferDrainer = new SpillBufferDrainer();
+    private final AtomicLong rejectedTaskCount = new AtomicLong();
 
     /**
      * Initialize the AsynchronousExecutionWrapper using the given <code>executor</code> and
@@ -74,6 +105,128 @@ public abstract class AsynchronousExecutionWrapper<T> {
         this(executor, new NoTransactionManager(), sequencingPolicy);
     }
 
+    /**
+     * Sets the number of stripes tasks with a sequence identifier are assigned to. Each stripe processes its tasks
+     * sequentially, while different stripes may process their tasks in parallel. Tasks with the same sequence
+     * identifier are always assigned to the same stripe, meaning they are processed in the order they were scheduled.
+     * <p/>
+     * Using a fixed number of stripes avoids the creation of a scheduler for each sequence identifier, at the cost of
+     * tasks with different sequence identifiers sometimes having to wait for each other. Tasks without a sequence
+     * identifier are not affected by this setting.
+     * <p/>
+     * Defaults to 0, which means a scheduler is created for each sequence identifier. This method must be called
+     * before any tasks are scheduled.
+     *
+     * @param stripeCount The number of stripes to use, or 0 to use a scheduler per sequence identifier
+     */
+    public void setStripeCount(int stripeCount) {
+        Assert.isTrue(stripeCount >= 0, "The number of stripes may not be negative.");
+        this.stripes = stripeCount == 0 ? null : new Stripes(stripeCount);
+    }
+
+    /**
+     * Sets the maximum number of tasks that may be waiting for processing in this wrapper. When this maximum has been
+     * reached, the {@link #setOverflowStrategy(OverflowStrategy) overflow strategy} is applied to newly scheduled
+     * tasks. Tasks that are part of a transactional batch being processed (or retried) do not count as waiting.
+     * <p/>
+     * Defaults to 0, meaning the number of waiting tasks is unbounded. This method must be called before any tasks are
+     * scheduled.
+     *
+     * @param maxPendingTasks The maximum number of tasks waiting for processing, or 0 for no maximum
+     */
+    public void setMaxPendingTasks(int maxPendingTasks) {
+        Assert.isTrue(maxPendingTasks >= 0, "The maximum number of pending tasks may not be negative.");
+        this.pendingTaskPermits = maxPendingTasks == 0 ? null : new Semaphore(maxPendingTasks);
+    }
+
+    /**
+     * Sets the maximum number of tasks with the same sequence identifier that may be waiting for processing. When
+     * using stripes (see {@link #setStripeCount(int)}), the maximum applies to each stripe. Tasks without a sequence
+     * identifier are only bound by the {@link #setMaxPendingTasks(int) maximum of the wrapper}.
+     * <p/>
+     * Defaults to 0, meaning the number of waiting tasks per sequence is unbounded. This method must be called before
+     * any tasks are scheduled.
+     *
+     * @param maxPendingTasksPerSequence The maximum number of tasks waiting per sequence, or 0 for no maximum
+     */
+    public void setMaxPendingTasksPerSequence(int maxPendingTasksPerSequence) {
+        Assert.isTrue(maxPendingTasksPerSequence >= 0,
+                      "The maximum number of pending tasks per sequence may not be negative.");
+        this.maxPendingTasksPerSequence = maxPendingTasksPerSequence;
+        Stripes currentStripes = stripes;
+        if (currentStripes != null) {
+            this.stripes = new Stripes(currentStripes.queues.length);
+        }
+    }
+
+    /**
+     * Sets the strategy to apply to tasks that are scheduled while the maximum number of pending tasks has been
+     * reached. Defaults to {@link OverflowStrategy#BLOCK}.
+     * <p/>
+     * Note that blocking may cause a deadlock when tasks are scheduled by the thread processing tasks of this wrapper,
+     * for example when an event listener publishes events it also handles itself.
+     *
+     * @param overflowStrategy The strategy to apply when the maximum number of pending tasks has been reached
+     */
+    public void setOverflowStrategy(OverflowStrategy overflowStrategy) {
+        Assert.notNull(overflowStrategy, "The overflow strategy may not be null.");
+        this.overflowStrategy = overflowStrategy;
+    }
+
+    /**
+     * Sets the directory in which the buffer file is created when using the {@link OverflowStrategy#SPILL_TO_DISK}
+     * strategy. Defaults to the default temporary-file directory.
+     *
+     * @param spillDirectory The directory to create the buffer file in
+     */
+    public void setSpillDirectory(File spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Returns the number of tasks that have been rejected because the maximum number of pending tasks had been
+     * reached. Spilled tasks that could not be read back from disk, or could not be scheduled after being read, are
+     * counted as rejected as well.
+     *
+     * @return the number of rejected tasks
+     */
+    public long getRejectedTaskCount() {
+        return rejectedTaskCount.get();
+    }
+
+    /**
+     * Returns the number of tasks currently waiting in the buffer on disk.
+     *
+     * @return the number of tasks spilled to disk
+     */
+    public int getSpilledTaskCount() {
+        DiskSpillBuffer<T> buffer = spillBuffer;
+        if (buffer == null) {
+            return 0;
+        }
+        synchronized (buffer) {
+            return buffer.size();
+        }
+    }
+
+    /**
+     * Closes the buffer file used to spill tasks to disk, if any. Tasks still waiting in that buffer are discarded. If
+     * tasks are spilled to disk after this wrapper was closed, a new buffer file is created.
+     */
+    public synchronized void close() {
+        DiskSpillBuffer<T> buffer = spillBuffer;
+        if (buffer != null) {
+            spillBuffer = null;
+            synchronized (buffer) {
+                if (!buffer.isEmpty()) {
+                    logger.warn("Closing the spill buffer. {} tasks waiting in the buffer are discarded.",
+                                buffer.size());
+                }
+                buffer.close();
+            }
+        }
+    }
+
     /**
      * Does the actual processing of the task. This method is invoked if the scheduler has decided this task is up next
      * for execution. Implementation should not pass this scheduling to an asynchronous executor.
@@ -83,11 +236,73 @@ public abstract class AsynchronousExecutionWrapper<T> {
     protected abstract void doHandle(T task);
 
     /**
-     * Schedules this task for execution when all pre-conditions have been met.
+     * Indicates whether tasks should be handled in batches, using {@link #doHandleBatch(java.util.List)}. In that case,
+     * all tasks processed in a single transaction are passed to that method at once. Defaults to <code>false</code>.
+     *
+     * @return <code>true</code> if tasks should be handled in batches, otherwise <code>false</code>
+     */
+    protected boolean isBatchHandlingSupported() {
+        return false;
+    }
+
+    /**
+     * Does the actual processing of a batch of tasks, which are all processed in the same transaction. This method is
+     * only invoked if {@link #isBatchHandlingSupported()} returns <code>true</code>. Implementation should not pass
+     * this scheduling to an asynchronous executor.
+     * <p/>
+     * Defaults to invoking {@link #doHandle(Object)} for each of the tasks.
+     *
+     * @param tasks The tasks to handle
+     */
+    protected void doHandleBatch(List<T> tasks) {
+        for (T task : tasks) {
+            doHandle(task);
+        }
+    }
+
+    /**
+     * Schedules this task for execution when all pre-conditions have been met. If the maximum number of pending tasks
+     * has been reached, the configured {@link OverflowStrategy} is applied.
      *
      * @param task The task to schedule for processing.
      */
     protected void schedule(T task) {
+        DiskSpillBuffer<T> buffer = spillBuffer;
+        if (buffer != null) {
+            synchronized (buffer) {
+                if (!buffer.isEmpty()) {
+                    // tasks spilled earlier must be processed first
+                    buffer.add(task);
+                    return;
+                }
+            }
+        }
+        if (!tryEnqueue(task)) {
+            handleOverflow(task);
+        }
+    }
+
+    private boolean tryEnqueue(T task) {
+        Semaphore permits = pendingTaskPermits;
+        if (permits != null && !acquire(permits)) {
+            return false;
+        }
+        boolean taskScheduled = false;
+        try {
+            doSchedule(task);
+            taskScheduled = true;
+        } catch (QueueFullException e) {
+            logger.debug("Maximum number of pending tasks for the sequence of a task of type [{}] reached.",
+                         task.getClass().getSimpleName());
+        } finally {
+            if (!taskScheduled && permits != null) {
+                permits.release();
+            }
+        }
+        return taskScheduled;
+    }
+
+    private void doSchedule(T task) {
         final Object sequenceIdentifier = sequencingPolicy.getSequenceIdentifierFor(task);
         if (sequenceIdentifier == null) {
             logger.debug("Scheduling task of type [{}] for full concurrent processing",
@@ -99,10 +314,90 @@ public abstract class AsynchronousExecutionWrapper<T> {
             logger.debug("Scheduling task of type [{}] for sequential processing in group [{}]",
                          task.getClass().getSimpleName(),
                          sequenceIdentifier.toString());
-            assignEventToScheduler(task, sequenceIdentifier);
+            Stripes currentStripes = stripes;
+            if (currentStripes == null) {
+                assignEventToScheduler(task, sequenceIdentifier);
+            } else {
+                currentStripes.schedule(task, sequenceIdentifier);
+            }
         }
     }
 
+    private void handleOverflow(T task) {
+        if (overflowStrategy == OverflowStrategy.SPILL_TO_DISK) {
+            boolean spilled = false;
+            while (!spilled) {
+                DiskSpillBuffer<T> buffer = getOrCreateSpillBuffer();
+                synchronized (buffer) {
+                    // the buffer may have been closed in the meantime
+                    if (buffer == spillBuffer) {
+                        buffer.add(task);
+                        spilled = true;
+                    }
+                }
+            }
+            // capacity may have become available before the task was spilled
+            drainSpillBuffer(false);
+        } else {
+            rejectedTaskCount.incrementAndGet();
+            logger.warn("Task of type [{}] rejected. The maximum number of pending tasks has been reached.",
+                        task.getClass().getSimpleName());
+        }
+    }
+
+    private synchronized DiskSpillBuffer<T> getOrCreateSpillBuffer() {
+        if (spillBuffer == null) {
+            logger.info("Maximum number of pending tasks reached. Spilling tasks to disk.");
+            spillBuffer = new DiskSpillBuffer<T>(spillDirectory);
+        }
+        return spillBuffer;
+    }
+
+    /**
+     * Requests the tasks in the spill buffer to be moved into memory, as long as capacity is available. Only one thread
+     * drains at a time. Requests made while another thread is draining cause that thread to make another attempt.
+     *
+     * @param async Whether to drain the buffer using the executor, instead of in the calling thread
+     */
+    private void drainSpillBuffer(boolean async) {
+        DiskSpillBuffer<T> buffer = spillBuffer;
+        if (buffer == null || buffer.isEmpty() || drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        if (async) {
+            try {
+                executor.execute(spillBufferDrainer);
+                return;
+            } catch (RejectedExecutionException e) {
+                logger.info("Executor refused to move spilled tasks into memory. Moving them in the current thread.");
+            }
+        }
+        spillBufferDrainer.run();
+    }
+
+    private boolean acquire(Semaphore permits) {
+        if (overflowStrategy != OverflowStrategy.BLOCK) {
+            return permits.tryAcquire();
+        }
+        try {
+            permits.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            logger.warn("Thread was interrupted while waiting for capacity to schedule a task.");
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void releaseCapacity() {
+        Semaphore permits = pendingTaskPermits;
+        if (permits != null) {
+            permits.release();
+        }
+        // spilled tasks are not read in the thread taking tasks for processing
+        drainSpillBuffer(true);
+    }
+
     private void assignEventToScheduler(T task, Object sequenceIdentifier) {
         boolean taskScheduled = false;
         while (!taskScheduled) {
@@ -129,7 +424,11 @@ public abstract class AsynchronousExecutionWrapper<T> {
     protected EventProcessingScheduler<T> newProcessingScheduler(
             EventProcessingScheduler.ShutdownCallback shutDownCallback) {
         logger.debug("Initializing new processing scheduler.");
-        return newProcessingScheduler(shutDownCallback, new LinkedList<T>());
+        return newProcessingScheduler(shutDownCallback, newTaskQueue());
+    }
+
+    private Queue<T> newTaskQueue() {
+        return new CapacityBoundQueue(new ConcurrentLinkedQueue<T>(), maxPendingTasksPerSequence);
     }
 
     /**
@@ -148,9 +447,152 @@ public abstract class AsynchronousExecutionWrapper<T> {
             protected void doHandle(T task) {
                 AsynchronousExecutionWrapper.this.doHandle(task);
             }
+
+            @Override
+            protected boolean isBatchHandlingSupported() {
+                return AsynchronousExecutionWrapper.this.isBatchHandlingSupported();
+            }
+
+            @Override
+            protected void doHandleBatch(List<T> tasks) {
+                AsynchronousExecutionWrapper.this.doHandleBatch(tasks);
+            }
         };
     }
 
+    /**
+     * Queue that keeps track of the capacity used by the tasks it contains. A task's capacity is released as soon as
+     * it is taken from the queue for processing. The number of tasks in the queue is counted, since computing the size
+     * of a non-blocking queue requires a walk over all of its elements.
+     */
+    private final class CapacityBoundQueue extends AbstractQueue<T> {
+
+        private final Queue<T> delegate;
+        private final Semaphore permits;
+        private final AtomicInteger size = new AtomicInteger();
+
+        private CapacityBoundQueue(Queue<T> delegate, int capacity) {
+            this.delegate = delegate;
+            this.permits = capacity == 0 ? null : new Semaphore(capacity);
+        }
+
+        @Override
+        public boolean offer(T task) {
+            if (permits != null && !acquire(permits)) {
+                return false;
+            }
+            // the size is incremented first, so that polling the task can never make it negative
+            size.incrementAndGet();
+            if (!delegate.offer(task)) {
+                size.decrementAndGet();
+                if (permits != null) {
+                    permits.release();
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean add(T task) {
+            if (!offer(task)) {
+                throw new QueueFullException();
+            }
+            return true;
+        }
+
+        @Override
+        public T poll() {
+            T task = delegate.poll();
+            if (task != null) {
+                size.decrementAndGet();
+                if (permits != null) {
+                    permits.release();
+                }
+                releaseCapacity();
+            }
+            return task;
+        }
+
+        @Override
+        public T peek() {
+            return delegate.peek();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+
+        @Override
+        public int size() {
+            return size.get();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return Collections.unmodifiableCollection(delegate).iterator();
+        }
+    }
+
+    private static final class QueueFullException extends IllegalStateException {
+
+        private static final long serialVersionUID = -2398475304612376122L;
+
+        private QueueFullException() {
+            super("The maximum number of pending tasks for this sequence has been reached");
+        }
+    }
+
+    /**
+     * Moves tasks from the spill buffer into memory, as long as capacity is available. Keeps making attempts until no
+     * more drain requests have been made during the previous attempt. Tasks that cannot be scheduled are discarded, to
+     * prevent them from blocking the tasks behind them.
+     */
+    private final class SpillBufferDrainer implements Runnable {
+
+        @Override
+        public void run() {
+            int requests = 1;
+            do {
+                DiskSpillBuffer<T> buffer = spillBuffer;
+                if (buffer != null) {
+                    try {
+                        synchronized (buffer) {
+                            drain(buffer);
+                        }
+                    } catch (RuntimeException e) {
+                        logger.error("An error occurred while moving spilled tasks back into memory.", e);
+                    }
+                }
+                requests = drainRequests.addAndGet(-requests);
+            } while (requests != 0);
+        }
+
+        private void drain(DiskSpillBuffer<T> buffer) {
+            try {
+                T task = buffer.peek();
+                while (task != null && enqueueOrDiscard(task)) {
+                    buffer.remove();
+                    task = buffer.peek();
+                }
+            } finally {
+                rejectedTaskCount.addAndGet(buffer.clearDiscardedCount());
+            }
+        }
+
+        private boolean enqueueOrDiscard(T task) {
+            try {
+                return tryEnqueue(task);
+            } catch (RuntimeException e) {
+                rejectedTaskCount.incrementAndGet();
+                logger.error(String.format("Unable to schedule a spilled task of type [%s]. The task is discarded.",
+                                           task.getClass().getSimpleName()), e);
+                return true;
+            }
+        }
+    }
+
     private static class NoActionCallback implements EventProcessingScheduler.ShutdownCallback {
 
         /**
@@ -178,4 +620,62 @@ public abstract class AsynchronousExecutionWrapper<T> {
             transactions.remove(sequenceIdentifier, scheduler);
         }
     }
+
+    /**
+     * Fixed set of stripes, each backed by a single queue. A stripe's scheduler shuts down when it runs out of tasks,
+     * after which a new scheduler is created for the same queue as soon as tasks arrive. Since a scheduler only shuts
+     * down when its queue is empty and it no longer accepts tasks, at most one scheduler processes a stripe's queue
+     * at any time.
+     */
+    private final class Stripes {
+
+        private final AtomicReferenceArray<EventProcessingScheduler<T>> schedulers;
+        private final Queue<T>[] queues;
+        private final EventProcessingScheduler.ShutdownCallback[] cleanUpCallbacks;
+
+        @SuppressWarnings({"unchecked"})
+        private Stripes(int stripeCount) {
+            schedulers = new AtomicReferenceArray<EventProcessingScheduler<T>>(stripeCount);
+            queues = new Queue[stripeCount];
+            cleanUpCallbacks = new EventProcessingScheduler.ShutdownCallback[stripeCount];
+            for (int t = 0; t < stripeCount; t++) {
+                queues[t] = newTaskQueue();
+                cleanUpCallbacks[t] = new StripeCleanUp(t);
+            }
+        }
+
+        private void schedule(T task, Object sequenceIdentifier) {
+            int stripe = (sequenceIdentifier.hashCode() & Integer.MAX_VALUE) % queues.length;
+            boolean taskScheduled = false;
+            while (!taskScheduled) {
+                EventProcessingScheduler<T> currentScheduler = schedulers.get(stripe);
+                if (currentScheduler == null) {
+                    schedulers.compareAndSet(stripe, null,
+                                             newProcessingScheduler(cleanUpCallbacks[stripe], queues[stripe]));
+                } else {
+                    taskScheduled = currentScheduler.scheduleEvent(task);
+                    if (!taskScheduled) {
+                        schedulers.compareAndSet(stripe, currentScheduler, null);
+                    }
+                }
+            }
+        }
+
+        private final class StripeCleanUp implements EventProcessingScheduler.ShutdownCallback {
+
+            private final int stripe;
+
+            private StripeCleanUp(int stripe) {
+                this.stripe = stripe;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void afterShutdown(EventProcessingScheduler scheduler) {
+                schedulers.compareAndSet(stripe, scheduler, null);
+            }
+        }
+    }
 }
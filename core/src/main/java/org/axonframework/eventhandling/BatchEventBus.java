@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.domain.Event;
+
+import java.util.List;
+
+/**
+ * Specialist interface for event buses that are able to publish a number of events at once. Event publishers, such as
+ * the Unit of Work, check whether an event bus implements this interface. Other event buses receive the events one by
+ * one through {@link #publish(org.axonframework.domain.Event)}.
+ *
+ * @author Allard Buijze
+ * @see BatchEventListener
+ * @since 1.0
+ */
+public interface BatchEventBus extends EventBus {
+
+    /**
+     * Publish a number of events on this bus, in the order given. Each event is dispatched to all subscribed event
+     * listeners. Listeners implementing {@link BatchEventListener} may receive the events they handle as a single
+     * batch.
+     *
+     * @param events the events to publish
+     */
+    void publish(List<? extends Event> events);
+}
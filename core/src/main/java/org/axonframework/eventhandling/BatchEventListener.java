@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.domain.Event;
+
+import java.util.List;
+
+/**
+ * Specialist interface for event listeners that are able to process a number of events at once, for example by
+ * writing them to a database using a single (batch) statement.
+ * <p/>
+ * Event Buses implementing {@link BatchEventBus} pass events published together (e.g. the events of a single Unit of
+ * Work) to the {@link #handleBatch(java.util.List)} method. When used with an {@link AsynchronousEventHandlerWrapper}, each transactional
+ * batch is passed to the {@link #handleBatch(java.util.List)} method as a whole. Individually published events are
+ * still passed to the {@link #handle(org.axonframework.domain.Event)} method.
+ *
+ * @author Allard Buijze
+ * @see BatchEventBus#publish(java.util.List)
+ * @since 1.0
+ */
+public interface BatchEventListener extends EventListener {
+
+    /**
+     * Handles the given <code>events</code>, in the order they are provided. The result must be equal to invoking
+     * {@link #handle(org.axonframework.domain.Event)} for each of the events.
+     *
+     * @param events The events to handle
+     */
+    void handleBatch(List<Event> events);
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+/**
+ * Interface describing an event listener that limits the number of events waiting for processing. The {@link
+ * SimpleEventBus} publishes the totals of all subscribed bounded event listeners through its management interface.
+ *
+ * @author Allard Buijze
+ * @see OverflowStrategy
+ * @since 1.0
+ */
+public interface BoundedEventListener extends EventListener {
+
+    /**
+     * Returns the number of events that have been rejected because the maximum number of events waiting for
+     * processing had been reached.
+     *
+     * @return the number of rejected events
+     */
+    long getRejectedEventCount();
+
+    /**
+     * Returns the number of events currently waiting for processing in a buffer on disk.
+     *
+     * @return the number of events spilled to disk
+     */
+    int getSpilledEventCount();
+}
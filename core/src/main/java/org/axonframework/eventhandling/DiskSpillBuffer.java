@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.util.SerializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * First-in-first-out buffer that stores objects in a file on local disk, using Java serialization. Each entry is
+ * written as its length, followed by its serialized form.
+ * <p/>
+ * When all entries have been read, the file is truncated. When the entries that have been read take up more space
+ * than the entries that remain (and at least {@value #COMPACTION_THRESHOLD} bytes), the remaining entries are moved
+ * to the start of the file. This keeps the file size proportional to the number of entries in the buffer, even when
+ * the buffer never becomes empty.
+ * <p/>
+ * Entries that cannot be deserialized are logged and discarded, so that they do not block the entries behind them.
+ * <p/>
+ * This implementation is not thread safe. Except for {@link #isEmpty()}, callers must synchronize access to the
+ * buffer.
+ *
+ * @param <T> The type of object stored in the buffer
+ * @author Allard Buijze
+ * @since 1.0
+ */
+class DiskSpillBuffer<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskSpillBuffer.class);
+
+    /**
+     * The minimum number of bytes of read entries before the file is compacted.
+     */
+    static final int COMPACTION_THRESHOLD = 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final RandomAccessFile dataFile;
+    private long readPosition;
+    private long writePosition;
+    private volatile int size;
+    private T head;
+    private int discardedCount;
+
+    /**
+     * Creates a buffer backed by a new temporary file in the given <code>directory</code>. If the directory is
+     * <code>null</code>, the default temporary-file directory is used.
+     *
+     * @param directory The directory to create the buffer file in
+     */
+    DiskSpillBuffer(File directory) {
+        try {
+            this.file = File.createTempFile("axon-spill-", ".buffer", directory);
+            this.file.deleteOnExit();
+            this.dataFile = new RandomAccessFile(file, "rw");
+        } catch (IOException e) {
+            throw new SerializationException("Unable to create a buffer file to spill tasks to", e);
+        }
+    }
+
+    /**
+     * Appends the given <code>entry</code> to the end of the buffer.
+     *
+     * @param entry The entry to append
+     */
+    void add(T entry) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(entry);
+            out.close();
+            dataFile.seek(writePosition);
+            dataFile.writeInt(bytes.size());
+            dataFile.write(bytes.toByteArray());
+            writePosition = dataFile.getFilePointer();
+            size++;
+        } catch (IOException e) {
+            throw new SerializationException("Unable to write a task to the spill buffer", e);
+        }
+    }
+
+    /**
+     * Returns the first entry in the buffer, without removing it, or <code>null</code> if the buffer is empty. Entries
+     * that cannot be deserialized are discarded.
+     *
+     * @return the first entry in the buffer
+     */
+    @SuppressWarnings({"unchecked"})
+    T peek() {
+        while (head == null && size > 0) {
+            byte[] data;
+            try {
+                dataFile.seek(readPosition);
+                data = new byte[dataFile.readInt()];
+                dataFile.readFully(data);
+                readPosition = dataFile.getFilePointer();
+            } catch (IOException e) {
+                throw new SerializationException("Unable to read a task from the spill buffer", e);
+            }
+            try {
+                ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+                head = (T) in.readObject();
+            } catch (IOException e) {
+                discardUnreadableEntry(e);
+            } catch (ClassNotFoundException e) {
+                discardUnreadableEntry(e);
+            }
+        }
+        return head;
+    }
+
+    /**
+     * Removes the first entry from the buffer. Does nothing if the buffer is empty.
+     */
+    void remove() {
+        if (peek() == null) {
+            return;
+        }
+        head = null;
+        entryRemoved();
+    }
+
+    /**
+     * Indicates whether this buffer contains any entries. This method may be called without synchronizing on the
+     * buffer, in which case the result may be outdated.
+     *
+     * @return <code>true</code> if the buffer is empty, otherwise <code>false</code>
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of entries in this buffer.
+     *
+     * @return the number of entries in this buffer
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of entries that were discarded because they could not be deserialized since the last
+     * invocation of this method, and resets that number.
+     *
+     * @return the number of entries discarded since the last invocation
+     */
+    int clearDiscardedCount() {
+        int count = discardedCount;
+        discardedCount = 0;
+        return count;
+    }
+
+    /**
+     * Closes the buffer and deletes its file. Any entries remaining in the buffer are lost.
+     */
+    void close() {
+        size = 0;
+        head = null;
+        try {
+            dataFile.close();
+        } catch (IOException e) {
+            logger.info("An error occurred while closing the spill buffer file", e);
+        }
+        if (!file.delete()) {
+            logger.info("Unable to delete spill buffer file {}", file);
+        }
+    }
+
+    private void discardUnreadableEntry(Exception cause) {
+        logger.error("Unable to read a task from the spill buffer. The task is discarded.", cause);
+        discardedCount++;
+        entryRemoved();
+    }
+
+    private void entryRemoved() {
+        size--;
+        try {
+            if (size == 0) {
+                readPosition = 0;
+                writePosition = 0;
+                dataFile.setLength(0);
+            } else if (readPosition >= COMPACTION_THRESHOLD && readPosition >= writePosition - readPosition) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Unable to truncate the spill buffer", e);
+        }
+    }
+
+    /**
+     * Moves the unread entries to the start of the file. Since the unread part of the file is no larger than the
+     * read part, the source and destination regions do not overlap.
+     */
+    private void compact() throws IOException {
+        FileChannel channel = dataFile.getChannel();
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        long remaining = writePosition - readPosition;
+        long copied = 0;
+        while (copied < remaining) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), remaining - copied));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, readPosition + copied + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of the spill buffer file");
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, copied + buffer.position());
+            }
+            copied += buffer.limit();
+        }
+        readPosition = 0;
+        writePosition = remaining;
+        dataFile.setLength(remaining);
+    }
+}
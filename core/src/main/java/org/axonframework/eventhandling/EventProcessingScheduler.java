@@ -19,18 +19,28 @@ package org.axonframework.eventhandling;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedList;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.axonframework.eventhandling.YieldPolicy.DO_NOT_YIELD;
 
 /**
  * Scheduler that keeps track of (Event processing) tasks that need to be executed sequentially.
+ * <p/>
+ * Events may be scheduled by any number of threads, while they are processed by at most one thread at a time. The
+ * scheduler does not use locks: events are stored in a non-blocking queue, and the scheduling and shutdown state is
+ * kept in atomic variables.
  *
  * @param <T> The type of class representing the processing instruction for the event.
  * @author Allard Buijze
@@ -39,22 +49,24 @@ import static org.axonframework.eventhandling.YieldPolicy.DO_NOT_YIELD;
 public abstract class EventProcessingScheduler<T> implements Runnable {
 
     private static final Logger logger = LoggerFactory.getLogger(EventProcessingScheduler.class);
+    private static final int CLOSING = -1;
+    private static final int CLOSED = -2;
 
     private final ShutdownCallback shutDownCallback;
     private final TransactionManager transactionManager;
     private final Executor executor;
-    // guarded by "this"
     private final Queue<T> eventQueue;
-    private final List<T> currentBatch = new LinkedList<T>();
-    // guarded by "this"
-    private boolean isScheduled = false;
-    private volatile boolean cleanedUp;
+    // only accessed by the processing thread
+    private final List<T> currentBatch = new ArrayList<T>();
+    private final AtomicBoolean isScheduled = new AtomicBoolean(false);
+    // the number of threads adding events to the queue, or one of the CLOSING or CLOSED markers
+    private final AtomicInteger state = new AtomicInteger(0);
     private volatile long retryAfter;
     private volatile boolean transactionStarted;
 
     /**
-     * Initialize a scheduler using the given <code>executor</code>. This scheduler uses an unbounded queue to schedule
-     * events.
+     * Initialize a scheduler using the given <code>executor</code>. This scheduler uses an unbounded, non-blocking
+     * queue to schedule events.
      *
      * @param transactionManager The transaction manager that manages underlying transactions
      * @param executor           The executor service that will process the events
@@ -62,13 +74,14 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      */
     public EventProcessingScheduler(TransactionManager transactionManager, Executor executor,
                                     ShutdownCallback shutDownCallback) {
-        this(transactionManager, new LinkedList<T>(), executor, shutDownCallback);
+        this(transactionManager, new CountingQueue<T>(), executor, shutDownCallback);
     }
 
     /**
      * Initialize a scheduler using the given <code>executor</code>. The <code>eventQueue</code> is the queue from which
      * the scheduler should obtain it's events. This queue must be thread safe, as it can be used simultaneously by
-     * multiple threads.
+     * multiple threads. The scheduler does not synchronize access to the queue itself. The size of the queue is
+     * requested each time the scheduler starts processing, so the queue should be able to provide it in constant time.
      *
      * @param transactionManager The transaction manager that manages underlying transactions
      * @param executor           The executor service that will process the events
@@ -95,13 +108,24 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      *
      * @throws IllegalStateException if the queue in this scheduler does not have the capacity to add this event
      */
-    public synchronized boolean scheduleEvent(T event) {
-        if (cleanedUp) {
-            // this scheduler has been shut down; accept no more events
-            return false;
+    public boolean scheduleEvent(T event) {
+        int currentState;
+        do {
+            currentState = state.get();
+            if (currentState == CLOSED) {
+                // this scheduler has been shut down; accept no more events
+                return false;
+            } else if (currentState == CLOSING) {
+                // the processing thread is verifying whether it may shut down. That only takes a moment.
+                Thread.yield();
+            }
+        } while (currentState < 0 || !state.compareAndSet(currentState, currentState + 1));
+        try {
+            // add the event to the queue which this scheduler processes
+            eventQueue.add(event);
+        } finally {
+            state.decrementAndGet();
         }
-        // add the event to the queue which this scheduler processes
-        eventQueue.add(event);
         scheduleIfNecessary();
         return true;
     }
@@ -114,7 +138,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      *
      * @return the next DomainEvent for processing, of null if none is available
      */
-    private synchronized T nextEvent() {
+    private T nextEvent() {
         T e = eventQueue.poll();
         if (e != null) {
             currentBatch.add(e);
@@ -130,8 +154,8 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      *
      * @return true if yielding succeeded, false otherwise.
      */
-    private synchronized boolean yield() {
-        if (eventQueue.size() > 0 || currentBatch.size() > 0) {
+    private boolean yield() {
+        if (!eventQueue.isEmpty() || !currentBatch.isEmpty() || !tryClose()) {
             try {
                 if (retryAfter <= System.currentTimeMillis()) {
                     executor.execute(this);
@@ -155,6 +179,24 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         return true;
     }
 
+    /**
+     * Attempts to close this scheduler for new events. This only succeeds if no thread is adding an event and the queue
+     * is empty. While the queue is verified, threads scheduling events wait for the outcome.
+     *
+     * @return true if the scheduler was closed, false if events are (about to be) queued
+     */
+    private boolean tryClose() {
+        if (!state.compareAndSet(0, CLOSING)) {
+            return false;
+        }
+        if (eventQueue.isEmpty()) {
+            state.set(CLOSED);
+            return true;
+        }
+        state.set(0);
+        return false;
+    }
+
     private boolean scheduleDelayedExecution(long waitTimeRemaining) {
         if (executor instanceof ScheduledExecutorService) {
             logger.info("Executor supports delayed executing. Rescheduling for processing in {} millis",
@@ -170,9 +212,8 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      * <p/>
      * This method is thread safe
      */
-    private synchronized void scheduleIfNecessary() {
-        if (!isScheduled) {
-            isScheduled = true;
+    private void scheduleIfNecessary() {
+        if (isScheduled.compareAndSet(false, true)) {
             executor.execute(this);
         }
     }
@@ -182,7 +223,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      *
      * @return the number of events currently queued for processing.
      */
-    private synchronized int queuedEventCount() {
+    private int queuedEventCount() {
         return eventQueue.size();
     }
 
@@ -209,7 +250,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
              * - or
              *   - yielding failed because the executor rejected the execution
              */
-            mayContinue = (!inRetryMode && queuedEventCount() > 0 && DO_NOT_YIELD.equals(status.getYieldPolicy()))
+            mayContinue = (!inRetryMode && !eventQueue.isEmpty() && DO_NOT_YIELD.equals(status.getYieldPolicy()))
                     || !yield();
             status.resetTransactionStatus();
         }
@@ -253,7 +294,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         }
     }
 
-    private synchronized void prepareBatchRetry(TransactionStatus status, Exception e) {
+    private void prepareBatchRetry(TransactionStatus status, Exception e) {
         status.markFailed(e);
         tryAfterTransactionCall(status);
         switch (status.getRetryPolicy()) {
@@ -294,10 +335,15 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
     }
 
     private void retryEventBatch(TransactionStatus status) {
-        for (T event : this.currentBatch) {
+        if (isBatchHandlingSupported()) {
             startTransactionIfNecessary(status);
-            doHandle(event);
-            status.recordEventProcessed();
+            handleAll(new ArrayList<T>(currentBatch), status);
+        } else {
+            for (T event : this.currentBatch) {
+                startTransactionIfNecessary(status);
+                doHandle(event);
+                status.recordEventProcessed();
+            }
         }
         currentBatch.clear();
     }
@@ -310,7 +356,49 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      */
     protected abstract void doHandle(T event);
 
+    /**
+     * Indicates whether events should be handled in batches, using {@link #doHandleBatch(java.util.List)}, instead of
+     * one by one. In that case, all events for a transaction are taken from the queue before they are handled.
+     * <p/>
+     * Defaults to <code>false</code>.
+     *
+     * @return <code>true</code> if events should be handled in batches, otherwise <code>false</code>
+     */
+    protected boolean isBatchHandlingSupported() {
+        return false;
+    }
+
+    /**
+     * Does the actual processing of a batch of events, which are all processed in the same transaction. This method is
+     * only invoked if {@link #isBatchHandlingSupported()} returns <code>true</code>. Implementation should not pass
+     * this scheduling to an asynchronous executor.
+     * <p/>
+     * Defaults to invoking {@link #doHandle(Object)} for each of the events.
+     *
+     * @param events The events to handle
+     */
+    protected void doHandleBatch(List<T> events) {
+        for (T event : events) {
+            doHandle(event);
+        }
+    }
+
     private void handleEventBatch(TransactionStatus status) {
+        if (isBatchHandlingSupported()) {
+            T event = nextEvent();
+            if (event != null) {
+                // the transaction manager may change the transaction size, so start the transaction first
+                startTransactionIfNecessary(status);
+                List<T> events = new ArrayList<T>();
+                events.add(event);
+                int remaining = status.getMaxTransactionSize() - status.getEventsProcessedInTransaction();
+                while (events.size() < remaining && (event = nextEvent()) != null) {
+                    events.add(event);
+                }
+                handleAll(events, status);
+            }
+            return;
+        }
         T event;
         while (!status.isTransactionSizeReached() && (event = nextEvent()) != null) {
             startTransactionIfNecessary(status);
@@ -319,6 +407,13 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         }
     }
 
+    private void handleAll(List<T> events, TransactionStatus status) {
+        doHandleBatch(events);
+        for (int t = 0; t < events.size(); t++) {
+            status.recordEventProcessed();
+        }
+    }
+
     private void startTransactionIfNecessary(TransactionStatus status) {
         if (!transactionStarted) {
             transactionManager.beforeTransaction(status);
@@ -326,12 +421,63 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         }
     }
 
-    private synchronized void cleanUp() {
-        isScheduled = false;
-        cleanedUp = true;
+    private void cleanUp() {
+        isScheduled.set(false);
         shutDownCallback.afterShutdown(this);
     }
 
+    /**
+     * Non-blocking queue that counts its elements, since computing the size of a {@link ConcurrentLinkedQueue} requires
+     * a walk over all of its elements.
+     *
+     * @param <E> The type of element held in the queue
+     */
+    private static final class CountingQueue<E> extends AbstractQueue<E> {
+
+        private final Queue<E> delegate = new ConcurrentLinkedQueue<E>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        @Override
+        public boolean offer(E element) {
+            // the size is incremented first, so that polling the element can never make it negative
+            size.incrementAndGet();
+            if (!delegate.offer(element)) {
+                size.decrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public E poll() {
+            E element = delegate.poll();
+            if (element != null) {
+                size.decrementAndGet();
+            }
+            return element;
+        }
+
+        @Override
+        public E peek() {
+            return delegate.peek();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+
+        @Override
+        public int size() {
+            return size.get();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return Collections.unmodifiableCollection(delegate).iterator();
+        }
+    }
+
     /**
      * Callback that allows the SequenceManager to receive a notification when this scheduler finishes processing
      * events.
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+/**
+ * Enumeration of the strategies an {@link AsynchronousExecutionWrapper} can apply when a task is scheduled while the
+ * maximum number of pending tasks has been reached.
+ *
+ * @author Allard Buijze
+ * @see AsynchronousExecutionWrapper#setOverflowStrategy(OverflowStrategy)
+ * @since 1.0
+ */
+public enum OverflowStrategy {
+
+    /**
+     * Blocks the thread scheduling the task until capacity becomes available. If that thread is interrupted while
+     * waiting, the task is rejected.
+     */
+    BLOCK,
+
+    /**
+     * Rejects the task. The task is not processed, and the number of rejected tasks is incremented.
+     */
+    REJECT,
+
+    /**
+     * Writes the task to a buffer on local disk. Buffered tasks are moved back into memory, in the order they were
+     * scheduled, as soon as capacity becomes available. As long as the buffer contains tasks, newly scheduled tasks
+     * are appended to the buffer to preserve ordering. Tasks must be {@link java.io.Serializable} to use this
+     * strategy.
+     */
+    SPILL_TO_DISK
+}
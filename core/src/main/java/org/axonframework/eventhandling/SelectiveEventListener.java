@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.domain.Event;
+
+/**
+ * Specialist interface for event listeners that only handle specific types of events. Event Buses may use this
+ * information to avoid dispatching events to listeners that would ignore them.
+ * <p/>
+ * The answer for a given type of event must not change for the lifetime of the listener, as Event Buses may cache it.
+ *
+ * @author Allard Buijze
+ * @see SimpleEventBus
+ * @since 1.0
+ */
+public interface SelectiveEventListener extends EventListener {
+
+    /**
+     * Indicates whether this listener handles events of the given <code>eventType</code>. If this method returns
+     * <code>false</code>, events of that type may not be passed to the {@link #handle(org.axonframework.domain.Event)}
+     * method at all.
+     *
+     * @param eventType The concrete type of event
+     * @return <code>true</code> if this listener handles events of the given type, otherwise <code>false</code>
+     */
+    boolean canHandle(Class<? extends Event> eventType);
+}
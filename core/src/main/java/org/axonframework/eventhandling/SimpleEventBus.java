@@ -21,7 +21,13 @@ import org.axonframework.monitoring.jmx.JmxConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
@@ -29,16 +35,27 @@ import java.util.concurrent.CopyOnWriteArraySet;
  * subscribed listeners.
  * <p/>
  * Listeners are expected to implement asynchronous handling themselves.
+ * <p/>
+ * Listeners implementing {@link SelectiveEventListener} only receive the events they can handle. For each concrete type
+ * of event, the event bus keeps the listeners that need to receive it. This index is rebuilt when listeners subscribe
+ * or unsubscribe.
+ * <p/>
+ * When a list of events is published, other listeners receive these events one by one, exactly as if each event was
+ * published separately: each event is passed to all of them before the next event is dispatched. Each {@link
+ * BatchEventListener} receives the events it can handle as a single batch, after all events of the list have been
+ * dispatched to the other listeners.
  *
  * @author Allard Buijze
  * @see AsynchronousEventHandlerWrapper
  * @since 0.5
  */
-public class SimpleEventBus implements EventBus {
+public class SimpleEventBus implements BatchEventBus {
 
     private static final Logger logger = LoggerFactory.getLogger(SimpleEventBus.class);
     private final Set<EventListener> listeners = new CopyOnWriteArraySet<EventListener>();
-    private volatile SimpleEventBusStatistics statistics = new SimpleEventBusStatistics();
+    private volatile SimpleEventBusStatistics statistics = new SimpleEventBusStatistics(listeners);
+    private volatile ConcurrentMap<Class<?>, EventListener[]> routingIndex =
+            new ConcurrentHashMap<Class<?>, EventListener[]>();
 
     /**
      * Initializes the SimpleEventBus and registers the mbeans for management information.
@@ -64,6 +81,7 @@ public class SimpleEventBus implements EventBus {
     @Override
     public void unsubscribe(EventListener eventListener) {
         if (listeners.remove(eventListener)) {
+            clearRoutingIndex();
             Object listener = getActualListenerFrom(eventListener);
             statistics.recordUnregisteredListener(listener.getClass().getSimpleName());
             logger.debug("EventListener {} unsubscribed successfully", eventListener.getClass().getSimpleName());
@@ -79,6 +97,7 @@ public class SimpleEventBus implements EventBus {
     @Override
     public void subscribe(EventListener eventListener) {
         if (listeners.add(eventListener)) {
+            clearRoutingIndex();
             Object listener = getActualListenerFrom(eventListener);
             statistics.listenerRegistered(listener.getClass().getSimpleName());
             logger.debug("EventListener [{}] subscribed successfully", eventListener.getClass().getSimpleName());
@@ -103,11 +122,69 @@ public class SimpleEventBus implements EventBus {
     public void publish(Event event) {
         statistics.recordPublishedEvent();
 
-        for (EventListener listener : listeners) {
+        for (EventListener listener : listenersFor(event.getClass())) {
             logger.debug("Dispatching Event [{}] to EventListener [{}]",
                     event.getClass().getSimpleName(),
                     listener.getClass().getSimpleName());
             listener.handle(event);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void publish(List<? extends Event> events) {
+        if (events.size() == 1) {
+            publish(events.get(0));
+            return;
+        }
+        Map<BatchEventListener, List<Event>> batches = new LinkedHashMap<BatchEventListener, List<Event>>();
+        for (Event event : events) {
+            statistics.recordPublishedEvent();
+            for (EventListener listener : listenersFor(event.getClass())) {
+                if (listener instanceof BatchEventListener) {
+                    List<Event> batch = batches.get(listener);
+                    if (batch == null) {
+                        batch = new ArrayList<Event>(events.size());
+                        batches.put((BatchEventListener) listener, batch);
+                    }
+                    batch.add(event);
+                } else {
+                    logger.debug("Dispatching Event [{}] to EventListener [{}]",
+                            event.getClass().getSimpleName(),
+                            listener.getClass().getSimpleName());
+                    listener.handle(event);
+                }
+            }
+        }
+        for (Map.Entry<BatchEventListener, List<Event>> entry : batches.entrySet()) {
+            logger.debug("Dispatching batch of {} events to EventListener [{}]",
+                    entry.getValue().size(),
+                    entry.getKey().getClass().getSimpleName());
+            entry.getKey().handleBatch(entry.getValue());
+        }
+    }
+
+    private EventListener[] listenersFor(Class<? extends Event> eventType) {
+        // the index must be read before the listeners, to prevent storing an outdated entry in a new index
+        ConcurrentMap<Class<?>, EventListener[]> index = routingIndex;
+        EventListener[] interestedListeners = index.get(eventType);
+        if (interestedListeners == null) {
+            List<EventListener> found = new ArrayList<EventListener>();
+            for (EventListener listener : listeners) {
+                if (!(listener instanceof SelectiveEventListener)
+                        || ((SelectiveEventListener) listener).canHandle(eventType)) {
+                    found.add(listener);
+                }
+            }
+            interestedListeners = found.toArray(new EventListener[found.size()]);
+            index.put(eventType, interestedListeners);
+        }
+        return interestedListeners;
+    }
+
+    private void clearRoutingIndex() {
+        routingIndex = new ConcurrentHashMap<Class<?>, EventListener[]>();
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.axonframework.eventhandling;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -37,12 +38,16 @@ class SimpleEventBusStatistics extends StandardMBean implements SimpleEventBusSt
     private AtomicLong listenerCount = new AtomicLong(0);
     private AtomicLong publishedEventCounter = new AtomicLong(0);
     private List<String> listeners = new CopyOnWriteArrayList<String>();
+    private final Collection<EventListener> subscribedListeners;
 
     /**
-     * Creates an instance of this statistics MBean.
+     * Creates an instance of this statistics MBean, which reports on the given <code>subscribedListeners</code>.
+     *
+     * @param subscribedListeners The (live) collection of listeners subscribed to the event bus
      */
-    SimpleEventBusStatistics() {
+    SimpleEventBusStatistics(Collection<EventListener> subscribedListeners) {
         super(SimpleEventBusStatisticsMXBean.class, true);
+        this.subscribedListeners = subscribedListeners;
     }
 
     /**
@@ -83,6 +88,38 @@ class SimpleEventBusStatistics extends StandardMBean implements SimpleEventBusSt
         return Collections.unmodifiableList(listeners);
     }
 
+    /**
+     * Returns the number of events rejected by the subscribed listeners.
+     *
+     * @return long representing the number of rejected events
+     */
+    @Override
+    public long getRejectedEventsCount() {
+        long count = 0;
+        for (EventListener listener : subscribedListeners) {
+            if (listener instanceof BoundedEventListener) {
+                count += ((BoundedEventListener) listener).getRejectedEventCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of events spilled to disk by the subscribed listeners.
+     *
+     * @return long representing the number of events spilled to disk
+     */
+    @Override
+    public long getSpilledEventsCount() {
+        long count = 0;
+        for (EventListener listener : subscribedListeners) {
+            if (listener instanceof BoundedEventListener) {
+                count += ((BoundedEventListener) listener).getSpilledEventCount();
+            }
+        }
+        return count;
+    }
+
     /*----- end of jmx enabled methods -----*/
 
     /**
@@ -51,6 +51,23 @@ public interface SimpleEventBusStatisticsMXBean {
      */
     long getReceivedEventsCount();
 
+    /**
+     * Returns the number of events rejected by the registered listeners, because the maximum number of events waiting
+     * for processing had been reached.
+     *
+     * @return long representing the number of rejected events
+     * @see BoundedEventListener
+     */
+    long getRejectedEventsCount();
+
+    /**
+     * Returns the number of events currently waiting for processing in a buffer on disk, for all registered listeners.
+     *
+     * @return long representing the number of events spilled to disk
+     * @see BoundedEventListener
+     */
+    long getSpilledEventsCount();
+
     /**
      * resets the amount of events received.
      */
@@ -28,7 +28,10 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * Utility class that supports invocation of specific handler methods for a given event. See {@link EventHandler} for
@@ -40,6 +43,9 @@ import java.util.Iterator;
  */
 public class AnnotationEventHandlerInvoker extends AbstractHandlerInvoker {
 
+    private static final Set<Class<?>> VALIDATED_TYPES =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Class<?>, Boolean>()));
+
     /**
      * Initialize an event handler invoker that invokes handlers on the given <code>target</code>.
      *
@@ -72,6 +78,16 @@ public class AnnotationEventHandlerInvoker extends AbstractHandlerInvoker {
         }
     }
 
+    /**
+     * Indicates whether the target has an event handler for events of the given <code>eventType</code>.
+     *
+     * @param eventType The type of event
+     * @return <code>true</code> if an event handler exists for the given type of event, otherwise <code>false</code>
+     */
+    public boolean canHandle(Class<? extends Event> eventType) {
+        return findHandlerMethod(eventType) != null;
+    }
+
     /**
      * Invoke the "BeforeTransaction" method on the target. This is the method annotated with {@link
      * org.axonframework.eventhandling.annotation.BeforeTransaction}
@@ -123,9 +139,13 @@ public class AnnotationEventHandlerInvoker extends AbstractHandlerInvoker {
     }
 
     private void validateEventHandlerMethods(Object target) {
+        if (VALIDATED_TYPES.contains(target.getClass())) {
+            return;
+        }
         for (Method m : ReflectionUtils.methodsOf(target.getClass())) {
             validate(m);
         }
+        VALIDATED_TYPES.add(target.getClass());
     }
 
     private void validate(Method method) {
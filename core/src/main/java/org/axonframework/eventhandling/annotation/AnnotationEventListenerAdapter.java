@@ -28,6 +28,7 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.List;
 import java.util.concurrent.Executor;
 
 import static java.security.AccessController.doPrivileged;
@@ -39,20 +40,52 @@ import static org.axonframework.util.ReflectionUtils.findAnnotation;
  * <p/>
  * If the event listener has the {@link AsynchronousEventListener} annotation, it is also configured to handle events
  * asynchronously. In that case, event processing is handed over to the given {@link java.util.concurrent.Executor}.
+ * <p/>
+ * If the annotated bean implements {@link BatchEventListener}, batches of events are passed to its {@link
+ * BatchEventListener#handleBatch(java.util.List) handleBatch} method. Individual events are always passed to the
+ * {@link EventHandler} annotated methods.
+ * <p/>
+ * Instances of this class do not implement {@link BatchEventListener} themselves, so that an event bus delivers each
+ * event to them in turn with the other listeners. Use {@link #createAdapter(Object, java.util.concurrent.Executor,
+ * org.axonframework.eventhandling.EventBus)} to create an adapter that receives batches when the annotated bean can
+ * handle them, or when it is asynchronous.
  *
  * @author Allard Buijze
  * @see EventListener
  * @see org.axonframework.eventhandling.AsynchronousEventHandlerWrapper
  * @since 0.1
  */
-public class AnnotationEventListenerAdapter implements Subscribable, EventListenerProxy, TransactionManager {
+public class AnnotationEventListenerAdapter
+        implements Subscribable, EventListenerProxy, SelectiveEventListener, BoundedEventListener, TransactionManager {
 
     private final EventListener targetEventListener;
+    private final AnnotationEventHandlerInvoker eventHandlerInvoker;
     private final Executor executor;
     private final TransactionManager transactionManager;
     private final EventBus eventBus;
     private final Object annotatedEventListener;
 
+    /**
+     * Creates an AnnotationEventListenerAdapter for the given <code>annotatedEventListener</code>. The returned adapter
+     * implements {@link BatchEventListener} if the <code>annotatedEventListener</code> implements it, or if it is
+     * asynchronous (has the {@link AsynchronousEventListener} annotation). Event buses pass batches of events to such
+     * adapters after passing each of the events to the other listeners. Other adapters receive each event in turn with
+     * the other listeners.
+     *
+     * @param annotatedEventListener the event listener
+     * @param executor               The executor to use when wiring an Asynchronous Event Listener.
+     * @param eventBus               the event bus to register the event listener to
+     * @return an adapter for the given <code>annotatedEventListener</code>
+     */
+    public static AnnotationEventListenerAdapter createAdapter(Object annotatedEventListener, Executor executor,
+                                                               EventBus eventBus) {
+        if (annotatedEventListener instanceof BatchEventListener
+                || findAnnotation(annotatedEventListener.getClass(), AsynchronousEventListener.class) != null) {
+            return new BatchAnnotationEventListenerAdapter(annotatedEventListener, executor, eventBus);
+        }
+        return new AnnotationEventListenerAdapter(annotatedEventListener, executor, eventBus);
+    }
+
     /**
      * Initialize the AnnotationEventListenerAdapter for the given <code>annotatedEventListener</code>. When the adapter
      * subscribes, it will subscribe to the given event bus.
@@ -75,7 +108,13 @@ public class AnnotationEventListenerAdapter implements Subscribable, EventListen
      */
     public AnnotationEventListenerAdapter(Object annotatedEventListener, Executor executor, EventBus eventBus) {
         this.annotatedEventListener = annotatedEventListener;
-        EventListener adapter = new TargetEventListener(new AnnotationEventHandlerInvoker(annotatedEventListener));
+        this.eventHandlerInvoker = new AnnotationEventHandlerInvoker(annotatedEventListener);
+        EventListener adapter;
+        if (annotatedEventListener instanceof BatchEventListener) {
+            adapter = new BatchTargetEventListener(eventHandlerInvoker, (BatchEventListener) annotatedEventListener);
+        } else {
+            adapter = new TargetEventListener(eventHandlerInvoker);
+        }
         this.transactionManager = createTransactionManagerFor(annotatedEventListener);
         this.executor = executor;
         this.eventBus = eventBus;
@@ -98,6 +137,17 @@ public class AnnotationEventListenerAdapter implements Subscribable, EventListen
         targetEventListener.handle(event);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation returns <code>true</code> if the annotated event listener has an {@link EventHandler}
+     * annotated method for the given type of event.
+     */
+    @Override
+    public boolean canHandle(Class<? extends Event> eventType) {
+        return eventHandlerInvoker.canHandle(eventType);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -115,12 +165,42 @@ public class AnnotationEventListenerAdapter implements Subscribable, EventListen
     }
 
     /**
-     * Unsubscribe the EventListener with the configured EventBus.
+     * {@inheritDoc}
+     * <p/>
+     * This implementation returns 0 if the annotated event listener is not asynchronous.
+     */
+    @Override
+    public long getRejectedEventCount() {
+        if (targetEventListener instanceof BoundedEventListener) {
+            return ((BoundedEventListener) targetEventListener).getRejectedEventCount();
+        }
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation returns 0 if the annotated event listener is not asynchronous.
+     */
+    @Override
+    public int getSpilledEventCount() {
+        if (targetEventListener instanceof BoundedEventListener) {
+            return ((BoundedEventListener) targetEventListener).getSpilledEventCount();
+        }
+        return 0;
+    }
+
+    /**
+     * Unsubscribe the EventListener with the configured EventBus. If the listener is asynchronous, any buffer file used
+     * to spill events to disk is closed, discarding the events still waiting in it.
      */
     @Override
     @PreDestroy
     public void unsubscribe() {
         eventBus.unsubscribe(this);
+        if (targetEventListener instanceof AsynchronousEventHandlerWrapper) {
+            ((AsynchronousEventHandlerWrapper) targetEventListener).close();
+        }
     }
 
     /**
@@ -182,10 +262,16 @@ public class AnnotationEventListenerAdapter implements Subscribable, EventListen
     private AsynchronousEventHandlerWrapper createAsynchronousWrapperForBean(Object bean,
                                                                              EventListener adapter) {
 
-        return new AsynchronousEventHandlerWrapper(adapter,
-                                                   transactionManager,
-                                                   getSequencingPolicyFor(bean),
-                                                   executor);
+        AsynchronousEventHandlerWrapper wrapper = new AsynchronousEventHandlerWrapper(adapter,
+                                                                                      transactionManager,
+                                                                                      getSequencingPolicyFor(bean),
+                                                                                      executor);
+        AsynchronousEventListener annotation = findAnnotation(bean.getClass(), AsynchronousEventListener.class);
+        wrapper.setStripeCount(annotation.stripeCount());
+        wrapper.setMaxPendingTasks(annotation.maxPendingEvents());
+        wrapper.setMaxPendingTasksPerSequence(annotation.maxPendingEventsPerSequence());
+        wrapper.setOverflowStrategy(annotation.overflowStrategy());
+        return wrapper;
     }
 
     private SequencingPolicy getSequencingPolicyFor(Object listener) {
@@ -215,6 +301,61 @@ public class AnnotationEventListenerAdapter implements Subscribable, EventListen
         return annotatedEventListener;
     }
 
+    /**
+     * Adapter that receives batches of events. Batches are passed to the target listener if it is a {@link
+     * BatchEventListener}. Otherwise, the target is an asynchronous wrapper, which is handed the events one by one.
+     * Asynchronous listeners process events on another thread, so receiving the batch after the other listeners does
+     * not change the order in which they see events.
+     */
+    private static final class BatchAnnotationEventListenerAdapter extends AnnotationEventListenerAdapter
+            implements BatchEventListener {
+
+        private BatchAnnotationEventListenerAdapter(Object annotatedEventListener, Executor executor,
+                                                    EventBus eventBus) {
+            super(annotatedEventListener, executor, eventBus);
+        }
+
+        @Override
+        public void handleBatch(List<Event> events) {
+            EventListener target = ((AnnotationEventListenerAdapter) this).targetEventListener;
+            if (target instanceof BatchEventListener) {
+                ((BatchEventListener) target).handleBatch(events);
+            } else {
+                for (Event event : events) {
+                    target.handle(event);
+                }
+            }
+        }
+    }
+
+    private static final class BatchTargetEventListener implements BatchEventListener {
+
+        private final AnnotationEventHandlerInvoker eventHandlerInvoker;
+        private final BatchEventListener batchEventListener;
+
+        public BatchTargetEventListener(AnnotationEventHandlerInvoker eventHandlerInvoker,
+                                        BatchEventListener batchEventListener) {
+            this.eventHandlerInvoker = eventHandlerInvoker;
+            this.batchEventListener = batchEventListener;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void handle(Event event) {
+            eventHandlerInvoker.invokeEventHandlerMethod(event);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void handleBatch(List<Event> events) {
+            batchEventListener.handleBatch(events);
+        }
+    }
+
     private static final class TargetEventListener implements EventListener {
 
         private final AnnotationEventHandlerInvoker eventHandlerInvoker;
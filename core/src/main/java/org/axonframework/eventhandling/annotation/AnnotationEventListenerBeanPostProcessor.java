@@ -53,7 +53,7 @@ public class AnnotationEventListenerBeanPostProcessor extends AbstractAnnotation
      */
     @Override
     protected AnnotationEventListenerAdapter initializeAdapterFor(Object bean) {
-        AnnotationEventListenerAdapter adapter = new AnnotationEventListenerAdapter(bean, executor, eventBus);
+        AnnotationEventListenerAdapter adapter = AnnotationEventListenerAdapter.createAdapter(bean, executor, eventBus);
         adapter.subscribe();
         return adapter;
     }
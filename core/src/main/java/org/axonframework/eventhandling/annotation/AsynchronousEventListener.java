@@ -17,6 +17,7 @@
 package org.axonframework.eventhandling.annotation;
 
 import org.axonframework.domain.Event;
+import org.axonframework.eventhandling.OverflowStrategy;
 import org.axonframework.eventhandling.SequencingPolicy;
 import org.axonframework.eventhandling.SequentialPolicy;
 
@@ -49,4 +50,36 @@ public @interface AsynchronousEventListener {
      * org.axonframework.eventhandling.SequencingPolicy} and provide an accessible no-arg constructor.
      */
     Class<? extends SequencingPolicy<? super Event>> sequencingPolicyClass() default SequentialPolicy.class;
+
+    /**
+     * Defines the number of stripes events with a sequence identifier are assigned to. Defaults to 0, meaning that
+     * events are processed by a scheduler per sequence identifier.
+     *
+     * @see org.axonframework.eventhandling.AsynchronousExecutionWrapper#setStripeCount(int)
+     */
+    int stripeCount() default 0;
+
+    /**
+     * Defines the maximum number of events that may be waiting for processing. Defaults to 0, meaning that the number
+     * of waiting events is unbounded.
+     *
+     * @see org.axonframework.eventhandling.AsynchronousExecutionWrapper#setMaxPendingTasks(int)
+     */
+    int maxPendingEvents() default 0;
+
+    /**
+     * Defines the maximum number of events with the same sequence identifier (or in the same stripe) that may be
+     * waiting for processing. Defaults to 0, meaning that the number of waiting events per sequence is unbounded.
+     *
+     * @see org.axonframework.eventhandling.AsynchronousExecutionWrapper#setMaxPendingTasksPerSequence(int)
+     */
+    int maxPendingEventsPerSequence() default 0;
+
+    /**
+     * Defines what happens to events published while the maximum number of waiting events has been reached. Defaults
+     * to {@link OverflowStrategy#BLOCK}.
+     *
+     * @see org.axonframework.eventhandling.AsynchronousExecutionWrapper#setOverflowStrategy(OverflowStrategy)
+     */
+    OverflowStrategy overflowStrategy() default OverflowStrategy.BLOCK;
 }
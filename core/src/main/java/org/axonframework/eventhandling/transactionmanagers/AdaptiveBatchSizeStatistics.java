@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.transactionmanagers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.StandardMBean;
+
+/**
+ * Statistics object to store information about the batch sizes chosen by the
+ * <code>AdaptiveBatchSizeTransactionManager</code> and the transactions it measured.
+ *
+ * @author Allard Buijze
+ * @see AdaptiveBatchSizeTransactionManager
+ * @since 1.0
+ */
+class AdaptiveBatchSizeStatistics extends StandardMBean implements AdaptiveBatchSizeStatisticsMXBean {
+
+    private volatile int currentBatchSize;
+    private volatile long lastCommitLatency;
+    private final AtomicLong batchSizeChangeCount = new AtomicLong();
+    private final AtomicLong transactionCount = new AtomicLong();
+    private final AtomicLong eventCount = new AtomicLong();
+    private final AtomicLong totalCommitLatency = new AtomicLong();
+
+    /**
+     * Creates an instance of this statistics MBean.
+     */
+    AdaptiveBatchSizeStatistics() {
+        super(AdaptiveBatchSizeStatisticsMXBean.class, true);
+    }
+
+    /**
+     * Sets the batch size to use before any adjustments have been made.
+     *
+     * @param batchSize The initial batch size
+     */
+    void initializeBatchSize(int batchSize) {
+        currentBatchSize = batchSize;
+    }
+
+    /**
+     * Records the batch size chosen for the next transactions.
+     *
+     * @param batchSize The new batch size
+     */
+    void recordBatchSize(int batchSize) {
+        currentBatchSize = batchSize;
+        batchSizeChangeCount.incrementAndGet();
+    }
+
+    /**
+     * Records a successful transaction.
+     *
+     * @param eventsProcessed The number of events processed in the transaction
+     * @param commitLatency   The time it took to commit the transaction, in nanoseconds
+     */
+    void recordTransaction(int eventsProcessed, long commitLatency) {
+        lastCommitLatency = commitLatency;
+        transactionCount.incrementAndGet();
+        eventCount.addAndGet(eventsProcessed);
+        totalCommitLatency.addAndGet(commitLatency);
+    }
+
+    @Override
+    public int getCurrentBatchSize() {
+        return currentBatchSize;
+    }
+
+    @Override
+    public long getBatchSizeChangeCount() {
+        return batchSizeChangeCount.get();
+    }
+
+    @Override
+    public long getTransactionCount() {
+        return transactionCount.get();
+    }
+
+    @Override
+    public double getAverageTransactionSize() {
+        long transactions = transactionCount.get();
+        return transactions == 0 ? 0 : (double) eventCount.get() / transactions;
+    }
+
+    @Override
+    public long getAverageCommitLatency() {
+        long transactions = transactionCount.get();
+        return transactions == 0 ? 0 : totalCommitLatency.get() / transactions / 1000;
+    }
+
+    @Override
+    public long getLastCommitLatency() {
+        return lastCommitLatency / 1000;
+    }
+
+    @Override
+    public void resetStatistics() {
+        batchSizeChangeCount.set(0);
+        transactionCount.set(0);
+        eventCount.set(0);
+        totalCommitLatency.set(0);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.transactionmanagers;
+
+/**
+ * Management interface for the AdaptiveBatchSizeTransactionManager monitor.
+ * <p/>
+ * Management interface as required by the JMX specification. In combination with the implementation, this interface
+ * specifies and delivers the actual JMX bean.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface AdaptiveBatchSizeStatisticsMXBean {
+
+    /**
+     * Returns the maximum number of events the next transaction may process.
+     *
+     * @return the current batch size
+     */
+    int getCurrentBatchSize();
+
+    /**
+     * Returns the number of times the batch size has been changed, from the beginning or after the last reset.
+     *
+     * @return the number of batch size changes
+     */
+    long getBatchSizeChangeCount();
+
+    /**
+     * Returns the number of successful transactions, from the beginning or after the last reset.
+     *
+     * @return the number of successful transactions
+     */
+    long getTransactionCount();
+
+    /**
+     * Returns the average number of events processed in a successful transaction, from the beginning or after the last
+     * reset.
+     *
+     * @return the average number of events per transaction
+     */
+    double getAverageTransactionSize();
+
+    /**
+     * Returns the average commit latency of successful transactions in microseconds, from the beginning or after the
+     * last reset.
+     *
+     * @return the average commit latency in microseconds
+     */
+    long getAverageCommitLatency();
+
+    /**
+     * Returns the commit latency of the last successful transaction in microseconds.
+     *
+     * @return the last commit latency in microseconds
+     */
+    long getLastCommitLatency();
+
+    /**
+     * Resets the counters and averages. The current batch size is not affected.
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.transactionmanagers;
+
+import org.axonframework.eventhandling.TransactionManager;
+import org.axonframework.eventhandling.TransactionStatus;
+import org.axonframework.monitoring.jmx.JmxConfiguration;
+import org.axonframework.util.Assert;
+
+/**
+ * TransactionManager that adapts the maximum number of events processed in a transaction based on measurements of
+ * previous transactions. The actual transactions are managed by a delegate TransactionManager. The time the delegate
+ * needs to complete the transaction (i.e. the invocation of its {@link #afterTransaction(TransactionStatus)
+ * afterTransaction} method) is considered the commit latency.
+ * <p/>
+ * When a target commit latency is configured, the batch size is decreased when commits take longer than the target,
+ * proportionally to the amount by which the target was exceeded. When commits are faster, the batch size is increased
+ * by 10%, but only if the last transaction actually used the entire batch. Without a target commit latency, the batch
+ * size is tuned to maximize throughput (events processed per second of transaction time): it keeps moving in the
+ * direction that improved throughput and reverses direction when throughput drops.
+ * <p/>
+ * The batch size overrides any maximum transaction size set by the delegate in its {@link
+ * #beforeTransaction(TransactionStatus) beforeTransaction} method. Failed transactions do not influence the batch
+ * size.
+ * <p/>
+ * The chosen batch size and measurements are available through JMX, using the {@link
+ * AdaptiveBatchSizeStatisticsMXBean} interface. As each event listener typically has its own instance, the MBean of
+ * each instance is registered under its own name.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class AdaptiveBatchSizeTransactionManager implements TransactionManager {
+
+    private static final double STEP_FACTOR = 0.1;
+    private static final double LATENCY_TOLERANCE = 1.1;
+
+    private static final ThreadLocal<Long> TRANSACTION_START = new ThreadLocal<Long>();
+
+    private final TransactionManager delegate;
+    private final AdaptiveBatchSizeStatistics statistics = new AdaptiveBatchSizeStatistics();
+    private volatile int batchSize = 50;
+    private volatile int minBatchSize = 1;
+    private volatile int maxBatchSize = 10000;
+    private volatile long targetCommitLatency;
+
+    // throughput tuning state, guarded by "this"
+    private double lastThroughput;
+    private boolean increasing = true;
+
+    /**
+     * Initializes the AdaptiveBatchSizeTransactionManager that manages transactions using the given
+     * <code>delegate</code>. The mbean for management information is registered under a name derived from the
+     * delegate, consisting of its class name (without package) and identity hash code.
+     *
+     * @param delegate The TransactionManager managing the actual transactions
+     */
+    public AdaptiveBatchSizeTransactionManager(TransactionManager delegate) {
+        this(delegate, true);
+    }
+
+    /**
+     * Initializes the AdaptiveBatchSizeTransactionManager that manages transactions using the given
+     * <code>delegate</code>. The mbean for management information is registered under the given <code>name</code>,
+     * which should identify the event listener this instance manages transactions for.
+     *
+     * @param delegate The TransactionManager managing the actual transactions
+     * @param name     The name to register the mbean under
+     */
+    public AdaptiveBatchSizeTransactionManager(TransactionManager delegate, String name) {
+        this(delegate, false);
+        Assert.notNull(name, "A name must be provided.");
+        JmxConfiguration.getInstance().registerMBean(statistics, getClass(), name);
+    }
+
+    /**
+     * Initializes the AdaptiveBatchSizeTransactionManager that manages transactions using the given
+     * <code>delegate</code>. The registration of the mbean for management information is optional. If registered, the
+     * mbean's name is derived from the delegate, consisting of its class name (without package) and identity hash
+     * code.
+     *
+     * @param delegate       The TransactionManager managing the actual transactions
+     * @param registerMBeans true to register the mbean, false for not registering it.
+     */
+    public AdaptiveBatchSizeTransactionManager(TransactionManager delegate, boolean registerMBeans) {
+        Assert.notNull(delegate, "A delegate TransactionManager must be provided.");
+        this.delegate = delegate;
+        statistics.initializeBatchSize(batchSize);
+        if (registerMBeans) {
+            JmxConfiguration.getInstance().registerMBean(statistics, getClass(), nameOf(delegate));
+        }
+    }
+
+    private static String nameOf(TransactionManager delegate) {
+        String className = delegate.getClass().getName();
+        return className.substring(className.lastIndexOf('.') + 1) + "@"
+                + Integer.toHexString(System.identityHashCode(delegate));
+    }
+
+    @Override
+    public void beforeTransaction(TransactionStatus transactionStatus) {
+        TRANSACTION_START.set(System.nanoTime());
+        delegate.beforeTransaction(transactionStatus);
+        transactionStatus.setMaxTransactionSize(batchSize);
+    }
+
+    @Override
+    public void afterTransaction(TransactionStatus transactionStatus) {
+        int maxTransactionSize = transactionStatus.getMaxTransactionSize();
+        int eventsProcessed = transactionStatus.getEventsProcessedInTransaction();
+        long commitStart = System.nanoTime();
+        try {
+            delegate.afterTransaction(transactionStatus);
+        } finally {
+            long commitEnd = System.nanoTime();
+            Long transactionStart = TRANSACTION_START.get();
+            TRANSACTION_START.remove();
+            if (transactionStatus.isSuccessful() && eventsProcessed > 0) {
+                long commitLatency = commitEnd - commitStart;
+                long transactionTime = commitEnd - (transactionStart == null ? commitStart : transactionStart);
+                statistics.recordTransaction(eventsProcessed, commitLatency);
+                adjustBatchSize(maxTransactionSize, eventsProcessed, commitLatency, transactionTime);
+            }
+        }
+    }
+
+    private synchronized void adjustBatchSize(int maxTransactionSize, int eventsProcessed, long commitLatency,
+                                              long transactionTime) {
+        int currentSize = batchSize;
+        int newSize;
+        long target = targetCommitLatency * 1000000;
+        boolean batchFilled = eventsProcessed >= maxTransactionSize;
+        if (target > 0) {
+            if (commitLatency > target * LATENCY_TOLERANCE) {
+                newSize = Math.max((int) (currentSize * ((double) target / commitLatency)), currentSize / 2);
+            } else if (batchFilled && commitLatency < target) {
+                newSize = currentSize + step(currentSize);
+            } else {
+                newSize = currentSize;
+            }
+        } else {
+            double throughput = (double) eventsProcessed / Math.max(1, transactionTime);
+            if (!batchFilled && increasing) {
+                // a larger batch size has no effect if there are not enough events to fill it
+                newSize = currentSize;
+            } else {
+                if (throughput < lastThroughput) {
+                    increasing = !increasing;
+                }
+                newSize = increasing ? currentSize + step(currentSize) : currentSize - step(currentSize);
+            }
+            lastThroughput = throughput;
+        }
+        newSize = Math.min(maxBatchSize, Math.max(minBatchSize, newSize));
+        if (newSize != currentSize) {
+            batchSize = newSize;
+            statistics.recordBatchSize(newSize);
+        }
+    }
+
+    private static int step(int size) {
+        return Math.max(1, (int) (size * STEP_FACTOR));
+    }
+
+    /**
+     * Returns the maximum number of events the next transaction may process.
+     *
+     * @return the current batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the batch size to use for the first transaction. Defaults to 50.
+     *
+     * @param initialBatchSize The batch size to start with
+     */
+    public void setInitialBatchSize(int initialBatchSize) {
+        Assert.isTrue(initialBatchSize > 0, "The batch size must be at least 1.");
+        this.batchSize = initialBatchSize;
+        statistics.initializeBatchSize(initialBatchSize);
+    }
+
+    /**
+     * Sets the minimum batch size. Defaults to 1.
+     *
+     * @param minBatchSize The minimum number of events to process in a transaction
+     */
+    public void setMinBatchSize(int minBatchSize) {
+        Assert.isTrue(minBatchSize > 0, "The minimum batch size must be at least 1.");
+        this.minBatchSize = minBatchSize;
+    }
+
+    /**
+     * Sets the maximum batch size. Defaults to 10000.
+     *
+     * @param maxBatchSize The maximum number of events to process in a transaction
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        Assert.isTrue(maxBatchSize > 0, "The maximum batch size must be at least 1.");
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Sets the commit latency, in milliseconds, the batch size should be tuned to. Defaults to 0, meaning the batch
+     * size is tuned for maximum throughput instead.
+     *
+     * @param targetCommitLatency The target commit latency in milliseconds, or 0 to tune for throughput
+     */
+    public void setTargetCommitLatency(long targetCommitLatency) {
+        Assert.isTrue(targetCommitLatency >= 0, "The target commit latency may not be negative.");
+        this.targetCommitLatency = targetCommitLatency;
+    }
+}
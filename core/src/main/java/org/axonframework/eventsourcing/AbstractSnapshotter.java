@@ -19,6 +19,8 @@ package org.axonframework.eventsourcing;
 import org.axonframework.domain.AggregateIdentifier;
 import org.axonframework.domain.DomainEvent;
 import org.axonframework.domain.DomainEventStream;
+import org.axonframework.eventstore.SerializedDomainEvent;
+import org.axonframework.eventstore.SerializedDomainEventStream;
 import org.axonframework.eventstore.SnapshotEventStore;
 import org.axonframework.util.DirectExecutor;
 
@@ -31,6 +33,9 @@ import javax.annotation.Resource;
  * <p/>
  * By default, this implementations uses a {@link org.axonframework.util.DirectExecutor} to process snapshot taking
  * tasks. In production environments, it is recommended to use asynchronous executors instead.
+ * <p/>
+ * When the event store provides a {@link SerializedDomainEventStream}, no snapshot is created for an aggregate of
+ * which the event stream contains only a single event, such as a previous snapshot. That event is not deserialized.
  *
  * @author Allard Buijze
  * @since 0.6
@@ -80,6 +85,15 @@ public abstract class AbstractSnapshotter implements Snapshotter {
         @Override
         public void run() {
             DomainEventStream eventStream = eventStore.readEvents(typeIdentifier, aggregateIdentifier);
+            if (eventStream instanceof SerializedDomainEventStream) {
+                SerializedDomainEventStream serializedEventStream = (SerializedDomainEventStream) eventStream;
+                SerializedDomainEvent firstEvent = serializedEventStream.nextSerialized();
+                if (firstEvent == null || !serializedEventStream.hasNext()) {
+                    // a snapshot would not replace any events
+                    return;
+                }
+                eventStream = new RemainingEventStream(firstEvent, serializedEventStream);
+            }
             DomainEvent snapshotEvent = createSnapshot(typeIdentifier, eventStream);
             if (snapshotEvent != null) {
                 eventStore.appendSnapshotEvent(typeIdentifier, snapshotEvent);
@@ -87,6 +101,41 @@ public abstract class AbstractSnapshotter implements Snapshotter {
         }
     }
 
+    /**
+     * DomainEventStream that returns an event that has already been read from a stream, followed by the events
+     * remaining in that stream.
+     */
+    private static final class RemainingEventStream implements DomainEventStream {
+
+        private SerializedDomainEvent firstEvent;
+        private final DomainEventStream remainingEvents;
+
+        private RemainingEventStream(SerializedDomainEvent firstEvent, DomainEventStream remainingEvents) {
+            this.firstEvent = firstEvent;
+            this.remainingEvents = remainingEvents;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return firstEvent != null || remainingEvents.hasNext();
+        }
+
+        @Override
+        public DomainEvent next() {
+            if (firstEvent == null) {
+                return remainingEvents.next();
+            }
+            DomainEvent event = firstEvent.getDomainEvent();
+            firstEvent = null;
+            return event;
+        }
+
+        @Override
+        public DomainEvent peek() {
+            return firstEvent == null ? remainingEvents.peek() : firstEvent.getDomainEvent();
+        }
+    }
+
     /**
      * Sets the event store where the snapshotter can load domain events and store its snapshot events.
      *
@@ -23,12 +23,17 @@ import org.axonframework.domain.DomainEventStream;
 import org.axonframework.domain.Event;
 import org.axonframework.eventstore.EventStore;
 import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.eventstore.SerializedDomainEvent;
+import org.axonframework.eventstore.SerializedDomainEventStream;
 import org.axonframework.repository.AggregateNotFoundException;
+import org.axonframework.repository.ConflictingAggregateVersionException;
 import org.axonframework.repository.LockingRepository;
 import org.axonframework.repository.LockingStrategy;
 import org.axonframework.unitofwork.CurrentUnitOfWork;
 import org.axonframework.unitofwork.UnitOfWorkListenerAdapter;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.Iterator;
@@ -100,6 +105,9 @@ public abstract class EventSourcingRepository<T extends EventSourcedAggregateRoo
      * @throws AggregateDeletedException in case an aggregate existed in the past, but has been deleted
      * @throws org.axonframework.repository.AggregateNotFoundException
      *                                   when an aggregate with the given identifier does not exist
+     * @throws ConflictingAggregateVersionException
+     *                                   when no conflict resolver is set and the event store provides a {@link
+     *                                   SerializedDomainEventStream} that contains events beyond the expected version
      */
     @Override
     protected T doLoad(AggregateIdentifier aggregateIdentifier, final Long expectedVersion) {
@@ -109,6 +117,10 @@ public abstract class EventSourcingRepository<T extends EventSourcedAggregateRoo
         } catch (EventStreamNotFoundException e) {
             throw new AggregateNotFoundException("The aggregate was not found", e);
         }
+        if (expectedVersion != null && conflictResolver == null && events instanceof SerializedDomainEventStream) {
+            events = new ConflictDetectingEventStream(aggregateIdentifier, (SerializedDomainEventStream) events,
+                                                      expectedVersion);
+        }
         for (EventStreamDecorator decorator : eventStreamDecorators) {
             events = decorator.decorateForRead(getTypeIdentifier(), aggregateIdentifier, events);
         }
@@ -171,6 +183,11 @@ public abstract class EventSourcingRepository<T extends EventSourcedAggregateRoo
      * <p/>
      * This implementation will do nothing if a conflict resolver (See {@link #setConflictResolver(ConflictResolver)} is
      * set. Otherwise, it will call <code>super.validateOnLoad(...)</code>.
+     * <p/>
+     * When the event store provides a {@link SerializedDomainEventStream}, conflicts are already detected while the
+     * aggregate is loaded, using the sequence numbers of the serialized events. The first event beyond the expected
+     * version is then not deserialized, and neither are any events following it. Note that in that case, a conflict
+     * is reported for a deleted aggregate, instead of an {@link AggregateDeletedException}.
      */
     @Override
     protected void validateOnLoad(T aggregate, Long expectedVersion) {
@@ -246,6 +263,69 @@ public abstract class EventSourcingRepository<T extends EventSourcedAggregateRoo
         }
     }
 
+    /**
+     * Wrapper around a SerializedDomainEventStream that reports a conflict as soon as the next event in the stream
+     * has a sequence number larger than the expected version. The sequence number is read from the serialized event,
+     * so that event is never deserialized.
+     */
+    private static final class ConflictDetectingEventStream implements DomainEventStream {
+
+        private final AggregateIdentifier aggregateIdentifier;
+        private final SerializedDomainEventStream eventStream;
+        private final long expectedVersion;
+
+        private ConflictDetectingEventStream(AggregateIdentifier aggregateIdentifier,
+                                             SerializedDomainEventStream events,
+                                             long expectedVersion) {
+            this.aggregateIdentifier = aggregateIdentifier;
+            this.eventStream = events;
+            this.expectedVersion = expectedVersion;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return eventStream.hasNext();
+        }
+
+        @Override
+        public DomainEvent next() {
+            validateNext();
+            return eventStream.next();
+        }
+
+        @Override
+        public DomainEvent peek() {
+            validateNext();
+            return eventStream.peek();
+        }
+
+        private void validateNext() {
+            SerializedDomainEvent nextEvent = eventStream.peekSerialized();
+            if (nextEvent != null && nextEvent.getSequenceNumber() > expectedVersion) {
+                close();
+                throw new ConflictingAggregateVersionException(
+                        String.format("Aggregate with identifier [%s] contains conflicting changes. "
+                                              + "Expected version [%s], but found an event with sequence number [%s]",
+                                      aggregateIdentifier,
+                                      expectedVersion,
+                                      nextEvent.getSequenceNumber()));
+            }
+        }
+
+        /**
+         * Closes the underlying stream, if it can be closed, as the remaining events will not be read.
+         */
+        private void close() {
+            if (eventStream instanceof Closeable) {
+                try {
+                    ((Closeable) eventStream).close();
+                } catch (IOException e) {
+                    // the conflict is reported instead
+                }
+            }
+        }
+    }
+
     /**
      * Wrapper around a DomainEventStream that captures all passing events of which the sequence number is larger than
      * the expected version number.
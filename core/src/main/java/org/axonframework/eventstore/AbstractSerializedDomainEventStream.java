@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.DomainEvent;
+
+import java.io.Closeable;
+
+/**
+ * Abstract implementation of the SerializedDomainEventStream, which reads the serialized events from the underlying
+ * source one at a time, as the stream is read. Events are read from the source when they are needed to answer {@link
+ * #hasNext()}, {@link #peekSerialized()} or {@link #nextSerialized()}, and deserialized when they are needed to answer
+ * {@link #peek()} or {@link #next()}. An event returned by <code>peek()</code> is deserialized only once.
+ * <p/>
+ * Streams release the resources held by the underlying source when it is exhausted. Streams that are abandoned before
+ * that must be {@link #close() closed}.
+ * <p/>
+ * Instances of this class are not thread safe.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public abstract class AbstractSerializedDomainEventStream implements SerializedDomainEventStream, Closeable {
+
+    private SerializedDomainEvent next;
+    private boolean nextRead;
+
+    /**
+     * Initializes a stream that reads all of its events from the underlying source.
+     */
+    protected AbstractSerializedDomainEventStream() {
+        this(null);
+    }
+
+    /**
+     * Initializes a stream that returns the given <code>firstEvent</code> (typically a snapshot event), before
+     * reading any events from the underlying source. If <code>firstEvent</code> is <code>null</code>, all events are
+     * read from the source.
+     *
+     * @param firstEvent The event to return first, or <code>null</code>
+     */
+    protected AbstractSerializedDomainEventStream(SerializedDomainEvent firstEvent) {
+        if (firstEvent != null) {
+            this.next = firstEvent;
+            this.nextRead = true;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return peekSerialized() != null;
+    }
+
+    @Override
+    public DomainEvent next() {
+        SerializedDomainEvent nextEvent = nextSerialized();
+        return nextEvent == null ? null : nextEvent.getDomainEvent();
+    }
+
+    @Override
+    public DomainEvent peek() {
+        SerializedDomainEvent nextEvent = peekSerialized();
+        return nextEvent == null ? null : nextEvent.getDomainEvent();
+    }
+
+    @Override
+    public SerializedDomainEvent nextSerialized() {
+        SerializedDomainEvent nextEvent = peekSerialized();
+        if (nextEvent != null) {
+            // an exhausted source is not read again
+            next = null;
+            nextRead = false;
+        }
+        return nextEvent;
+    }
+
+    @Override
+    public SerializedDomainEvent peekSerialized() {
+        if (!nextRead) {
+            next = readNext();
+            nextRead = true;
+        }
+        return next;
+    }
+
+    /**
+     * Reads the next event from the underlying source, without deserializing it. Returns <code>null</code> if the
+     * source does not contain any more events. Implementations should release any resources held by the source when
+     * it is exhausted, or when reading from it fails.
+     *
+     * @return the next event in its serialized form, or <code>null</code> if there are no more events
+     */
+    protected abstract SerializedDomainEvent readNext();
+
+    /**
+     * Releases the resources held by the underlying source, without reading any more events from it. This
+     * implementation does nothing. Implementations reading from a source that holds resources should override it.
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.serializer.GenericBinarySerializer;
+import org.axonframework.util.Assert;
+import org.axonframework.util.AxonConfigurationException;
+import org.axonframework.util.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of the EventSerializer that writes events in a compact binary format, using the {@link
+ * GenericBinarySerializer}. The serialized form is considerably smaller than that of the {@link
+ * XStreamEventSerializer}, and faster to write and read. In return, it is not human readable, and it requires event
+ * classes to keep their fields: an event can only be deserialized directly if its class still declares the fields it
+ * had when the event was serialized. Event classes may be {@link #registerType(int, Class) registered} with a numeric
+ * identifier to make the serialized form even more compact.
+ * <p/>
+ * Events of a class that has changed are migrated by {@link #setEventUpcasters(java.util.List) upcasters}. These
+ * upcasters work on a map of the event's field values, keyed by field name, as read by {@link
+ * GenericBinarySerializer#readFields(byte[], int)}. Typically, an upcaster is a {@link SelectiveEventUpcaster} that
+ * converts events of a specific type and revision, and sets the <code>eventRevision</code> entry to the new revision.
+ * The class of an event cannot be changed by an upcaster. To rename an event class, register the new class with the
+ * identifier of the old one.
+ * <p/>
+ * Each serialized event starts with a short header containing the revision of the event. Serialized events without
+ * this header are passed to a legacy serializer, which defaults to an {@link XStreamEventSerializer}. This allows an
+ * event store to switch to this serializer without converting existing events: events stored earlier remain readable,
+ * while new events are stored in the binary format.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class BinaryEventSerializer implements EventSerializer, SerializedEventInspector {
+
+    private static final byte MAGIC = 0x00;
+    private static final byte FORMAT_VERSION = 1;
+    private static final String EVENT_REVISION_FIELD = "eventRevision";
+
+    private final GenericBinarySerializer serializer;
+    private EventSerializer legacySerializer = new XStreamEventSerializer();
+    private List<EventUpcaster<Map>> upcasters = new ArrayList<EventUpcaster<Map>>();
+
+    /**
+     * Initialize a BinaryEventSerializer using a new GenericBinarySerializer.
+     */
+    public BinaryEventSerializer() {
+        this(new GenericBinarySerializer());
+    }
+
+    /**
+     * Initialize a BinaryEventSerializer that uses the given <code>serializer</code> to serialize the events.
+     *
+     * @param serializer The serializer that writes the events
+     */
+    public BinaryEventSerializer(GenericBinarySerializer serializer) {
+        Assert.notNull(serializer, "A serializer must be provided.");
+        this.serializer = serializer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] serialize(DomainEvent event) {
+        byte[] payload = serializer.serialize(event);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length + 12);
+        out.write(MAGIC);
+        out.write(FORMAT_VERSION);
+        long revision = event.getEventRevision();
+        while ((revision & ~0x7FL) != 0) {
+            out.write((int) ((revision & 0x7F) | 0x80));
+            revision >>>= 7;
+        }
+        out.write((int) revision);
+        out.write(payload, 0, payload.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Events that have not been serialized in the binary format are deserialized by the legacy serializer. Binary
+     * events are only read as a map of field values if an upcaster needs to process them.
+     */
+    @Override
+    public DomainEvent deserialize(byte[] serializedEvent) {
+        if (!isBinary(serializedEvent)) {
+            return legacySerializer.deserialize(serializedEvent);
+        }
+        int offset = payloadOffset(serializedEvent);
+        Object event = upcasters.isEmpty()
+                ? serializer.deserialize(serializedEvent, offset)
+                : upcastAndDeserialize(serializedEvent, offset);
+        if (!(event instanceof DomainEvent)) {
+            throw new SerializationException("The serialized data does not contain a DomainEvent");
+        }
+        return (DomainEvent) event;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private Object upcastAndDeserialize(byte[] serializedEvent, int offset) {
+        Class<?> eventType = serializer.readType(serializedEvent, offset);
+        if (eventType == null) {
+            return serializer.deserialize(serializedEvent, offset);
+        }
+        String eventRevision = Long.toString(readEventRevision(serializedEvent));
+        Map<String, Object> fields = null;
+        for (EventUpcaster<Map> upcaster : upcasters) {
+            if (canUpcast(upcaster, eventType.getName(), eventRevision)) {
+                if (fields == null) {
+                    fields = serializer.readFields(serializedEvent, offset);
+                }
+                fields = upcaster.upcast(fields);
+                Object revision = fields.get(EVENT_REVISION_FIELD);
+                eventRevision = revision == null ? null : revision.toString();
+            }
+        }
+        if (fields == null) {
+            return serializer.deserialize(serializedEvent, offset);
+        }
+        return serializer.instantiate(eventType, fields);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private boolean canUpcast(EventUpcaster<Map> upcaster, String eventType, String eventRevision) {
+        return !(upcaster instanceof SelectiveEventUpcaster)
+                || ((SelectiveEventUpcaster<Map>) upcaster).canUpcast(eventType, eventRevision);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * For events that have not been serialized in the binary format, the legacy serializer is consulted if it is a
+     * SerializedEventInspector. Otherwise, <code>null</code> is returned.
+     */
+    @Override
+    public Class<?> readEventType(byte[] serializedEvent) {
+        if (!isBinary(serializedEvent)) {
+            return legacySerializer instanceof SerializedEventInspector
+                    ? ((SerializedEventInspector) legacySerializer).readEventType(serializedEvent)
+                    : null;
+        }
+        return serializer.readType(serializedEvent, payloadOffset(serializedEvent));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * For events that have not been serialized in the binary format, the legacy serializer is consulted if it is a
+     * SerializedEventInspector. Otherwise, the event is deserialized to find its revision.
+     */
+    @Override
+    public long readEventRevision(byte[] serializedEvent) {
+        if (!isBinary(serializedEvent)) {
+            return legacySerializer instanceof SerializedEventInspector
+                    ? ((SerializedEventInspector) legacySerializer).readEventRevision(serializedEvent)
+                    : legacySerializer.deserialize(serializedEvent).getEventRevision();
+        }
+        long revision = 0;
+        int shift = 0;
+        int position = 2;
+        byte current;
+        do {
+            current = serializedEvent[position++];
+            revision |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return revision;
+    }
+
+    /**
+     * Registers the given event <code>type</code> with the given <code>identifier</code>. The identifier is written
+     * instead of the class name of the event. Identifiers must be positive, and must remain associated with the same
+     * type for as long as events using it are stored.
+     *
+     * @param identifier The positive identifier to register the type with
+     * @param type       The type to register
+     * @see GenericBinarySerializer#registerType(int, Class)
+     */
+    public void registerType(int identifier, Class<?> type) {
+        serializer.registerType(identifier, type);
+    }
+
+    /**
+     * Sets the serializer used to deserialize events that have not been serialized in the binary format. Defaults to
+     * an {@link XStreamEventSerializer} using UTF-8.
+     *
+     * @param legacySerializer The serializer for events stored in another format
+     */
+    public void setLegacySerializer(EventSerializer legacySerializer) {
+        Assert.notNull(legacySerializer, "The legacy serializer may not be null.");
+        this.legacySerializer = legacySerializer;
+    }
+
+    /**
+     * Sets the event upcasters the serializer may use to migrate binary events. Upcasters must support the
+     * <code>java.util.Map</code> representation, containing the values of the event's fields keyed by field name.
+     * Each upcaster receives the map returned by the previous one. The resulting map is used to create an instance of
+     * the event's current class.
+     * <p/>
+     * Upcasters implementing {@link SelectiveEventUpcaster} are only invoked for the events they need to upcast. They
+     * receive the fully qualified class name of the event and its revision. After an upcaster has processed an event,
+     * the revision is read from the <code>eventRevision</code> entry of the map. Events that no upcaster needs to
+     * process are deserialized directly, without building a map.
+     * <p/>
+     * Events that have not been serialized in the binary format are not passed to these upcasters. Configure the
+     * upcasters of the {@link #setLegacySerializer(EventSerializer) legacy serializer} to migrate those.
+     *
+     * @param eventUpcasters The upcasters to assign to this serializer
+     */
+    public void setEventUpcasters(List<EventUpcaster<Map>> eventUpcasters) {
+        for (EventUpcaster<Map> upcaster : eventUpcasters) {
+            if (!upcaster.getSupportedRepresentation().isAssignableFrom(Map.class)) {
+                throw new AxonConfigurationException(String.format(
+                        "The given upcaster [%s] does not support the java.util.Map representation",
+                        upcaster.getClass().getSimpleName()));
+            }
+        }
+        this.upcasters = new ArrayList<EventUpcaster<Map>>(eventUpcasters);
+    }
+
+    private boolean isBinary(byte[] serializedEvent) {
+        return serializedEvent.length > 2 && serializedEvent[0] == MAGIC && serializedEvent[1] == FORMAT_VERSION;
+    }
+
+    private int payloadOffset(byte[] serializedEvent) {
+        int position = 2;
+        while ((serializedEvent[position] & 0x80) != 0) {
+            position++;
+        }
+        return position + 1;
+    }
+}
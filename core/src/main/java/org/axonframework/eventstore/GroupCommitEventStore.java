@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * EventStore decorator that combines appends from concurrent threads into batches. All appends in a batch are written
+ * to the delegate event store first, after which the appended events are {@link SyncableEventStore#sync(String,
+ * org.axonframework.domain.AggregateIdentifier) synced} once per aggregate. Depending on the delegate, that means the
+ * appends of a batch share a single sync of the storage device, instead of each append waiting for a sync of its own.
+ * For example, the {@link org.axonframework.eventstore.fs.FileSystemEventStore} with a {@link
+ * org.axonframework.eventstore.fs.SegmentedEventFileResolver} forces each segment file once per batch.
+ * <p/>
+ * Threads calling {@link #appendEvents(String, DomainEventStream)} block until their events have been written and
+ * synced. One of the waiting threads writes a batch: it waits for at most the {@link #setCommitWindow(long) commit
+ * window} for other appends to arrive, or until the {@link #setMaxBatchSize(int) maximum batch size} has been reached,
+ * and then appends all gathered events to the delegate. No additional threads are used.
+ * <p/>
+ * Each caller receives the outcome of its own append: when appending the events of one caller fails, or syncing them
+ * fails, only the callers whose events were affected receive the exception.
+ * <p/>
+ * Only event stores that do not take part in transactions can be decorated. Transactional event stores, such as the
+ * {@link org.axonframework.eventstore.jpa.JpaEventStore}, must append events in the transaction of the caller's unit of
+ * work. Since that transaction is bound to the caller's thread, the events of several callers cannot be written in a
+ * single transaction without committing them separately from their unit of work.
+ * <p/>
+ * The events to append are read from the given stream before this method blocks.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class GroupCommitEventStore implements EventStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitEventStore.class);
+
+    private final SyncableEventStore delegate;
+    private final BlockingQueue<PendingAppend> pendingAppends = new LinkedBlockingQueue<PendingAppend>();
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private volatile long commitWindow = 2;
+    private volatile int maxBatchSize = 100;
+
+    /**
+     * Initializes a GroupCommitEventStore that writes batches of events to the given <code>delegate</code>.
+     *
+     * @param delegate The event store to append events to
+     */
+    public GroupCommitEventStore(SyncableEventStore delegate) {
+        Assert.notNull(delegate, "A delegate EventStore must be provided.");
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This method blocks until the events have been written and synced as part of a batch.
+     */
+    @Override
+    public void appendEvents(String type, DomainEventStream events) {
+        PendingAppend append = new PendingAppend(type, events);
+        pendingAppends.add(append);
+        boolean interrupted = false;
+        while (!append.isCompleted()) {
+            if (writerLock.tryLock()) {
+                try {
+                    if (!append.isCompleted()) {
+                        interrupted |= writeBatch();
+                    }
+                } finally {
+                    writerLock.unlock();
+                }
+            } else {
+                interrupted |= append.awaitCompletion(Math.max(1, commitWindow));
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        append.reportResult();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation reads the events directly from the delegate.
+     */
+    @Override
+    public DomainEventStream readEvents(String type, AggregateIdentifier identifier) {
+        return delegate.readEvents(type, identifier);
+    }
+
+    /**
+     * Gathers pending appends and writes them. Returns whether the thread was interrupted while waiting for appends.
+     */
+    private boolean writeBatch() {
+        List<PendingAppend> batch = new ArrayList<PendingAppend>();
+        boolean interrupted = false;
+        int batchSize = maxBatchSize;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(commitWindow);
+        pendingAppends.drainTo(batch, batchSize);
+        while (batch.size() < batchSize && !interrupted) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                PendingAppend next = pendingAppends.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                pendingAppends.drainTo(batch, batchSize - batch.size());
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            write(batch);
+        } finally {
+            for (PendingAppend append : batch) {
+                if (!append.isCompleted()) {
+                    append.complete(new EventStoreException(
+                            "The batch containing these events could not be written"));
+                }
+            }
+        }
+        return interrupted;
+    }
+
+    private void write(List<PendingAppend> batch) {
+        Map<String, List<PendingAppend>> appendsToSync = new LinkedHashMap<String, List<PendingAppend>>();
+        for (PendingAppend append : batch) {
+            try {
+                delegate.appendEvents(append.type, append.newEventStream());
+            } catch (RuntimeException e) {
+                append.complete(e);
+                continue;
+            }
+            if (append.events.isEmpty()) {
+                append.complete(null);
+                continue;
+            }
+            String key = append.type + "/" + append.events.get(0).getAggregateIdentifier().asString();
+            List<PendingAppend> appends = appendsToSync.get(key);
+            if (appends == null) {
+                appends = new ArrayList<PendingAppend>();
+                appendsToSync.put(key, appends);
+            }
+            appends.add(append);
+        }
+        for (List<PendingAppend> appends : appendsToSync.values()) {
+            PendingAppend first = appends.get(0);
+            RuntimeException failure = null;
+            try {
+                delegate.sync(first.type, first.events.get(0).getAggregateIdentifier());
+            } catch (RuntimeException e) {
+                logger.warn("Syncing the events of a batch failed. Cause: {}", e.getMessage());
+                failure = e;
+            }
+            for (PendingAppend append : appends) {
+                append.complete(failure);
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum time, in milliseconds, to wait for other appends to join a batch. Defaults to 2 milliseconds.
+     * A value of 0 means only appends that are already waiting are combined.
+     *
+     * @param commitWindow The time to wait for other appends, in milliseconds
+     */
+    public void setCommitWindow(long commitWindow) {
+        Assert.isTrue(commitWindow >= 0, "The commit window may not be negative.");
+        this.commitWindow = commitWindow;
+    }
+
+    /**
+     * Sets the maximum number of appends to combine in a single batch. Defaults to 100.
+     *
+     * @param maxBatchSize The maximum number of appends per batch
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        Assert.isTrue(maxBatchSize > 0, "The maximum batch size must be at least 1.");
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    private static final class PendingAppend {
+
+        private final String type;
+        private final List<DomainEvent> events = new ArrayList<DomainEvent>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile RuntimeException failure;
+
+        private PendingAppend(String type, DomainEventStream eventStream) {
+            this.type = type;
+            while (eventStream.hasNext()) {
+                events.add(eventStream.next());
+            }
+        }
+
+        private DomainEventStream newEventStream() {
+            return new SimpleDomainEventStream(events);
+        }
+
+        private void complete(RuntimeException result) {
+            this.failure = result;
+            completed.countDown();
+        }
+
+        private boolean isCompleted() {
+            return completed.getCount() == 0;
+        }
+
+        /**
+         * Waits for the append to complete. Returns whether the thread was interrupted while waiting.
+         */
+        private boolean awaitCompletion(long timeout) {
+            try {
+                completed.await(timeout, TimeUnit.MILLISECONDS);
+                return false;
+            } catch (InterruptedException e) {
+                return true;
+            }
+        }
+
+        private void reportResult() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
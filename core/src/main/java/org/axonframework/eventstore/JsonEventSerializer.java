@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.serializer.GenericJsonSerializer;
+import org.axonframework.util.Assert;
+import org.axonframework.util.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Implementation of the EventSerializer that serializes events to JSON, using the {@link GenericJsonSerializer}. The
+ * JSON is written and read as a stream, without building an intermediate document.
+ * <p/>
+ * The serialized form is tolerant to changes in event classes: properties of fields that have been removed are
+ * ignored, and fields that have been added keep their default value.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class JsonEventSerializer implements EventSerializer, SerializedEventInspector {
+
+    private static final String EVENT_REVISION_PROPERTY = "eventRevision";
+
+    private final GenericJsonSerializer serializer;
+
+    /**
+     * Initialize a JsonEventSerializer that uses UTF-8 to convert the JSON to bytes.
+     */
+    public JsonEventSerializer() {
+        this(new GenericJsonSerializer());
+    }
+
+    /**
+     * Initialize a JsonEventSerializer that uses the given <code>charset</code> to convert the JSON to bytes.
+     *
+     * @param charset The character set to use
+     */
+    public JsonEventSerializer(Charset charset) {
+        this(new GenericJsonSerializer(charset));
+    }
+
+    /**
+     * Initialize a JsonEventSerializer that uses the given <code>serializer</code> to serialize the events.
+     *
+     * @param serializer The serializer that writes the events as JSON
+     */
+    public JsonEventSerializer(GenericJsonSerializer serializer) {
+        Assert.notNull(serializer, "A serializer must be provided.");
+        this.serializer = serializer;
+    }
+
+    /**
+     * Returns the character set used to convert the JSON to bytes.
+     *
+     * @return the character set used to convert the JSON to bytes
+     */
+    public Charset getCharset() {
+        return serializer.getCharset();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] serialize(DomainEvent event) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        serializer.serialize(event, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DomainEvent deserialize(byte[] serializedEvent) {
+        Object event = serializer.deserialize(new ByteArrayInputStream(serializedEvent));
+        if (!(event instanceof DomainEvent)) {
+            throw new SerializationException("The serialized data does not contain a DomainEvent");
+        }
+        return (DomainEvent) event;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation only reads the first property of the JSON object, which holds the event's type.
+     */
+    @Override
+    public Class<?> readEventType(byte[] serializedEvent) {
+        return serializer.readType(new ByteArrayInputStream(serializedEvent));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation reads the JSON object up to the property containing the revision.
+     */
+    @Override
+    public long readEventRevision(byte[] serializedEvent) {
+        Long revision = (Long) serializer.readProperty(new ByteArrayInputStream(serializedEvent),
+                                                       EVENT_REVISION_PROPERTY, long.class);
+        return revision == null ? 0 : revision;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+/**
+ * EventVisitor that is informed about the position of each visited event in the event store. The position is an opaque
+ * token, specific to the event store implementation. Visitors may keep track of the last position they have processed,
+ * and pass it to the event store to resume visiting events after that position, for example after a failure.
+ *
+ * @author Allard Buijze
+ * @see ResumableEventStoreManagement#visitEvents(EventVisitor, String)
+ * @since 1.0
+ */
+public interface PositionAwareEventVisitor extends EventVisitor {
+
+    /**
+     * Called after {@link #doWithEvent(org.axonframework.domain.DomainEvent)} has returned normally for the event at
+     * the given <code>position</code>.
+     *
+     * @param position The position token of the event that has just been visited
+     */
+    void positionVisited(String position);
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+/**
+ * EventStoreManagement that allows visiting events to be resumed from a given position. Each event in the event store
+ * has a position, which is reported to visitors implementing {@link PositionAwareEventVisitor}.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface ResumableEventStoreManagement extends EventStoreManagement {
+
+    /**
+     * Loads all events stored after the given <code>afterPosition</code> and calls {@link
+     * EventVisitor#doWithEvent(org.axonframework.domain.DomainEvent)} for each event found. The same ordering
+     * guarantees apply as for {@link #visitEvents(EventVisitor)}.
+     * <p/>
+     * If the <code>visitor</code> is a {@link PositionAwareEventVisitor}, it is informed of the position of each event
+     * it has visited. Positions are opaque tokens, specific to the event store implementation.
+     * <p/>
+     * Processing stops when the visitor throws an exception.
+     *
+     * @param visitor       The visitor the receives each loaded event
+     * @param afterPosition The position after which to start visiting events, or <code>null</code> to visit all
+     *                      events
+     */
+    void visitEvents(EventVisitor visitor, String afterPosition);
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+/**
+ * EventUpcaster that indicates which serialized events it needs to upcast, based on their type and revision. A
+ * serializer only converts a serialized event to the upcaster's representation if at least one upcaster needs to
+ * process it. Events that no upcaster applies to are deserialized as if no upcasters were configured.
+ * <p/>
+ * Upcasters that do not implement this interface are invoked for every event.
+ *
+ * @author Allard Buijze
+ * @param <T> The data format that this upcaster uses to represent the event
+ * @since 1.0
+ */
+public interface SelectiveEventUpcaster<T> extends EventUpcaster<T> {
+
+    /**
+     * Indicates whether this upcaster needs to upcast an event with given <code>eventType</code> and
+     * <code>eventRevision</code>. When upcasters are chained, the type and revision are those of the event as
+     * returned by the previous upcaster.
+     *
+     * @param eventType     The type of the event as it appears in the serialized form, e.g. a fully qualified class
+     *                      name or an alias
+     * @param eventRevision The revision of the event as it appears in the serialized form, or <code>null</code> if the
+     *                      serialized event does not contain a revision
+     * @return <code>true</code> if this upcaster needs to upcast the event, otherwise <code>false</code>
+     */
+    boolean canUpcast(String eventType, String eventRevision);
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+
+/**
+ * A domain event in its serialized form, as read from an event store. The aggregate identifier and sequence number of
+ * the event are available without deserializing it. The payload is deserialized when {@link #getDomainEvent()} is
+ * invoked for the first time.
+ * <p/>
+ * If the serializer is a {@link SerializedEventInspector}, the type and revision of the event are read from the
+ * serialized form. Otherwise, the event is deserialized to find them. Either way, they are read only once.
+ * <p/>
+ * Instances of this class may be passed between threads, but are not intended to be accessed by multiple threads at
+ * the same time.
+ *
+ * @author Allard Buijze
+ * @see SerializedEventVisitor
+ * @since 1.0
+ */
+public class SerializedDomainEvent {
+
+    private final byte[] serializedEvent;
+    private final EventSerializer eventSerializer;
+    private final AggregateIdentifier aggregateIdentifier;
+    private final long sequenceNumber;
+    private DomainEvent domainEvent;
+    private boolean eventTypeRead;
+    private Class<?> eventType;
+    private Long eventRevision;
+
+    /**
+     * Initialize a SerializedDomainEvent for the given <code>serializedEvent</code>, which can be deserialized using
+     * the given <code>eventSerializer</code>. The given byte array is not copied, and should not be changed.
+     *
+     * @param serializedEvent     The bytes of the serialized event
+     * @param eventSerializer     The serializer to deserialize the event with
+     * @param aggregateIdentifier The identifier of the aggregate the event belongs to
+     * @param sequenceNumber      The sequence number of the event
+     */
+    public SerializedDomainEvent(byte[] serializedEvent, EventSerializer eventSerializer,
+                                 AggregateIdentifier aggregateIdentifier, long sequenceNumber) {
+        this.serializedEvent = serializedEvent;
+        this.eventSerializer = eventSerializer;
+        this.aggregateIdentifier = aggregateIdentifier;
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    /**
+     * Returns the identifier of the aggregate the event belongs to.
+     *
+     * @return the identifier of the aggregate the event belongs to
+     */
+    public AggregateIdentifier getAggregateIdentifier() {
+        return aggregateIdentifier;
+    }
+
+    /**
+     * Returns the sequence number of the event.
+     *
+     * @return the sequence number of the event
+     */
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    /**
+     * Returns the type of the event, or <code>null</code> if the serializer is not able to determine the type without
+     * deserializing the event, and the event has not been deserialized yet.
+     *
+     * @return the type of the event, or <code>null</code> if unknown
+     */
+    public Class<?> getEventType() {
+        if (domainEvent != null) {
+            return domainEvent.getClass();
+        }
+        if (!eventTypeRead && eventSerializer instanceof SerializedEventInspector) {
+            eventType = ((SerializedEventInspector) eventSerializer).readEventType(serializedEvent);
+            eventTypeRead = true;
+        }
+        return eventType;
+    }
+
+    /**
+     * Returns the revision of the event, as it was serialized. Note that the revision of the deserialized event may
+     * differ, if the event has been upcast.
+     *
+     * @return the revision of the serialized event
+     */
+    public long getEventRevision() {
+        if (eventRevision == null) {
+            if (eventSerializer instanceof SerializedEventInspector) {
+                eventRevision = ((SerializedEventInspector) eventSerializer).readEventRevision(serializedEvent);
+            } else {
+                eventRevision = getDomainEvent().getEventRevision();
+            }
+        }
+        return eventRevision;
+    }
+
+    /**
+     * Returns the bytes of the serialized event. The returned array should not be changed.
+     *
+     * @return the bytes of the serialized event
+     */
+    public byte[] getSerializedEvent() {
+        return serializedEvent;
+    }
+
+    /**
+     * Returns the deserialized event. The event is deserialized the first time this method is invoked.
+     *
+     * @return the deserialized event
+     */
+    public DomainEvent getDomainEvent() {
+        if (domainEvent == null) {
+            domainEvent = eventSerializer.deserialize(serializedEvent);
+        }
+        return domainEvent;
+    }
+
+    /**
+     * Indicates whether the event has been deserialized.
+     *
+     * @return <code>true</code> if the event has been deserialized, otherwise <code>false</code>
+     */
+    public boolean isDeserialized() {
+        return domainEvent != null;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.DomainEventStream;
+
+/**
+ * DomainEventStream that provides access to its events in their serialized form. Events are only deserialized when
+ * they are returned by {@link #next()} or {@link #peek()}. This allows consumers to inspect the sequence number, type
+ * and revision of the next event using {@link #peekSerialized()}, and to move past events using {@link
+ * #nextSerialized()}, without deserializing them.
+ *
+ * @author Allard Buijze
+ * @see SerializedDomainEvent
+ * @since 1.0
+ */
+public interface SerializedDomainEventStream extends DomainEventStream {
+
+    /**
+     * Returns the next event in the stream in its serialized form, and moves the pointer forward. The event is not
+     * deserialized. Returns <code>null</code> if the stream has no more events.
+     *
+     * @return the next event in the stream in its serialized form
+     */
+    SerializedDomainEvent nextSerialized();
+
+    /**
+     * Returns the next event in the stream in its serialized form, without moving the pointer forward. The event is
+     * not deserialized. Returns <code>null</code> if the stream has no more events.
+     *
+     * @return the next event in the stream in its serialized form
+     */
+    SerializedDomainEvent peekSerialized();
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.eventstore;
+
+/**
+ * Interface describing an {@link EventSerializer} that is able to read the type and revision of a serialized event
+ * without deserializing it. This allows components to decide whether they need an event before paying the cost of
+ * deserializing it.
+ *
+ * @author Allard Buijze
+ * @see SerializedDomainEvent
+ * @since 1.0
+ */
+public interface SerializedEventInspector {
+
+    /**
+     * Returns the type of event that the given <code>serializedEvent</code> deserializes to, or <code>null</code> if
+     * that type cannot be determined without deserializing the event. Implementations must not change the given
+     * <code>serializedEvent</code>.
+     *
+     * @param serializedEvent The byte array containing the serialized domain event
+     * @return the type of the serialized event, or <code>null</code> if unknown
+     */
+    Class<?> readEventType(byte[] serializedEvent);
+
+    /**
+     * Returns the revision of the given <code>serializedEvent</code>, as it was serialized. Implementations must not
+     * change the given <code>serializedEvent</code>.
+     *
+     * @param serializedEvent The byte array containing the serialized domain event
+     * @return the revision of the serialized event
+     *
+     * @see org.axonframework.domain.EventBase#getEventRevision()
+     */
+    long readEventRevision(byte[] serializedEvent);
+}
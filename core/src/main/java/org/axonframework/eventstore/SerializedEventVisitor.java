@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.eventstore;
+
+/**
+ * EventVisitor that accepts events in their serialized form. Event stores that support it will invoke {@link
+ * #doWithSerializedEvent(SerializedDomainEvent)} instead of {@link #doWithEvent(org.axonframework.domain.DomainEvent)}
+ * for each visited event. This allows the visitor to inspect the event's meta data, and only deserialize the events it
+ * actually needs, possibly in another thread.
+ *
+ * @author Allard Buijze
+ * @see EventStoreManagement#visitEvents(EventVisitor)
+ * @since 1.0
+ */
+public interface SerializedEventVisitor extends EventVisitor {
+
+    /**
+     * Called for each event loaded by the event store.
+     *
+     * @param serializedEvent The loaded event, in its serialized form
+     */
+    void doWithSerializedEvent(SerializedDomainEvent serializedEvent);
+}
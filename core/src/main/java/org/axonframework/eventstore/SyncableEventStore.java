@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.AggregateIdentifier;
+
+/**
+ * Event store that does not write appended events to durable storage right away. Events are guaranteed to survive a
+ * crash only after they have been synced. This allows the events of several appends to be made durable at once, see
+ * {@link GroupCommitEventStore}.
+ * <p/>
+ * Implementations do not take part in transactions: events are visible as soon as they have been appended.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface SyncableEventStore extends EventStore {
+
+    /**
+     * Forces the events appended for the aggregate with given <code>type</code> and <code>identifier</code> to durable
+     * storage. Events appended for other aggregates may be forced as well.
+     *
+     * @param type       The type identifier of the aggregate
+     * @param identifier The identifier of the aggregate
+     * @throws EventStoreException when the events could not be forced to durable storage
+     */
+    void sync(String type, AggregateIdentifier identifier);
+}
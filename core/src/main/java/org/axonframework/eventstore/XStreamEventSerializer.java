@@ -18,6 +18,8 @@ package org.axonframework.eventstore;
 
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.xml.Dom4JReader;
+import com.thoughtworks.xstream.io.xml.XmlFriendlyNameCoder;
+import com.thoughtworks.xstream.mapper.CannotResolveClassException;
 import org.axonframework.domain.AggregateIdentifier;
 import org.axonframework.domain.DomainEvent;
 import org.axonframework.domain.EventBase;
@@ -25,10 +27,15 @@ import org.axonframework.serializer.GenericXStreamSerializer;
 import org.axonframework.util.AxonConfigurationException;
 import org.axonframework.util.SerializationException;
 import org.dom4j.Document;
+import org.dom4j.Element;
 import org.dom4j.io.XPP3Reader;
+import org.xmlpull.mxp1.MXParser;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -37,11 +44,18 @@ import java.util.List;
 /**
  * Implementation of the serializer that uses XStream as underlying serialization mechanism. Events are serialized to
  * XML.
+ * <p/>
+ * The type and revision of a serialized event can be read without deserializing it, as they are stored in the name and
+ * an attribute of the root element. When upcasters are configured, the type of the serialized event may differ from the
+ * type it deserializes to. In that case, the type is only known after deserialization.
  *
  * @author Allard Buijze
  * @since 0.5
  */
-public class XStreamEventSerializer implements EventSerializer {
+public class XStreamEventSerializer implements EventSerializer, SerializedEventInspector {
+
+    private static final String EVENT_REVISION_ATTRIBUTE = "eventRevision";
+    private static final XmlFriendlyNameCoder NAME_CODER = new XmlFriendlyNameCoder();
 
     private GenericXStreamSerializer genericXStreamSerializer;
     private static final Charset DEFAULT_CHARSET_NAME = Charset.forName("UTF-8");
@@ -102,7 +116,7 @@ public class XStreamEventSerializer implements EventSerializer {
             genericXStreamSerializer = new GenericXStreamSerializer(charset);
         }
         XStream xStream = genericXStreamSerializer.getXStream();
-        xStream.useAttributeFor(EventBase.class, "eventRevision");
+        xStream.useAttributeFor(EventBase.class, EVENT_REVISION_ATTRIBUTE);
         xStream.addImmutableType(AggregateIdentifier.class);
         xStream.aliasType("aggregateIdentifier", AggregateIdentifier.class);
 
@@ -120,25 +134,100 @@ public class XStreamEventSerializer implements EventSerializer {
 
     /**
      * {@inheritDoc}
+     * <p/>
+     * If upcasters are configured, the root element of the serialized event is read first, to find its type and
+     * revision. The event is only converted to a dom4j Document if an upcaster needs to process it.
+     *
+     * @see SelectiveEventUpcaster
      */
     @Override
     public DomainEvent deserialize(byte[] serializedEvent) {
         if (upcasters.isEmpty()) {
             return (DomainEvent) genericXStreamSerializer.deserialize(new ByteArrayInputStream(serializedEvent));
-        } else {
-            XPP3Reader reader = new XPP3Reader();
-            Document document;
-            try {
-                document = reader.read(new InputStreamReader(new ByteArrayInputStream(serializedEvent), charset));
-            } catch (Exception e) {
-                throw new SerializationException("Exception while preprocessing events", e);
-            }
-            for (EventUpcaster<Document> upcaster : upcasters) {
+        }
+        XmlPullParser rootElement = readRootElement(serializedEvent);
+        String eventType = NAME_CODER.decodeNode(rootElement.getName());
+        String eventRevision = rootElement.getAttributeValue(null, EVENT_REVISION_ATTRIBUTE);
+        Document document = null;
+        for (EventUpcaster<Document> upcaster : upcasters) {
+            if (canUpcast(upcaster, eventType, eventRevision)) {
+                if (document == null) {
+                    document = readDocument(serializedEvent);
+                }
                 document = upcaster.upcast(document);
+                Element upcastRootElement = document.getRootElement();
+                eventType = NAME_CODER.decodeNode(upcastRootElement.getName());
+                eventRevision = upcastRootElement.attributeValue(EVENT_REVISION_ATTRIBUTE);
+            }
+        }
+        if (document == null) {
+            return (DomainEvent) genericXStreamSerializer.deserialize(new ByteArrayInputStream(serializedEvent));
+        }
+        return (DomainEvent) genericXStreamSerializer.deserialize(new Dom4JReader(document));
+    }
+
+    private Document readDocument(byte[] serializedEvent) {
+        try {
+            return new XPP3Reader().read(new InputStreamReader(new ByteArrayInputStream(serializedEvent), charset));
+        } catch (Exception e) {
+            throw new SerializationException("Exception while preprocessing events", e);
+        }
+    }
+
+    private boolean canUpcast(EventUpcaster<Document> upcaster, String eventType, String eventRevision) {
+        return !(upcaster instanceof SelectiveEventUpcaster)
+                || ((SelectiveEventUpcaster<Document>) upcaster).canUpcast(eventType, eventRevision);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation only parses the root element of the serialized event. If an upcaster needs to process the
+     * event, this method returns <code>null</code>.
+     */
+    @Override
+    public Class<?> readEventType(byte[] serializedEvent) {
+        XmlPullParser rootElement = readRootElement(serializedEvent);
+        String eventType = NAME_CODER.decodeNode(rootElement.getName());
+        String eventRevision = rootElement.getAttributeValue(null, EVENT_REVISION_ATTRIBUTE);
+        for (EventUpcaster<Document> upcaster : upcasters) {
+            if (canUpcast(upcaster, eventType, eventRevision)) {
+                return null;
             }
-            return (DomainEvent) genericXStreamSerializer.deserialize(new Dom4JReader(document));
         }
+        try {
+            return getXStream().getMapper().realClass(eventType);
+        } catch (CannotResolveClassException e) {
+            return null;
+        }
+    }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation only parses the root element of the serialized event.
+     */
+    @Override
+    public long readEventRevision(byte[] serializedEvent) {
+        String revision = readRootElement(serializedEvent).getAttributeValue(null, EVENT_REVISION_ATTRIBUTE);
+        return revision == null ? 0 : Long.parseLong(revision);
+    }
+
+    private XmlPullParser readRootElement(byte[] serializedEvent) {
+        XmlPullParser parser = new MXParser();
+        try {
+            parser.setInput(new InputStreamReader(new ByteArrayInputStream(serializedEvent), charset));
+            while (parser.next() != XmlPullParser.START_TAG) {
+                if (parser.getEventType() == XmlPullParser.END_DOCUMENT) {
+                    throw new SerializationException("The serialized event does not contain any XML elements");
+                }
+            }
+            return parser;
+        } catch (XmlPullParserException e) {
+            throw new SerializationException("Exception while reading the root element of a serialized event", e);
+        } catch (IOException e) {
+            throw new SerializationException("Exception while reading the root element of a serialized event", e);
+        }
     }
 
     /**
@@ -193,6 +282,9 @@ public class XStreamEventSerializer implements EventSerializer {
     /**
      * Sets the event upcasters the serializer may use. Note that this serializer only supports the dom4j Document
      * representation of upcasters. This means they should all implement <code>EventUpcaster&lt;Document&gt;</code>.
+     * <p/>
+     * Upcasters implementing {@link SelectiveEventUpcaster} are only invoked for the events they need to upcast.
+     * Events that no upcaster needs to process are deserialized directly, without building a Document.
      *
      * @param eventUpcasters The upcasters to assign to this serializer
      */
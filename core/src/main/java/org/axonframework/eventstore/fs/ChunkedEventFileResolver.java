@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.axonframework.domain.AggregateIdentifier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * EventFileResolver that stores the event and snapshot files of an aggregate as a sequence of chunks, where each chunk
+ * contains the data written by a single append. Chunks therefore always start and end at the boundary of an entry.
+ * <p/>
+ * The resolver gives access to individual chunks, which allows the {@link FileSystemEventStore} to read the last
+ * snapshot event and find the offset for a new snapshot event by reading only the last chunks of an aggregate,
+ * instead of its complete history.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface ChunkedEventFileResolver extends EventFileResolver {
+
+    /**
+     * Returns the lengths, in bytes, of the chunks that form the (regular) events file for the aggregate with the given
+     * <code>aggregateIdentifier</code> and of given <code>type</code>, in the order in which they were written. The
+     * events file consists of these chunks, without any data in between.
+     *
+     * @param type                The type of aggregate to return the chunks for
+     * @param aggregateIdentifier the identifier of the aggregate
+     * @return the lengths of the chunks of the events file, or an empty array if the file does not exist
+     *
+     * @throws IOException when an error occurs while reading the location of the chunks
+     */
+    int[] getEventChunkLengths(String type, AggregateIdentifier aggregateIdentifier) throws IOException;
+
+    /**
+     * Reads the chunk with the given <code>index</code> of the (regular) events file for the aggregate with the given
+     * <code>aggregateIdentifier</code> and of given <code>type</code>. The index refers to the position of the chunk in
+     * the array returned by {@link #getEventChunkLengths(String, org.axonframework.domain.AggregateIdentifier)}. The
+     * buffer's position is at the start of the chunk, and its limit at the end of it.
+     *
+     * @param type                The type of aggregate to read the chunk for
+     * @param aggregateIdentifier the identifier of the aggregate
+     * @param index               The index of the chunk to read
+     * @return a buffer containing the requested chunk
+     *
+     * @throws IOException when an error occurs while reading the chunk
+     */
+    ByteBuffer readEventChunk(String type, AggregateIdentifier aggregateIdentifier, int index) throws IOException;
+
+    /**
+     * Reads the last chunk of the snapshot events file for the aggregate with the given
+     * <code>aggregateIdentifier</code> and of given <code>type</code>. The buffer's position is at the start of the
+     * chunk, and its limit at the end of it.
+     *
+     * @param type                The type of aggregate to read the chunk for
+     * @param aggregateIdentifier the identifier of the aggregate
+     * @return a buffer containing the last chunk of the snapshot events file, or <code>null</code> if the file does not
+     *         exist
+     *
+     * @throws IOException when an error occurs while reading the chunk
+     */
+    ByteBuffer readLastSnapshotChunk(String type, AggregateIdentifier aggregateIdentifier) throws IOException;
+}
@@ -16,10 +16,10 @@
 
 package org.axonframework.eventstore.fs;
 
+import org.axonframework.domain.AggregateIdentifier;
 import org.axonframework.domain.DomainEvent;
 import org.axonframework.eventstore.EventSerializer;
-
-import java.util.Arrays;
+import org.axonframework.eventstore.SerializedDomainEvent;
 
 /**
  * Representation of a single (regular) event entry in an aggregate's event log.
@@ -34,7 +34,8 @@ class EventEntry {
     private final String timeStamp;
 
     /**
-     * Initialize an entry using the given <code>sequenceNumber</code> and <code>serializedEvent</code>.
+     * Initialize an entry using the given <code>sequenceNumber</code> and <code>serializedEvent</code>. The given
+     * array is not copied, and should not be modified afterwards.
      *
      * @param sequenceNumber  The sequence number of the event
      * @param timeStamp       The ISO8601 timestamp of the event
@@ -43,7 +44,7 @@ class EventEntry {
     public EventEntry(long sequenceNumber, String timeStamp, byte[] serializedEvent) {
         this.sequenceNumber = sequenceNumber;
         this.timeStamp = timeStamp;
-        this.serializedEvent = Arrays.copyOf(serializedEvent, serializedEvent.length);
+        this.serializedEvent = serializedEvent;
     }
 
     /**
@@ -56,6 +57,19 @@ class EventEntry {
         return eventSerializer.deserialize(serializedEvent);
     }
 
+    /**
+     * Returns the event in this entry in its serialized form, which is deserialized using the given
+     * <code>eventSerializer</code> when it is needed.
+     *
+     * @param eventSerializer     the event serializer that can deserialize the event in this entry
+     * @param aggregateIdentifier the identifier of the aggregate the event belongs to
+     * @return the event in this entry in its serialized form
+     */
+    public SerializedDomainEvent asSerializedDomainEvent(EventSerializer eventSerializer,
+                                                         AggregateIdentifier aggregateIdentifier) {
+        return new SerializedDomainEvent(serializedEvent, eventSerializer, aggregateIdentifier, sequenceNumber);
+    }
+
     /**
      * Returns the sequence number of the event in this entry
      *
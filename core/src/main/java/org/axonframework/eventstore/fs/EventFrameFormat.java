@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Reads and writes entries of event logs as binary frames. A frame has the following layout: <ol><li>a magic byte
+ * (<code>0xAE</code>)</li><li>the frame version (1 byte)</li><li>the sequence number of the event (8 bytes)</li><li>the
+ * offset of a snapshot event in the event log, or 0 for regular events (8 bytes)</li><li>the length of the timestamp
+ * (varint), followed by the UTF-8 encoded ISO8601 timestamp</li><li>the length of the serialized event (varint),
+ * followed by the serialized event</li><li>the CRC32 checksum of all preceding bytes of the frame (4 bytes)</li><li>the
+ * total length of the frame (4 bytes)</li><li>an end marker (<code>0xAF</code>)</li></ol>
+ * <p/>
+ * The checksum allows readers to detect frames that were not written completely. The trailing length and end marker
+ * allow the last frame of a file to be validated without reading the file from the start.
+ * <p/>
+ * Since the magic byte is neither a digit nor whitespace, frames can be distinguished from entries in the textual
+ * format written by earlier versions.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+final class EventFrameFormat {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventFrameFormat.class);
+
+    /**
+     * The first byte of each frame.
+     */
+    static final byte FRAME_MAGIC = (byte) 0xAE;
+    /**
+     * The last byte of each frame.
+     */
+    static final byte FRAME_END = (byte) 0xAF;
+
+    private static final byte FRAME_VERSION = 1;
+    private static final int HEADER_SIZE = 18;
+    private static final int TRAILER_SIZE = 9;
+    private static final int MAX_FRAME_OVERHEAD = HEADER_SIZE + 10 + TRAILER_SIZE;
+    private static final int READ_CHUNK_SIZE = 8192;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private EventFrameFormat() {
+        // utility class
+    }
+
+    /**
+     * Writes a frame to the given <code>outputStream</code>. The frame is written using a single write operation.
+     *
+     * @param outputStream    The stream to write the frame to
+     * @param sequenceNumber  The sequence number of the event
+     * @param timeStamp       The ISO8601 formatted timestamp of the event
+     * @param offset          The offset of the snapshot event in the event log, or 0 for regular events
+     * @param serializedEvent The bytes of the serialized event
+     * @throws IOException when an error occurs writing to the output stream
+     */
+    static void writeFrame(OutputStream outputStream, long sequenceNumber, String timeStamp, long offset,
+                           byte[] serializedEvent) throws IOException {
+        byte[] timeStampBytes = timeStamp.getBytes(UTF8);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + 10 + timeStampBytes.length + serializedEvent.length
+                                                       + TRAILER_SIZE);
+        frame.put(FRAME_MAGIC);
+        frame.put(FRAME_VERSION);
+        frame.putLong(sequenceNumber);
+        frame.putLong(offset);
+        putVarInt(frame, timeStampBytes.length);
+        frame.put(timeStampBytes);
+        putVarInt(frame, serializedEvent.length);
+        frame.put(serializedEvent);
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), 0, frame.position());
+        frame.putInt((int) crc.getValue());
+        frame.putInt(frame.position() + 5);
+        frame.put(FRAME_END);
+        outputStream.write(frame.array(), 0, frame.position());
+    }
+
+    /**
+     * Reads a frame from the given <code>inputStream</code>, of which the magic byte has already been read. Returns
+     * <code>null</code> if the stream does not contain a complete and valid frame.
+     *
+     * @param inputStream The stream providing the frame, positioned directly after the magic byte
+     * @return the frame read, or <code>null</code> if the frame is incomplete or corrupt
+     *
+     * @throws IOException when an error occurs reading from the input stream
+     */
+    static Frame readFrame(InputStream inputStream) throws IOException {
+        CheckedInputStream checkedStream = new CheckedInputStream(inputStream, new CRC32());
+        checkedStream.getChecksum().update(FRAME_MAGIC);
+        DataInputStream in = new DataInputStream(checkedStream);
+        try {
+            if (in.readByte() != FRAME_VERSION) {
+                logger.warn("Encountered a frame of an unsupported version. It is ignored, including what follows.");
+                return null;
+            }
+            long sequenceNumber = in.readLong();
+            long offset = in.readLong();
+            byte[] timeStamp = readBytes(in, readVarInt(in));
+            byte[] serializedEvent = timeStamp == null ? null : readBytes(in, readVarInt(in));
+            if (serializedEvent == null) {
+                logger.warn("Encountered a corrupt frame. It is ignored, including what follows.");
+                return null;
+            }
+            long expectedCrc = checkedStream.getChecksum().getValue();
+            DataInputStream trailer = new DataInputStream(inputStream);
+            int crc = trailer.readInt();
+            int frameLength = trailer.readInt();
+            byte end = trailer.readByte();
+            if (crc != (int) expectedCrc || end != FRAME_END || frameLength != frameLength(timeStamp.length,
+                                                                                            serializedEvent.length)) {
+                logger.warn("Encountered a corrupt frame. It is ignored, including what follows.");
+                return null;
+            }
+            return new Frame(sequenceNumber, new String(timeStamp, UTF8), offset, serializedEvent);
+        } catch (EOFException e) {
+            logger.warn("Encountered an incomplete frame. It is ignored.");
+            return null;
+        }
+    }
+
+    /**
+     * Reads <code>length</code> bytes from the given stream, or returns <code>null</code> if the length is negative or
+     * larger than a frame can be. Since the stream does not tell how many bytes remain, the array is grown while the
+     * bytes are read, so that a corrupt length results in an EOFException instead of a huge allocation.
+     */
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        if (length < 0 || length > Integer.MAX_VALUE - MAX_FRAME_OVERHEAD) {
+            return null;
+        }
+        byte[] bytes = new byte[Math.min(length, READ_CHUNK_SIZE)];
+        int count = 0;
+        while (count < length) {
+            if (count == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, bytes.length * 2L));
+            }
+            int bytesRead = in.read(bytes, count, bytes.length - count);
+            if (bytesRead < 0) {
+                throw new EOFException();
+            }
+            count += bytesRead;
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads a frame from the given <code>buffer</code>, which must be positioned at the magic byte of the frame.
+     * Returns <code>null</code> if the buffer does not contain a complete and valid frame. If a frame is returned, the
+     * buffer is positioned at the end of it.
+     *
+     * @param buffer The buffer containing the frame
+     * @return the frame read, or <code>null</code> if the frame is incomplete or corrupt
+     */
+    static Frame readFrame(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (!skipFrame(buffer)) {
+            return null;
+        }
+        int end = buffer.position();
+        buffer.position(start + 2);
+        long sequenceNumber = buffer.getLong();
+        long offset = buffer.getLong();
+        byte[] timeStamp = new byte[getVarInt(buffer)];
+        buffer.get(timeStamp);
+        byte[] serializedEvent = new byte[getVarInt(buffer)];
+        buffer.get(serializedEvent);
+        buffer.position(end);
+        return new Frame(sequenceNumber, new String(timeStamp, UTF8), offset, serializedEvent);
+    }
+
+    /**
+     * Moves the position of the given <code>buffer</code> to the end of the frame at its current position, after
+     * validating the frame. Returns <code>false</code> if the buffer does not contain a complete and valid frame, in
+     * which case the position of the buffer is undefined.
+     *
+     * @param buffer The buffer containing the frame, positioned at the magic byte of the frame
+     * @return <code>true</code> if a valid frame was skipped, otherwise <code>false</code>
+     */
+    static boolean skipFrame(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE + 2 + TRAILER_SIZE
+                || buffer.get(start) != FRAME_MAGIC || buffer.get(start + 1) != FRAME_VERSION) {
+            return false;
+        }
+        buffer.position(start + HEADER_SIZE);
+        int timeStampLength = getVarInt(buffer);
+        if (timeStampLength < 0 || timeStampLength > buffer.remaining()) {
+            return false;
+        }
+        buffer.position(buffer.position() + timeStampLength);
+        int eventLength = getVarInt(buffer);
+        if (eventLength < 0 || eventLength > buffer.remaining() - TRAILER_SIZE) {
+            return false;
+        }
+        int frameEnd = buffer.position() + eventLength + TRAILER_SIZE;
+        buffer.position(frameEnd);
+        return isValidFrame(buffer, start, frameEnd);
+    }
+
+    /**
+     * Indicates whether the given <code>buffer</code> ends with a complete and valid frame. Only the last frame is
+     * validated.
+     *
+     * @param buffer The buffer to validate the last frame of
+     * @return <code>true</code> if the buffer ends with a valid frame, otherwise <code>false</code>
+     */
+    static boolean endsWithValidFrame(ByteBuffer buffer) {
+        return findFrameEndingAt(buffer, buffer.limit()) >= 0;
+    }
+
+    /**
+     * Returns the position of the start of the valid frame that ends at the given <code>end</code> position of the
+     * <code>buffer</code>, using the length in the trailer of the frame. This allows frames to be read backwards, from
+     * the end of an event log.
+     *
+     * @param buffer The buffer containing the frame
+     * @param end    The position directly after the last byte of the frame
+     * @return the position of the magic byte of the frame, or -1 if no valid frame ends at the given position
+     */
+    static int findFrameEndingAt(ByteBuffer buffer, int end) {
+        if (end < HEADER_SIZE + 2 + TRAILER_SIZE || buffer.get(end - 1) != FRAME_END) {
+            return -1;
+        }
+        int frameLength = buffer.getInt(end - 5);
+        int start = end - frameLength;
+        if (frameLength < HEADER_SIZE + 2 + TRAILER_SIZE || start < 0 || buffer.get(start) != FRAME_MAGIC
+                || !isValidFrame(buffer, start, end)) {
+            return -1;
+        }
+        return start;
+    }
+
+    /**
+     * Returns the sequence number of the frame starting at the given <code>start</code> position of the
+     * <code>buffer</code>. The frame is not validated.
+     *
+     * @param buffer The buffer containing the frame
+     * @param start  The position of the magic byte of the frame
+     * @return the sequence number of the event in the frame
+     */
+    static long getSequenceNumber(ByteBuffer buffer, int start) {
+        return buffer.getLong(start + 2);
+    }
+
+    private static boolean isValidFrame(ByteBuffer buffer, int start, int end) {
+        if (buffer.get(end - 1) != FRAME_END || buffer.getInt(end - 5) != end - start) {
+            return false;
+        }
+        int crcPosition = end - TRAILER_SIZE;
+        CRC32 crc = new CRC32();
+        if (buffer.hasArray()) {
+            crc.update(buffer.array(), buffer.arrayOffset() + start, crcPosition - start);
+        } else {
+            ByteBuffer data = buffer.duplicate();
+            data.limit(crcPosition);
+            data.position(start);
+            byte[] chunk = new byte[Math.min(4096, crcPosition - start)];
+            while (data.hasRemaining()) {
+                int length = Math.min(chunk.length, data.remaining());
+                data.get(chunk, 0, length);
+                crc.update(chunk, 0, length);
+            }
+        }
+        return buffer.getInt(crcPosition) == (int) crc.getValue();
+    }
+
+    private static int frameLength(int timeStampLength, int eventLength) {
+        return HEADER_SIZE + varIntSize(timeStampLength) + timeStampLength + varIntSize(eventLength) + eventLength
+                + TRAILER_SIZE;
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads a varint from the buffer, or returns -1 if it is incomplete or too large.
+     */
+    private static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32 && buffer.hasRemaining(); shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * The contents of a single frame.
+     */
+    static final class Frame {
+
+        private final long sequenceNumber;
+        private final String timeStamp;
+        private final long offset;
+        private final byte[] serializedEvent;
+
+        private Frame(long sequenceNumber, String timeStamp, long offset, byte[] serializedEvent) {
+            this.sequenceNumber = sequenceNumber;
+            this.timeStamp = timeStamp;
+            this.offset = offset;
+            this.serializedEvent = serializedEvent;
+        }
+
+        /**
+         * Returns an EventEntry containing the event in this frame.
+         *
+         * @return an EventEntry containing the event in this frame
+         */
+        EventEntry asEventEntry() {
+            return new EventEntry(sequenceNumber, timeStamp, serializedEvent);
+        }
+
+        /**
+         * Returns a SnapshotEventEntry containing the snapshot event and offset in this frame.
+         *
+         * @return a SnapshotEventEntry containing the snapshot event in this frame
+         */
+        SnapshotEventEntry asSnapshotEntry() {
+            return new SnapshotEventEntry(serializedEvent, sequenceNumber, timeStamp, offset);
+        }
+    }
+}
@@ -14,6 +14,7 @@
  * limitations under the License.
  */
 
+
 package org.axonframework.eventstore.fs;
 
 import org.axonframework.util.io.BinaryEntryInputStream;
@@ -24,17 +25,26 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import static org.axonframework.eventstore.fs.EventFrameFormat.FRAME_MAGIC;
 
 /**
  * Utility class that provides operations to read and write event entries for event logs. This class supports both
  * entries for domain events, as well as snapshot events.
  * <p/>
- * DomainEvent entries consist of two components, split by at least one whitespace character: <ul><li>A numeric value
- * indicating the size of the second component, in bytes</li><li>The serialized event object</li></ul>
+ * Entries are written as binary frames, as described by {@link EventFrameFormat}. Each frame contains a checksum, which
+ * allows frames that were not written completely to be detected. Readers stop at the first incomplete or corrupt
+ * frame.
  * <p/>
- * Snapshot events have an extra component:<ul><li>A numeric value indicating the size of the second component, in
- * bytes</li><li>The number of bytes that may be skipped from the event log when applying this snapshot
- * event</li><li>The serialized snapshot event object</li></ul>
+ * Entries written by earlier versions are read as well. These are textual entries, of which the components are split
+ * by at least one whitespace character. DomainEvent entries consist of: <ul><li>The entry version</li><li>The sequence
+ * number of the event</li><li>The timestamp of the event</li><li>A numeric value indicating the size of the serialized
+ * event, in bytes</li><li>The serialized event object</li></ul>
+ * <p/>
+ * Snapshot events have an extra component, after the timestamp: the number of bytes that may be skipped from the event
+ * log when applying this snapshot event.
  *
  * @author Allard Buijze
  * @since 0.5
@@ -43,33 +53,36 @@ abstract class EventSerializationUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(EventSerializationUtils.class);
 
-    private static final int LATEST_ENTRY_VERSION = 0;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
 
     private EventSerializationUtils() {
         // utility class
     }
 
     /**
-     * Reads a DomainEvent from the input stream. The input stream should contain entries of domain events using three
-     * components. The first is the size of the serialized event in bytes, the seconds is the sequence number of the
-     * aggregate, and the third the actual bytes of the serialized event. All components must be separated by at least
-     * on whitespace character (see {@link Character#isWhitespace(int)}.
+     * Reads a DomainEvent from the input stream. The input stream may contain entries in both the binary frame format
+     * and the textual format of earlier versions.
      * <p/>
      * The pointer of the input stream is advanced to the end of the DomainEvent entry.
      *
      * @param inputStream The stream delivering the raw data.
-     * @return An EventEntry representing the serialized event, or <code>null</code> if no next event exists
+     * @return An EventEntry representing the serialized event, or <code>null</code> if no next (valid) event exists
      *
      * @throws IOException when an error occurs reading from the input stream.
      */
     public static EventEntry readEventEntry(InputStream inputStream) throws IOException {
-        BinaryEntryInputStream in = new BinaryEntryInputStream(inputStream);
-        int version = (int) in.readNumber();
-        if (version < 0) {
+        int firstCharacter = readFirstNonWhitespaceCharacter(inputStream);
+        if (firstCharacter < 0) {
             return null;
         }
+        if (firstCharacter == (FRAME_MAGIC & 0xFF)) {
+            EventFrameFormat.Frame frame = EventFrameFormat.readFrame(inputStream);
+            return frame == null ? null : frame.asEventEntry();
+        }
 
-        int sequenceNumber = (int) in.readNumber();
+        readNumber(firstCharacter, inputStream);
+        BinaryEntryInputStream in = new BinaryEntryInputStream(inputStream);
+        long sequenceNumber = in.readNumber();
         String timeStamp = in.readString();
         byte[] serializedEvent = in.readBytes();
         if (serializedEvent == null) {
@@ -80,10 +93,42 @@ abstract class EventSerializationUtils {
     }
 
     /**
-     * Writes a DomainEvent entry to the output stream. An entry consists of two components. The first is the size of
-     * the serialized event in bytes, the seconds is the actual bytes of the serialized event. Components are separated
-     * by a whitespace character (see {@link Character#isWhitespace(int)}. After the entry, a newline character is
-     * written.
+     * Reads a DomainEvent entry from the given <code>buffer</code>, in the same formats as {@link
+     * #readEventEntry(java.io.InputStream)}. The entry is decoded directly from the buffer, which may be a memory
+     * mapped file.
+     * <p/>
+     * The position of the buffer is advanced to the end of the DomainEvent entry.
+     *
+     * @param buffer The buffer containing the raw data.
+     * @return An EventEntry representing the serialized event, or <code>null</code> if no next (valid) event exists
+     */
+    public static EventEntry readEventEntry(ByteBuffer buffer) {
+        if (!skipWhitespace(buffer)) {
+            return null;
+        }
+        if (buffer.get(buffer.position()) == FRAME_MAGIC) {
+            EventFrameFormat.Frame frame = EventFrameFormat.readFrame(buffer);
+            if (frame == null) {
+                logger.warn("Encountered an incomplete or corrupt frame. It is ignored, including what follows.");
+                return null;
+            }
+            return frame.asEventEntry();
+        }
+
+        readNumber(buffer);
+        long sequenceNumber = readNumber(buffer);
+        String timeStamp = readString(buffer);
+        byte[] serializedEvent = readBytes(buffer);
+        if (serializedEvent == null) {
+            logger.warn("Failed to read the required amount of bytes from the underlying buffer.");
+            return null;
+        }
+        return new EventEntry(sequenceNumber, timeStamp, serializedEvent);
+    }
+
+    /**
+     * Writes a DomainEvent entry to the output stream, as a binary frame. The frame is written using a single write
+     * operation on the output stream.
      *
      * @param outputStream    The stream delivering the raw data.
      * @param sequenceNumber  The sequence number of the event to write
@@ -94,26 +139,20 @@ abstract class EventSerializationUtils {
     public static void writeEventEntry(OutputStream outputStream, long sequenceNumber, String timeStamp,
                                        byte[] serializedEvent)
             throws IOException {
-        BinaryEntryOutputStream out = new BinaryEntryOutputStream(outputStream);
-        out.writeNumber(LATEST_ENTRY_VERSION);
-        out.writeNumber(sequenceNumber);
-        out.writeString(timeStamp);
-        out.writeBytes(serializedEvent);
+        EventFrameFormat.writeFrame(outputStream, sequenceNumber, timeStamp, 0, serializedEvent);
     }
 
     /**
-     * Reads the last snapshot event entry from the input stream. The input stream should contain entries of domain
-     * events using three components. The first is the size of the serialized event in bytes, the second is the offset
-     * to use when reading events from the regular stream and the third is the actual bytes of the serialized event. All
-     * components must be separated by at least one whitespace character (see {@link Character#isWhitespace(int)}.
+     * Reads the last snapshot event entry from the input stream. The input stream may contain entries in both the
+     * binary frame format and the textual format of earlier versions.
      * <p/>
      * The offset is the number of bytes that may be skipped when reading from the event log, when using the snapshot
      * event from the entry.
      * <p/>
-     * The pointer of the input stream is advanced to the end of the input stream.
+     * The pointer of the input stream is advanced to the end of the input stream, or to the first incomplete entry.
      *
      * @param inputStream The stream delivering the raw data.
-     * @return The bytes of the serialized event
+     * @return The last valid snapshot event entry, or <code>null</code> if the stream contains no valid entries
      *
      * @throws IOException when an error occurs reading from the input stream.
      */
@@ -133,15 +172,49 @@ abstract class EventSerializationUtils {
     }
 
     /**
-     * Writes a snapshot event entry to the output stream. The entry consists of three components. The first is the size
-     * of the serialized event in bytes, the second is the offset to use when reading events from the regular stream and
-     * the third is the actual bytes of the serialized event. All components are separated by a whitespace character
-     * (see {@link Character#isWhitespace(int)}. After the entry, a newline character is written.
+     * Reads the last snapshot event entry from the given <code>buffer</code>, in the same formats as {@link
+     * #readLastSnapshotEntry(java.io.InputStream)}. Only the last valid entry is decoded. When the buffer ends with a
+     * valid binary frame, that frame is read directly. Otherwise, the other entries are skipped from the start of the
+     * buffer.
      * <p/>
-     * The offset is the number of bytes that may be skipped when reading from the event log, when using the snapshot
-     * event from the entry.
-     * <p/>
-     * The pointer of the input stream is advanced by the size of a single snapshot event entry.
+     * The position of the buffer is advanced to the end of the last valid entry.
+     *
+     * @param buffer The buffer containing the raw data.
+     * @return The last snapshot event entry, or <code>null</code> if the buffer does not contain a valid entry
+     */
+    public static SnapshotEventEntry readLastSnapshotEntry(ByteBuffer buffer) {
+        int lastFrame = EventFrameFormat.findFrameEndingAt(buffer, buffer.limit());
+        if (lastFrame >= buffer.position()) {
+            buffer.position(lastFrame);
+            return EventFrameFormat.readFrame(buffer).asSnapshotEntry();
+        }
+        int lastValidEntry = -1;
+        int endOfLastValidEntry = buffer.position();
+        while (skipSnapshotEntry(buffer)) {
+            lastValidEntry = endOfLastValidEntry;
+            endOfLastValidEntry = buffer.position();
+        }
+        if (lastValidEntry < 0) {
+            return null;
+        }
+        buffer.position(lastValidEntry);
+        skipWhitespace(buffer);
+        if (buffer.get(buffer.position()) == FRAME_MAGIC) {
+            return EventFrameFormat.readFrame(buffer).asSnapshotEntry();
+        }
+        readNumber(buffer);
+        long sequenceNumber = readNumber(buffer);
+        String timeStamp = readString(buffer);
+        long offset = readNumber(buffer);
+        byte[] serializedEvent = readBytes(buffer);
+        return new SnapshotEventEntry(serializedEvent, sequenceNumber, timeStamp, offset);
+    }
+
+    /**
+     * Writes a snapshot event entry to the output stream, as a binary frame. The frame contains the offset to use when
+     * reading events from the regular stream, which is the number of bytes that may be skipped when reading from the
+     * event log, when using the snapshot event from the entry. The frame is written using a single write operation on
+     * the output stream.
      *
      * @param outputStream  The stream to write the raw data to.
      * @param snapshotEntry The snapshot entry containing a serialized snapshot event and the related offset
@@ -149,17 +222,83 @@ abstract class EventSerializationUtils {
      */
     public static void writeSnapshotEntry(OutputStream outputStream, SnapshotEventEntry snapshotEntry)
             throws IOException {
-        BinaryEntryOutputStream out = new BinaryEntryOutputStream(outputStream);
-        out.writeNumber(LATEST_ENTRY_VERSION);
-        out.writeNumber(snapshotEntry.getSequenceNumber());
-        out.writeString(snapshotEntry.getTimeStamp());
-        out.writeNumber(snapshotEntry.getOffset());
-        out.writeBytes(snapshotEntry.getBytes());
+        EventFrameFormat.writeFrame(outputStream, snapshotEntry.getSequenceNumber(), snapshotEntry.getTimeStamp(),
+                                    snapshotEntry.getOffset(), snapshotEntry.getBytes());
+    }
+
+    /**
+     * Returns the position directly after the first entry in the given <code>buffer</code> with a sequence number equal
+     * to or higher than the given <code>sequenceNumber</code>. This is the offset at which reading may continue after
+     * applying a snapshot event with that sequence number.
+     * <p/>
+     * The entries are read backwards from the end of the buffer, using the trailer of each binary frame. That means
+     * only the entries following the requested one are read. This relies on the sequence numbers in an event log being
+     * ascending. If the buffer does not end with a valid frame, or if the requested entry cannot be found without
+     * reading entries that aren't binary frames, -1 is returned. In that case, the entries must be read from the start
+     * of the buffer instead.
+     *
+     * @param buffer         The buffer containing the complete contents of an event log
+     * @param sequenceNumber The sequence number of the entry to find the end of
+     * @return the position after the requested entry, or -1 if it cannot be found by reading backwards
+     */
+    public static int readOffsetAfterEntry(ByteBuffer buffer, long sequenceNumber) {
+        int offset = -1;
+        int end = buffer.limit();
+        while (end > 0) {
+            int start = EventFrameFormat.findFrameEndingAt(buffer, end);
+            if (start < 0) {
+                return -1;
+            }
+            long frameSequenceNumber = EventFrameFormat.getSequenceNumber(buffer, start);
+            if (frameSequenceNumber == sequenceNumber) {
+                return end;
+            } else if (frameSequenceNumber < sequenceNumber) {
+                return offset;
+            }
+            offset = end;
+            end = start;
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the number of bytes at the start of the given <code>buffer</code> that contain complete and valid
+     * entries. Any bytes after that belong to an entry that was not written completely, and may be cut off.
+     * <p/>
+     * When the buffer ends with a valid binary frame, this is determined without reading the rest of the buffer.
+     * Otherwise, all entries are read from the start of the buffer.
+     *
+     * @param buffer           The buffer containing the complete contents of an event log, positioned at its start
+     * @param snapshotEntries  Whether the buffer contains snapshot entries, instead of regular event entries
+     * @return the number of bytes containing valid entries
+     */
+    public static int readValidLength(ByteBuffer buffer, boolean snapshotEntries) {
+        if (EventFrameFormat.endsWithValidFrame(buffer)) {
+            return buffer.limit();
+        }
+        int validLength = buffer.position();
+        while (snapshotEntries ? skipSnapshotEntry(buffer) : skipEventEntry(buffer)) {
+            validLength = buffer.position();
+        }
+        buffer.position(validLength);
+        if (!skipWhitespace(buffer)) {
+            validLength = buffer.limit();
+        }
+        return validLength;
     }
 
     private static SnapshotEventEntry readNextSnapshotEntry(InputStream inputStream) throws IOException {
+        int firstCharacter = readFirstNonWhitespaceCharacter(inputStream);
+        if (firstCharacter < 0) {
+            return null;
+        }
+        if (firstCharacter == (FRAME_MAGIC & 0xFF)) {
+            EventFrameFormat.Frame frame = EventFrameFormat.readFrame(inputStream);
+            return frame == null ? null : frame.asSnapshotEntry();
+        }
+
+        int version = (int) readNumber(firstCharacter, inputStream);
         BinaryEntryInputStream in = new BinaryEntryInputStream(inputStream);
-        int version = (int) in.readNumber();
         long sequenceNumber = in.readNumber();
         String timeStamp = in.readString();
         long offset = in.readNumber();
@@ -167,6 +306,166 @@ abstract class EventSerializationUtils {
             return null;
         }
         byte[] serializedEvent = in.readBytes();
+        if (serializedEvent == null) {
+            logger.warn("Failed to read the required amount of bytes from the underlying stream.");
+            return null;
+        }
         return new SnapshotEventEntry(serializedEvent, sequenceNumber, timeStamp, offset);
     }
-}
\ No newline at end of file
+
+    private static int readFirstNonWhitespaceCharacter(InputStream in) throws IOException {
+        int codePoint = in.read();
+        while (Character.isWhitespace(codePoint)) {
+            codePoint = in.read();
+        }
+        return codePoint;
+    }
+
+    /**
+     * Reads the remainder of a textual number entry, of which the first character has already been read.
+     */
+    private static long readNumber(int firstCharacter, InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int codePoint = firstCharacter;
+        while (!Character.isWhitespace(codePoint) && codePoint >= 0) {
+            sb.append((char) codePoint);
+            codePoint = in.read();
+        }
+        return Long.parseLong(sb.toString());
+    }
+
+    /**
+     * Advances the buffer past the next event entry. Returns whether a complete and valid entry was found.
+     */
+    private static boolean skipEventEntry(ByteBuffer buffer) {
+        if (!skipWhitespace(buffer)) {
+            return false;
+        }
+        if (buffer.get(buffer.position()) == FRAME_MAGIC) {
+            return EventFrameFormat.skipFrame(buffer);
+        }
+        try {
+            long version = readNumber(buffer);
+            long sequenceNumber = readNumber(buffer);
+            String timeStamp = readString(buffer);
+            return version >= 0 && sequenceNumber >= 0 && timeStamp != null && skipBytes(buffer);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Advances the buffer past the next snapshot entry. Returns whether a complete and valid entry was found.
+     */
+    private static boolean skipSnapshotEntry(ByteBuffer buffer) {
+        if (!skipWhitespace(buffer)) {
+            return false;
+        }
+        if (buffer.get(buffer.position()) == FRAME_MAGIC) {
+            return EventFrameFormat.skipFrame(buffer);
+        }
+        try {
+            long version = readNumber(buffer);
+            long sequenceNumber = readNumber(buffer);
+            readString(buffer);
+            long offset = readNumber(buffer);
+            return version >= 0 && sequenceNumber >= 0 && offset >= 0 && skipBytes(buffer);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean skipBytes(ByteBuffer buffer) {
+        long size = readNumber(buffer);
+        if (size < 0 || size > buffer.remaining()) {
+            return false;
+        }
+        buffer.position(buffer.position() + (int) size);
+        return true;
+    }
+
+    /**
+     * Reads a number in the format written by {@link BinaryEntryOutputStream#writeNumber(long)}, or returns -1 if
+     * the buffer does not contain another entry.
+     */
+    private static long readNumber(ByteBuffer buffer) {
+        if (!skipWhitespace(buffer)) {
+            return -1;
+        }
+        boolean negative = buffer.get(buffer.position()) == '-';
+        if (negative) {
+            buffer.get();
+        }
+        long value = 0;
+        int digits = 0;
+        while (buffer.hasRemaining()) {
+            int c = buffer.get();
+            if (isWhitespace(c)) {
+                break;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Unexpected character in numeric entry: " + (char) c);
+            }
+            value = value * 10 + (c - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Expected a numeric entry");
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads a String in the format written by {@link BinaryEntryOutputStream#writeString(String)}, or returns
+     * <code>null</code> if the buffer does not contain another entry.
+     */
+    private static String readString(ByteBuffer buffer) {
+        if (!skipWhitespace(buffer)) {
+            return null;
+        }
+        int start = buffer.position();
+        int end = start;
+        while (buffer.hasRemaining()) {
+            if (isWhitespace(buffer.get())) {
+                break;
+            }
+            end++;
+        }
+        ByteBuffer value = buffer.duplicate();
+        value.position(start);
+        value.limit(end);
+        return UTF8.decode(value).toString();
+    }
+
+    /**
+     * Reads a byte array in the format written by {@link BinaryEntryOutputStream#writeBytes(byte[])}, or returns
+     * <code>null</code> if the buffer does not contain all the bytes of the entry.
+     */
+    private static byte[] readBytes(ByteBuffer buffer) {
+        long size = readNumber(buffer);
+        if (size < 0 || size > buffer.remaining()) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) size];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Moves the position of the buffer to the next character that isn't whitespace. Returns <code>false</code> if the
+     * end of the buffer was reached.
+     */
+    private static boolean skipWhitespace(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            if (!isWhitespace(buffer.get(buffer.position()))) {
+                return true;
+            }
+            buffer.get();
+        }
+        return false;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return Character.isWhitespace((char) (c & 0xFF));
+    }
+}
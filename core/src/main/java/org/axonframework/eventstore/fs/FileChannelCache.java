@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of open file channels, which keeps the channels of the most recently used files open. Channels are acquired
+ * by the components reading or writing a file, and must be released when they are no longer used.
+ * <p/>
+ * Channels that are in use are never evicted, which guarantees that there is only a single channel for each file. When
+ * more channels are in use than the maximum size of the cache allows, the least recently used channels are closed as
+ * soon as they are released.
+ * <p/>
+ * Files are opened read-only, unless they are acquired for writing. This allows event files on a read-only file system
+ * to be read. When a file that was opened read-only is acquired for writing, it is opened again for reading and
+ * writing. The read-only channel remains open for the components that are still using it, until the cached channel
+ * is closed.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+class FileChannelCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileChannelCache.class);
+
+    private final int maxSize;
+    private final Map<File, CachedChannel> channels = new LinkedHashMap<File, CachedChannel>(16, 0.75f, true);
+
+    /**
+     * Initializes a cache that keeps at most <code>maxSize</code> unused channels open.
+     *
+     * @param maxSize The maximum number of channels to keep open
+     */
+    FileChannelCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Acquires the channel for the given <code>file</code>, opening it if it isn't open yet. The returned channel must
+     * be released using {@link CachedChannel#release()} when it is no longer used.
+     * <p/>
+     * When <code>write</code> is <code>true</code>, the file is opened for reading and writing, and created if it does
+     * not exist. Otherwise, the file is opened read-only.
+     *
+     * @param file  The file to acquire the channel for
+     * @param write Whether the caller needs to write to the file
+     * @return the channel for the given file
+     *
+     * @throws FileNotFoundException if the file does not exist and <code>write</code> is <code>false</code>
+     * @throws IOException           when an error occurs while opening the file
+     */
+    CachedChannel acquire(File file, boolean write) throws IOException {
+        synchronized (channels) {
+            CachedChannel cachedChannel = channels.get(file);
+            if (cachedChannel == null) {
+                cachedChannel = new CachedChannel(open(file, write), write);
+                channels.put(file, cachedChannel);
+            } else if (write && !cachedChannel.writable) {
+                cachedChannel.upgrade(open(file, true));
+            }
+            cachedChannel.references++;
+            evictUnusedChannels();
+            return cachedChannel;
+        }
+    }
+
+    /**
+     * Indicates whether a channel for the given <code>file</code> is currently open. If so, the file is known to exist.
+     *
+     * @param file The file to check
+     * @return <code>true</code> if a channel for the file is open, otherwise <code>false</code>
+     */
+    boolean isOpen(File file) {
+        synchronized (channels) {
+            return channels.containsKey(file);
+        }
+    }
+
+    /**
+     * Closes all channels that are currently open. Channels that are still in use are closed too, causing subsequent
+     * operations on them to fail.
+     */
+    void close() {
+        List<CachedChannel> openChannels;
+        synchronized (channels) {
+            openChannels = new ArrayList<CachedChannel>(channels.values());
+            channels.clear();
+        }
+        for (CachedChannel cachedChannel : openChannels) {
+            cachedChannel.close();
+        }
+    }
+
+    private FileChannel open(File file, boolean write) throws IOException {
+        return new RandomAccessFile(file, write ? "rw" : "r").getChannel();
+    }
+
+    private void evictUnusedChannels() {
+        Iterator<CachedChannel> iterator = channels.values().iterator();
+        while (channels.size() > maxSize && iterator.hasNext()) {
+            CachedChannel cachedChannel = iterator.next();
+            if (cachedChannel.references == 0) {
+                iterator.remove();
+                cachedChannel.close();
+            }
+        }
+    }
+
+    /**
+     * A channel that has been acquired from the cache.
+     */
+    final class CachedChannel {
+
+        private volatile FileChannel channel;
+        private FileChannel readOnlyChannel;
+        private boolean writable;
+        private int references;
+
+        private CachedChannel(FileChannel channel, boolean writable) {
+            this.channel = channel;
+            this.writable = writable;
+        }
+
+        /**
+         * Returns the channel of the file. Since the channel is shared, its position should not be used. Callers that
+         * change the contents of the file should synchronize on the returned channel.
+         *
+         * @return the channel of the file
+         */
+        FileChannel getChannel() {
+            return channel;
+        }
+
+        /**
+         * Releases the channel. The channel may not be used by the caller after it has been released.
+         */
+        void release() {
+            synchronized (channels) {
+                references--;
+                evictUnusedChannels();
+            }
+        }
+
+        /**
+         * Replaces the read-only channel with the given writable one. The read-only channel is kept open, since
+         * readers may still be using it.
+         */
+        private void upgrade(FileChannel writableChannel) {
+            readOnlyChannel = channel;
+            channel = writableChannel;
+            writable = true;
+        }
+
+        private void close() {
+            closeChannel(channel);
+            if (readOnlyChannel != null) {
+                closeChannel(readOnlyChannel);
+            }
+        }
+
+        private void closeChannel(FileChannel fileChannel) {
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+                logger.info("An error occurred while closing a cached event file", e);
+            }
+        }
+    }
+}
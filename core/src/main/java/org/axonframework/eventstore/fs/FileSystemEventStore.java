@@ -21,11 +21,14 @@ import org.apache.commons.io.input.CountingInputStream;
 import org.axonframework.domain.AggregateIdentifier;
 import org.axonframework.domain.DomainEvent;
 import org.axonframework.domain.DomainEventStream;
+import org.axonframework.eventstore.AbstractSerializedDomainEventStream;
 import org.axonframework.eventstore.EventSerializer;
-import org.axonframework.eventstore.EventStore;
 import org.axonframework.eventstore.EventStoreException;
 import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.eventstore.SerializedDomainEvent;
+import org.axonframework.eventstore.SerializedDomainEventStream;
 import org.axonframework.eventstore.SnapshotEventStore;
+import org.axonframework.eventstore.SyncableEventStore;
 import org.axonframework.eventstore.XStreamEventSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,28 +41,62 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 import static org.axonframework.eventstore.fs.EventSerializationUtils.*;
 
 /**
  * Implementation of the {@link org.axonframework.eventstore.EventStore} that serializes objects using XStream and
- * writes them to files to disk. Each aggregate is represented by a single file, where each event of that aggregate is a
- * line in that file. Events are serialized to XML format, making them readable for both user and machine.
+ * writes them to files to disk. Each aggregate is represented by a single file, where each event of that aggregate is
+ * an entry in that file. Events are serialized to XML format by default. Entries are written as binary frames that
+ * contain a checksum.
  * <p/>
  * Use {@link #setBaseDir(java.io.File)} to specify the directory where event files should be stored.
  * <p/>
  * Note that the resource supplied must point to a folder and should contain a trailing slash. See {@link
  * org.springframework.core.io.FileSystemResource#FileSystemResource(String)}.
+ * <p/>
+ * When the configured {@link EventFileResolver} is a {@link MappedEventFileResolver}, event and snapshot files are
+ * read by decoding entries directly from the buffers it provides. Before the first append to a file, any entry at the
+ * end of that file that was not written completely (e.g. due to a crash) is cut off. Since each binary frame ends with
+ * its length, the last snapshot event and the offset in the event log for a new snapshot event are found by reading
+ * backwards from the end of the files. Their cost is proportional to the number of events since the snapshot, instead
+ * of the aggregate's complete history.
+ * <p/>
+ * When the configured {@link EventFileResolver} is a {@link ChunkedEventFileResolver}, such as the {@link
+ * SegmentedEventFileResolver}, only the last chunk of the snapshot file is read to find the last snapshot event. The
+ * offset for a new snapshot event is found by reading the chunks of the event file backwards, until the chunk
+ * containing the snapshot's sequence number is found.
+ * <p/>
+ * Appended events are handed to the operating system, but not forced to the storage device. When the configured
+ * {@link EventFileResolver} is a {@link SyncableEventFileResolver}, they can be forced using {@link #sync(String,
+ * org.axonframework.domain.AggregateIdentifier)}. Wrap this event store in a {@link
+ * org.axonframework.eventstore.GroupCommitEventStore} to force the events of concurrent appends at once.
  *
  * @author Allard Buijze
  * @since 0.5
  */
-public class FileSystemEventStore implements EventStore, SnapshotEventStore {
+public class FileSystemEventStore implements SyncableEventStore, SnapshotEventStore {
 
     private static final Logger logger = LoggerFactory.getLogger(FileSystemEventStore.class);
 
+    private static final int RECOVERED_FILES_CACHE_SIZE = 10000;
+
     private final EventSerializer eventSerializer;
     private EventFileResolver eventFileResolver;
+    private final Set<String> recoveredFiles = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1749623087262591823L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > RECOVERED_FILES_CACHE_SIZE;
+                }
+            }));
 
     /**
      * Basic initialization of the event store. The actual serialization and deserialization is delegated to a {@link
@@ -91,9 +128,12 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
             return;
         }
         OutputStream out = null;
+        AggregateIdentifier aggregateIdentifier = null;
         try {
             DomainEvent next = eventsToStore.next();
-            out = eventFileResolver.openEventFileForWriting(type, next.getAggregateIdentifier());
+            aggregateIdentifier = next.getAggregateIdentifier();
+            recoverEventFile(type, aggregateIdentifier, false);
+            out = eventFileResolver.openEventFileForWriting(type, aggregateIdentifier);
             do {
                 byte[] bytes = eventSerializer.serialize(next);
                 String timeStamp = next.getTimestamp().toString();
@@ -105,6 +145,7 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
                 }
             } while (next != null);
         } catch (IOException e) {
+            forgetRecoveredFile(type, aggregateIdentifier, false);
             throw new EventStoreException("Unable to store given entity due to an IOException", e);
         } finally {
             IOUtils.closeQuietly(out);
@@ -113,6 +154,27 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
 
     /**
      * {@inheritDoc}
+     *
+     * @throws EventStoreException when the configured {@link EventFileResolver} is not a {@link
+     *                             SyncableEventFileResolver}, or when an error occurs while forcing the event file
+     */
+    @Override
+    public void sync(String type, AggregateIdentifier identifier) {
+        if (!(eventFileResolver instanceof SyncableEventFileResolver)) {
+            throw new EventStoreException("The configured EventFileResolver does not support syncing event files");
+        }
+        try {
+            ((SyncableEventFileResolver) eventFileResolver).syncEventFile(type, identifier);
+        } catch (IOException e) {
+            throw new EventStoreException("Unable to force the appended events to the storage device", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The returned stream is a {@link SerializedDomainEventStream}. Events are deserialized one at a time, when they
+     * are read from the stream.
      */
     @Override
     public DomainEventStream readEvents(String type, AggregateIdentifier identifier) {
@@ -120,6 +182,10 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
             if (!eventFileResolver.eventFileExists(type, identifier)) {
                 throw new EventStreamNotFoundException(type, identifier);
             }
+            ByteBuffer eventFile = mapEventFile(type, identifier);
+            if (eventFile != null) {
+                return readEvents(type, identifier, eventFile);
+            }
             InputStream eventFileInputStream = eventFileResolver.openEventFileForReading(type, identifier);
             return readEvents(type, identifier, eventFileInputStream);
         } catch (IOException e) {
@@ -152,10 +218,12 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
                                                                       timeStamp,
                                                                       offset);
 
+            recoverEventFile(type, aggregateIdentifier, true);
             fileOutputStream = eventFileResolver.openSnapshotFileForWriting(type, aggregateIdentifier);
 
             EventSerializationUtils.writeSnapshotEntry(fileOutputStream, snapshotEntry);
         } catch (IOException e) {
+            forgetRecoveredFile(type, aggregateIdentifier, true);
             throw new EventStoreException("Error writing a snapshot event due to an IO exception", e);
         } finally {
             IOUtils.closeQuietly(fileOutputStream);
@@ -164,6 +232,14 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
 
     private long calculateOffset(String type, AggregateIdentifier aggregateIdentifier, long sequenceNumber)
             throws IOException {
+        ByteBuffer eventFile = mapEventFile(type, aggregateIdentifier);
+        if (eventFile != null) {
+            return calculateOffset(eventFile, sequenceNumber);
+        }
+        if (eventFileResolver instanceof ChunkedEventFileResolver) {
+            return calculateOffset((ChunkedEventFileResolver) eventFileResolver, type, aggregateIdentifier,
+                                   sequenceNumber);
+        }
         CountingInputStream countingInputStream = null;
         try {
             InputStream eventInputStream = eventFileResolver.openEventFileForReading(type, aggregateIdentifier);
@@ -179,6 +255,46 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
         }
     }
 
+    /**
+     * Finds the offset after the entry with the given <code>sequenceNumber</code> in the chunks of the event file,
+     * reading them backwards from the last chunk. Chunks following the one containing the entry are only read up to
+     * their first entry.
+     */
+    private long calculateOffset(ChunkedEventFileResolver resolver, String type,
+                                 AggregateIdentifier aggregateIdentifier, long sequenceNumber) throws IOException {
+        int[] chunkLengths = resolver.getEventChunkLengths(type, aggregateIdentifier);
+        long chunkStart = 0;
+        for (int chunkLength : chunkLengths) {
+            chunkStart += chunkLength;
+        }
+        for (int chunk = chunkLengths.length - 1; chunk >= 0; chunk--) {
+            chunkStart -= chunkLengths[chunk];
+            ByteBuffer chunkBuffer = resolver.readEventChunk(type, aggregateIdentifier, chunk);
+            EventEntry firstEntry = readEventEntry(chunkBuffer.duplicate());
+            if (chunk == 0 || (firstEntry != null && firstEntry.getSequenceNumber() <= sequenceNumber)) {
+                return chunkStart + calculateOffset(chunkBuffer, sequenceNumber);
+            }
+        }
+        return chunkStart;
+    }
+
+    /**
+     * Finds the offset after the entry with the given <code>sequenceNumber</code> in the given <code>buffer</code>,
+     * reading backwards from its end if possible, and forwards from its position otherwise.
+     */
+    private int calculateOffset(ByteBuffer buffer, long sequenceNumber) {
+        int offset = readOffsetAfterEntry(buffer, sequenceNumber);
+        if (offset >= 0) {
+            return offset;
+        }
+        long lastReadSequenceNumber = -1;
+        while (lastReadSequenceNumber < sequenceNumber) {
+            EventEntry entry = readEventEntry(buffer);
+            lastReadSequenceNumber = entry.getSequenceNumber();
+        }
+        return buffer.position();
+    }
+
     private DomainEventStream readEvents(String type, AggregateIdentifier identifier, InputStream eventFileInputStream)
             throws IOException {
         SnapshotEventEntry snapshotEntry = readSnapshotEvent(type, identifier, eventFileInputStream);
@@ -189,29 +305,113 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
             writeEventEntry(baos, snapshotEntry.getSequenceNumber(), timeStamp, snapshotEntry.getBytes());
             is = new SequenceInputStream(new ByteArrayInputStream(baos.toByteArray()), eventFileInputStream);
         }
-        return new BufferedReaderDomainEventStream(is, eventSerializer);
+        return new BufferedReaderDomainEventStream(is, eventSerializer, identifier);
+    }
+
+    private DomainEventStream readEvents(String type, AggregateIdentifier identifier, ByteBuffer eventFile)
+            throws IOException {
+        SnapshotEventEntry snapshotEntry = readSnapshotEntry(type, identifier);
+        if (snapshotEntry != null) {
+            if (snapshotEntry.getOffset() > eventFile.limit()) {
+                logger.warn("The offset of the snapshot event exceeds the size of the event log. "
+                                    + "The event log of aggregate of type {} and identifier {} might be corrupt.",
+                            type,
+                            identifier.toString());
+                eventFile.position(eventFile.limit());
+            } else {
+                eventFile.position((int) snapshotEntry.getOffset());
+            }
+        }
+        return new ByteBufferDomainEventStream(snapshotEntry, eventFile, eventSerializer, identifier);
+    }
+
+    private SnapshotEventEntry readSnapshotEntry(String type, AggregateIdentifier identifier) throws IOException {
+        if (!eventFileResolver.snapshotFileExists(type, identifier)) {
+            return null;
+        }
+        ByteBuffer snapshotFile = ((MappedEventFileResolver) eventFileResolver).mapSnapshotFile(type, identifier);
+        if (snapshotFile != null) {
+            return readLastSnapshotEntry(snapshotFile);
+        }
+        InputStream snapshotFileInputStream = eventFileResolver.openSnapshotFileForReading(type, identifier);
+        try {
+            return readLastSnapshotEntry(snapshotFileInputStream);
+        } finally {
+            IOUtils.closeQuietly(snapshotFileInputStream);
+        }
+    }
+
+    /**
+     * Cuts off any entry at the end of the event or snapshot file that was not written completely, so that new entries
+     * are appended directly after the last valid entry. Each file is checked once, until writing to it fails.
+     */
+    private void recoverEventFile(String type, AggregateIdentifier aggregateIdentifier, boolean snapshotFile)
+            throws IOException {
+        if (!(eventFileResolver instanceof MappedEventFileResolver)
+                || !recoveredFiles.add(recoveredFileKey(type, aggregateIdentifier, snapshotFile))) {
+            return;
+        }
+        MappedEventFileResolver resolver = (MappedEventFileResolver) eventFileResolver;
+        boolean exists = snapshotFile ? resolver.snapshotFileExists(type, aggregateIdentifier)
+                : resolver.eventFileExists(type, aggregateIdentifier);
+        if (!exists) {
+            return;
+        }
+        long bytesCutOff = snapshotFile ? resolver.truncateIncompleteSnapshotEntry(type, aggregateIdentifier)
+                : resolver.truncateIncompleteEventEntry(type, aggregateIdentifier);
+        if (bytesCutOff > 0) {
+            logger.warn("The {} file of aggregate of type {} and identifier {} ended with an incomplete entry. "
+                                + "Cut off {} bytes.",
+                        new Object[]{snapshotFile ? "snapshot" : "event", type, aggregateIdentifier.toString(),
+                                bytesCutOff});
+        }
+    }
+
+    private void forgetRecoveredFile(String type, AggregateIdentifier aggregateIdentifier, boolean snapshotFile) {
+        if (aggregateIdentifier != null) {
+            recoveredFiles.remove(recoveredFileKey(type, aggregateIdentifier, snapshotFile));
+        }
+    }
+
+    private String recoveredFileKey(String type, AggregateIdentifier aggregateIdentifier, boolean snapshotFile) {
+        return type + "/" + aggregateIdentifier.asString() + (snapshotFile ? ".snapshots" : ".events");
+    }
+
+    private ByteBuffer mapEventFile(String type, AggregateIdentifier identifier) throws IOException {
+        if (eventFileResolver instanceof MappedEventFileResolver) {
+            return ((MappedEventFileResolver) eventFileResolver).mapEventFile(type, identifier);
+        }
+        return null;
     }
 
     private SnapshotEventEntry readSnapshotEvent(String type, AggregateIdentifier identifier,
                                                  InputStream eventFileInputStream)
             throws IOException {
         SnapshotEventEntry snapshotEvent = null;
-        if (eventFileResolver.snapshotFileExists(type, identifier)) {
+        if (eventFileResolver instanceof ChunkedEventFileResolver) {
+            ByteBuffer snapshotChunk = ((ChunkedEventFileResolver) eventFileResolver).readLastSnapshotChunk(type,
+                                                                                                           identifier);
+            if (snapshotChunk != null) {
+                snapshotEvent = readLastSnapshotEntry(snapshotChunk);
+            }
+        } else if (eventFileResolver.snapshotFileExists(type, identifier)) {
             InputStream snapshotFileInputStream = eventFileResolver.openSnapshotFileForReading(type, identifier);
             try {
                 snapshotEvent = readLastSnapshotEntry(snapshotFileInputStream);
-                long actuallySkipped = eventFileInputStream.skip(snapshotEvent.getOffset());
-                if (actuallySkipped != snapshotEvent.getOffset()) {
-                    logger.warn(
-                            "The skip operation did not actually skip the expected amount of bytes. "
-                                    + "The event log of aggregate of type {} and identifier {} might be corrupt.",
-                            type,
-                            identifier.toString());
-                }
             } finally {
                 IOUtils.closeQuietly(snapshotFileInputStream);
             }
         }
+        if (snapshotEvent != null) {
+            long actuallySkipped = eventFileInputStream.skip(snapshotEvent.getOffset());
+            if (actuallySkipped != snapshotEvent.getOffset()) {
+                logger.warn(
+                        "The skip operation did not actually skip the expected amount of bytes. "
+                                + "The event log of aggregate of type {} and identifier {} might be corrupt.",
+                        type,
+                        identifier.toString());
+            }
+        }
         return snapshotEvent;
     }
 
@@ -237,11 +437,11 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
      * DomainEventStream implementation that reads DomainEvents from an inputItream. Entries in the input stream must be
      * formatted as described by {@link EventSerializationUtils}
      */
-    private static class BufferedReaderDomainEventStream implements DomainEventStream {
+    private static class BufferedReaderDomainEventStream extends AbstractSerializedDomainEventStream {
 
-        private DomainEvent next;
         private final InputStream inputStream;
         private final EventSerializer serializer;
+        private final AggregateIdentifier aggregateIdentifier;
 
         /**
          * Initialize a BufferedReaderDomainEventStream using the given <code>inputStream</code> and
@@ -252,24 +452,20 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
          * <p/>
          * Example:<br/><code>1234 The serialized domain event using 1234 bytes...</code>
          * <p/>
-         * The reader will be closed when the last event has been read from it, or when an exception occurs while
-         * reading or deserializing an event.
+         * The reader will be closed when the last event has been read from it, when an exception occurs while
+         * reading or deserializing an event, or when the stream is closed.
          *
-         * @param inputStream The inputStream providing serialized DomainEvents
-         * @param serializer  The serializer to deserialize the DomainEvents
+         * @param inputStream         The inputStream providing serialized DomainEvents
+         * @param serializer          The serializer to deserialize the DomainEvents
+         * @param aggregateIdentifier The identifier of the aggregate the events belong to
          */
-        public BufferedReaderDomainEventStream(InputStream inputStream, EventSerializer serializer) {
+        public BufferedReaderDomainEventStream(InputStream inputStream, EventSerializer serializer,
+                                               AggregateIdentifier aggregateIdentifier) {
             this.inputStream = new BufferedInputStream(inputStream);
             this.serializer = serializer;
-            this.next = doReadNext();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean hasNext() {
-            return next != null;
+            this.aggregateIdentifier = aggregateIdentifier;
+            // reports a source that cannot be read right away, without deserializing the first event
+            peekSerialized();
         }
 
         /**
@@ -277,24 +473,33 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
          */
         @Override
         public DomainEvent next() {
-            DomainEvent toReturn = next;
-            next = doReadNext();
-            return toReturn;
+            try {
+                return super.next();
+            } catch (RuntimeException e) {
+                IOUtils.closeQuietly(inputStream);
+                throw e;
+            }
         }
 
         @Override
         public DomainEvent peek() {
-            return next;
+            try {
+                return super.peek();
+            } catch (RuntimeException e) {
+                IOUtils.closeQuietly(inputStream);
+                throw e;
+            }
         }
 
-        private DomainEvent doReadNext() {
+        @Override
+        protected SerializedDomainEvent readNext() {
             try {
                 EventEntry serializedEvent = readEventEntry(inputStream);
                 if (serializedEvent == null) {
                     IOUtils.closeQuietly(inputStream);
                     return null;
                 }
-                return serializedEvent.deserialize(serializer);
+                return serializedEvent.asSerializedDomainEvent(serializer, aggregateIdentifier);
             } catch (IOException e) {
                 IOUtils.closeQuietly(inputStream);
                 throw new EventStoreException("An error occurred while reading from the underlying source", e);
@@ -303,5 +508,47 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
                 throw e;
             }
         }
+
+        @Override
+        public void close() {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * DomainEventStream implementation that decodes DomainEvents from a ByteBuffer, optionally preceded by a snapshot
+     * event. Entries in the buffer must be formatted as described by {@link EventSerializationUtils}.
+     */
+    private static class ByteBufferDomainEventStream extends AbstractSerializedDomainEventStream {
+
+        private final ByteBuffer buffer;
+        private final EventSerializer serializer;
+        private final AggregateIdentifier aggregateIdentifier;
+
+        /**
+         * Initialize a ByteBufferDomainEventStream that reads the events in the given <code>buffer</code>, from its
+         * current position up to its limit.
+         *
+         * @param snapshotEntry       The entry containing the snapshot event to return first, or <code>null</code>
+         * @param buffer              The buffer providing serialized DomainEvents
+         * @param serializer          The serializer to deserialize the DomainEvents
+         * @param aggregateIdentifier The identifier of the aggregate the events belong to
+         */
+        public ByteBufferDomainEventStream(SnapshotEventEntry snapshotEntry, ByteBuffer buffer,
+                                           EventSerializer serializer, AggregateIdentifier aggregateIdentifier) {
+            super(snapshotEntry == null ? null : new SerializedDomainEvent(snapshotEntry.getBytes(),
+                                                                           serializer,
+                                                                           aggregateIdentifier,
+                                                                           snapshotEntry.getSequenceNumber()));
+            this.buffer = buffer;
+            this.serializer = serializer;
+            this.aggregateIdentifier = aggregateIdentifier;
+        }
+
+        @Override
+        protected SerializedDomainEvent readNext() {
+            EventEntry entry = readEventEntry(buffer);
+            return entry == null ? null : entry.asSerializedDomainEvent(serializer, aggregateIdentifier);
+        }
     }
 }
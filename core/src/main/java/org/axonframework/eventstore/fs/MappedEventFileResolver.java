@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.axonframework.domain.AggregateIdentifier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * EventFileResolver that can provide the contents of event files as a ByteBuffer, typically a view on a memory mapped
+ * file. When the resolver provides a buffer, the {@link FileSystemEventStore} decodes entries directly from it, instead
+ * of reading them from an input stream.
+ * <p/>
+ * The resolver can also cut off entries that were not written completely (e.g. due to a crash), which allows the {@link
+ * FileSystemEventStore} to do so before appending new entries.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface MappedEventFileResolver extends EventFileResolver {
+
+    /**
+     * Provides a read-only buffer containing the (regular) events file for the aggregate with the given
+     * <code>aggregateIdentifier</code> and of given <code>type</code>. The buffer's position is at the start of the
+     * file, and its limit at the end of the file at the moment this method was called. The caller may change the
+     * position and limit of the returned buffer.
+     * <p/>
+     * If the file cannot be mapped, <code>null</code> is returned. The caller should then use {@link
+     * #openEventFileForReading(String, org.axonframework.domain.AggregateIdentifier)} instead.
+     *
+     * @param type                The type of aggregate to map the file for
+     * @param aggregateIdentifier the identifier of the aggregate
+     * @return a buffer containing the event log of the given aggregate, or <code>null</code> if it cannot be mapped
+     *
+     * @throws IOException when an error occurs while mapping the file
+     */
+    ByteBuffer mapEventFile(String type, AggregateIdentifier aggregateIdentifier) throws IOException;
+
+    /**
+     * Provides a read-only buffer containing the snapshot events file for the aggregate with the given
+     * <code>aggregateIdentifier</code> and of given <code>type</code>. The buffer's position is at the start of the
+     * file, and its limit at the end of the file at the moment this method was called. The caller may change the
+     * position and limit of the returned buffer.
+     * <p/>
+     * If the file cannot be mapped, <code>null</code> is returned. The caller should then use {@link
+     * #openSnapshotFileForReading(String, org.axonframework.domain.AggregateIdentifier)} instead.
+     *
+     * @param type                The type of aggregate to map the file for
+     * @param aggregateIdentifier the identifier of the aggregate
+     * @return a buffer containing the snapshot event log of the given aggregate, or <code>null</code> if it cannot be
+     *         mapped
+     *
+     * @throws IOException when an error occurs while mapping the file
+     */
+    ByteBuffer mapSnapshotFile(String type, AggregateIdentifier aggregateIdentifier) throws IOException;
+
+    /**
+     * Cuts off an entry at the end of the (regular) events file for the aggregate with the given
+     * <code>aggregateIdentifier</code> and of given <code>type</code> that was not written completely, if any. The
+     * file is validated and truncated without allowing other threads to append to it in the meantime.
+     *
+     * @param type                The type of aggregate to recover the file for
+     * @param aggregateIdentifier the identifier of the aggregate
+     * @return the number of bytes cut off
+     *
+     * @throws IOException when an error occurs while reading or truncating the file
+     * @see EventSerializationUtils#readValidLength(java.nio.ByteBuffer, boolean)
+     */
+    long truncateIncompleteEventEntry(String type, AggregateIdentifier aggregateIdentifier) throws IOException;
+
+    /**
+     * Cuts off an entry at the end of the snapshot events file for the aggregate with the given
+     * <code>aggregateIdentifier</code> and of given <code>type</code> that was not written completely, if any. The
+     * file is validated and truncated without allowing other threads to append to it in the meantime.
+     *
+     * @param type                The type of aggregate to recover the file for
+     * @param aggregateIdentifier the identifier of the aggregate
+     * @return the number of bytes cut off
+     *
+     * @throws IOException when an error occurs while reading or truncating the file
+     * @see EventSerializationUtils#readValidLength(java.nio.ByteBuffer, boolean)
+     */
+    long truncateIncompleteSnapshotEntry(String type, AggregateIdentifier aggregateIdentifier) throws IOException;
+}
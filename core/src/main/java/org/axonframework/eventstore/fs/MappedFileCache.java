@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of read-only memory mappings of files, which keeps the mappings of the most recently used files. Since event
+ * files are only appended to, a mapping remains valid as long as the file has the same size. When a file has changed
+ * size, it is mapped again.
+ * <p/>
+ * Note that the JVM does not provide a way to release a mapping explicitly. Mappings that are evicted from the cache
+ * are released when they are garbage collected.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+class MappedFileCache {
+
+    private final Map<File, MappedByteBuffer> mappings;
+
+    /**
+     * Initializes a cache that keeps the mappings of at most <code>maxSize</code> files.
+     *
+     * @param maxSize The maximum number of mappings to keep
+     */
+    MappedFileCache(final int maxSize) {
+        this.mappings = new LinkedHashMap<File, MappedByteBuffer>(16, 0.75f, true) {
+            private static final long serialVersionUID = -3512546436375624127L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, MappedByteBuffer> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns a read-only buffer containing the current contents of the given <code>file</code>. Each invocation
+     * returns a new buffer, positioned at the start of the file, which shares its content with the cached mapping. When
+     * the file needs to be mapped, the given <code>channel</code> is used to map it. The mapping remains valid after
+     * the channel has been closed.
+     *
+     * @param file    The file to map
+     * @param channel An open channel of the file to map
+     * @return a buffer containing the contents of the file, or <code>null</code> if the file is too large to be mapped
+     *
+     * @throws IOException when an error occurs while mapping the file
+     */
+    ByteBuffer map(File file, FileChannel channel) throws IOException {
+        long length = channel.size();
+        if (length > Integer.MAX_VALUE) {
+            return null;
+        }
+        MappedByteBuffer mapping;
+        synchronized (mappings) {
+            mapping = mappings.get(file);
+            if (mapping == null || mapping.capacity() != length) {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                mappings.put(file, mapping);
+            }
+        }
+        return mapping.duplicate();
+    }
+
+    /**
+     * Removes the mapping of the given <code>file</code> from the cache, if any. Must be called when a file is changed
+     * in any other way than appending data to it.
+     *
+     * @param file The file to remove the mapping of
+     */
+    void evict(File file) {
+        synchronized (mappings) {
+            mappings.remove(file);
+        }
+    }
+}
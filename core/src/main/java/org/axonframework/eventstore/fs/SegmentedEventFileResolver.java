@@ -0,0 +1,637 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.eventstore.EventStoreException;
+import org.axonframework.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PreDestroy;
+
+/**
+ * EventFileResolver implementation that stores the events of all aggregates of the same type in a small number of
+ * large segment files, instead of using a file per aggregate. Each time events are written for an aggregate, they are
+ * appended to the current segment file of that type as a single chunk. The location of that chunk is recorded in an
+ * index file, which is kept in memory as well. When reading, the chunks of an aggregate are read in the order in which
+ * they were written, so that they form the same stream as the events file of the {@link SimpleEventFileResolver}.
+ * <p/>
+ * When the current segment of a type would exceed the {@link #setMaxSegmentSize(long) maximum segment size}, a new
+ * segment is started. Segments and index files are kept open for appending until this resolver is {@link #close()
+ * closed}. Segments are also kept open for reading, and the streams returned for reading share these files.
+ * <p/>
+ * Each type of aggregate has its own directory, containing the segment files and an index file. Chunks are only
+ * visible after their index record has been written. When the index file ends with an incomplete record (e.g. after a
+ * crash), that record is discarded when the index is loaded. Data written to a segment without an index record is
+ * ignored. When writing a chunk or its index record fails, both files are truncated to the size they had before.
+ * <p/>
+ * Chunks can be read individually, which allows the {@link FileSystemEventStore} to read only the last snapshot
+ * event, and to find the offset for a new snapshot event by reading the event chunks of an aggregate backwards, until
+ * the chunk containing the snapshot's sequence number is found.
+ * <p/>
+ * Syncing the event file of an aggregate forces the current segment and the index of its type to the storage device.
+ * Since the events of all aggregates of a type share these files, a single sync makes all appends to that type
+ * durable. Segments are forced before a new segment is started.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class SegmentedEventFileResolver implements SyncableEventFileResolver, ChunkedEventFileResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedEventFileResolver.class);
+
+    /**
+     * Describes the file extension used for segment files.
+     */
+    public static final String FILE_EXTENSION_SEGMENT = "segment";
+    /**
+     * Describes the name of the file containing the location of the chunks of each aggregate.
+     */
+    public static final String INDEX_FILE_NAME = "chunks.idx";
+
+    private static final byte KIND_EVENTS = 0;
+    private static final byte KIND_SNAPSHOTS = 1;
+
+    private final File baseDir;
+    private final ConcurrentMap<String, SegmentedLog> logs = new ConcurrentHashMap<String, SegmentedLog>();
+    private volatile long maxSegmentSize = 64 * 1024 * 1024;
+
+    /**
+     * Initialize the SegmentedEventFileResolver with the given <code>baseDir</code>. A directory is created inside
+     * this base directory for each type of aggregate.
+     *
+     * @param baseDir The directory where segment files are stored.
+     */
+    public SegmentedEventFileResolver(File baseDir) {
+        Assert.notNull(baseDir, "baseDir may not be null");
+        this.baseDir = baseDir;
+    }
+
+    @Override
+    public OutputStream openEventFileForWriting(String type, AggregateIdentifier aggregateIdentifier)
+            throws IOException {
+        return new ChunkOutputStream(getLog(type), KIND_EVENTS, aggregateIdentifier.asString());
+    }
+
+    @Override
+    public OutputStream openSnapshotFileForWriting(String type, AggregateIdentifier aggregateIdentifier)
+            throws IOException {
+        return new ChunkOutputStream(getLog(type), KIND_SNAPSHOTS, aggregateIdentifier.asString());
+    }
+
+    @Override
+    public InputStream openEventFileForReading(String type, AggregateIdentifier aggregateIdentifier)
+            throws IOException {
+        SegmentedLog log = getLog(type);
+        return new ChunkInputStream(log, log.getChunks(KIND_EVENTS, aggregateIdentifier.asString()));
+    }
+
+    @Override
+    public InputStream openSnapshotFileForReading(String type, AggregateIdentifier aggregateIdentifier)
+            throws IOException {
+        SegmentedLog log = getLog(type);
+        return new ChunkInputStream(log, log.getChunks(KIND_SNAPSHOTS, aggregateIdentifier.asString()));
+    }
+
+    @Override
+    public boolean eventFileExists(String type, AggregateIdentifier aggregateIdentifier) throws IOException {
+        return !getLog(type).getChunks(KIND_EVENTS, aggregateIdentifier.asString()).isEmpty();
+    }
+
+    @Override
+    public boolean snapshotFileExists(String type, AggregateIdentifier aggregateIdentifier) throws IOException {
+        return !getLog(type).getChunks(KIND_SNAPSHOTS, aggregateIdentifier.asString()).isEmpty();
+    }
+
+    @Override
+    public int[] getEventChunkLengths(String type, AggregateIdentifier aggregateIdentifier) throws IOException {
+        List<Chunk> chunks = getLog(type).getChunks(KIND_EVENTS, aggregateIdentifier.asString());
+        int[] lengths = new int[chunks.size()];
+        for (int t = 0; t < lengths.length; t++) {
+            lengths[t] = chunks.get(t).length;
+        }
+        return lengths;
+    }
+
+    @Override
+    public ByteBuffer readEventChunk(String type, AggregateIdentifier aggregateIdentifier, int index)
+            throws IOException {
+        SegmentedLog log = getLog(type);
+        return log.read(log.getChunk(KIND_EVENTS, aggregateIdentifier.asString(), index));
+    }
+
+    @Override
+    public ByteBuffer readLastSnapshotChunk(String type, AggregateIdentifier aggregateIdentifier)
+            throws IOException {
+        SegmentedLog log = getLog(type);
+        Chunk chunk = log.getChunk(KIND_SNAPSHOTS, aggregateIdentifier.asString(), -1);
+        return chunk == null ? null : log.read(chunk);
+    }
+
+    @Override
+    public void syncEventFile(String type, AggregateIdentifier aggregateIdentifier) throws IOException {
+        getLog(type).sync();
+    }
+
+    /**
+     * Sets the size, in bytes, after which a new segment file is started. A single chunk is never split over
+     * segments, meaning that a segment may grow larger than this size if a single chunk is larger. Defaults to 64MB.
+     *
+     * @param maxSegmentSize The maximum size of a segment file, in bytes
+     */
+    public void setMaxSegmentSize(long maxSegmentSize) {
+        Assert.isTrue(maxSegmentSize > 0, "The maximum segment size must be positive.");
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    /**
+     * Closes the segment and index files that are kept open for appending. Files are opened again when this resolver
+     * is used after it was closed.
+     */
+    @PreDestroy
+    public void close() {
+        for (SegmentedLog log : logs.values()) {
+            logs.remove(log.type, log);
+            log.close();
+        }
+    }
+
+    private SegmentedLog getLog(String type) throws IOException {
+        SegmentedLog log = logs.get(type);
+        if (log == null) {
+            File typeSpecificDir = new File(baseDir, type);
+            if (!typeSpecificDir.exists() && !typeSpecificDir.mkdirs()) {
+                throw new EventStoreException(
+                        "The given event store directory doesn't exist and could not be created");
+            }
+            SegmentedLog newLog = new SegmentedLog(type, typeSpecificDir);
+            log = logs.putIfAbsent(type, newLog);
+            if (log == null) {
+                log = newLog;
+            }
+        }
+        return log;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                logger.info("An error occurred while closing a segment or index file", e);
+            }
+        }
+    }
+
+    /**
+     * The location of a chunk of data written for a single aggregate.
+     */
+    private static final class Chunk {
+
+        private final int segment;
+        private final long position;
+        private final int length;
+
+        private Chunk(int segment, long position, int length) {
+            this.segment = segment;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The segments and index of a single type of aggregate. The index is loaded on first access.
+     */
+    private final class SegmentedLog {
+
+        private final String type;
+        private final File directory;
+        private final Map<String, List<Chunk>> eventChunks = new HashMap<String, List<Chunk>>();
+        private final Map<String, List<Chunk>> snapshotChunks = new HashMap<String, List<Chunk>>();
+        private final ConcurrentMap<Integer, FileChannel> readChannels = new ConcurrentHashMap<Integer, FileChannel>();
+        private boolean initialized;
+        private FileChannel indexChannel;
+        private FileChannel segmentChannel;
+        private int currentSegment;
+        // whether data has been appended since the files were last forced
+        private boolean dirty;
+        private final Object syncLock = new Object();
+
+        private SegmentedLog(String type, File directory) {
+            this.type = type;
+            this.directory = directory;
+        }
+
+        private synchronized List<Chunk> getChunks(byte kind, String aggregateIdentifier) throws IOException {
+            ensureInitialized();
+            List<Chunk> chunks = chunksOfKind(kind).get(aggregateIdentifier);
+            if (chunks == null) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<Chunk>(chunks);
+        }
+
+        /**
+         * Returns the chunk with the given <code>index</code>, or the last chunk if the index is negative. When asked
+         * for the last chunk, <code>null</code> is returned if the aggregate has no chunks of the given
+         * <code>kind</code>.
+         */
+        private synchronized Chunk getChunk(byte kind, String aggregateIdentifier, int index) throws IOException {
+            ensureInitialized();
+            List<Chunk> chunks = chunksOfKind(kind).get(aggregateIdentifier);
+            if (chunks == null) {
+                chunks = Collections.emptyList();
+            }
+            if (index < 0) {
+                return chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            }
+            return chunks.get(index);
+        }
+
+        /**
+         * Reads the given <code>chunk</code> into a new buffer.
+         */
+        private ByteBuffer read(Chunk chunk) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(chunk.length);
+            FileChannel channel = readChannel(chunk.segment);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, chunk.position + buffer.position()) < 0) {
+                    throw new EOFException("Segment " + chunk.segment + " of aggregate type " + type
+                                                   + " is shorter than its index indicates");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        private synchronized void append(byte kind, String aggregateIdentifier, byte[] data, int length)
+                throws IOException {
+            ensureInitialized();
+            ensureOpenForWriting();
+            long position = segmentChannel.size();
+            if (position > 0 && position + length > maxSegmentSize) {
+                if (dirty) {
+                    segmentChannel.force(false);
+                }
+                segmentChannel.close();
+                currentSegment++;
+                segmentChannel = openForAppending(segmentFile(currentSegment));
+                position = 0;
+            }
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeByte(kind);
+            out.writeUTF(aggregateIdentifier);
+            out.writeInt(currentSegment);
+            out.writeLong(position);
+            out.writeInt(length);
+            out.flush();
+
+            long indexSize = indexChannel.size();
+            try {
+                writeFully(segmentChannel, ByteBuffer.wrap(data, 0, length), position);
+                writeFully(indexChannel, ByteBuffer.wrap(record.toByteArray()), indexSize);
+            } catch (IOException e) {
+                discardPartialWrite(position, indexSize);
+                throw e;
+            }
+            dirty = true;
+            addChunk(kind, aggregateIdentifier, new Chunk(currentSegment, position, length));
+        }
+
+        /**
+         * Forces the current segment and the index to the storage device, if anything has been appended since they
+         * were last forced. Appends may continue while the files are being forced. Concurrent syncs wait for each
+         * other, so that a sync never returns while data appended before it is still being forced by another thread.
+         */
+        private void sync() throws IOException {
+            synchronized (syncLock) {
+                FileChannel segment;
+                FileChannel index;
+                synchronized (this) {
+                    if (!dirty || segmentChannel == null) {
+                        return;
+                    }
+                    dirty = false;
+                    segment = segmentChannel;
+                    index = indexChannel;
+                }
+                try {
+                    segment.force(false);
+                    index.force(false);
+                } catch (IOException e) {
+                    synchronized (this) {
+                        dirty = true;
+                    }
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Returns the channel to read the given <code>segment</code> with. The channel is opened on first use, and
+         * shared by all readers until this log is closed.
+         */
+        private FileChannel readChannel(int segment) throws IOException {
+            FileChannel channel = readChannels.get(segment);
+            if (channel == null) {
+                FileChannel newChannel = new RandomAccessFile(segmentFile(segment), "r").getChannel();
+                channel = readChannels.putIfAbsent(segment, newChannel);
+                if (channel == null) {
+                    channel = newChannel;
+                } else {
+                    closeQuietly(newChannel);
+                }
+            }
+            return channel;
+        }
+
+        private synchronized void close() {
+            if (dirty && segmentChannel != null) {
+                try {
+                    segmentChannel.force(false);
+                    indexChannel.force(false);
+                } catch (IOException e) {
+                    logger.warn("Unable to force the segment and index files of aggregate type [{}]", type);
+                }
+                dirty = false;
+            }
+            closeQuietly(segmentChannel);
+            closeQuietly(indexChannel);
+            segmentChannel = null;
+            indexChannel = null;
+            for (Integer segment : readChannels.keySet()) {
+                closeQuietly(readChannels.remove(segment));
+            }
+        }
+
+        /**
+         * Truncates the current segment and the index to the given sizes, to remove the partially written chunk and
+         * index record. If that fails too, the files are closed, so that the index is read again before the next
+         * append.
+         */
+        private void discardPartialWrite(long segmentSize, long indexSize) {
+            try {
+                segmentChannel.truncate(segmentSize);
+                indexChannel.truncate(indexSize);
+            } catch (IOException e) {
+                logger.warn("Unable to remove a partially written chunk of aggregate type [{}]. "
+                                    + "The index will be reloaded before the next append.", type);
+                closeQuietly(segmentChannel);
+                closeQuietly(indexChannel);
+                segmentChannel = null;
+                indexChannel = null;
+                eventChunks.clear();
+                snapshotChunks.clear();
+                currentSegment = 0;
+                initialized = false;
+            }
+        }
+
+        private File segmentFile(int segment) {
+            return new File(directory, String.format("%08d.%s", segment, FILE_EXTENSION_SEGMENT));
+        }
+
+        private void ensureInitialized() throws IOException {
+            if (initialized) {
+                return;
+            }
+            File indexFile = new File(directory, INDEX_FILE_NAME);
+            if (indexFile.exists()) {
+                long validLength = readIndex(indexFile);
+                if (validLength < indexFile.length()) {
+                    logger.warn("The index of aggregate type [{}] ends with an incomplete record. "
+                                        + "It is truncated to the last complete record.", type);
+                    FileChannel channel = openForAppending(indexFile);
+                    try {
+                        channel.truncate(validLength);
+                    } finally {
+                        channel.close();
+                    }
+                }
+            }
+            while (segmentFile(currentSegment + 1).exists()) {
+                currentSegment++;
+            }
+            initialized = true;
+        }
+
+        /**
+         * Reads the chunks from the given index file, and returns the number of bytes containing complete records.
+         */
+        private long readIndex(File indexFile) throws IOException {
+            CountingInputStream counter = new CountingInputStream(new BufferedInputStream(
+                    new FileInputStream(indexFile)));
+            DataInputStream in = new DataInputStream(counter);
+            long validLength = 0;
+            try {
+                while (validLength < indexFile.length()) {
+                    byte kind = in.readByte();
+                    String aggregateIdentifier = in.readUTF();
+                    int segment = in.readInt();
+                    long position = in.readLong();
+                    int length = in.readInt();
+                    addChunk(kind, aggregateIdentifier, new Chunk(segment, position, length));
+                    currentSegment = Math.max(currentSegment, segment);
+                    validLength = counter.getByteCount();
+                }
+            } catch (EOFException e) {
+                // the last record is incomplete
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+            return validLength;
+        }
+
+        private void ensureOpenForWriting() throws IOException {
+            if (indexChannel == null) {
+                indexChannel = openForAppending(new File(directory, INDEX_FILE_NAME));
+            }
+            if (segmentChannel == null) {
+                segmentChannel = openForAppending(segmentFile(currentSegment));
+            }
+        }
+
+        private void addChunk(byte kind, String aggregateIdentifier, Chunk chunk) {
+            Map<String, List<Chunk>> chunks = chunksOfKind(kind);
+            List<Chunk> aggregateChunks = chunks.get(aggregateIdentifier);
+            if (aggregateChunks == null) {
+                aggregateChunks = new ArrayList<Chunk>(1);
+                chunks.put(aggregateIdentifier, aggregateChunks);
+            }
+            aggregateChunks.add(chunk);
+        }
+
+        private Map<String, List<Chunk>> chunksOfKind(byte kind) {
+            return kind == KIND_SNAPSHOTS ? snapshotChunks : eventChunks;
+        }
+
+        private FileChannel openForAppending(File file) throws IOException {
+            return new RandomAccessFile(file, "rw").getChannel();
+        }
+
+        private void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    /**
+     * OutputStream that gathers all bytes written to it, and appends them as a single chunk when it is closed.
+     */
+    private static final class ChunkOutputStream extends OutputStream {
+
+        private final SegmentedLog log;
+        private final byte kind;
+        private final String aggregateIdentifier;
+        private final Buffer buffer = new Buffer();
+        private boolean closed;
+
+        private ChunkOutputStream(SegmentedLog log, byte kind, String aggregateIdentifier) {
+            this.log = log;
+            this.kind = kind;
+            this.aggregateIdentifier = aggregateIdentifier;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            buffer.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                if (buffer.size() > 0) {
+                    log.append(kind, aggregateIdentifier, buffer.bytes(), buffer.size());
+                }
+            }
+        }
+    }
+
+    /**
+     * ByteArrayOutputStream that gives access to its internal buffer, to prevent copying it.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private byte[] bytes() {
+            return buf;
+        }
+    }
+
+    /**
+     * InputStream that reads the chunks of a single aggregate as if they were a single file.
+     */
+    private static final class ChunkInputStream extends InputStream {
+
+        private final SegmentedLog log;
+        private final List<Chunk> chunks;
+        private int currentChunk;
+        private long positionInChunk;
+
+        private ChunkInputStream(SegmentedLog log, List<Chunk> chunks) {
+            this.log = log;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int count = read(single, 0, 1);
+            return count < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            Chunk chunk = nextChunk();
+            if (chunk == null) {
+                return -1;
+            }
+            int count = (int) Math.min(len, chunk.length - positionInChunk);
+            count = log.readChannel(chunk.segment).read(ByteBuffer.wrap(b, off, count), chunk.position + positionInChunk);
+            if (count < 0) {
+                throw new EOFException("Segment " + chunk.segment + " of aggregate type " + log.type
+                                               + " is shorter than its index indicates");
+            }
+            positionInChunk += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            Chunk chunk = nextChunk();
+            while (chunk != null && skipped < n) {
+                long skipInChunk = Math.min(n - skipped, chunk.length - positionInChunk);
+                positionInChunk += skipInChunk;
+                skipped += skipInChunk;
+                chunk = nextChunk();
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            Chunk chunk = nextChunk();
+            return chunk == null ? 0 : (int) (chunk.length - positionInChunk);
+        }
+
+        /**
+         * Returns the chunk to read from, moving to the next chunk when the current one has been read completely.
+         */
+        private Chunk nextChunk() {
+            while (currentChunk < chunks.size() && positionInChunk >= chunks.get(currentChunk).length) {
+                currentChunk++;
+                positionInChunk = 0;
+            }
+            return currentChunk < chunks.size() ? chunks.get(currentChunk) : null;
+        }
+    }
+}
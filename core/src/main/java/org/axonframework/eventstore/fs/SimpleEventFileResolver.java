@@ -19,23 +19,35 @@ package org.axonframework.eventstore.fs;
 import org.axonframework.domain.AggregateIdentifier;
 import org.axonframework.eventstore.EventStoreException;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PreDestroy;
 
 /**
  * Very straightforward implementation of the EventFileResolver that stores files in a directory structure underneath a
  * given base directory. Events of a single aggregate are appended to a pair of files, one for regular events and one
  * for snapshot events. Directories are used to separate files for different aggregate types.
+ * <p/>
+ * Files are read using memory mappings. The mappings of the most recently read files are cached, see {@link
+ * #setMappingCacheSize(int)}. The most recently used files are also kept open, see {@link #setChannelCacheSize(int)},
+ * which means that the events of frequently used aggregates are read and written without opening their files again.
+ * Open files are closed when this resolver is {@link #close() closed}.
+ * <p/>
+ * Data written to event files is not forced to the storage device, unless the event file is {@link
+ * #syncEventFile(String, org.axonframework.domain.AggregateIdentifier) synced}.
  *
  * @author Allard Buijze
  * @since 0.5
  */
-public class SimpleEventFileResolver implements EventFileResolver {
+public class SimpleEventFileResolver implements MappedEventFileResolver, SyncableEventFileResolver {
 
     /**
      * Describes the file extension used for files containing domain events.
@@ -47,6 +59,9 @@ public class SimpleEventFileResolver implements EventFileResolver {
     public static final String FILE_EXTENSION_SNAPSHOTS = "snapshots";
 
     private final File baseDir;
+    private final ConcurrentMap<String, File> typeDirs = new ConcurrentHashMap<String, File>();
+    private volatile MappedFileCache mappedFiles = new MappedFileCache(64);
+    private volatile FileChannelCache openFiles = new FileChannelCache(64);
 
     /**
      * Initialize the SimpleEventFileResolver with the given <code>baseDir</code>.
@@ -64,33 +79,140 @@ public class SimpleEventFileResolver implements EventFileResolver {
     public OutputStream openEventFileForWriting(String type, AggregateIdentifier aggregateIdentifier)
             throws IOException {
         File eventFile = getEventsFile(type, aggregateIdentifier, FILE_EXTENSION_EVENTS);
-        return new BufferedOutputStream(new FileOutputStream(eventFile, true));
+        return new BufferedOutputStream(new ChannelOutputStream(openFiles.acquire(eventFile, true)));
     }
 
     @Override
     public OutputStream openSnapshotFileForWriting(String type, AggregateIdentifier aggregateIdentifier)
             throws IOException {
-        return new FileOutputStream(getEventsFile(type, aggregateIdentifier, FILE_EXTENSION_SNAPSHOTS), true);
+        File snapshotFile = getEventsFile(type, aggregateIdentifier, FILE_EXTENSION_SNAPSHOTS);
+        return new ChannelOutputStream(openFiles.acquire(snapshotFile, true));
     }
 
     @Override
     public InputStream openEventFileForReading(String type, AggregateIdentifier identifier) throws IOException {
-        return new FileInputStream(getEventsFile(type, identifier, FILE_EXTENSION_EVENTS));
+        File eventFile = getEventsFile(type, identifier, FILE_EXTENSION_EVENTS);
+        return new BufferedInputStream(new ChannelInputStream(openFiles.acquire(eventFile, false)));
     }
 
     @Override
     public InputStream openSnapshotFileForReading(String type, AggregateIdentifier identifier) throws IOException {
-        return new FileInputStream(getEventsFile(type, identifier, FILE_EXTENSION_SNAPSHOTS));
+        File snapshotFile = getEventsFile(type, identifier, FILE_EXTENSION_SNAPSHOTS);
+        return new BufferedInputStream(new ChannelInputStream(openFiles.acquire(snapshotFile, false)));
+    }
+
+    @Override
+    public ByteBuffer mapEventFile(String type, AggregateIdentifier identifier) throws IOException {
+        return map(getEventsFile(type, identifier, FILE_EXTENSION_EVENTS));
+    }
+
+    @Override
+    public ByteBuffer mapSnapshotFile(String type, AggregateIdentifier identifier) throws IOException {
+        return map(getEventsFile(type, identifier, FILE_EXTENSION_SNAPSHOTS));
+    }
+
+    @Override
+    public long truncateIncompleteEventEntry(String type, AggregateIdentifier identifier) throws IOException {
+        return truncateIncompleteEntry(getEventsFile(type, identifier, FILE_EXTENSION_EVENTS), false);
+    }
+
+    @Override
+    public long truncateIncompleteSnapshotEntry(String type, AggregateIdentifier identifier) throws IOException {
+        return truncateIncompleteEntry(getEventsFile(type, identifier, FILE_EXTENSION_SNAPSHOTS), true);
+    }
+
+    @Override
+    public void syncEventFile(String type, AggregateIdentifier identifier) throws IOException {
+        File eventFile = getEventsFile(type, identifier, FILE_EXTENSION_EVENTS);
+        if (!exists(eventFile)) {
+            return;
+        }
+        FileChannelCache.CachedChannel cachedChannel = openFiles.acquire(eventFile, false);
+        try {
+            cachedChannel.getChannel().force(false);
+        } finally {
+            cachedChannel.release();
+        }
     }
 
     @Override
     public boolean eventFileExists(String type, AggregateIdentifier identifier) throws IOException {
-        return getEventsFile(type, identifier, FILE_EXTENSION_EVENTS).exists();
+        return exists(getEventsFile(type, identifier, FILE_EXTENSION_EVENTS));
     }
 
     @Override
     public boolean snapshotFileExists(String type, AggregateIdentifier identifier) throws IOException {
-        return getEventsFile(type, identifier, FILE_EXTENSION_SNAPSHOTS).exists();
+        return exists(getEventsFile(type, identifier, FILE_EXTENSION_SNAPSHOTS));
+    }
+
+    /**
+     * Sets the number of files of which the memory mapping is kept for subsequent reads. Defaults to 64.
+     *
+     * @param mappingCacheSize The maximum number of cached file mappings
+     */
+    public void setMappingCacheSize(int mappingCacheSize) {
+        this.mappedFiles = new MappedFileCache(mappingCacheSize);
+    }
+
+    /**
+     * Sets the number of files that are kept open for subsequent reads and writes. Files that are being read or
+     * written are never closed, so the actual number of open files may temporarily exceed this number. Defaults to
+     * 64.
+     * <p/>
+     * This value should be set before the resolver is used.
+     *
+     * @param channelCacheSize The maximum number of files to keep open
+     */
+    public void setChannelCacheSize(int channelCacheSize) {
+        this.openFiles = new FileChannelCache(channelCacheSize);
+    }
+
+    /**
+     * Closes all files that are kept open by this resolver. Files are opened again when this resolver is used after it
+     * was closed.
+     */
+    @PreDestroy
+    public void close() {
+        openFiles.close();
+    }
+
+    private boolean exists(File file) {
+        return openFiles.isOpen(file) || file.exists();
+    }
+
+    private ByteBuffer map(File file) throws IOException {
+        FileChannelCache.CachedChannel cachedChannel = openFiles.acquire(file, false);
+        try {
+            return mappedFiles.map(file, cachedChannel.getChannel());
+        } finally {
+            cachedChannel.release();
+        }
+    }
+
+    /**
+     * Validates and truncates the file while holding the monitor of its channel, which prevents entries from being
+     * appended in between.
+     */
+    private long truncateIncompleteEntry(File file, boolean snapshotEntries) throws IOException {
+        FileChannelCache.CachedChannel cachedChannel = openFiles.acquire(file, true);
+        try {
+            FileChannel channel = cachedChannel.getChannel();
+            synchronized (channel) {
+                ByteBuffer contents = mappedFiles.map(file, channel);
+                if (contents == null) {
+                    return 0;
+                }
+                int validLength = EventSerializationUtils.readValidLength(contents, snapshotEntries);
+                if (validLength == contents.limit()) {
+                    return 0;
+                }
+                mappedFiles.evict(file);
+                channel.truncate(validLength);
+                return contents.limit() - validLength;
+            }
+        } finally {
+            cachedChannel.release();
+        }
     }
 
     private File getEventsFile(String type, AggregateIdentifier identifier, String extension) throws IOException {
@@ -98,12 +220,112 @@ public class SimpleEventFileResolver implements EventFileResolver {
     }
 
     private File getBaseDirForType(String type) throws IOException {
-
-        File typeSpecificDir = new File(baseDir, type);
-        if (!typeSpecificDir.exists() && !typeSpecificDir.mkdirs()) {
-            throw new EventStoreException(
-                    "The given event store directory doesn't exist and could not be created");
+        File typeSpecificDir = typeDirs.get(type);
+        if (typeSpecificDir == null) {
+            typeSpecificDir = new File(baseDir, type);
+            if (!typeSpecificDir.exists() && !typeSpecificDir.mkdirs()) {
+                throw new EventStoreException(
+                        "The given event store directory doesn't exist and could not be created");
+            }
+            typeDirs.put(type, typeSpecificDir);
         }
         return typeSpecificDir;
     }
+
+    /**
+     * OutputStream that appends all data written to it to the end of a cached channel. The channel is released when
+     * the stream is closed.
+     */
+    private static final class ChannelOutputStream extends OutputStream {
+
+        private final FileChannelCache.CachedChannel cachedChannel;
+        private boolean closed;
+
+        private ChannelOutputStream(FileChannelCache.CachedChannel cachedChannel) {
+            this.cachedChannel = cachedChannel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            FileChannel channel = cachedChannel.getChannel();
+            synchronized (channel) {
+                long position = channel.size();
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                cachedChannel.release();
+            }
+        }
+    }
+
+    /**
+     * InputStream that reads the contents of a cached channel, without changing the position of the channel. The
+     * channel is released when the stream is closed.
+     */
+    private static final class ChannelInputStream extends InputStream {
+
+        private final FileChannelCache.CachedChannel cachedChannel;
+        private long position;
+        private boolean closed;
+
+        private ChannelInputStream(FileChannelCache.CachedChannel cachedChannel) {
+            this.cachedChannel = cachedChannel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int bytesRead = read(b, 0, 1);
+            return bytesRead < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int bytesRead = cachedChannel.getChannel().read(ByteBuffer.wrap(b, off, len), position);
+            if (bytesRead > 0) {
+                position += bytesRead;
+            }
+            return bytesRead;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            long skipped = Math.max(0, Math.min(n, cachedChannel.getChannel().size() - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                cachedChannel.release();
+            }
+        }
+    }
 }
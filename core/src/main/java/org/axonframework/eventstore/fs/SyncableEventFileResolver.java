@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.axonframework.domain.AggregateIdentifier;
+
+import java.io.IOException;
+
+/**
+ * EventFileResolver that can force the data written to event files to the storage device. Writing to the streams
+ * provided by the resolver only hands the data to the operating system, which may keep it in memory for a while.
+ * Syncing the files afterwards allows the {@link FileSystemEventStore} to make the events of several appends durable
+ * at once.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface SyncableEventFileResolver extends EventFileResolver {
+
+    /**
+     * Forces all data written to the (regular) events file for the aggregate with the given
+     * <code>aggregateIdentifier</code> and of given <code>type</code> to the storage device. Data written to the
+     * file by other threads may be forced as well.
+     *
+     * @param type                The type of aggregate to sync the file for
+     * @param aggregateIdentifier the identifier of the aggregate
+     * @throws IOException when an error occurs while forcing the data to the storage device
+     */
+    void syncEventFile(String type, AggregateIdentifier aggregateIdentifier) throws IOException;
+}
@@ -20,11 +20,10 @@ import org.axonframework.domain.AggregateIdentifier;
 import org.axonframework.domain.DomainEvent;
 import org.axonframework.domain.StringAggregateIdentifier;
 import org.axonframework.eventstore.EventSerializer;
+import org.axonframework.eventstore.SerializedDomainEvent;
 import org.joda.time.DateTime;
 
 import javax.persistence.Basic;
-import javax.persistence.GeneratedValue;
-import javax.persistence.Id;
 import javax.persistence.Lob;
 import javax.persistence.MappedSuperclass;
 
@@ -37,9 +36,6 @@ import javax.persistence.MappedSuperclass;
 @MappedSuperclass
 abstract class AbstractEventEntry {
 
-    @Id
-    @GeneratedValue
-    private Long id;
     @Basic
     private String aggregateIdentifier;
     @Basic
@@ -84,14 +80,23 @@ abstract class AbstractEventEntry {
         return eventSerializer.deserialize(serializedEvent);
     }
 
+    /**
+     * Returns the event in this entry in its serialized form, which can be deserialized using the given
+     * <code>eventSerializer</code>.
+     *
+     * @param eventSerializer The EventSerializer to deserialize the DomainEvent with
+     * @return The serialized domain event
+     */
+    public SerializedDomainEvent asSerializedDomainEvent(EventSerializer eventSerializer) {
+        return new SerializedDomainEvent(serializedEvent, eventSerializer, getAggregateIdentifier(), sequenceNumber);
+    }
+
     /**
      * Returns the unique identifier of this entry. Returns <code>null</code> if the entry has not been persisted.
      *
      * @return the unique identifier of this entry
      */
-    public Long getId() {
-        return id;
-    }
+    public abstract Long getId();
 
     /**
      * Returns the Aggregate Identifier of the associated event.
@@ -19,7 +19,10 @@ package org.axonframework.eventstore.jpa;
 import org.axonframework.domain.DomainEvent;
 import org.axonframework.eventstore.EventSerializer;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 
@@ -27,6 +30,11 @@ import javax.persistence.UniqueConstraint;
  * JPA compliant wrapper around a DomainEvent. It wraps a DomainEvent by extracting some of the information needed to
  * base searched on, and stores the {@link DomainEvent} itself as a serialized object using am {@link
  * org.axonframework.eventstore.EventSerializer}
+ * <p/>
+ * Each entry is identified by its position: a number generated by the database (using an identity column or
+ * sequence) when the entry is inserted. Positions increase in the order in which entries are inserted, which makes
+ * them suitable to visit all events in a global order. Being the primary key, the position is always indexed. It is
+ * stored in the <code>id</code> column, as <code>position</code> is a reserved word in some databases.
  *
  * @author Allard Buijze
  * @since 0.5
@@ -36,6 +44,11 @@ import javax.persistence.UniqueConstraint;
         @UniqueConstraint(columnNames = {"aggregateIdentifier", "sequenceNumber"})})
 public class DomainEventEntry extends AbstractEventEntry {
 
+    @Id
+    @GeneratedValue
+    @Column(name = "id")
+    private Long position;
+
     /**
      * Default constructor, as required by JPA specification. Do not use directly!
      */
@@ -55,4 +68,23 @@ public class DomainEventEntry extends AbstractEventEntry {
         super(type, event, eventSerializer);
     }
 
+    /**
+     * Returns the position of this entry in the event log. Returns <code>null</code> if the entry has not been
+     * persisted.
+     *
+     * @return the position of this entry in the event log
+     */
+    public Long getPosition() {
+        return position;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The identifier of a DomainEventEntry is its {@link #getPosition() position}.
+     */
+    @Override
+    public Long getId() {
+        return position;
+    }
 }
@@ -19,10 +19,16 @@ package org.axonframework.eventstore.jpa;
 import org.axonframework.domain.AggregateIdentifier;
 import org.axonframework.domain.DomainEvent;
 import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.StringAggregateIdentifier;
+import org.axonframework.eventstore.AbstractSerializedDomainEventStream;
 import org.axonframework.eventstore.EventSerializer;
-import org.axonframework.eventstore.EventStoreManagement;
 import org.axonframework.eventstore.EventStreamNotFoundException;
 import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.PositionAwareEventVisitor;
+import org.axonframework.eventstore.ResumableEventStoreManagement;
+import org.axonframework.eventstore.SerializedDomainEvent;
+import org.axonframework.eventstore.SerializedDomainEventStream;
+import org.axonframework.eventstore.SerializedEventVisitor;
 import org.axonframework.eventstore.SnapshotEventStore;
 import org.axonframework.eventstore.XStreamEventSerializer;
 import org.axonframework.repository.ConcurrencyException;
@@ -30,7 +36,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import javax.persistence.EntityManager;
@@ -47,7 +52,7 @@ import javax.sql.DataSource;
  * @author Allard Buijze
  * @since 0.5
  */
-public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
+public class JpaEventStore implements SnapshotEventStore, ResumableEventStoreManagement {
 
     private static final Logger logger = LoggerFactory.getLogger(JpaEventStore.class);
 
@@ -104,28 +109,30 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
 
     /**
      * {@inheritDoc}
+     * <p/>
+     * The returned stream is a {@link SerializedDomainEventStream}. Events are deserialized one at a time, when they
+     * are read from the stream.
      */
     @Override
     public DomainEventStream readEvents(String type, AggregateIdentifier identifier) {
         long snapshotSequenceNumber = -1;
+        SerializedDomainEvent snapshotEvent = null;
         SnapshotEventEntry lastSnapshotEvent = loadLastSnapshotEvent(type, identifier);
         if (lastSnapshotEvent != null) {
             snapshotSequenceNumber = lastSnapshotEvent.getSequenceNumber();
+            snapshotEvent = lastSnapshotEvent.asSerializedDomainEvent(eventSerializer);
         }
 
-        List<DomainEvent> events = fetchBatch(type, identifier, snapshotSequenceNumber + 1);
-        if (lastSnapshotEvent != null) {
-            events.add(0, lastSnapshotEvent.getDomainEvent(eventSerializer));
-        }
-        if (events.isEmpty()) {
+        List<DomainEventEntry> entries = fetchBatch(type, identifier, snapshotSequenceNumber + 1);
+        if (snapshotEvent == null && entries.isEmpty()) {
             throw new EventStreamNotFoundException(type, identifier);
         }
-        return new BatchingDomainEventStream(events, identifier, type);
+        return new BatchingDomainEventStream(snapshotEvent, entries, identifier, type);
     }
 
     @SuppressWarnings({"unchecked"})
-    private List<DomainEvent> fetchBatch(String type, AggregateIdentifier identifier, long firstSequenceNumber) {
-        List<DomainEventEntry> entries = (List<DomainEventEntry>) entityManager.createQuery(
+    private List<DomainEventEntry> fetchBatch(String type, AggregateIdentifier identifier, long firstSequenceNumber) {
+        return (List<DomainEventEntry>) entityManager.createQuery(
                 "SELECT e FROM DomainEventEntry e "
                         + "WHERE e.aggregateIdentifier = :id AND e.type = :type AND e.sequenceNumber >= :seq "
                         + "ORDER BY e.sequenceNumber ASC")
@@ -135,11 +142,6 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
                 .setParameter("seq", firstSequenceNumber)
                 .setMaxResults(batchSize)
                 .getResultList();
-        List<DomainEvent> events = new ArrayList<DomainEvent>(entries.size());
-        for (DomainEventEntry entry : entries) {
-            events.add(entry.getDomainEvent(eventSerializer));
-        }
-        return events;
     }
 
     @SuppressWarnings({"unchecked"})
@@ -164,28 +166,83 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
         entityManager.persist(new SnapshotEventEntry(type, snapshotEvent, eventSerializer));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Events are visited in the order of their position. See {@link #visitEvents(EventVisitor, String)}.
+     */
     @Override
     public void visitEvents(EventVisitor visitor) {
-        int first = 0;
-        List<DomainEventEntry> batch;
-        boolean shouldContinue = true;
-        while (shouldContinue) {
-            batch = fetchBatch(first);
-            for (DomainEventEntry entry : batch) {
-                visitor.doWithEvent(entry.getDomainEvent(eventSerializer));
+        visitEvents(visitor, null);
+    }
+
+    /**
+     * Visits all events stored after the given <code>afterPosition</code>. Events are visited in the order of their
+     * {@link DomainEventEntry#getPosition() position}, which is generated by the database when the event is stored.
+     * This guarantees that the events of each aggregate are visited in the order of their sequence numbers.
+     * <p/>
+     * If <code>visitor</code> is a {@link PositionAwareEventVisitor}, it is informed of the position of each event it has
+     * visited. That position can be used to resume visiting events later on.
+     * <p/>
+     * Events are read in pages of the configured {@link #setBatchSize(int) batch size}. Each page is selected using
+     * the position of the last event of the previous page, instead of an offset. As the position is the primary key of
+     * the entry, the cost of reading a page does not depend on the number of events read before it. Entries are not
+     * loaded into the persistence context, so memory consumption does not grow with the number of events visited.
+     * <p/>
+     * If <code>visitor</code> is a {@link SerializedEventVisitor}, events are passed to it in serialized form, leaving
+     * it up to the visitor to deserialize them.
+     * <p/>
+     * Note that positions are assigned when events are inserted, not when they are committed. Events committed after
+     * a visit has passed their position are not visited when resuming.
+     *
+     * @param visitor       The visitor the receives each loaded event
+     * @param afterPosition The position after which to start visiting events, or <code>null</code> to visit all
+     *                      events
+     */
+    @Override
+    public void visitEvents(EventVisitor visitor, String afterPosition) {
+        long lastPosition = afterPosition == null ? -1 : parsePosition(afterPosition);
+        PositionAwareEventVisitor positionAwareVisitor = visitor instanceof PositionAwareEventVisitor
+                ? (PositionAwareEventVisitor) visitor : null;
+        SerializedEventVisitor serializedEventVisitor = visitor instanceof SerializedEventVisitor
+                ? (SerializedEventVisitor) visitor : null;
+        List<Object[]> batch;
+        do {
+            batch = fetchBatch(lastPosition);
+            for (Object[] entry : batch) {
+                lastPosition = (Long) entry[0];
+                if (serializedEventVisitor != null) {
+                    serializedEventVisitor.doWithSerializedEvent(new SerializedDomainEvent(
+                            (byte[]) entry[1], eventSerializer, new StringAggregateIdentifier((String) entry[2]),
+                            (Long) entry[3]));
+                } else {
+                    visitor.doWithEvent(eventSerializer.deserialize((byte[]) entry[1]));
+                }
+                if (positionAwareVisitor != null) {
+                    positionAwareVisitor.positionVisited(Long.toString(lastPosition));
+                }
             }
-            shouldContinue = (batch.size() >= batchSize);
-            first += batchSize;
-        }
+        } while (batch.size() >= batchSize);
     }
 
     @SuppressWarnings({"unchecked"})
-    private List<DomainEventEntry> fetchBatch(int startPosition) {
+    private List<Object[]> fetchBatch(long afterPosition) {
         return entityManager.createQuery(
-                "SELECT e FROM DomainEventEntry e ORDER BY e.timeStamp ASC, e.sequenceNumber ASC")
-                .setFirstResult(startPosition)
-                .setMaxResults(batchSize)
-                .getResultList();
+                "SELECT e.position, e.serializedEvent, e.aggregateIdentifier, e.sequenceNumber "
+                        + "FROM DomainEventEntry e "
+                        + "WHERE e.position > :position "
+                        + "ORDER BY e.position ASC")
+                            .setParameter("position", afterPosition)
+                            .setMaxResults(batchSize)
+                            .getResultList();
+    }
+
+    private static long parsePosition(String position) {
+        try {
+            return Long.parseLong(position);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("[%s] is not a valid position", position), e);
+        }
     }
 
     /**
@@ -238,44 +295,37 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
         this.batchSize = batchSize;
     }
 
-    private final class BatchingDomainEventStream implements DomainEventStream {
+    private final class BatchingDomainEventStream extends AbstractSerializedDomainEventStream {
 
         private int currentBatchSize;
-        private Iterator<DomainEvent> currentBatch;
-        private DomainEvent next;
+        private Iterator<DomainEventEntry> currentBatch;
+        private long lastSequenceNumber;
         private final AggregateIdentifier id;
         private final String typeId;
 
-        private BatchingDomainEventStream(List<DomainEvent> firstBatch, AggregateIdentifier id,
-                                          String typeId) {
+        private BatchingDomainEventStream(SerializedDomainEvent snapshotEvent, List<DomainEventEntry> firstBatch,
+                                          AggregateIdentifier id, String typeId) {
+            super(snapshotEvent);
             this.id = id;
             this.typeId = typeId;
             this.currentBatchSize = firstBatch.size();
             this.currentBatch = firstBatch.iterator();
-            if (currentBatch.hasNext()) {
-                next = currentBatch.next();
-            }
-        }
-
-        @Override
-        public boolean hasNext() {
-            return next != null;
         }
 
         @Override
-        public DomainEvent next() {
-            DomainEvent nextEvent = next;
+        protected SerializedDomainEvent readNext() {
             if (!currentBatch.hasNext() && currentBatchSize >= batchSize) {
                 logger.debug("Fetching new batch for Aggregate [{}]", id.asString());
-                currentBatch = fetchBatch(typeId, id, next.getSequenceNumber() + 1).iterator();
+                List<DomainEventEntry> batch = fetchBatch(typeId, id, lastSequenceNumber + 1);
+                currentBatchSize = batch.size();
+                currentBatch = batch.iterator();
             }
-            next = currentBatch.hasNext() ? currentBatch.next() : null;
-            return nextEvent;
-        }
-
-        @Override
-        public DomainEvent peek() {
-            return next;
+            if (!currentBatch.hasNext()) {
+                return null;
+            }
+            DomainEventEntry entry = currentBatch.next();
+            lastSequenceNumber = entry.getSequenceNumber();
+            return entry.asSerializedDomainEvent(eventSerializer);
         }
     }
 }
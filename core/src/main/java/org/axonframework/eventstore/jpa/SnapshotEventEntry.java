@@ -20,6 +20,8 @@ import org.axonframework.domain.DomainEvent;
 import org.axonframework.eventstore.EventSerializer;
 
 import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
 
 /**
  * JPA compatible entry that stores data required for the use of snapshot events.
@@ -30,6 +32,10 @@ import javax.persistence.Entity;
 @Entity
 class SnapshotEventEntry extends AbstractEventEntry {
 
+    @Id
+    @GeneratedValue
+    private Long id;
+
     /**
      * Default constructor, as required by JPA specification. Do not use directly!
      */
@@ -47,4 +53,9 @@ class SnapshotEventEntry extends AbstractEventEntry {
     public SnapshotEventEntry(String type, DomainEvent event, EventSerializer eventSerializer) {
         super(type, event, eventSerializer);
     }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
 }
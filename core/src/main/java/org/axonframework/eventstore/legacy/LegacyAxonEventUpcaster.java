@@ -16,7 +16,7 @@
 
 package org.axonframework.eventstore.legacy;
 
-import org.axonframework.eventstore.EventUpcaster;
+import org.axonframework.eventstore.SelectiveEventUpcaster;
 import org.dom4j.Document;
 import org.dom4j.Element;
 
@@ -27,18 +27,24 @@ import java.util.Iterator;
  * AxonFramework, to the event format supported since 0.7.
  * <p/>
  * This upcaster uses dom4j Document as event representation, which is supported by the {@link
- * org.axonframework.eventstore.XStreamEventSerializer}.
+ * org.axonframework.eventstore.XStreamEventSerializer}. Only events without an event revision are upcast; events
+ * serialized by later versions are deserialized without converting them to a Document.
  *
  * @author Allard Buijze
  * @since 0.7
  */
-public class LegacyAxonEventUpcaster implements EventUpcaster<Document> {
+public class LegacyAxonEventUpcaster implements SelectiveEventUpcaster<Document> {
 
     @Override
     public Class<Document> getSupportedRepresentation() {
         return Document.class;
     }
 
+    @Override
+    public boolean canUpcast(String eventType, String eventRevision) {
+        return eventRevision == null;
+    }
+
     @SuppressWarnings({"unchecked"})
     @Override
     public Document upcast(Document event) {
@@ -23,6 +23,8 @@ import org.axonframework.domain.AggregateIdentifier;
 import org.axonframework.domain.DomainEvent;
 import org.axonframework.domain.StringAggregateIdentifier;
 import org.axonframework.eventstore.EventSerializer;
+import org.axonframework.eventstore.JsonEventSerializer;
+import org.axonframework.eventstore.SerializedDomainEvent;
 
 import java.nio.charset.Charset;
 
@@ -35,6 +37,11 @@ import java.nio.charset.Charset;
  */
 class EventEntry {
 
+    /**
+     * Property name in mongo for the document identifier
+     */
+    public static final String ID_PROPERTY = "_id";
+
     /**
      * Property name in mongo for the Aggregate Identifier
      */
@@ -50,13 +57,20 @@ class EventEntry {
      */
     public static final String TIME_STAMP_PROPERTY = "timeStamp";
 
+    /**
+     * Property name in mongo for the position of the event, reserved in the positions collection when the event is
+     * appended
+     */
+    public static final String POSITION_PROPERTY = "position";
+
     /**
      * Property name in mongo for the Type
      */
     public static final String AGGREGATE_TYPE_PROPERTY = "type";
 
     /**
-     * Property name in mongo for Serialized Type
+     * Property name in mongo for Serialized Type. Events serialized as JSON are stored as a document, other events as
+     * binary data.
      */
     public static final String SERIALIZED_EVENT_PROPERTY = "serializedEvent";
 
@@ -74,34 +88,53 @@ class EventEntry {
     private final String aggregateIdentifier;
     private final long sequenceNumber;
     private final String timeStamp;
+    private final Long position;
     private final String aggregateType;
-    private final String serializedEvent;
+    private final byte[] serializedEvent;
+    private final Object storedEvent;
 
     /**
-     * Constructor used to create a new event entry to store in Mongo
+     * Constructor used to create a new event entry without a position, such as a snapshot event, to store in Mongo
      *
      * @param aggregateType   String containing the aggregate type of the event
      * @param event           The actual DomainEvent to store
      * @param eventSerializer Serializer to use for the event to store
      */
     EventEntry(String aggregateType, DomainEvent event, EventSerializer eventSerializer) {
+        this(aggregateType, event, null, eventSerializer);
+    }
+
+    /**
+     * Constructor used to create a new event entry to store in Mongo
+     *
+     * @param aggregateType   String containing the aggregate type of the event
+     * @param event           The actual DomainEvent to store
+     * @param position        The position reserved for the event, or <code>null</code> if it has none
+     * @param eventSerializer Serializer to use for the event to store
+     */
+    EventEntry(String aggregateType, DomainEvent event, Long position, EventSerializer eventSerializer) {
+        this.position = position;
         this.aggregateType = aggregateType;
         this.aggregateIdentifier = event.getAggregateIdentifier().asString();
         this.sequenceNumber = event.getSequenceNumber();
-        this.serializedEvent = new String(eventSerializer.serialize(event));
+        this.serializedEvent = eventSerializer.serialize(event);
+        this.storedEvent = toStoredEvent(serializedEvent, eventSerializer);
         this.timeStamp = event.getTimestamp().toString();
     }
 
     /**
      * Creates a new EventEntry based onm data provided by Mongo
      *
-     * @param dbObject Mongo object that contains data to represent an EventEntry
+     * @param dbObject        Mongo object that contains data to represent an EventEntry
+     * @param eventSerializer Serializer used to serialize the stored DomainEvent
      */
-    EventEntry(DBObject dbObject) {
+    EventEntry(DBObject dbObject, EventSerializer eventSerializer) {
         this.aggregateIdentifier = (String) dbObject.get(AGGREGATE_IDENTIFIER_PROPERTY);
         this.sequenceNumber = (Long) dbObject.get(SEQUENCE_NUMBER_PROPERTY);
-        this.serializedEvent = (String) dbObject.get(SERIALIZED_EVENT_PROPERTY);
+        this.storedEvent = dbObject.get(SERIALIZED_EVENT_PROPERTY);
+        this.serializedEvent = readSerializedEvent(dbObject, eventSerializer);
         this.timeStamp = (String) dbObject.get(TIME_STAMP_PROPERTY);
+        this.position = (Long) dbObject.get(POSITION_PROPERTY);
         this.aggregateType = (String) dbObject.get(AGGREGATE_TYPE_PROPERTY);
     }
 
@@ -112,7 +145,60 @@ class EventEntry {
      * @return The actual DomainEvent
      */
     public DomainEvent getDomainEvent(EventSerializer eventSerializer) {
-        return eventSerializer.deserialize(serializedEvent.getBytes(UTF8));
+        return eventSerializer.deserialize(serializedEvent);
+    }
+
+    /**
+     * Returns the event in this EventEntry in its serialized form, which can be deserialized using the provided
+     * EventSerializer
+     *
+     * @param eventSerializer Serializer used to de-serialize the stored DomainEvent
+     * @return The serialized DomainEvent
+     */
+    public SerializedDomainEvent asSerializedDomainEvent(EventSerializer eventSerializer) {
+        return new SerializedDomainEvent(serializedEvent, eventSerializer, getAggregateIdentifier(),
+                                         sequenceNumber);
+    }
+
+    /**
+     * Reads the serialized event from the given <code>dbObject</code>. Events serialized as JSON are stored as a
+     * document, which is converted back to JSON using the character set of the given <code>eventSerializer</code>.
+     * Other events are stored as binary data, but entries written by earlier versions contain the serialized event as a
+     * String. Those are converted to bytes using UTF-8.
+     *
+     * @param dbObject        Mongo object that contains data to represent an EventEntry
+     * @param eventSerializer Serializer used to serialize the stored DomainEvent
+     * @return the bytes of the serialized event
+     */
+    static byte[] readSerializedEvent(DBObject dbObject, EventSerializer eventSerializer) {
+        Object serializedEvent = dbObject.get(SERIALIZED_EVENT_PROPERTY);
+        if (serializedEvent instanceof DBObject) {
+            return JsonDocumentConverter.toJson((DBObject) serializedEvent, jsonCharset(eventSerializer));
+        } else if (serializedEvent instanceof String) {
+            return ((String) serializedEvent).getBytes(UTF8);
+        }
+        return (byte[]) serializedEvent;
+    }
+
+    /**
+     * Returns the form in which the given <code>serializedEvent</code> is stored: a document if the event is
+     * serialized as JSON and all its property names are valid field names, otherwise the bytes themselves.
+     */
+    private static Object toStoredEvent(byte[] serializedEvent, EventSerializer eventSerializer) {
+        if (eventSerializer instanceof JsonEventSerializer) {
+            DBObject document = JsonDocumentConverter.toDocument(serializedEvent, jsonCharset(eventSerializer));
+            if (document != null) {
+                return document;
+            }
+        }
+        return serializedEvent;
+    }
+
+    private static Charset jsonCharset(EventSerializer eventSerializer) {
+        if (eventSerializer instanceof JsonEventSerializer) {
+            return ((JsonEventSerializer) eventSerializer).getCharset();
+        }
+        return UTF8;
     }
 
     /**
@@ -139,13 +225,16 @@ class EventEntry {
      * @return DBObject representing the EventEntry
      */
     public DBObject asDBObject() {
-        return BasicDBObjectBuilder.start()
+        BasicDBObjectBuilder builder = BasicDBObjectBuilder.start()
                 .add(AGGREGATE_IDENTIFIER_PROPERTY, aggregateIdentifier)
                 .add(SEQUENCE_NUMBER_PROPERTY, sequenceNumber)
-                .add(SERIALIZED_EVENT_PROPERTY, serializedEvent)
+                .add(SERIALIZED_EVENT_PROPERTY, storedEvent)
                 .add(TIME_STAMP_PROPERTY, timeStamp)
-                .add(AGGREGATE_TYPE_PROPERTY, aggregateType)
-                .get();
+                .add(AGGREGATE_TYPE_PROPERTY, aggregateType);
+        if (position != null) {
+            builder.add(POSITION_PROPERTY, position);
+        }
+        return builder.get();
     }
 
     /**
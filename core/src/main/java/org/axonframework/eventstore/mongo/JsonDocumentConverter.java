@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.mongo;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.axonframework.util.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Converts events serialized as JSON to Mongo documents and back. This allows events serialized by the {@link
+ * org.axonframework.eventstore.JsonEventSerializer} to be stored as documents, which can be inspected and queried,
+ * rather than as binary data.
+ * <p/>
+ * JSON numbers are stored as a Long if they are integral, and as a Double otherwise. The order of properties is
+ * retained. Only JSON objects of which all property names are valid Mongo field names can be converted: names may not
+ * contain a dot or start with a dollar sign.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+final class JsonDocumentConverter {
+
+    private JsonDocumentConverter() {
+        // utility class
+    }
+
+    /**
+     * Converts the given <code>json</code> to a Mongo document. Returns <code>null</code> if the JSON does not
+     * represent an object, or if it cannot be stored as a document.
+     *
+     * @param json    The bytes of the JSON to convert
+     * @param charset The character set used to convert the JSON to bytes
+     * @return the document representing the JSON, or <code>null</code> if it cannot be represented as a document
+     */
+    static DBObject toDocument(byte[] json, Charset charset) {
+        try {
+            JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), charset));
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+            return (DBObject) readValue(reader);
+        } catch (InvalidDocumentException e) {
+            return null;
+        } catch (NumberFormatException e) {
+            return null;
+        } catch (IOException e) {
+            throw new SerializationException("Unable to read the serialized event", e);
+        }
+    }
+
+    /**
+     * Converts the given <code>document</code> back to JSON.
+     *
+     * @param document The document to convert
+     * @param charset  The character set to use to convert the JSON to bytes
+     * @return the bytes of the JSON representing the document
+     */
+    static byte[] toJson(DBObject document, Charset charset) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(baos, charset));
+            writeValue(writer, document);
+            writer.flush();
+        } catch (IOException e) {
+            throw new SerializationException("Unable to write the serialized event", e);
+        }
+        return baos.toByteArray();
+    }
+
+    private static Object readValue(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_OBJECT:
+                BasicDBObject object = new BasicDBObject();
+                in.beginObject();
+                while (in.hasNext()) {
+                    String name = in.nextName();
+                    if (name.contains(".") || name.startsWith("$")) {
+                        throw new InvalidDocumentException();
+                    }
+                    object.put(name, readValue(in));
+                }
+                in.endObject();
+                return object;
+            case BEGIN_ARRAY:
+                BasicDBList list = new BasicDBList();
+                in.beginArray();
+                while (in.hasNext()) {
+                    list.add(readValue(in));
+                }
+                in.endArray();
+                return list;
+            case STRING:
+                return in.nextString();
+            case NUMBER:
+                String literal = in.nextString();
+                if (literal.contains(".") || literal.contains("e") || literal.contains("E")) {
+                    return Double.valueOf(literal);
+                }
+                return Long.valueOf(literal);
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                throw new SerializationException("Unexpected JSON token: " + in.peek());
+        }
+    }
+
+    private static void writeValue(JsonWriter out, Object value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else if (value instanceof List) {
+            out.beginArray();
+            for (Object element : (List<?>) value) {
+                writeValue(out, element);
+            }
+            out.endArray();
+        } else if (value instanceof DBObject) {
+            DBObject document = (DBObject) value;
+            out.beginObject();
+            for (String name : document.keySet()) {
+                out.name(name);
+                writeValue(out, document.get(name));
+            }
+            out.endObject();
+        } else if (value instanceof String) {
+            out.value((String) value);
+        } else if (value instanceof Boolean) {
+            out.value((Boolean) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.value(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            out.value(((Number) value).longValue());
+        } else {
+            throw new SerializationException(String.format("Unable to convert a value of type [%s] to JSON",
+                                                           value.getClass().getName()));
+        }
+    }
+
+    /**
+     * Indicates the JSON contains a property name that is not a valid Mongo field name.
+     */
+    private static final class InvalidDocumentException extends RuntimeException {
+
+        private static final long serialVersionUID = -5094839585614587239L;
+    }
+}
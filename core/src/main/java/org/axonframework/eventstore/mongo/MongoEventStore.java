@@ -24,43 +24,54 @@ import com.mongodb.Mongo;
 import org.axonframework.domain.AggregateIdentifier;
 import org.axonframework.domain.DomainEvent;
 import org.axonframework.domain.DomainEventStream;
-import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.eventstore.AbstractSerializedDomainEventStream;
 import org.axonframework.eventstore.EventSerializer;
-import org.axonframework.eventstore.EventStoreManagement;
 import org.axonframework.eventstore.EventStreamNotFoundException;
 import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.PositionAwareEventVisitor;
+import org.axonframework.eventstore.ResumableEventStoreManagement;
+import org.axonframework.eventstore.SerializedDomainEvent;
+import org.axonframework.eventstore.SerializedDomainEventStream;
+import org.axonframework.eventstore.SerializedEventVisitor;
 import org.axonframework.eventstore.SnapshotEventStore;
 import org.axonframework.eventstore.XStreamEventSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PostConstruct;
 
-import static org.axonframework.eventstore.mongo.EventEntry.UTF8;
-
 /**
  * Implementation of the <code>EventStore</code> based on a MongoDB instance or replica set. Sharding and pairing are
  * not explicitly supported.
  * <p/>
+ * When configured with a {@link org.axonframework.eventstore.JsonEventSerializer}, events are stored as documents,
+ * which allows them to be inspected and queried in MongoDB. Events that cannot be represented as a document, because
+ * they contain property names that are not valid field names, and events serialized by other serializers are stored
+ * as binary data.
+ * <p/>
  * <strong>Warning:</strong> This implementation is still in progress and may be subject to alterations. The
  * implementation works, but has not been optimized to fully leverage MongoDB's features, yet.
  *
  * @author Jettro Coenradie
  * @since 0.7
  */
-public class MongoEventStore implements SnapshotEventStore, EventStoreManagement {
+public class MongoEventStore implements SnapshotEventStore, ResumableEventStoreManagement {
 
     private static final Logger logger = LoggerFactory.getLogger(MongoEventStore.class);
 
     private static final int EVENT_VISITOR_BATCH_SIZE = 50;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final BasicDBObject VISIT_ORDER = new BasicDBObject(EventEntry.POSITION_PROPERTY, 1);
+    private static final String POSITION_COUNTER_ID = "domainEvents";
+    private static final String POSITION_COUNTER_VALUE = "lastPosition";
 
     private final MongoTemplate mongoTemplate;
     private final EventSerializer eventSerializer;
     private final AtomicBoolean indexesAssured = new AtomicBoolean(false);
+    private int batchSize = DEFAULT_BATCH_SIZE;
 
     /**
      * Constructor that accepts an EventSerializer, the MongoTemplate and a string containing the testContext. The
@@ -93,6 +104,7 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
             mongoTemplate.domainEventCollection().ensureIndex(new BasicDBObject(EventEntry.SEQUENCE_NUMBER_PROPERTY, 1),
                                                               "sequenceNumber",
                                                               false);
+            mongoTemplate.domainEventCollection().ensureIndex(VISIT_ORDER, "position", false);
         }
     }
 
@@ -100,10 +112,17 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
     public void appendEvents(String type, DomainEventStream events) {
         ensureIndexes();
 
-        List<DBObject> entries = new ArrayList<DBObject>();
+        List<DomainEvent> domainEvents = new ArrayList<DomainEvent>();
         while (events.hasNext()) {
-            DomainEvent event = events.next();
-            EventEntry entry = new EventEntry(type, event, eventSerializer);
+            domainEvents.add(events.next());
+        }
+        if (domainEvents.isEmpty()) {
+            return;
+        }
+        long position = reservePositions(domainEvents.size());
+        List<DBObject> entries = new ArrayList<DBObject>(domainEvents.size());
+        for (DomainEvent event : domainEvents) {
+            EventEntry entry = new EventEntry(type, event, position++, eventSerializer);
             entries.add(entry.asDBObject());
         }
         mongoTemplate.domainEventCollection().insert(entries.toArray(new DBObject[entries.size()]));
@@ -113,32 +132,47 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
         }
     }
 
+    /**
+     * Reserves the given <code>count</code> of consecutive positions by atomically incrementing the counter in the
+     * positions collection.
+     *
+     * @param count The number of positions to reserve
+     * @return the first of the reserved positions
+     */
+    private long reservePositions(int count) {
+        DBObject counter = mongoTemplate.positionCollection().findAndModify(
+                new BasicDBObject(EventEntry.ID_PROPERTY, POSITION_COUNTER_ID), null, null, false,
+                new BasicDBObject("$inc", new BasicDBObject(POSITION_COUNTER_VALUE, (long) count)), true, true);
+        return ((Number) counter.get(POSITION_COUNTER_VALUE)).longValue() - count + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The returned stream is a {@link SerializedDomainEventStream}. Events are deserialized one at a time, when they
+     * are read from the stream.
+     */
     @Override
     public DomainEventStream readEvents(String type, AggregateIdentifier identifier) {
-        StringBuilder sb = new StringBuilder(250);
-        long start = new Date().getTime();
-
         long snapshotSequenceNumber = -1;
         EventEntry lastSnapshotEvent = loadLastSnapshotEvent(type, identifier);
+        SerializedDomainEvent snapshotEvent = null;
         if (lastSnapshotEvent != null) {
             snapshotSequenceNumber = lastSnapshotEvent.getSequenceNumber();
+            snapshotEvent = lastSnapshotEvent.asSerializedDomainEvent(eventSerializer);
         }
 
-        sb.append("snapshot : ").append(new Date().getTime() - start);
-
-        List<DomainEvent> events = readEventSegmentInternal(type, identifier, snapshotSequenceNumber + 1);
-        if (lastSnapshotEvent != null) {
-            events.add(0, lastSnapshotEvent.getDomainEvent(eventSerializer));
-        }
-
-        sb.append(", event : ").append(new Date().getTime() - start);
-        if (events.isEmpty()) {
+        DBCursor dbCursor = mongoTemplate.domainEventCollection()
+                                         .find(EventEntry.forAggregate(type,
+                                                                       identifier.asString(),
+                                                                       snapshotSequenceNumber + 1))
+                                         .sort(new BasicDBObject(EventEntry.SEQUENCE_NUMBER_PROPERTY, 1))
+                                         .batchSize(batchSize);
+        CursorBackedDomainEventStream events = new CursorBackedDomainEventStream(dbCursor, snapshotEvent);
+        if (!events.hasNext()) {
             throw new EventStreamNotFoundException(type, identifier);
         }
-        SimpleDomainEventStream simpleDomainEventStream = new SimpleDomainEventStream(events);
-
-        sb.append(", serialize : ").append(new Date().getTime() - start);
-        return simpleDomainEventStream;
+        return events;
     }
 
     @Override
@@ -147,36 +181,76 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
         mongoTemplate.snapshotEventCollection().insert(snapshotEventEntry.asDBObject());
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Events are visited in the order of their position. See {@link #visitEvents(EventVisitor, String)}.
+     */
     @Override
     public void visitEvents(EventVisitor visitor) {
-        int first = 0;
-        List<EventEntry> batch;
-        boolean shouldContinue = true;
-        while (shouldContinue) {
-            batch = fetchBatch(first, EVENT_VISITOR_BATCH_SIZE);
-            for (EventEntry entry : batch) {
-                visitor.doWithEvent(entry.getDomainEvent(eventSerializer));
+        visitEvents(visitor, null);
+    }
+
+    /**
+     * Visits all events stored after the given <code>afterPosition</code>. Events are visited in the order of their
+     * position, which is reserved from a counter in the {@link MongoTemplate#positionCollection() positions
+     * collection} when the events are appended. As an aggregate's events are appended after the events preceding
+     * them, this guarantees that the events of each aggregate are visited in the order of their sequence numbers.
+     * Events stored by earlier versions of this event store have no position. They are visited first, in no particular
+     * order.
+     * <p/>
+     * If <code>visitor</code> is a {@link PositionAwareEventVisitor}, it is informed of the position of each event it has
+     * visited. That position can be used to resume visiting events later on.
+     * <p/>
+     * All events are read using a single cursor on an index of the position. The cursor fetches events from the
+     * database in batches, so that only a limited number of events is kept in memory at any time.
+     * <p/>
+     * If <code>visitor</code> is a {@link SerializedEventVisitor}, events are passed to it in serialized form, leaving
+     * it up to the visitor to deserialize them.
+     * <p/>
+     * Note that positions are reserved before events are inserted. Events inserted after a visit has passed their
+     * position are not visited when resuming.
+     *
+     * @param visitor       The visitor the receives each loaded event
+     * @param afterPosition The position after which to start visiting events, or <code>null</code> to visit all
+     *                      events
+     */
+    @Override
+    public void visitEvents(EventVisitor visitor, String afterPosition) {
+        DBObject query = afterPosition == null ? new BasicDBObject() : queryAfter(afterPosition);
+        DBCursor cursor = mongoTemplate.domainEventCollection()
+                                       .find(query)
+                                       .sort(VISIT_ORDER)
+                                       .batchSize(EVENT_VISITOR_BATCH_SIZE);
+        PositionAwareEventVisitor positionAwareVisitor = visitor instanceof PositionAwareEventVisitor
+                ? (PositionAwareEventVisitor) visitor : null;
+        SerializedEventVisitor serializedEventVisitor = visitor instanceof SerializedEventVisitor
+                ? (SerializedEventVisitor) visitor : null;
+        try {
+            while (cursor.hasNext()) {
+                DBObject dbObject = cursor.next();
+                EventEntry entry = new EventEntry(dbObject, eventSerializer);
+                if (serializedEventVisitor != null) {
+                    serializedEventVisitor.doWithSerializedEvent(entry.asSerializedDomainEvent(eventSerializer));
+                } else {
+                    visitor.doWithEvent(entry.getDomainEvent(eventSerializer));
+                }
+                if (positionAwareVisitor != null) {
+                    positionAwareVisitor.positionVisited(String.valueOf(dbObject.get(EventEntry.POSITION_PROPERTY)));
+                }
             }
-            shouldContinue = (batch.size() >= EVENT_VISITOR_BATCH_SIZE);
-            first += EVENT_VISITOR_BATCH_SIZE;
+        } finally {
+            cursor.close();
         }
     }
 
-    private List<DomainEvent> readEventSegmentInternal(String type, AggregateIdentifier identifier,
-                                                       long firstSequenceNumber) {
-
-        DBCursor dbCursor = mongoTemplate.domainEventCollection()
-                                         .find(EventEntry.forAggregate(type,
-                                                                       identifier.asString(),
-                                                                       firstSequenceNumber))
-                                         .sort(new BasicDBObject(EventEntry.SEQUENCE_NUMBER_PROPERTY, "1"));
-        List<DomainEvent> events = new ArrayList<DomainEvent>(dbCursor.size());
-        while (dbCursor.hasNext()) {
-            String nextItem = (String) dbCursor.next().get(EventEntry.SERIALIZED_EVENT_PROPERTY);
-            DomainEvent deserialize = eventSerializer.deserialize(nextItem.getBytes(UTF8));
-            events.add(deserialize);
+    private static DBObject queryAfter(String position) {
+        try {
+            return new BasicDBObject(EventEntry.POSITION_PROPERTY,
+                                     new BasicDBObject("$gt", Long.valueOf(position)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("[%s] is not a valid position", position), e);
         }
-        return events;
     }
 
     private EventEntry loadLastSnapshotEvent(String type, AggregateIdentifier identifier) {
@@ -189,27 +263,27 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
                                          .sort(new BasicDBObject(EventEntry.SEQUENCE_NUMBER_PROPERTY, -1))
                                          .limit(1);
 
-        if (!dbCursor.hasNext()) {
-            return null;
-        }
-        DBObject first = dbCursor.next();
-
-        return new EventEntry(first);
-    }
-
-    private List<EventEntry> fetchBatch(int startPosition, int batchSize) {
-        DBObject sort = BasicDBObjectBuilder.start()
-                                            .add(EventEntry.TIME_STAMP_PROPERTY, -1)
-                                            .add(EventEntry.SEQUENCE_NUMBER_PROPERTY, -1)
-                                            .get();
-        DBCursor batchDomainEvents = mongoTemplate.domainEventCollection().find().sort(sort).limit(batchSize).skip(
-                startPosition);
-        List<EventEntry> entries = new ArrayList<EventEntry>();
-        while (batchDomainEvents.hasNext()) {
-            DBObject dbObject = batchDomainEvents.next();
-            entries.add(new EventEntry(dbObject));
+        try {
+            if (!dbCursor.hasNext()) {
+                return null;
+            }
+            return new EventEntry(dbCursor.next(), eventSerializer);
+        } finally {
+            dbCursor.close();
         }
-        return entries;
+    }
+
+    /**
+     * Sets the number of events that should be read at each database access. When more than this number of events must
+     * be read to rebuild an aggregate's state, the events are read in batches of this size. Defaults to 100.
+     * <p/>
+     * Events are deserialized as the stream returned by {@link #readEvents(String, AggregateIdentifier)} is read, so
+     * only a single batch of events is kept in memory at any time.
+     *
+     * @param batchSize the number of events to read on each database access. Default to 100.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
     }
 
     /**
@@ -246,4 +320,57 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
     public void setSnapshotEventsCollectionName(String snapshotEventsCollectionName) {
         mongoTemplate.setSnapshotEventsCollectionName(snapshotEventsCollectionName);
     }
+
+    private final class CursorBackedDomainEventStream extends AbstractSerializedDomainEventStream {
+
+        private final DBCursor dbCursor;
+
+        private CursorBackedDomainEventStream(DBCursor dbCursor, SerializedDomainEvent firstEvent) {
+            super(firstEvent);
+            this.dbCursor = dbCursor;
+        }
+
+        @Override
+        public DomainEvent next() {
+            try {
+                return super.next();
+            } catch (RuntimeException e) {
+                dbCursor.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public DomainEvent peek() {
+            try {
+                return super.peek();
+            } catch (RuntimeException e) {
+                dbCursor.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Reads the next event from the cursor. The cursor is closed when it is exhausted, or when reading fails.
+         * Overridden {@link #next()} and {@link #peek()} also close the cursor when deserializing an event fails.
+         */
+        @Override
+        protected SerializedDomainEvent readNext() {
+            try {
+                if (!dbCursor.hasNext()) {
+                    dbCursor.close();
+                    return null;
+                }
+                return new EventEntry(dbCursor.next(), eventSerializer).asSerializedDomainEvent(eventSerializer);
+            } catch (RuntimeException e) {
+                dbCursor.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() {
+            dbCursor.close();
+        }
+    }
 }
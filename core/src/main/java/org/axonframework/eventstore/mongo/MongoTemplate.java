@@ -34,12 +34,14 @@ public class MongoTemplate {
 
     private static final String DEFAULT_DOMAINEVENTS_COLLECTION = "domainevents";
     private static final String DEFAULT_SNAPSHOTEVENTS_COLLECTION = "snapshotevents";
+    private static final String DEFAULT_POSITIONS_COLLECTION = "eventpositions";
     private static final String DEFAULT_AXONFRAMEWORK_DATABASE = "axonframework";
 
     private Mongo mongoDb;
     private String databaseName = DEFAULT_AXONFRAMEWORK_DATABASE;
     private String domainEventsCollectionName = DEFAULT_DOMAINEVENTS_COLLECTION;
     private String snapshotEventsCollectionName = DEFAULT_SNAPSHOTEVENTS_COLLECTION;
+    private String positionsCollectionName = DEFAULT_POSITIONS_COLLECTION;
 
     /**
      * The helper requires an actual <code>Mongo</code> connection provided by the java driver.
@@ -68,6 +70,16 @@ public class MongoTemplate {
         return database().getCollection(snapshotEventsCollectionName);
     }
 
+    /**
+     * Returns a reference to the collection containing the counter from which the positions of domain events are
+     * reserved.
+     *
+     * @return DBCollection containing the position counter
+     */
+    public DBCollection positionCollection() {
+        return database().getCollection(positionsCollectionName);
+    }
+
     /**
      * Returns the database for the axon event store.
      *
@@ -103,4 +115,14 @@ public class MongoTemplate {
     public void setSnapshotEventsCollectionName(String snapshotEventsCollectionName) {
         this.snapshotEventsCollectionName = snapshotEventsCollectionName;
     }
+
+    /**
+     * Changes the name of the collection containing the counter from which the positions of domain events are
+     * reserved.
+     *
+     * @param positionsCollectionName String containing the name of the collection containing the position counter
+     */
+    public void setPositionsCollectionName(String positionsCollectionName) {
+        this.positionsCollectionName = positionsCollectionName;
+    }
 }
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.eventstore.replay;
+
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.Event;
+import org.axonframework.eventhandling.EventListener;
+import org.axonframework.eventhandling.SelectiveEventListener;
+import org.axonframework.eventstore.EventStoreManagement;
+import org.axonframework.eventstore.PositionAwareEventVisitor;
+import org.axonframework.eventstore.ResumableEventStoreManagement;
+import org.axonframework.eventstore.SerializedDomainEvent;
+import org.axonframework.eventstore.SerializedEventVisitor;
+import org.axonframework.monitoring.jmx.JmxConfiguration;
+import org.axonframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays all events in an event store to a fixed set of event listeners, using multiple threads. The events are
+ * divided into partitions based on the hash of their aggregate identifier. Each partition is processed by a single
+ * thread, which means events of the same aggregate are handled in the order they were stored, while events of
+ * different aggregates are handled in parallel.
+ * <p/>
+ * Events are read from the event store by the thread calling {@link #replay()}, and handed over to the partitions
+ * through bounded queues. When a queue is full, reading blocks until the partition has caught up. If the event store
+ * supports passing events in serialized form (see {@link SerializedEventVisitor}), events are deserialized by the
+ * partitions. Events that none of the listeners can handle, as indicated by {@link SelectiveEventListener#canHandle(
+ * Class)}, are skipped without being deserialized, provided the serializer can tell their type.
+ * <p/>
+ * When the event store is a {@link ResumableEventStoreManagement}, the replayer waits for all partitions to handle the
+ * events read so far at regular intervals. The position of the last event read at that moment is a checkpoint: all
+ * events up to that position have been handled. Checkpoints are reported to the {@link
+ * #setCheckpointListener(ReplayCheckpointListener) checkpoint listener}. A replay that failed or was interrupted can be
+ * resumed from the last checkpoint using {@link #replay(String)}. Since events after the checkpoint may have been
+ * handled already, listeners must be able to handle these events again. Event stores that cannot resume visiting events
+ * can only be replayed completely, without checkpoints.
+ * <p/>
+ * The progress of a replay is available through JMX, using the {@link EventReplayerStatisticsMXBean} interface.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class EventReplayer {
+
+    private static final long POLL_INTERVAL = 100;
+
+    private final EventStoreManagement eventStore;
+    private final List<EventListener> listeners;
+    private final EventReplayerStatistics statistics = new EventReplayerStatistics();
+    private Executor executor;
+    private int partitionCount = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 1000;
+    private int checkpointInterval = 10000;
+    private ReplayCheckpointListener checkpointListener;
+
+    /**
+     * Initializes an EventReplayer that replays the events in the given <code>eventStore</code> to the given
+     * <code>listeners</code>. The mbean for management information is registered.
+     *
+     * @param eventStore The event store providing the events to replay
+     * @param listeners  The listeners to replay the events to
+     */
+    public EventReplayer(EventStoreManagement eventStore, List<? extends EventListener> listeners) {
+        this(eventStore, listeners, true);
+    }
+
+    /**
+     * Initializes an EventReplayer that replays the events in the given <code>eventStore</code> to the given
+     * <code>listeners</code>. The registration of the mbean for management information is optional.
+     *
+     * @param eventStore     The event store providing the events to replay
+     * @param listeners      The listeners to replay the events to
+     * @param registerMBeans true to register the mbean, false for not registering it.
+     */
+    public EventReplayer(EventStoreManagement eventStore, List<? extends EventListener> listeners,
+                         boolean registerMBeans) {
+        Assert.notNull(eventStore, "An event store must be provided.");
+        Assert.isTrue(listeners != null && !listeners.isEmpty(), "At least one listener must be provided.");
+        this.eventStore = eventStore;
+        this.listeners = new ArrayList<EventListener>(listeners);
+        if (registerMBeans) {
+            JmxConfiguration.getInstance().registerMBean(statistics, getClass());
+        }
+    }
+
+    /**
+     * Replays all events in the event store. This method returns when all events have been handled by all listeners.
+     *
+     * @throws ReplayFailedException if a listener threw an exception, or the replay was interrupted
+     */
+    public void replay() {
+        replay(null);
+    }
+
+    /**
+     * Replays all events in the event store stored after the given <code>checkpoint</code>. This method returns when
+     * all these events have been handled by all listeners.
+     *
+     * @param checkpoint The checkpoint reported by an earlier replay, or <code>null</code> to replay all events
+     * @throws ReplayFailedException if a listener threw an exception, or the replay was interrupted
+     * @throws IllegalArgumentException if a checkpoint is given, but the event store is not a {@link
+     *                                  ResumableEventStoreManagement}
+     */
+    public void replay(String checkpoint) {
+        Assert.isTrue(checkpoint == null || eventStore instanceof ResumableEventStoreManagement,
+                      "The event store does not support resuming a replay from a checkpoint.");
+        ExecutorService ownExecutor = null;
+        Executor partitionExecutor = executor;
+        if (partitionExecutor == null) {
+            ownExecutor = Executors.newFixedThreadPool(partitionCount);
+            partitionExecutor = ownExecutor;
+        }
+        PartitioningVisitor visitor = new PartitioningVisitor(partitionCount);
+        statistics.recordReplayStarted(partitionCount);
+        boolean completed = false;
+        try {
+            visitor.start(partitionExecutor);
+            if (eventStore instanceof ResumableEventStoreManagement) {
+                ((ResumableEventStoreManagement) eventStore).visitEvents(visitor, checkpoint);
+            } else {
+                eventStore.visitEvents(visitor);
+            }
+            visitor.awaitCompletion();
+            completed = true;
+        } finally {
+            if (!completed) {
+                visitor.cancel();
+            }
+            statistics.recordReplayEnded();
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Sets the executor that runs the partitions of a replay. The executor must be able to run as many tasks
+     * concurrently as there are {@link #setPartitionCount(int) partitions}. By default, a thread pool is created for
+     * each replay.
+     *
+     * @param executor The executor that runs the partitions
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the number of partitions to divide the events into. Defaults to the number of available processors.
+     *
+     * @param partitionCount The number of partitions, and thus threads, to handle events with
+     */
+    public void setPartitionCount(int partitionCount) {
+        Assert.isTrue(partitionCount > 0, "The number of partitions must be at least 1.");
+        this.partitionCount = partitionCount;
+    }
+
+    /**
+     * Sets the maximum number of events that may be waiting to be handled by a single partition. Defaults to 1000.
+     *
+     * @param queueCapacity The maximum number of pending events per partition
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        Assert.isTrue(queueCapacity > 0, "The queue capacity must be at least 1.");
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Sets the number of events to read between checkpoints. Defaults to 10000.
+     *
+     * @param checkpointInterval The number of events between checkpoints
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        Assert.isTrue(checkpointInterval > 0, "The checkpoint interval must be at least 1.");
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Sets the listener to inform about checkpoints reached during a replay.
+     *
+     * @param checkpointListener The listener to inform about checkpoints
+     */
+    public void setCheckpointListener(ReplayCheckpointListener checkpointListener) {
+        this.checkpointListener = checkpointListener;
+    }
+
+    private boolean isHandledByListeners(SerializedDomainEvent serializedEvent) {
+        Class<?> eventType = serializedEvent.getEventType();
+        if (eventType == null || !Event.class.isAssignableFrom(eventType)) {
+            return true;
+        }
+        for (EventListener listener : listeners) {
+            if (!(listener instanceof SelectiveEventListener)
+                    || ((SelectiveEventListener) listener).canHandle(eventType.asSubclass(Event.class))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class PartitioningVisitor implements PositionAwareEventVisitor, SerializedEventVisitor {
+
+        private final Partition[] partitions;
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        private String lastPosition;
+        private int eventsSinceCheckpoint;
+
+        private PartitioningVisitor(int partitionCount) {
+            partitions = new Partition[partitionCount];
+            for (int t = 0; t < partitionCount; t++) {
+                partitions[t] = new Partition(failure);
+            }
+        }
+
+        private void start(Executor partitionExecutor) {
+            for (Partition partition : partitions) {
+                partitionExecutor.execute(partition);
+            }
+        }
+
+        @Override
+        public void doWithEvent(DomainEvent domainEvent) {
+            statistics.recordEventRead();
+            int hash = domainEvent.getAggregateIdentifier().hashCode();
+            put(partitions[(hash & Integer.MAX_VALUE) % partitions.length], domainEvent);
+        }
+
+        @Override
+        public void doWithSerializedEvent(SerializedDomainEvent serializedEvent) {
+            statistics.recordEventRead();
+            int hash = serializedEvent.getAggregateIdentifier().hashCode();
+            put(partitions[(hash & Integer.MAX_VALUE) % partitions.length], serializedEvent);
+        }
+
+        @Override
+        public void positionVisited(String position) {
+            lastPosition = position;
+            if (++eventsSinceCheckpoint >= checkpointInterval) {
+                awaitPartitions(false);
+                reportCheckpoint();
+            }
+        }
+
+        private void awaitCompletion() {
+            awaitPartitions(true);
+            if (eventsSinceCheckpoint > 0) {
+                reportCheckpoint();
+            }
+        }
+
+        private void reportCheckpoint() {
+            eventsSinceCheckpoint = 0;
+            if (lastPosition != null) {
+                statistics.recordCheckpoint(lastPosition);
+                if (checkpointListener != null) {
+                    checkpointListener.checkpointReached(lastPosition);
+                }
+            }
+        }
+
+        private void awaitPartitions(boolean last) {
+            CountDownLatch latch = new CountDownLatch(partitions.length);
+            for (Partition partition : partitions) {
+                put(partition, new Barrier(latch, last));
+            }
+            try {
+                while (!latch.await(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    checkFailure();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ReplayFailedException("The replay was interrupted while waiting for partitions.", e);
+            }
+            checkFailure();
+        }
+
+        private void put(Partition partition, Object item) {
+            try {
+                while (!partition.queue.offer(item, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    checkFailure();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ReplayFailedException("The replay was interrupted while reading events.", e);
+            }
+        }
+
+        private void checkFailure() {
+            Throwable cause = failure.get();
+            if (cause != null) {
+                throw new ReplayFailedException("The replay failed, as an event could not be handled.", cause);
+            }
+        }
+
+        private void cancel() {
+            for (Partition partition : partitions) {
+                partition.cancel();
+            }
+        }
+    }
+
+    private final class Partition implements Runnable {
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(queueCapacity);
+        private final AtomicReference<Throwable> failure;
+        private Thread thread;
+        private boolean cancelled;
+
+        private Partition(AtomicReference<Throwable> failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                thread = Thread.currentThread();
+            }
+            try {
+                processEvents();
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, e);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } catch (Error e) {
+                // the reading thread must learn about the failure, as this partition no longer takes events
+                failure.compareAndSet(null, e);
+                throw e;
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                }
+            }
+        }
+
+        private void processEvents() throws InterruptedException {
+            while (true) {
+                Object item = queue.take();
+                if (item instanceof Barrier) {
+                    Barrier barrier = (Barrier) item;
+                    barrier.latch.countDown();
+                    if (barrier.last) {
+                        return;
+                    }
+                } else if (failure.get() == null) {
+                    // after a failure, events are discarded so that the reading thread is never blocked
+                    handle(item);
+                }
+            }
+        }
+
+        private void handle(Object item) {
+            try {
+                DomainEvent event;
+                if (item instanceof SerializedDomainEvent) {
+                    SerializedDomainEvent serializedEvent = (SerializedDomainEvent) item;
+                    if (!isHandledByListeners(serializedEvent)) {
+                        statistics.recordEventProcessed();
+                        return;
+                    }
+                    event = serializedEvent.getDomainEvent();
+                } else {
+                    event = (DomainEvent) item;
+                }
+                for (EventListener listener : listeners) {
+                    listener.handle(event);
+                }
+                statistics.recordEventProcessed();
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        private synchronized void cancel() {
+            cancelled = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    private static final class Barrier {
+
+        private final CountDownLatch latch;
+        private final boolean last;
+
+        private Barrier(CountDownLatch latch, boolean last) {
+            this.latch = latch;
+            this.last = last;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.eventstore.replay;
+
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.StandardMBean;
+
+/**
+ * Statistics object to store information about the progress of replays executed by the <code>EventReplayer</code>.
+ *
+ * @author Allard Buijze
+ * @see EventReplayer
+ * @since 1.0
+ */
+class EventReplayerStatistics extends StandardMBean implements EventReplayerStatisticsMXBean {
+
+    private volatile boolean replayInProgress;
+    private volatile int partitionCount;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile String lastCheckpoint;
+    private final AtomicLong eventsRead = new AtomicLong();
+    private final AtomicLong eventsProcessed = new AtomicLong();
+
+    /**
+     * Creates an instance of this statistics MBean.
+     */
+    EventReplayerStatistics() {
+        super(EventReplayerStatisticsMXBean.class, true);
+    }
+
+    /**
+     * Records the start of a replay, resetting all counters.
+     *
+     * @param partitions The number of partitions used by the replay
+     */
+    void recordReplayStarted(int partitions) {
+        partitionCount = partitions;
+        eventsRead.set(0);
+        eventsProcessed.set(0);
+        lastCheckpoint = null;
+        startTime = System.currentTimeMillis();
+        endTime = 0;
+        replayInProgress = true;
+    }
+
+    /**
+     * Records the end of a replay, whether it completed successfully or not.
+     */
+    void recordReplayEnded() {
+        endTime = System.currentTimeMillis();
+        replayInProgress = false;
+    }
+
+    /**
+     * Records that an event has been read from the event store.
+     */
+    void recordEventRead() {
+        eventsRead.incrementAndGet();
+    }
+
+    /**
+     * Records that an event has been handled by the listeners.
+     */
+    void recordEventProcessed() {
+        eventsProcessed.incrementAndGet();
+    }
+
+    /**
+     * Records that a checkpoint has been reached.
+     *
+     * @param position The position of the checkpoint
+     */
+    void recordCheckpoint(String position) {
+        lastCheckpoint = position;
+    }
+
+    @Override
+    public boolean isReplayInProgress() {
+        return replayInProgress;
+    }
+
+    @Override
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    @Override
+    public long getEventsRead() {
+        return eventsRead.get();
+    }
+
+    @Override
+    public long getEventsProcessed() {
+        return eventsProcessed.get();
+    }
+
+    @Override
+    public long getEventsProcessedPerSecond() {
+        long start = startTime;
+        if (start == 0) {
+            return 0;
+        }
+        long end = replayInProgress ? System.currentTimeMillis() : endTime;
+        return eventsProcessed.get() * 1000 / Math.max(1, end - start);
+    }
+
+    @Override
+    public String getLastCheckpoint() {
+        return lastCheckpoint;
+    }
+}
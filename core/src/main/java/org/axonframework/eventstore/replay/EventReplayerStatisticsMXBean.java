@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.eventstore.replay;
+
+/**
+ * Management interface for the EventReplayer monitor.
+ * <p/>
+ * Management interface as required by the JMX specification. In combination with the implementation, this interface
+ * specifies and delivers the actual JMX bean.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface EventReplayerStatisticsMXBean {
+
+    /**
+     * Indicates whether a replay is currently in progress.
+     *
+     * @return <code>true</code> if a replay is in progress, otherwise <code>false</code>
+     */
+    boolean isReplayInProgress();
+
+    /**
+     * Returns the number of partitions the events of the current (or last) replay are divided into.
+     *
+     * @return the number of partitions
+     */
+    int getPartitionCount();
+
+    /**
+     * Returns the number of events read from the event store during the current (or last) replay.
+     *
+     * @return the number of events read
+     */
+    long getEventsRead();
+
+    /**
+     * Returns the number of events handled by the listeners during the current (or last) replay. Events skipped
+     * because none of the listeners can handle them are included.
+     *
+     * @return the number of events handled
+     */
+    long getEventsProcessed();
+
+    /**
+     * Returns the average number of events handled per second during the current (or last) replay.
+     *
+     * @return the number of events handled per second
+     */
+    long getEventsProcessedPerSecond();
+
+    /**
+     * Returns the position of the last checkpoint reached during the current (or last) replay, or <code>null</code>
+     * if no checkpoint has been reached.
+     *
+     * @return the position of the last checkpoint
+     */
+    String getLastCheckpoint();
+}
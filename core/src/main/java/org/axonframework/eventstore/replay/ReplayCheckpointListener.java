@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.eventstore.replay;
+
+/**
+ * Interface describing a component that is informed about checkpoints reached during an event replay. A checkpoint
+ * is a position in the event store up to which all events have been handled by all listeners. A replay that has been
+ * interrupted can be resumed from the last checkpoint reached.
+ *
+ * @author Allard Buijze
+ * @see EventReplayer#replay(String)
+ * @since 1.0
+ */
+public interface ReplayCheckpointListener {
+
+    /**
+     * Invoked when all events up to and including the given <code>position</code> have been handled.
+     *
+     * @param position The position token of the last event handled
+     */
+    void checkpointReached(String position);
+}
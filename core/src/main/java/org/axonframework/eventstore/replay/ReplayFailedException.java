@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.eventstore.replay;
+
+import org.axonframework.util.AxonNonTransientException;
+
+/**
+ * Exception indicating that an event replay could not be completed, either because one of the listeners threw an
+ * exception, or because the replay was interrupted. The replay may be resumed from the last checkpoint that was
+ * reached.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class ReplayFailedException extends AxonNonTransientException {
+
+    private static final long serialVersionUID = 4417869212764011437L;
+
+    /**
+     * Initializes the exception using the given <code>message</code> and <code>cause</code>.
+     *
+     * @param message The message describing the exception
+     * @param cause   The underlying cause of the exception
+     */
+    public ReplayFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -20,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.management.ManagementFactory;
+import java.util.Hashtable;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.MBeanRegistrationException;
 import javax.management.MBeanServer;
@@ -65,9 +66,36 @@ public final class JmxConfiguration {
      *                      of the MBean.
      */
     public void registerMBean(Object mBean, Class<?> monitoredType) {
+        registerMBean(mBean, objectNameFor(monitoredType));
+    }
+
+    /**
+     * Attempts to register the given <code>mBean</code> as an MBean with the default MBeanServer, using the given
+     * <code>name</code> to tell it apart from the MBeans of other instances of the same type. If registration fails,
+     * no exceptions are thrown. Instead, failure is logged and silently accepted.
+     *
+     * @param mBean         The instance to register as MBean. Note that this instance needs to be MBean compliant.
+     *                      Otherwise, registration fails silently.
+     * @param monitoredType The type of object that the MBean represents. This type is used to construct the ObjectName
+     *                      of the MBean.
+     * @param name          The name of the instance the MBean represents. This name is added to the ObjectName of the
+     *                      MBean.
+     */
+    public void registerMBean(Object mBean, Class<?> monitoredType, String name) {
+        Hashtable<String, String> properties = new Hashtable<String, String>();
+        properties.put("type", monitoredType.getSimpleName());
+        properties.put("name", name);
+        try {
+            registerMBean(mBean, new ObjectName("org.axonframework", properties));
+        } catch (MalformedObjectNameException e) {
+            logger.error("Cannot register an MBean with name [" + name + "]", e);
+        }
+    }
+
+    private void registerMBean(Object mBean, ObjectName objectName) {
         if (enabled) {
             try {
-                mBeanServer.registerMBean(mBean, objectNameFor(monitoredType));
+                mBeanServer.registerMBean(mBean, objectName);
             } catch (InstanceAlreadyExistsException e) {
                 logger.warn("Object {} has already been registered as an MBean", mBean);
             } catch (MBeanRegistrationException e) {
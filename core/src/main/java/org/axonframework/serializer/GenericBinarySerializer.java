@@ -0,0 +1,1058 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer;
+
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+import com.thoughtworks.xstream.core.JVM;
+import org.axonframework.domain.MutableEventMetaData;
+import org.axonframework.domain.StringAggregateIdentifier;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.util.Assert;
+import org.axonframework.util.SerializationException;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Serializer that writes arbitrary objects in a compact binary format. Instead of field names, the values of an
+ * object's fields are written in a fixed order: fields of super classes first, and fields declared by a single class
+ * sorted by name. Static and transient fields are ignored. Values of primitive fields are written without any type
+ * information, using a variable length encoding for integral numbers.
+ * <p/>
+ * Class names are written the first time a class is used in a serialized object, and referred to by index after that.
+ * The names of common collection classes and of the event meta data class are never written. Classes may also be
+ * {@link #registerType(int, Class) registered} with a numeric identifier, which is written instead of their name.
+ * <p/>
+ * Strings, primitive wrappers, byte arrays, enums, arrays, collections, maps, UUIDs, dates, Joda DateTimes (using the
+ * ISO chronology) and Axon's aggregate identifiers have a specialized encoding. Other classes from the
+ * <code>java</code>, <code>javax</code> and <code>org.joda.time</code> packages are written using Java serialization.
+ * When read, Java serialized values may only contain classes from these packages.
+ * All other objects are written field by field, and instantiated without invoking their constructor when read.
+ * <p/>
+ * The first time an object of a class is written in a serialized form, the names of its fields are written along with
+ * their primitive type, if any. An object can only be deserialized if its class still has the same fields. If a field
+ * name occurs more than once in a class hierarchy, the fields of super classes are qualified with the name of their
+ * declaring class. Objects whose class has changed can be read as a map of field values using {@link
+ * #readFields(byte[], int)}, which can be altered and turned into an instance of the current class using {@link
+ * #instantiate(Class, java.util.Map)}. Objects are written as a tree, which means shared references are written more
+ * than once and cyclic references are not supported.
+ * <p/>
+ * Instances of this class are thread safe. Types must be registered before the serializer is used.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class GenericBinarySerializer {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int BYTE = 3;
+    private static final int SHORT = 4;
+    private static final int INT = 5;
+    private static final int LONG = 6;
+    private static final int FLOAT = 7;
+    private static final int DOUBLE = 8;
+    private static final int CHAR = 9;
+    private static final int STRING = 10;
+    private static final int BYTES = 11;
+    private static final int UUID_VALUE = 12;
+    private static final int DATE_TIME = 13;
+    private static final int DATE = 14;
+    private static final int STRING_AGGREGATE_IDENTIFIER = 15;
+    private static final int UUID_AGGREGATE_IDENTIFIER = 16;
+    private static final int ENUM = 17;
+    private static final int ARRAY = 18;
+    private static final int COLLECTION = 19;
+    private static final int MAP = 20;
+    private static final int OBJECT = 21;
+    private static final int JAVA_SERIALIZED = 22;
+
+    private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<String, Class<?>>();
+
+    /**
+     * Classes that are referred to by index from the start of each serialized object. Their position in this list is
+     * part of the serialized form, so classes may only be added at the end.
+     */
+    private static final List<Class<?>> COMMON_TYPES = Arrays.<Class<?>>asList(
+            MutableEventMetaData.class, HashMap.class, LinkedHashMap.class, TreeMap.class, ArrayList.class,
+            LinkedList.class, HashSet.class, LinkedHashSet.class, TreeSet.class);
+    private static final Map<Class<?>, Integer> COMMON_TYPE_INDEXES = new IdentityHashMap<Class<?>, Integer>();
+
+    static {
+        for (Class<?> type : Arrays.<Class<?>>asList(boolean.class, byte.class, short.class, char.class, int.class,
+                                                     long.class, float.class, double.class)) {
+            PRIMITIVE_TYPES.put(type.getName(), type);
+        }
+        for (int t = 0; t < COMMON_TYPES.size(); t++) {
+            COMMON_TYPE_INDEXES.put(COMMON_TYPES.get(t), t);
+        }
+    }
+
+    private final ReflectionProvider reflectionProvider = new JVM().bestReflectionProvider();
+    private final ConcurrentMap<Class<?>, ClassDescriptor> descriptors =
+            new ConcurrentHashMap<Class<?>, ClassDescriptor>();
+    private final ConcurrentMap<Class<?>, Boolean> instantiableTypes = new ConcurrentHashMap<Class<?>, Boolean>();
+    private final Map<Integer, Class<?>> registeredTypes = new ConcurrentHashMap<Integer, Class<?>>();
+    private final Map<Class<?>, Integer> typeIdentifiers = new ConcurrentHashMap<Class<?>, Integer>();
+
+    /**
+     * Registers the given <code>type</code> with the given <code>identifier</code>. The identifier is written instead
+     * of the class name, making the serialized form more compact. Identifiers must be positive, and must remain
+     * associated with the same type for as long as serialized objects using it exist.
+     *
+     * @param identifier The positive identifier to register the type with
+     * @param type       The type to register
+     * @throws IllegalArgumentException if the identifier is not positive, or when it or the type is already registered
+     */
+    public void registerType(int identifier, Class<?> type) {
+        Assert.isTrue(identifier > 0, "Type identifiers must be positive.");
+        Assert.isTrue(!registeredTypes.containsKey(identifier), "Another type is registered with that identifier.");
+        Assert.isTrue(!typeIdentifiers.containsKey(type), "That type has already been registered.");
+        registeredTypes.put(identifier, type);
+        typeIdentifiers.put(type, identifier);
+    }
+
+    /**
+     * Serializes the given <code>object</code> into a byte array.
+     *
+     * @param object The object to serialize. May be <code>null</code>
+     * @return the bytes representing the serialized object
+     */
+    public byte[] serialize(Object object) {
+        Output out = new Output();
+        writeValue(out, object);
+        return out.toByteArray();
+    }
+
+    /**
+     * Deserializes the object contained in the given <code>data</code>, starting at the given <code>offset</code>.
+     *
+     * @param data   The bytes containing the serialized object
+     * @param offset The index of the first byte of the serialized object
+     * @return the deserialized object
+     */
+    public Object deserialize(byte[] data, int offset) {
+        try {
+            return readValue(new Input(data, offset));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("The serialized object is truncated", e);
+        }
+    }
+
+    /**
+     * Returns the type of the object contained in the given <code>data</code>, starting at the given
+     * <code>offset</code>, without deserializing it. Returns <code>null</code> if the serialized object is
+     * <code>null</code>, or if its type does not have a class reference in the serialized form, such as strings and
+     * primitive wrappers.
+     *
+     * @param data   The bytes containing the serialized object
+     * @param offset The index of the first byte of the serialized object
+     * @return the type of the serialized object, or <code>null</code> if it cannot be determined
+     */
+    public Class<?> readType(byte[] data, int offset) {
+        Input in = new Input(data, offset);
+        int tag = in.readByte();
+        if (tag == OBJECT || tag == ENUM || tag == COLLECTION || tag == MAP) {
+            return readClass(in);
+        }
+        return null;
+    }
+
+    private void writeValue(Output out, Object value) {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (type == Boolean.class) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (type == Integer.class) {
+            out.writeByte(INT);
+            out.writeSignedVarLong((Integer) value);
+        } else if (type == Long.class) {
+            out.writeByte(LONG);
+            out.writeSignedVarLong((Long) value);
+        } else if (type == Short.class) {
+            out.writeByte(SHORT);
+            out.writeSignedVarLong((Short) value);
+        } else if (type == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (type == Character.class) {
+            out.writeByte(CHAR);
+            out.writeVarLong((Character) value);
+        } else if (type == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeFixedLong(Double.doubleToLongBits((Double) value));
+        } else if (type == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeFixedInt(Float.floatToIntBits((Float) value));
+        } else if (type == byte[].class) {
+            out.writeByte(BYTES);
+            out.writeBytes((byte[]) value);
+        } else if (type == UUID.class) {
+            out.writeByte(UUID_VALUE);
+            writeUUID(out, (UUID) value);
+        } else if (type == DateTime.class && ((DateTime) value).getChronology() instanceof ISOChronology) {
+            out.writeByte(DATE_TIME);
+            out.writeSignedVarLong(((DateTime) value).getMillis());
+            out.writeString(((DateTime) value).getZone().getID());
+        } else if (type == Date.class) {
+            out.writeByte(DATE);
+            out.writeSignedVarLong(((Date) value).getTime());
+        } else if (type == StringAggregateIdentifier.class) {
+            out.writeByte(STRING_AGGREGATE_IDENTIFIER);
+            out.writeString(((StringAggregateIdentifier) value).asString());
+        } else if (type == UUIDAggregateIdentifier.class) {
+            out.writeByte(UUID_AGGREGATE_IDENTIFIER);
+            writeUUID(out, UUID.fromString(((UUIDAggregateIdentifier) value).asString()));
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            writeClass(out, ((Enum) value).getDeclaringClass());
+            out.writeString(((Enum) value).name());
+        } else if (type.isArray()) {
+            out.writeByte(ARRAY);
+            writeArray(out, value);
+        } else if (value instanceof Collection) {
+            out.writeByte(COLLECTION);
+            writeCollection(out, (Collection<?>) value);
+        } else if (value instanceof Map) {
+            out.writeByte(MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else if (isPlatformType(type)) {
+            out.writeByte(JAVA_SERIALIZED);
+            out.writeBytes(javaSerialize(value));
+        } else {
+            out.writeByte(OBJECT);
+            writeObject(out, value);
+        }
+    }
+
+    /**
+     * Reads the fields of the object contained in the given <code>data</code>, starting at the given
+     * <code>offset</code>, without instantiating it. The returned map contains the values of the fields as they were
+     * serialized, keyed by field name, in the order in which they were written. Nested objects whose class has
+     * changed since they were serialized are returned as maps of their fields as well. Other values are deserialized.
+     * <p/>
+     * This allows serialized objects to be migrated after their class has changed. See {@link #instantiate(Class,
+     * java.util.Map)}.
+     *
+     * @param data   The bytes containing the serialized object
+     * @param offset The index of the first byte of the serialized object
+     * @return the values of the fields of the serialized object
+     *
+     * @throws SerializationException if the serialized data does not contain an object that is written field by field
+     */
+    public Map<String, Object> readFields(byte[] data, int offset) {
+        Input in = new Input(data, offset);
+        in.readChangedObjectsAsFields = true;
+        try {
+            if (in.readByte() != OBJECT) {
+                throw new SerializationException("The serialized data does not contain an object written field by "
+                                                         + "field");
+            }
+            return readFields(in, layoutFor(in, readClass(in)));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("The serialized object is truncated", e);
+        }
+    }
+
+    /**
+     * Creates an instance of the given <code>type</code> without invoking its constructor, and assigns the given field
+     * <code>values</code> to it. Values are keyed by field name, as returned by {@link #readFields(byte[], int)}.
+     * Fields without an entry in the map keep their default value. A map assigned to a field that cannot hold a map
+     * is converted into an instance of the type of that field first.
+     *
+     * @param type   The type of object to create
+     * @param values The values of the fields of the object
+     * @param <T>    The type of object to create
+     * @return the new instance
+     *
+     * @throws SerializationException if the type has no field for one of the given values, or a value cannot be
+     *                                assigned to its field
+     */
+    @SuppressWarnings({"unchecked"})
+    public <T> T instantiate(Class<T> type, Map<String, ?> values) {
+        ClassDescriptor descriptor = getDescriptor(type);
+        Set<String> unassignedValues = new HashSet<String>(values.keySet());
+        Object instance = reflectionProvider.newInstance(type);
+        try {
+            for (int t = 0; t < descriptor.fields.length; t++) {
+                Field field = descriptor.fields[t];
+                String fieldName = descriptor.fieldNames[t];
+                if (unassignedValues.remove(fieldName)) {
+                    Object value = values.get(fieldName);
+                    if (value instanceof Map && !field.getType().isInstance(value)) {
+                        value = instantiate(field.getType(), (Map<String, ?>) value);
+                    }
+                    field.set(instance, value);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new SerializationException("Unable to access a field of " + type.getName(), e);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Unable to assign a field of " + type.getName(), e);
+        }
+        if (!unassignedValues.isEmpty()) {
+            throw new SerializationException(String.format("[%s] does not declare the field(s) %s",
+                                                           type.getName(), unassignedValues));
+        }
+        return (T) instance;
+    }
+
+    private Object readValue(Input in) {
+        int tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case STRING:
+                return in.readString();
+            case INT:
+                return (int) in.readSignedVarLong();
+            case LONG:
+                return in.readSignedVarLong();
+            case SHORT:
+                return (short) in.readSignedVarLong();
+            case BYTE:
+                return (byte) in.readByte();
+            case CHAR:
+                return (char) in.readVarLong();
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readFixedLong());
+            case FLOAT:
+                return Float.intBitsToFloat(in.readFixedInt());
+            case BYTES:
+                return in.readBytes();
+            case UUID_VALUE:
+                return readUUID(in);
+            case DATE_TIME:
+                long millis = in.readSignedVarLong();
+                return new DateTime(millis, DateTimeZone.forID(in.readString()));
+            case DATE:
+                return new Date(in.readSignedVarLong());
+            case STRING_AGGREGATE_IDENTIFIER:
+                return new StringAggregateIdentifier(in.readString());
+            case UUID_AGGREGATE_IDENTIFIER:
+                return new UUIDAggregateIdentifier(readUUID(in));
+            case ENUM:
+                return readEnum(in);
+            case ARRAY:
+                return readArray(in);
+            case COLLECTION:
+                return readCollection(in);
+            case MAP:
+                return readMap(in);
+            case JAVA_SERIALIZED:
+                return javaDeserialize(in.readBytes());
+            case OBJECT:
+                return readObject(in);
+            default:
+                throw new SerializationException(String.format("Unknown value tag [%s] in serialized object", tag));
+        }
+    }
+
+    private void writeObject(Output out, Object value) {
+        ClassDescriptor descriptor = getDescriptor(value.getClass());
+        writeClass(out, descriptor.type);
+        if (out.describedTypes.add(descriptor.type)) {
+            out.writeRaw(descriptor.layout);
+        }
+        try {
+            for (int t = 0; t < descriptor.fields.length; t++) {
+                Field field = descriptor.fields[t];
+                switch (descriptor.fieldTags[t]) {
+                    case INT:
+                        out.writeSignedVarLong(field.getInt(value));
+                        break;
+                    case LONG:
+                        out.writeSignedVarLong(field.getLong(value));
+                        break;
+                    case TRUE:
+                        out.writeByte(field.getBoolean(value) ? TRUE : FALSE);
+                        break;
+                    case DOUBLE:
+                        out.writeFixedLong(Double.doubleToLongBits(field.getDouble(value)));
+                        break;
+                    case FLOAT:
+                        out.writeFixedInt(Float.floatToIntBits(field.getFloat(value)));
+                        break;
+                    case SHORT:
+                        out.writeSignedVarLong(field.getShort(value));
+                        break;
+                    case BYTE:
+                        out.writeByte(field.getByte(value));
+                        break;
+                    case CHAR:
+                        out.writeVarLong(field.getChar(value));
+                        break;
+                    default:
+                        writeValue(out, field.get(value));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new SerializationException("Unable to access a field of " + descriptor.type.getName(), e);
+        }
+    }
+
+    private Object readObject(Input in) {
+        Class<?> type = readClass(in);
+        FieldLayout layout = layoutFor(in, type);
+        if (!layout.matchesClass) {
+            if (in.readChangedObjectsAsFields) {
+                return readFields(in, layout);
+            }
+            throw new SerializationException(String.format(
+                    "The serialized form of [%s] does not match the fields of the class. "
+                            + "The class has changed since the object was serialized.", type.getName()));
+        }
+        ClassDescriptor descriptor = getDescriptor(type);
+        Object value = reflectionProvider.newInstance(descriptor.type);
+        try {
+            for (int t = 0; t < descriptor.fields.length; t++) {
+                Field field = descriptor.fields[t];
+                switch (descriptor.fieldTags[t]) {
+                    case INT:
+                        field.setInt(value, (int) in.readSignedVarLong());
+                        break;
+                    case LONG:
+                        field.setLong(value, in.readSignedVarLong());
+                        break;
+                    case TRUE:
+                        field.setBoolean(value, in.readByte() == TRUE);
+                        break;
+                    case DOUBLE:
+                        field.setDouble(value, Double.longBitsToDouble(in.readFixedLong()));
+                        break;
+                    case FLOAT:
+                        field.setFloat(value, Float.intBitsToFloat(in.readFixedInt()));
+                        break;
+                    case SHORT:
+                        field.setShort(value, (short) in.readSignedVarLong());
+                        break;
+                    case BYTE:
+                        field.setByte(value, (byte) in.readByte());
+                        break;
+                    case CHAR:
+                        field.setChar(value, (char) in.readVarLong());
+                        break;
+                    default:
+                        field.set(value, readValue(in));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new SerializationException("Unable to access a field of " + descriptor.type.getName(), e);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Unable to assign a field of " + descriptor.type.getName(), e);
+        }
+        return value;
+    }
+
+    private FieldLayout layoutFor(Input in, Class<?> type) {
+        FieldLayout layout = in.layouts.get(type);
+        if (layout == null) {
+            int fieldCount = (int) in.readVarLong();
+            String[] fieldNames = new String[fieldCount];
+            int[] fieldTags = new int[fieldCount];
+            for (int t = 0; t < fieldCount; t++) {
+                fieldNames[t] = in.readString();
+                fieldTags[t] = in.readByte();
+            }
+            ClassDescriptor descriptor = getDescriptor(type);
+            layout = new FieldLayout(fieldNames, fieldTags, Arrays.equals(fieldNames, descriptor.fieldNames)
+                    && Arrays.equals(fieldTags, descriptor.fieldTags));
+            in.layouts.put(type, layout);
+        }
+        return layout;
+    }
+
+    private Map<String, Object> readFields(Input in, FieldLayout layout) {
+        Map<String, Object> fields = new LinkedHashMap<String, Object>();
+        for (int t = 0; t < layout.fieldNames.length; t++) {
+            fields.put(layout.fieldNames[t], readFieldValue(in, layout.fieldTags[t]));
+        }
+        return fields;
+    }
+
+    private Object readFieldValue(Input in, int fieldTag) {
+        switch (fieldTag) {
+            case INT:
+                return (int) in.readSignedVarLong();
+            case LONG:
+                return in.readSignedVarLong();
+            case TRUE:
+                return in.readByte() == TRUE;
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readFixedLong());
+            case FLOAT:
+                return Float.intBitsToFloat(in.readFixedInt());
+            case SHORT:
+                return (short) in.readSignedVarLong();
+            case BYTE:
+                return (byte) in.readByte();
+            case CHAR:
+                return (char) in.readVarLong();
+            case OBJECT:
+                return readValue(in);
+            default:
+                throw new SerializationException(String.format("Unknown field tag [%s] in serialized object",
+                                                               fieldTag));
+        }
+    }
+
+    private void writeArray(Output out, Object array) {
+        Class<?> componentType = array.getClass().getComponentType();
+        int length = Array.getLength(array);
+        writeClass(out, componentType);
+        out.writeVarLong(length);
+        if (componentType == int.class) {
+            for (int value : (int[]) array) {
+                out.writeSignedVarLong(value);
+            }
+        } else if (componentType == long.class) {
+            for (long value : (long[]) array) {
+                out.writeSignedVarLong(value);
+            }
+        } else if (componentType.isPrimitive()) {
+            for (int t = 0; t < length; t++) {
+                writeValue(out, Array.get(array, t));
+            }
+        } else {
+            for (Object value : (Object[]) array) {
+                writeValue(out, value);
+            }
+        }
+    }
+
+    private Object readArray(Input in) {
+        Class<?> componentType = readClass(in);
+        int length = (int) in.readVarLong();
+        if (componentType == int.class) {
+            int[] array = new int[length];
+            for (int t = 0; t < length; t++) {
+                array[t] = (int) in.readSignedVarLong();
+            }
+            return array;
+        } else if (componentType == long.class) {
+            long[] array = new long[length];
+            for (int t = 0; t < length; t++) {
+                array[t] = in.readSignedVarLong();
+            }
+            return array;
+        }
+        Object array = Array.newInstance(componentType, length);
+        for (int t = 0; t < length; t++) {
+            Array.set(array, t, readValue(in));
+        }
+        return array;
+    }
+
+    private void writeCollection(Output out, Collection<?> collection) {
+        Class<?> type = collection.getClass();
+        if (!isInstantiable(type)
+                || (collection instanceof SortedSet && ((SortedSet) collection).comparator() != null)) {
+            type = collection instanceof Set ? LinkedHashSet.class : ArrayList.class;
+        }
+        writeClass(out, type);
+        out.writeVarLong(collection.size());
+        for (Object element : collection) {
+            writeValue(out, element);
+        }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private Object readCollection(Input in) {
+        Class<?> type = readClass(in);
+        int size = (int) in.readVarLong();
+        Collection<Object> collection = (Collection<Object>) newInstance(type);
+        for (int t = 0; t < size; t++) {
+            collection.add(readValue(in));
+        }
+        return collection;
+    }
+
+    private void writeMap(Output out, Map<?, ?> map) {
+        Class<?> type = map.getClass();
+        if (!isInstantiable(type) || (map instanceof SortedMap && ((SortedMap) map).comparator() != null)) {
+            type = LinkedHashMap.class;
+        }
+        writeClass(out, type);
+        out.writeVarLong(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeValue(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private Object readMap(Input in) {
+        Class<?> type = readClass(in);
+        int size = (int) in.readVarLong();
+        Map<Object, Object> map = (Map<Object, Object>) newInstance(type);
+        for (int t = 0; t < size; t++) {
+            Object key = readValue(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private Object readEnum(Input in) {
+        Class enumType = readClass(in);
+        return Enum.valueOf(enumType, in.readString());
+    }
+
+    private void writeUUID(Output out, UUID uuid) {
+        out.writeFixedLong(uuid.getMostSignificantBits());
+        out.writeFixedLong(uuid.getLeastSignificantBits());
+    }
+
+    private UUID readUUID(Input in) {
+        long mostSignificantBits = in.readFixedLong();
+        return new UUID(mostSignificantBits, in.readFixedLong());
+    }
+
+    private void writeClass(Output out, Class<?> type) {
+        Integer identifier = typeIdentifiers.get(type);
+        if (identifier != null) {
+            out.writeSignedVarLong(identifier);
+            return;
+        }
+        Integer index = out.classIndex(type);
+        if (index != null) {
+            out.writeSignedVarLong(-(index + 1));
+        } else {
+            out.writeSignedVarLong(0);
+            out.writeString(type.getName());
+        }
+    }
+
+    private Class<?> readClass(Input in) {
+        long code = in.readSignedVarLong();
+        if (code > 0) {
+            Class<?> type = registeredTypes.get((int) code);
+            if (type == null) {
+                throw new SerializationException(String.format("No type has been registered with identifier [%s]",
+                                                               code));
+            }
+            return type;
+        } else if (code < 0) {
+            int index = (int) -code - 1;
+            return index < COMMON_TYPES.size() ? COMMON_TYPES.get(index) : in.classes.get(index - COMMON_TYPES.size());
+        }
+        Class<?> type = loadClass(in.readString());
+        in.classes.add(type);
+        return type;
+    }
+
+    private Class<?> loadClass(String className) {
+        Class<?> type = PRIMITIVE_TYPES.get(className);
+        if (type != null) {
+            return type;
+        }
+        try {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            return Class.forName(className, false, classLoader == null ? getClass().getClassLoader() : classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException(String.format("Unable to load class [%s] of a serialized object",
+                                                           className), e);
+        }
+    }
+
+    private Object newInstance(Class<?> type) {
+        try {
+            return type.newInstance();
+        } catch (InstantiationException e) {
+            throw new SerializationException("Unable to instantiate " + type.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new SerializationException("Unable to instantiate " + type.getName(), e);
+        }
+    }
+
+    private boolean isInstantiable(Class<?> type) {
+        Boolean instantiable = instantiableTypes.get(type);
+        if (instantiable == null) {
+            instantiable = Modifier.isPublic(type.getModifiers()) && !Modifier.isAbstract(type.getModifiers());
+            try {
+                instantiable = instantiable && Modifier.isPublic(type.getConstructor().getModifiers());
+            } catch (NoSuchMethodException e) {
+                instantiable = false;
+            }
+            instantiableTypes.put(type, instantiable);
+        }
+        return instantiable;
+    }
+
+    private boolean isPlatformType(Class<?> type) {
+        return isPlatformType(type.getName());
+    }
+
+    private static boolean isPlatformType(String className) {
+        return className.startsWith("java.") || className.startsWith("javax.")
+                || className.startsWith("org.joda.time.");
+    }
+
+    private byte[] javaSerialize(Object value) {
+        if (!(value instanceof Serializable)) {
+            throw new SerializationException(String.format("Unable to serialize [%s]. It is not Serializable.",
+                                                           value.getClass().getName()));
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(value);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Unable to serialize " + value.getClass().getName(), e);
+        }
+    }
+
+    private Object javaDeserialize(byte[] data) {
+        try {
+            return new PlatformObjectInputStream(new ByteArrayInputStream(data)).readObject();
+        } catch (IOException e) {
+            throw new SerializationException("Unable to deserialize a value of a serialized object", e);
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException("Unable to deserialize a value of a serialized object", e);
+        }
+    }
+
+    private ClassDescriptor getDescriptor(Class<?> type) {
+        ClassDescriptor descriptor = descriptors.get(type);
+        if (descriptor == null) {
+            descriptor = new ClassDescriptor(type);
+            descriptors.putIfAbsent(type, descriptor);
+        }
+        return descriptor;
+    }
+
+    private static final class ClassDescriptor {
+
+        private static final Comparator<Field> FIELD_NAME_ORDER = new Comparator<Field>() {
+            @Override
+            public int compare(Field field1, Field field2) {
+                return field1.getName().compareTo(field2.getName());
+            }
+        };
+
+        private final Class<?> type;
+        private final Field[] fields;
+        private final String[] fieldNames;
+        private final int[] fieldTags;
+        private final byte[] layout;
+
+        private ClassDescriptor(Class<?> type) {
+            this.type = type;
+            List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+            for (Class<?> current = type; current != null && current != Object.class;
+                 current = current.getSuperclass()) {
+                hierarchy.add(0, current);
+            }
+            List<Field> fieldList = new ArrayList<Field>();
+            for (Class<?> current : hierarchy) {
+                List<Field> declaredFields = new ArrayList<Field>();
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                        field.setAccessible(true);
+                        declaredFields.add(field);
+                    }
+                }
+                Collections.sort(declaredFields, FIELD_NAME_ORDER);
+                fieldList.addAll(declaredFields);
+            }
+            this.fields = fieldList.toArray(new Field[fieldList.size()]);
+            this.fieldNames = new String[fields.length];
+            this.fieldTags = new int[fields.length];
+            Set<String> subclassFieldNames = new HashSet<String>();
+            for (int t = fields.length - 1; t >= 0; t--) {
+                String name = fields[t].getName();
+                // a field hidden by a field of a subclass is qualified with the name of its declaring class
+                fieldNames[t] = subclassFieldNames.add(name) ? name
+                        : fields[t].getDeclaringClass().getName() + "." + name;
+                fieldTags[t] = tagFor(fields[t].getType());
+            }
+            Output out = new Output();
+            out.writeVarLong(fields.length);
+            for (int t = 0; t < fields.length; t++) {
+                out.writeString(fieldNames[t]);
+                out.writeByte(fieldTags[t]);
+            }
+            this.layout = out.toByteArray();
+        }
+
+        private static int tagFor(Class<?> fieldType) {
+            if (fieldType == int.class) {
+                return INT;
+            } else if (fieldType == long.class) {
+                return LONG;
+            } else if (fieldType == boolean.class) {
+                return TRUE;
+            } else if (fieldType == double.class) {
+                return DOUBLE;
+            } else if (fieldType == float.class) {
+                return FLOAT;
+            } else if (fieldType == short.class) {
+                return SHORT;
+            } else if (fieldType == byte.class) {
+                return BYTE;
+            } else if (fieldType == char.class) {
+                return CHAR;
+            }
+            return OBJECT;
+        }
+    }
+
+    private static final class FieldLayout {
+
+        private final String[] fieldNames;
+        private final int[] fieldTags;
+        private final boolean matchesClass;
+
+        private FieldLayout(String[] fieldNames, int[] fieldTags, boolean matchesClass) {
+            this.fieldNames = fieldNames;
+            this.fieldTags = fieldTags;
+            this.matchesClass = matchesClass;
+        }
+    }
+
+    /**
+     * ObjectInputStream that only resolves the platform classes that are written using Java serialization. This
+     * prevents serialized data from instantiating any other Serializable class on the class path.
+     */
+    private static final class PlatformObjectInputStream extends ObjectInputStream {
+
+        private PlatformObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String className = desc.getName();
+            while (className.startsWith("[")) {
+                className = className.substring(1);
+            }
+            boolean primitiveArray = className.length() == 1 && !className.equals(desc.getName());
+            if (className.startsWith("L") && className.endsWith(";")) {
+                className = className.substring(1, className.length() - 1);
+            }
+            if (!primitiveArray && !isPlatformType(className)) {
+                throw new InvalidClassException(desc.getName(), "Only platform classes may be deserialized");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+            throw new InvalidClassException("Proxy classes may not be deserialized");
+        }
+    }
+
+    private static final class Output {
+
+        private byte[] buffer = new byte[256];
+        private int position;
+        private Map<Class<?>, Integer> classes;
+        private final Set<Class<?>> describedTypes =
+                Collections.newSetFromMap(new IdentityHashMap<Class<?>, Boolean>());
+
+        private void ensureCapacity(int additionalBytes) {
+            if (position + additionalBytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additionalBytes));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            buffer[position++] = (byte) remaining;
+        }
+
+        private void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeFixedLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeFixedInt(int value) {
+            ensureCapacity(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeRaw(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void writeString(String value) {
+            writeBytes(value.getBytes(UTF8));
+        }
+
+        private Integer classIndex(Class<?> type) {
+            Integer index = COMMON_TYPE_INDEXES.get(type);
+            if (index != null) {
+                return index;
+            }
+            if (classes == null) {
+                classes = new IdentityHashMap<Class<?>, Integer>();
+            }
+            index = classes.get(type);
+            if (index == null) {
+                classes.put(type, COMMON_TYPES.size() + classes.size());
+            }
+            return index;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] data;
+        private int position;
+        private final List<Class<?>> classes = new ArrayList<Class<?>>();
+        private final Map<Class<?>, FieldLayout> layouts = new HashMap<Class<?>, FieldLayout>();
+        private boolean readChangedObjectsAsFields;
+
+        private Input(byte[] data, int offset) {
+            this.data = data;
+            this.position = offset;
+        }
+
+        private int readByte() {
+            return data[position++];
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = data[position++];
+                value |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return value;
+        }
+
+        private long readSignedVarLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readFixedLong() {
+            long value = 0;
+            for (int t = 0; t < 8; t++) {
+                value = (value << 8) | (data[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private int readFixedInt() {
+            int value = 0;
+            for (int t = 0; t < 4; t++) {
+                value = (value << 8) | (data[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private byte[] readBytes() {
+            int length = (int) readVarLong();
+            byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        private String readString() {
+            int length = (int) readVarLong();
+            String value = new String(data, position, length, UTF8);
+            position += length;
+            return value;
+        }
+    }
+}
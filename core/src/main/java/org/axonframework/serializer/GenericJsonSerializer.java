@@ -0,0 +1,1075 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+import com.thoughtworks.xstream.core.JVM;
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.MutableEventMetaData;
+import org.axonframework.domain.StringAggregateIdentifier;
+import org.axonframework.util.SerializationException;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Serializer that writes arbitrary objects as JSON, using Gson's streaming {@link JsonReader} and {@link JsonWriter}.
+ * Objects are written field by field, using the field names as property names. Static and transient fields are
+ * ignored, as are fields with a <code>null</code> value. When reading, properties that do not match a field are
+ * ignored, and fields without a property keep their default value. This makes the serialized form tolerant to fields
+ * being added to or removed from a class. If a field is hidden by a field with the same name in a subclass, the
+ * property of the hidden field is qualified with the name of its declaring class, e.g.
+ * <code>com.example.Base.name</code>.
+ * <p/>
+ * Type information is only written where the declared type of a field does not suffice to read the value back: the
+ * class name is written in an <code>@class</code> property, which is always the first property of the JSON object
+ * representing the value. Values that are not represented by a JSON object are wrapped in an object with an
+ * <code>@class</code> and a <code>value</code> property. Collections and maps using the default implementation for
+ * their declared interface (e.g. <code>ArrayList</code> for a <code>List</code>) and aggregate identifiers are written
+ * without type information. Aggregate identifiers are read using the declared type's String constructor, or as a
+ * {@link StringAggregateIdentifier} if the declared type does not have one. Property names starting with an
+ * <code>@</code>, such as map keys, are escaped with an additional <code>@</code>, so that they cannot be mistaken for
+ * type information.
+ * <p/>
+ * Values that are represented as a single JSON value are written and read by Gson {@link TypeAdapter TypeAdapters}.
+ * Next to Gson's own adapters for strings, booleans, characters, integral numbers, enums and UUIDs, dedicated adapters
+ * are used for floating point numbers (non-finite values are written as strings), big numbers (as strings, to retain
+ * their precision), dates, byte arrays (as Base64), Joda DateTimes (as ISO-8601 strings, with the time zone offset)
+ * and aggregate identifiers. The adapters that write and read values of a class are created once, and cached for the
+ * lifetime of the serializer.
+ * <p/>
+ * Objects are instantiated without invoking their constructor. For Serializable classes, any private
+ * <code>readObject</code> method is invoked after all fields have been set, to allow it to initialize transient
+ * state. Such methods may call <code>defaultReadObject()</code>, but may not read any additional data from the stream.
+ * <p/>
+ * JSON is read and written as a stream: no intermediate document or string is created. Objects are written as a tree,
+ * which means shared references are written more than once and cyclic references are not supported. Instances of
+ * this class are thread safe.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class GenericJsonSerializer {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String CLASS_PROPERTY = "@class";
+    private static final String VALUE_PROPERTY = "value";
+    private static final String ESCAPE_PREFIX = "@";
+
+    private final Charset charset;
+    private final ReflectionProvider reflectionProvider = new JVM().bestReflectionProvider();
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Double.class, new NumberAdapter(Double.class))
+            .registerTypeAdapter(Float.class, new NumberAdapter(Float.class))
+            .registerTypeAdapter(BigInteger.class, new NumberAdapter(BigInteger.class))
+            .registerTypeAdapter(BigDecimal.class, new NumberAdapter(BigDecimal.class))
+            .registerTypeAdapter(byte[].class, new ByteArrayAdapter())
+            .registerTypeAdapter(DateTime.class, new DateTimeAdapter())
+            .registerTypeAdapter(Date.class, new DateAdapter())
+            .registerTypeAdapterFactory(new AggregateIdentifierAdapterFactory())
+            .create();
+    private final ConcurrentMap<Class<?>, ValueAdapter> adapters = new ConcurrentHashMap<Class<?>, ValueAdapter>();
+
+    /**
+     * Initialize a GenericJsonSerializer that uses UTF-8 to convert JSON to bytes.
+     */
+    public GenericJsonSerializer() {
+        this(UTF8);
+    }
+
+    /**
+     * Initialize a GenericJsonSerializer that uses the given <code>charset</code> to convert JSON to bytes.
+     *
+     * @param charset The character set to use
+     */
+    public GenericJsonSerializer(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Returns the character set used to convert JSON to bytes.
+     *
+     * @return the character set used to convert JSON to bytes
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Serialize the given <code>object</code> to JSON, and write the bytes to the given <code>outputStream</code>.
+     * The stream is flushed, but not closed.
+     *
+     * @param object       The object to serialize
+     * @param outputStream The stream to write the JSON to
+     */
+    public void serialize(Object object, OutputStream outputStream) {
+        try {
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(outputStream, charset));
+            writeValue(writer, object, Object.class);
+            writer.flush();
+        } catch (IOException e) {
+            throw new SerializationException("Unable to write the serialized object", e);
+        }
+    }
+
+    /**
+     * Deserialize the object represented by the JSON in the given <code>inputStream</code>.
+     *
+     * @param inputStream The stream providing the JSON
+     * @return the deserialized object
+     */
+    public Object deserialize(InputStream inputStream) {
+        try {
+            return readValue(newReader(inputStream), Object.class);
+        } catch (IOException e) {
+            throw new SerializationException("Unable to read the serialized object", e);
+        } catch (JsonParseException e) {
+            throw new SerializationException("Unable to read the serialized object", e);
+        } catch (IllegalStateException e) {
+            throw new SerializationException("The serialized object does not match the expected structure", e);
+        }
+    }
+
+    /**
+     * Returns the type of the object represented by the JSON in the given <code>inputStream</code>, without
+     * deserializing it. Only the first property of the JSON is read. Returns <code>null</code> if the JSON does not
+     * contain type information, which is the case for strings and booleans.
+     *
+     * @param inputStream The stream providing the JSON
+     * @return the type of the serialized object, or <code>null</code> if it cannot be determined
+     */
+    public Class<?> readType(InputStream inputStream) {
+        try {
+            JsonReader reader = newReader(inputStream);
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+            reader.beginObject();
+            if (reader.hasNext() && CLASS_PROPERTY.equals(reader.nextName())) {
+                return loadClass(reader.nextString());
+            }
+            return null;
+        } catch (IOException e) {
+            throw new SerializationException("Unable to read the serialized object", e);
+        } catch (IllegalStateException e) {
+            throw new SerializationException("The serialized object does not match the expected structure", e);
+        }
+    }
+
+    /**
+     * Reads a single property of the object represented by the JSON in the given <code>inputStream</code>, without
+     * deserializing the rest of the object. The JSON is only read up to the requested property. Returns
+     * <code>null</code> if the object does not have the given property, or its value is <code>null</code>.
+     *
+     * @param inputStream  The stream providing the JSON
+     * @param propertyName The name of the property (i.e. the field name) to read
+     * @param type         The type of the property
+     * @return the value of the property, or <code>null</code> if the object does not have it
+     */
+    public Object readProperty(InputStream inputStream, String propertyName, Type type) {
+        try {
+            JsonReader reader = newReader(inputStream);
+            reader.beginObject();
+            for (String name = nextName(reader); name != null; name = nextName(reader)) {
+                if (propertyName.equals(name)) {
+                    return readValue(reader, type);
+                }
+                reader.skipValue();
+            }
+            return null;
+        } catch (IOException e) {
+            throw new SerializationException("Unable to read the serialized object", e);
+        } catch (JsonParseException e) {
+            throw new SerializationException("Unable to read the serialized object", e);
+        } catch (IllegalStateException e) {
+            throw new SerializationException("The serialized object does not match the expected structure", e);
+        }
+    }
+
+    private JsonReader newReader(InputStream inputStream) {
+        return new JsonReader(new InputStreamReader(inputStream, charset));
+    }
+
+    private void writeValue(JsonWriter out, Object value, Type declaredType) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        Class<?> actualType = writtenType(value);
+        ValueAdapter adapter = adapterFor(actualType);
+        if (!requiresClass(actualType, declaredType)) {
+            adapter.write(out, value, declaredType);
+            return;
+        }
+        out.beginObject();
+        out.name(CLASS_PROPERTY);
+        out.value(actualType.getName());
+        if (adapter.writesMembers(declaredType)) {
+            adapter.writeMembers(out, value, declaredType);
+        } else {
+            out.name(VALUE_PROPERTY);
+            adapter.write(out, value, declaredType);
+        }
+        out.endObject();
+    }
+
+    private Object readValue(JsonReader in, Type declaredType) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Class<?> declaredClass = rawType(declaredType);
+        if (token != JsonToken.BEGIN_OBJECT) {
+            return adapterFor(declaredClass).read(in, declaredClass, declaredType);
+        }
+        in.beginObject();
+        Class<?> actualType = declaredClass;
+        String firstName = in.hasNext() ? in.nextName() : null;
+        if (CLASS_PROPERTY.equals(firstName)) {
+            actualType = loadClass(in.nextString());
+            firstName = nextName(in);
+        } else if (firstName != null) {
+            firstName = unescape(firstName);
+        }
+        ValueAdapter adapter = adapterFor(actualType);
+        Object value;
+        if (adapter.writesMembers(declaredType)) {
+            value = adapter.readMembers(in, firstName, actualType, declaredType);
+        } else {
+            if (!VALUE_PROPERTY.equals(firstName)) {
+                throw new SerializationException(String.format(
+                        "Expected a '%s' property for a value of type [%s], but found '%s'",
+                        VALUE_PROPERTY, actualType.getName(), firstName));
+            }
+            value = adapter.read(in, actualType, declaredType);
+        }
+        in.endObject();
+        return value;
+    }
+
+    /**
+     * Writes the given property <code>name</code>, escaping it if it could be mistaken for type information.
+     */
+    private static void writeName(JsonWriter out, String name) throws IOException {
+        out.name(name.startsWith(ESCAPE_PREFIX) ? ESCAPE_PREFIX + name : name);
+    }
+
+    /**
+     * Reads the name of the next property of the current JSON object, or returns <code>null</code> if the object does
+     * not have any more properties.
+     */
+    private static String nextName(JsonReader in) throws IOException {
+        return in.hasNext() ? unescape(in.nextName()) : null;
+    }
+
+    private static String unescape(String name) {
+        return name.startsWith(ESCAPE_PREFIX + ESCAPE_PREFIX) ? name.substring(ESCAPE_PREFIX.length()) : name;
+    }
+
+    /**
+     * Returns the class to write for the given <code>value</code>. Collections and maps that cannot be instantiated
+     * when reading them back are written as a general purpose implementation.
+     */
+    private Class<?> writtenType(Object value) {
+        if (value instanceof Enum) {
+            return ((Enum) value).getDeclaringClass();
+        }
+        Class<?> type = value.getClass();
+        if (value instanceof Collection && !isInstantiable(type)) {
+            if (value instanceof SortedSet) {
+                return TreeSet.class;
+            }
+            return value instanceof Set ? LinkedHashSet.class : ArrayList.class;
+        } else if (value instanceof Map && !isInstantiable(type)) {
+            return value instanceof SortedMap ? TreeMap.class : LinkedHashMap.class;
+        }
+        return type;
+    }
+
+    private boolean requiresClass(Class<?> actualType, Type declaredType) {
+        Class<?> declaredClass = wrapperType(rawType(declaredType));
+        if (actualType == declaredClass || actualType == String.class || actualType == Boolean.class) {
+            return false;
+        }
+        if (AggregateIdentifier.class.isAssignableFrom(actualType)
+                && AggregateIdentifier.class.isAssignableFrom(declaredClass)) {
+            return false;
+        }
+        return defaultImplementation(declaredClass) != actualType;
+    }
+
+    private ValueAdapter adapterFor(Class<?> type) {
+        Class<?> wrapperType = wrapperType(type);
+        ValueAdapter adapter = adapters.get(wrapperType);
+        if (adapter == null) {
+            adapter = createAdapter(wrapperType);
+            ValueAdapter existing = adapters.putIfAbsent(wrapperType, adapter);
+            if (existing != null) {
+                adapter = existing;
+            }
+        }
+        return adapter;
+    }
+
+    private ValueAdapter createAdapter(Class<?> type) {
+        if (type == String.class || type == Boolean.class || type == Character.class || type == Integer.class
+                || type == Long.class || type == Double.class || type == Float.class || type == Short.class
+                || type == Byte.class || type == BigInteger.class || type == BigDecimal.class || type == byte[].class
+                || type == UUID.class || type == DateTime.class || type == Date.class
+                || AggregateIdentifier.class.isAssignableFrom(type) || type.isEnum()) {
+            return new SingleValueAdapter(gson.getAdapter(type));
+        } else if (type == MutableEventMetaData.class) {
+            return new MetaDataAdapter();
+        } else if (type.isArray()) {
+            return new ArrayAdapter();
+        } else if (Collection.class.isAssignableFrom(type)) {
+            return new CollectionAdapter();
+        } else if (Map.class.isAssignableFrom(type)) {
+            return new MapAdapter();
+        } else if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type == Object.class) {
+            return new UntypedAdapter();
+        }
+        return new ObjectAdapter(type);
+    }
+
+    private Class<?> loadClass(String className) {
+        try {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            return Class.forName(className, false, classLoader == null ? getClass().getClassLoader() : classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException(String.format("Unable to load class [%s] of a serialized object",
+                                                           className), e);
+        }
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return rawType(((ParameterizedType) type).getRawType());
+        } else if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        } else if (type instanceof TypeVariable) {
+            Type[] bounds = ((TypeVariable) type).getBounds();
+            return bounds.length == 0 ? Object.class : rawType(bounds[0]);
+        } else if (type instanceof WildcardType) {
+            Type[] bounds = ((WildcardType) type).getUpperBounds();
+            return bounds.length == 0 ? Object.class : rawType(bounds[0]);
+        }
+        return Object.class;
+    }
+
+    private static Type typeArgument(Type type, Class<?> genericType, int index) {
+        if (type instanceof ParameterizedType && genericType.isAssignableFrom(rawType(type))) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (arguments.length == genericType.getTypeParameters().length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    private static Class<?> wrapperType(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        } else if (type == char.class) {
+            return Character.class;
+        }
+        return type;
+    }
+
+    private static Class<?> defaultImplementation(Class<?> type) {
+        if (type == List.class || type == Collection.class) {
+            return ArrayList.class;
+        } else if (type == Set.class) {
+            return HashSet.class;
+        } else if (SortedSet.class.isAssignableFrom(type) && type.isInterface()) {
+            return TreeSet.class;
+        } else if (type == Queue.class) {
+            return LinkedList.class;
+        } else if (type == Deque.class) {
+            return ArrayDeque.class;
+        } else if (type == Map.class) {
+            return HashMap.class;
+        } else if (type == ConcurrentMap.class) {
+            return ConcurrentHashMap.class;
+        } else if (SortedMap.class.isAssignableFrom(type) && type.isInterface()) {
+            return TreeMap.class;
+        }
+        return null;
+    }
+
+    private static boolean isInstantiable(Class<?> type) {
+        if (!Modifier.isPublic(type.getModifiers()) || Modifier.isAbstract(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Modifier.isPublic(type.getConstructor().getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static Object newInstance(Class<?> type) {
+        Class<?> implementation = type.isInterface() ? defaultImplementation(type) : type;
+        if (implementation == null) {
+            throw new SerializationException(String.format("No default implementation is known for [%s]",
+                                                           type.getName()));
+        }
+        try {
+            return implementation.newInstance();
+        } catch (InstantiationException e) {
+            throw new SerializationException("Unable to instantiate " + implementation.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new SerializationException("Unable to instantiate " + implementation.getName(), e);
+        }
+    }
+
+
+    /**
+     * Writes and reads values of a specific type, taking the declared type of the value into account. Adapters that
+     * represent values as a JSON object write and read the members of that object, allowing type information to be
+     * added to the same object.
+     */
+    private abstract static class ValueAdapter {
+
+        abstract void write(JsonWriter out, Object value, Type declaredType) throws IOException;
+
+        abstract Object read(JsonReader in, Class<?> type, Type declaredType) throws IOException;
+
+        boolean writesMembers(Type declaredType) {
+            return false;
+        }
+
+        void writeMembers(JsonWriter out, Object value, Type declaredType) throws IOException {
+            throw new UnsupportedOperationException("This adapter does not write values as JSON objects");
+        }
+
+        /**
+         * Reads the members of a JSON object, of which the name of the first member (if any) has already been read.
+         */
+        Object readMembers(JsonReader in, String firstName, Class<?> type, Type declaredType) throws IOException {
+            throw new UnsupportedOperationException("This adapter does not read values from JSON objects");
+        }
+    }
+
+    /**
+     * Adapter for values that are represented as a JSON object.
+     */
+    private abstract static class MembersAdapter extends ValueAdapter {
+
+        @Override
+        void write(JsonWriter out, Object value, Type declaredType) throws IOException {
+            out.beginObject();
+            writeMembers(out, value, declaredType);
+            out.endObject();
+        }
+
+        @Override
+        Object read(JsonReader in, Class<?> type, Type declaredType) throws IOException {
+            in.beginObject();
+            Object value = readMembers(in, nextName(in), type, declaredType);
+            in.endObject();
+            return value;
+        }
+
+        @Override
+        boolean writesMembers(Type declaredType) {
+            return true;
+        }
+
+        @Override
+        abstract void writeMembers(JsonWriter out, Object value, Type declaredType) throws IOException;
+
+        @Override
+        abstract Object readMembers(JsonReader in, String firstName, Class<?> type, Type declaredType)
+                throws IOException;
+    }
+
+    /**
+     * Adapter for values that are represented as a single JSON value, which delegates to a Gson TypeAdapter.
+     */
+    private static class SingleValueAdapter extends ValueAdapter {
+
+        private final TypeAdapter<Object> delegate;
+
+        @SuppressWarnings({"unchecked"})
+        private SingleValueAdapter(TypeAdapter<?> delegate) {
+            this.delegate = (TypeAdapter<Object>) delegate;
+        }
+
+        @Override
+        void write(JsonWriter out, Object value, Type declaredType) throws IOException {
+            delegate.write(out, value);
+        }
+
+        @Override
+        Object read(JsonReader in, Class<?> type, Type declaredType) throws IOException {
+            return delegate.read(in);
+        }
+    }
+
+    /**
+     * Writes floating point numbers that JSON cannot represent, as well as big numbers, as strings.
+     */
+    private static class NumberAdapter extends TypeAdapter<Number> {
+
+        private final Class<? extends Number> type;
+
+        private NumberAdapter(Class<? extends Number> type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(JsonWriter out, Number value) throws IOException {
+            if ((value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite()))
+                    || (value instanceof Float && (((Float) value).isNaN() || ((Float) value).isInfinite()))
+                    || value instanceof BigInteger || value instanceof BigDecimal) {
+                out.value(value.toString());
+            } else {
+                out.value(value);
+            }
+        }
+
+        @Override
+        public Number read(JsonReader in) throws IOException {
+            String literal = in.nextString();
+            try {
+                if (type == Double.class) {
+                    return Double.valueOf(literal);
+                } else if (type == Float.class) {
+                    return Float.valueOf(literal);
+                } else if (type == BigInteger.class) {
+                    return new BigInteger(literal);
+                }
+                return new BigDecimal(literal);
+            } catch (NumberFormatException e) {
+                throw new SerializationException(String.format("Unable to read [%s] as a %s", literal,
+                                                               type.getSimpleName()), e);
+            }
+        }
+    }
+
+    private static class ByteArrayAdapter extends TypeAdapter<byte[]> {
+
+        @Override
+        public void write(JsonWriter out, byte[] value) throws IOException {
+            out.value(DatatypeConverter.printBase64Binary(value));
+        }
+
+        @Override
+        public byte[] read(JsonReader in) throws IOException {
+            return DatatypeConverter.parseBase64Binary(in.nextString());
+        }
+    }
+
+    private static class DateTimeAdapter extends TypeAdapter<DateTime> {
+
+        private static final DateTimeFormatter PRINTER = ISODateTimeFormat.dateTime();
+        private static final DateTimeFormatter PARSER = ISODateTimeFormat.dateTimeParser().withOffsetParsed();
+
+        @Override
+        public void write(JsonWriter out, DateTime value) throws IOException {
+            out.value(PRINTER.print(value));
+        }
+
+        @Override
+        public DateTime read(JsonReader in) throws IOException {
+            return PARSER.parseDateTime(in.nextString());
+        }
+    }
+
+    private static class DateAdapter extends TypeAdapter<Date> {
+
+        @Override
+        public void write(JsonWriter out, Date value) throws IOException {
+            out.value(value.getTime());
+        }
+
+        @Override
+        public Date read(JsonReader in) throws IOException {
+            return new Date(in.nextLong());
+        }
+    }
+
+    /**
+     * Creates the adapters for aggregate identifiers, which use the String constructor of the identifier type, if it
+     * has one.
+     */
+    private static class AggregateIdentifierAdapterFactory implements TypeAdapterFactory {
+
+        @SuppressWarnings({"unchecked"})
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            Class<? super T> rawType = type.getRawType();
+            if (!AggregateIdentifier.class.isAssignableFrom(rawType)) {
+                return null;
+            }
+            Constructor<?> constructor;
+            try {
+                constructor = rawType.getConstructor(String.class);
+            } catch (NoSuchMethodException e) {
+                constructor = null;
+            }
+            return (TypeAdapter<T>) new AggregateIdentifierAdapter(constructor);
+        }
+    }
+
+    private static class AggregateIdentifierAdapter extends TypeAdapter<AggregateIdentifier> {
+
+        private final Constructor<?> constructor;
+
+        private AggregateIdentifierAdapter(Constructor<?> constructor) {
+            this.constructor = constructor;
+        }
+
+        @Override
+        public void write(JsonWriter out, AggregateIdentifier value) throws IOException {
+            out.value(value.asString());
+        }
+
+        @Override
+        public AggregateIdentifier read(JsonReader in) throws IOException {
+            String identifier = in.nextString();
+            if (constructor == null) {
+                return new StringAggregateIdentifier(identifier);
+            }
+            try {
+                return (AggregateIdentifier) constructor.newInstance(identifier);
+            } catch (InvocationTargetException e) {
+                return new StringAggregateIdentifier(identifier);
+            } catch (InstantiationException e) {
+                return new StringAggregateIdentifier(identifier);
+            } catch (IllegalAccessException e) {
+                return new StringAggregateIdentifier(identifier);
+            }
+        }
+    }
+
+    private class MetaDataAdapter extends MembersAdapter {
+
+        private static final String IDENTIFIER_KEY = "_identifier";
+        private static final String TIMESTAMP_KEY = "_timestamp";
+
+        @Override
+        void writeMembers(JsonWriter out, Object value, Type declaredType) throws IOException {
+            MutableEventMetaData metaData = (MutableEventMetaData) value;
+            writeName(out, IDENTIFIER_KEY);
+            writeValue(out, metaData.getEventIdentifier(), UUID.class);
+            writeName(out, TIMESTAMP_KEY);
+            writeValue(out, metaData.getTimestamp(), DateTime.class);
+            for (String key : metaData.keySet()) {
+                if (!IDENTIFIER_KEY.equals(key) && !TIMESTAMP_KEY.equals(key)) {
+                    writeName(out, key);
+                    writeValue(out, metaData.get(key), Serializable.class);
+                }
+            }
+        }
+
+        @Override
+        Object readMembers(JsonReader in, String firstName, Class<?> type, Type declaredType) throws IOException {
+            UUID identifier = null;
+            DateTime timestamp = null;
+            Map<String, Serializable> values = new LinkedHashMap<String, Serializable>();
+            for (String key = firstName; key != null; key = nextName(in)) {
+                if (IDENTIFIER_KEY.equals(key)) {
+                    identifier = (UUID) readValue(in, UUID.class);
+                } else if (TIMESTAMP_KEY.equals(key)) {
+                    timestamp = (DateTime) readValue(in, DateTime.class);
+                } else {
+                    values.put(key, (Serializable) readValue(in, Serializable.class));
+                }
+            }
+            MutableEventMetaData metaData = new MutableEventMetaData(timestamp, identifier);
+            for (Map.Entry<String, Serializable> entry : values.entrySet()) {
+                metaData.put(entry.getKey(), entry.getValue());
+            }
+            return metaData;
+        }
+    }
+
+    private class ArrayAdapter extends ValueAdapter {
+
+        @Override
+        void write(JsonWriter out, Object value, Type declaredType) throws IOException {
+            Type componentType = componentType(value.getClass(), declaredType);
+            int length = Array.getLength(value);
+            out.beginArray();
+            for (int t = 0; t < length; t++) {
+                writeValue(out, Array.get(value, t), componentType);
+            }
+            out.endArray();
+        }
+
+        @Override
+        Object read(JsonReader in, Class<?> type, Type declaredType) throws IOException {
+            Type componentType = componentType(type, declaredType);
+            List<Object> elements = new ArrayList<Object>();
+            in.beginArray();
+            while (in.hasNext()) {
+                elements.add(readValue(in, componentType));
+            }
+            in.endArray();
+            Object array = Array.newInstance(type.getComponentType(), elements.size());
+            for (int t = 0; t < elements.size(); t++) {
+                Array.set(array, t, elements.get(t));
+            }
+            return array;
+        }
+
+        private Type componentType(Class<?> arrayType, Type declaredType) {
+            if (declaredType instanceof GenericArrayType && rawType(declaredType) == arrayType) {
+                return ((GenericArrayType) declaredType).getGenericComponentType();
+            }
+            return arrayType.getComponentType();
+        }
+    }
+
+    private class CollectionAdapter extends ValueAdapter {
+
+        @Override
+        void write(JsonWriter out, Object value, Type declaredType) throws IOException {
+            Type elementType = typeArgument(declaredType, Collection.class, 0);
+            out.beginArray();
+            for (Object element : (Collection<?>) value) {
+                writeValue(out, element, elementType);
+            }
+            out.endArray();
+        }
+
+        @SuppressWarnings({"unchecked"})
+        @Override
+        Object read(JsonReader in, Class<?> type, Type declaredType) throws IOException {
+            Type elementType = typeArgument(declaredType, Collection.class, 0);
+            Collection<Object> collection = (Collection<Object>) newInstance(type);
+            in.beginArray();
+            while (in.hasNext()) {
+                collection.add(readValue(in, elementType));
+            }
+            in.endArray();
+            return collection;
+        }
+    }
+
+    /**
+     * Writes maps with String keys as JSON objects, and other maps as an array of key-value pairs.
+     */
+    private class MapAdapter extends MembersAdapter {
+
+        @Override
+        boolean writesMembers(Type declaredType) {
+            return typeArgument(declaredType, Map.class, 0) == String.class;
+        }
+
+        @Override
+        void write(JsonWriter out, Object value, Type declaredType) throws IOException {
+            if (writesMembers(declaredType)) {
+                super.write(out, value, declaredType);
+                return;
+            }
+            Type keyType = typeArgument(declaredType, Map.class, 0);
+            Type valueType = typeArgument(declaredType, Map.class, 1);
+            out.beginArray();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                out.beginArray();
+                writeValue(out, entry.getKey(), keyType);
+                writeValue(out, entry.getValue(), valueType);
+                out.endArray();
+            }
+            out.endArray();
+        }
+
+        @SuppressWarnings({"unchecked"})
+        @Override
+        Object read(JsonReader in, Class<?> type, Type declaredType) throws IOException {
+            if (writesMembers(declaredType)) {
+                return super.read(in, type, declaredType);
+            }
+            Type keyType = typeArgument(declaredType, Map.class, 0);
+            Type valueType = typeArgument(declaredType, Map.class, 1);
+            Map<Object, Object> map = (Map<Object, Object>) newInstance(type);
+            in.beginArray();
+            while (in.hasNext()) {
+                in.beginArray();
+                Object key = readValue(in, keyType);
+                map.put(key, readValue(in, valueType));
+                in.endArray();
+            }
+            in.endArray();
+            return map;
+        }
+
+        @Override
+        void writeMembers(JsonWriter out, Object value, Type declaredType) throws IOException {
+            Type valueType = typeArgument(declaredType, Map.class, 1);
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getKey() == null) {
+                    throw new SerializationException("Unable to serialize a map containing a null key");
+                }
+                writeName(out, (String) entry.getKey());
+                writeValue(out, entry.getValue(), valueType);
+            }
+        }
+
+        @SuppressWarnings({"unchecked"})
+        @Override
+        Object readMembers(JsonReader in, String firstName, Class<?> type, Type declaredType) throws IOException {
+            Type valueType = typeArgument(declaredType, Map.class, 1);
+            Map<Object, Object> map = (Map<Object, Object>) newInstance(type);
+            for (String key = firstName; key != null; key = nextName(in)) {
+                map.put(key, readValue(in, valueType));
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Adapter for values of which the declared type does not tell how to read them, and the JSON does not contain
+     * type information. JSON objects are read as a Map, arrays as a List, numbers as a Long or a Double.
+     */
+    private class UntypedAdapter extends MembersAdapter {
+
+        @Override
+        Object read(JsonReader in, Class<?> type, Type declaredType) throws IOException {
+            switch (in.peek()) {
+                case STRING:
+                    return in.nextString();
+                case BOOLEAN:
+                    return in.nextBoolean();
+                case NUMBER:
+                    String literal = in.nextString();
+                    if (literal.contains(".") || literal.contains("e") || literal.contains("E")) {
+                        return Double.valueOf(literal);
+                    }
+                    return Long.valueOf(literal);
+                case BEGIN_ARRAY:
+                    List<Object> list = new ArrayList<Object>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        list.add(readValue(in, Object.class));
+                    }
+                    in.endArray();
+                    return list;
+                default:
+                    return super.read(in, type, declaredType);
+            }
+        }
+
+        @Override
+        void writeMembers(JsonWriter out, Object value, Type declaredType) throws IOException {
+            // plain Objects don't have any members
+        }
+
+        @Override
+        Object readMembers(JsonReader in, String firstName, Class<?> type, Type declaredType) throws IOException {
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            for (String key = firstName; key != null; key = nextName(in)) {
+                map.put(key, readValue(in, Object.class));
+            }
+            return map;
+        }
+    }
+
+    private class ObjectAdapter extends MembersAdapter {
+
+        private final Class<?> type;
+        private final List<Field> fields = new ArrayList<Field>();
+        private final List<String> fieldNames = new ArrayList<String>();
+        private final Map<String, Field> fieldsByName = new HashMap<String, Field>();
+        private final List<Method> readObjectMethods = new ArrayList<Method>();
+
+        private ObjectAdapter(Class<?> type) {
+            this.type = type;
+            List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+            for (Class<?> current = type; current != null && current != Object.class;
+                 current = current.getSuperclass()) {
+                hierarchy.add(0, current);
+            }
+            for (Class<?> current : hierarchy) {
+                List<Field> declaredFields = new ArrayList<Field>();
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                        field.setAccessible(true);
+                        declaredFields.add(field);
+                    }
+                }
+                Collections.sort(declaredFields, new Comparator<Field>() {
+                    @Override
+                    public int compare(Field field1, Field field2) {
+                        return field1.getName().compareTo(field2.getName());
+                    }
+                });
+                fields.addAll(declaredFields);
+                if (Serializable.class.isAssignableFrom(current)) {
+                    try {
+                        Method readObject = current.getDeclaredMethod("readObject", ObjectInputStream.class);
+                        if (Modifier.isPrivate(readObject.getModifiers())
+                                && !Modifier.isStatic(readObject.getModifiers())) {
+                            readObject.setAccessible(true);
+                            readObjectMethods.add(readObject);
+                        }
+                    } catch (NoSuchMethodException e) {
+                        // this class does not initialize any state when deserialized
+                    }
+                }
+            }
+            // subclass fields keep their plain name, the fields they hide are qualified with their declaring class
+            String[] names = new String[fields.size()];
+            for (int t = fields.size() - 1; t >= 0; t--) {
+                Field field = fields.get(t);
+                names[t] = fieldsByName.containsKey(field.getName())
+                        ? field.getDeclaringClass().getName() + "." + field.getName()
+                        : field.getName();
+                fieldsByName.put(names[t], field);
+            }
+            fieldNames.addAll(Arrays.asList(names));
+        }
+
+        @Override
+        void writeMembers(JsonWriter out, Object value, Type declaredType) throws IOException {
+            try {
+                for (int t = 0; t < fields.size(); t++) {
+                    Field field = fields.get(t);
+                    Object fieldValue = field.get(value);
+                    if (fieldValue != null) {
+                        writeName(out, fieldNames.get(t));
+                        writeValue(out, fieldValue, field.getGenericType());
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new SerializationException("Unable to access a field of " + type.getName(), e);
+            }
+        }
+
+        @Override
+        Object readMembers(JsonReader in, String firstName, Class<?> actualType, Type declaredType)
+                throws IOException {
+            Object instance = reflectionProvider.newInstance(type);
+            try {
+                for (String name = firstName; name != null; name = nextName(in)) {
+                    Field field = fieldsByName.get(name);
+                    if (field == null) {
+                        in.skipValue();
+                    } else {
+                        Object fieldValue = readValue(in, field.getGenericType());
+                        if (fieldValue != null || !field.getType().isPrimitive()) {
+                            field.set(instance, fieldValue);
+                        }
+                    }
+                }
+                for (Method readObject : readObjectMethods) {
+                    readObject.invoke(instance, new FieldsReadObjectInputStream());
+                }
+            } catch (IllegalAccessException e) {
+                throw new SerializationException("Unable to access a field of " + type.getName(), e);
+            } catch (IllegalArgumentException e) {
+                throw new SerializationException("Unable to assign a field of " + type.getName(), e);
+            } catch (InvocationTargetException e) {
+                throw new SerializationException("The readObject method of " + type.getName() + " failed",
+                                                 e.getCause());
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * ObjectInputStream passed to <code>readObject</code> methods of Serializable classes. It does not provide any
+     * data, since all fields have already been set when the method is invoked.
+     */
+    private static final class FieldsReadObjectInputStream extends ObjectInputStream {
+
+        private FieldsReadObjectInputStream() throws IOException {
+            super();
+        }
+
+        @Override
+        public void defaultReadObject() {
+            // all fields have already been read
+        }
+    }
+}
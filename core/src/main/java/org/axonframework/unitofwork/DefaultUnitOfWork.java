@@ -19,6 +19,7 @@ package org.axonframework.unitofwork;
 import org.axonframework.domain.AggregateIdentifier;
 import org.axonframework.domain.AggregateRoot;
 import org.axonframework.domain.Event;
+import org.axonframework.eventhandling.BatchEventBus;
 import org.axonframework.eventhandling.EventBus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -168,7 +169,8 @@ public class DefaultUnitOfWork extends AbstractUnitOfWork {
     }
 
     /**
-     * Publishes all registered events to their respective event bus.
+     * Publishes all registered events to their respective event bus. Consecutive events for the same event bus are
+     * published as a single batch if that event bus is a {@link BatchEventBus}.
      */
     protected void publishEvents() {
         logger.debug("Publishing events to the event bus");
@@ -180,13 +182,28 @@ public class DefaultUnitOfWork extends AbstractUnitOfWork {
         }
         dispatcherStatus = Status.DISPATCHING;
         while (!eventsToPublish.isEmpty()) {
-            EventEntry eventEntry = eventsToPublish.poll();
-            if (logger.isDebugEnabled()) {
-                logger.debug("Publishing event [{}] to event bus [{}]",
-                             eventEntry.event.getClass().getName(),
-                             eventEntry.eventBus.getClass().getName());
+            EventBus eventBus = eventsToPublish.peek().eventBus;
+            List<Event> events = new ArrayList<Event>();
+            while (!eventsToPublish.isEmpty() && eventsToPublish.peek().eventBus == eventBus) {
+                events.add(eventsToPublish.poll().event);
+            }
+            if (events.size() > 1 && eventBus instanceof BatchEventBus) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Publishing batch of {} events to event bus [{}]",
+                                 events.size(),
+                                 eventBus.getClass().getName());
+                }
+                ((BatchEventBus) eventBus).publish(events);
+            } else {
+                for (Event event : events) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Publishing event [{}] to event bus [{}]",
+                                     event.getClass().getName(),
+                                     eventBus.getClass().getName());
+                    }
+                    eventBus.publish(event);
+                }
             }
-            eventEntry.publishEvent();
         }
         logger.debug("All events successfully published.");
         dispatcherStatus = Status.READY;
@@ -253,10 +270,6 @@ public class DefaultUnitOfWork extends AbstractUnitOfWork {
             this.event = event;
             this.eventBus = eventBus;
         }
-
-        public void publishEvent() {
-            eventBus.publish(event);
-        }
     }
 
     private static class AggregateEntry<T extends AggregateRoot> {
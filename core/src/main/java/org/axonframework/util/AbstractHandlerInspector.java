@@ -18,19 +18,36 @@ package org.axonframework.util;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Abstract utility class that inspects handler methods.
+ * <p/>
+ * The result of the inspection of a class is cached and shared between all inspectors of the same class and annotation
+ * type, for as long as the class is loaded. The handler resolved for a parameter type is cached as well, meaning that
+ * the handler methods of a class are only compared once for each type of parameter. Cached results are attached to the
+ * inspected class using a {@link ClassValue}, so the cache does not prevent inspected classes (and their ClassLoader)
+ * from being garbage collected. Looking up the cached results does not require any locks.
  *
  * @author Allard Buijze
  * @since 0.7
  */
 public abstract class AbstractHandlerInspector {
 
+    private static final ClassValue<ConcurrentMap<Class<? extends Annotation>, HandlerCache>> CACHE =
+            new ClassValue<ConcurrentMap<Class<? extends Annotation>, HandlerCache>>() {
+                @Override
+                protected ConcurrentMap<Class<? extends Annotation>, HandlerCache> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<Class<? extends Annotation>, HandlerCache>(2);
+                }
+            };
+
     private final Class<?> targetType;
-    private final List<Handler> handlers = new LinkedList<Handler>();
+    private final HandlerCache handlerCache;
 
     /**
      * Initialize an AbstractHandlerInspector, where the given <code>annotationType</code> is used to annotate the
@@ -42,11 +59,20 @@ public abstract class AbstractHandlerInspector {
      */
     protected AbstractHandlerInspector(Class<?> targetType, Class<? extends Annotation> annotationType) {
         this.targetType = targetType;
-        for (Method method : ReflectionUtils.methodsOf(targetType)) {
-            if (method.isAnnotationPresent(annotationType)) {
-                handlers.add(new Handler(method));
+        this.handlerCache = handlerCacheFor(targetType, annotationType);
+    }
+
+    private static HandlerCache handlerCacheFor(Class<?> targetType, Class<? extends Annotation> annotationType) {
+        ConcurrentMap<Class<? extends Annotation>, HandlerCache> cachesForType = CACHE.get(targetType);
+        HandlerCache handlerCache = cachesForType.get(annotationType);
+        if (handlerCache == null) {
+            HandlerCache newHandlerCache = new HandlerCache(targetType, annotationType);
+            handlerCache = cachesForType.putIfAbsent(annotationType, newHandlerCache);
+            if (handlerCache == null) {
+                handlerCache = newHandlerCache;
             }
         }
+        return handlerCache;
     }
 
     /**
@@ -57,27 +83,7 @@ public abstract class AbstractHandlerInspector {
      * @return the  handler method for the given parameterType
      */
     protected Handler findHandlerMethod(final Class<?> parameterType) {
-        Handler bestHandlerSoFar = null;
-        for (Handler handler : handlers) {
-            Handler foundSoFar = bestHandlerSoFar;
-            Class<?> classUnderInvestigation = handler.getDeclaringClass();
-            boolean bestInClassFound =
-                    foundSoFar != null
-                            && !classUnderInvestigation.equals(foundSoFar.getDeclaringClass())
-                            && classUnderInvestigation.isAssignableFrom(foundSoFar.getDeclaringClass());
-            if (!bestInClassFound && handler.getParameterType().isAssignableFrom(parameterType)) {
-                // method is eligible, but is it the best?
-                if (bestHandlerSoFar == null) {
-                    // if we have none yet, this one is the best
-                    bestHandlerSoFar = handler;
-                } else if (bestHandlerSoFar.getDeclaringClass().equals(handler.getDeclaringClass())
-                        && bestHandlerSoFar.getParameterType().isAssignableFrom(handler.getParameterType())) {
-                    // this one is more specific, so it wins
-                    bestHandlerSoFar = handler;
-                }
-            }
-        }
-        return bestHandlerSoFar;
+        return handlerCache.findHandlerMethod(parameterType);
     }
 
     /**
@@ -88,4 +94,59 @@ public abstract class AbstractHandlerInspector {
     public Class<?> getTargetType() {
         return targetType;
     }
+
+    /**
+     * The handlers found on a single class, and the handler resolved for each type of parameter.
+     */
+    private static final class HandlerCache {
+
+        private final List<Handler> handlers;
+        private final ConcurrentMap<Class<?>, List<Handler>> resolvedHandlers =
+                new ConcurrentHashMap<Class<?>, List<Handler>>();
+
+        private HandlerCache(Class<?> targetType, Class<? extends Annotation> annotationType) {
+            List<Handler> foundHandlers = new ArrayList<Handler>();
+            for (Method method : ReflectionUtils.methodsOf(targetType)) {
+                if (method.isAnnotationPresent(annotationType)) {
+                    foundHandlers.add(new Handler(method));
+                }
+            }
+            this.handlers = foundHandlers;
+        }
+
+        private Handler findHandlerMethod(Class<?> parameterType) {
+            // ConcurrentHashMap does not allow null values, so a missing handler is stored as an empty list
+            List<Handler> resolved = resolvedHandlers.get(parameterType);
+            if (resolved == null) {
+                Handler handler = resolveHandlerMethod(parameterType);
+                resolved = handler == null ? Collections.<Handler>emptyList() : Collections.singletonList(handler);
+                resolvedHandlers.putIfAbsent(parameterType, resolved);
+            }
+            return resolved.isEmpty() ? null : resolved.get(0);
+        }
+
+        private Handler resolveHandlerMethod(Class<?> parameterType) {
+            Handler bestHandlerSoFar = null;
+            for (Handler handler : handlers) {
+                Handler foundSoFar = bestHandlerSoFar;
+                Class<?> classUnderInvestigation = handler.getDeclaringClass();
+                boolean bestInClassFound =
+                        foundSoFar != null
+                                && !classUnderInvestigation.equals(foundSoFar.getDeclaringClass())
+                                && classUnderInvestigation.isAssignableFrom(foundSoFar.getDeclaringClass());
+                if (!bestInClassFound && handler.getParameterType().isAssignableFrom(parameterType)) {
+                    // method is eligible, but is it the best?
+                    if (bestHandlerSoFar == null) {
+                        // if we have none yet, this one is the best
+                        bestHandlerSoFar = handler;
+                    } else if (bestHandlerSoFar.getDeclaringClass().equals(handler.getDeclaringClass())
+                            && bestHandlerSoFar.getParameterType().isAssignableFrom(handler.getParameterType())) {
+                        // this one is more specific, so it wins
+                        bestHandlerSoFar = handler;
+                    }
+                }
+            }
+            return bestHandlerSoFar;
+        }
+    }
 }
@@ -16,13 +16,21 @@
 
 package org.axonframework.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 import static java.security.AccessController.doPrivileged;
 
 /**
  * Represents a method recognized as a handler by the handler inspector (see {@link AbstractHandlerInspector}).
+ * <p/>
+ * Where possible, the handler method is invoked through a {@link MethodHandle} that is created once for each handler,
+ * which avoids the access checks and argument array of a reflective invocation. If no such handle can be created, the
+ * method is invoked using reflection.
  *
  * @author Allard Buijze
  * @since 1.0
@@ -33,6 +41,9 @@ public class Handler {
     private final Class<?> parameterType;
     private final boolean optionalParameter;
     private final Class<?> declaringClass;
+    private final Class<?>[] parameterTypes;
+    private final Class<?>[] argumentTypes;
+    private final MethodHandle methodHandle;
 
     /**
      * Create a handler instance for the given method. A method is regarded a handler method if it has either 1 or 2
@@ -46,6 +57,32 @@ public class Handler {
         this.parameterType = parameterTypes[0];
         this.optionalParameter = parameterTypes.length > 1;
         this.declaringClass = method.getDeclaringClass();
+        this.parameterTypes = parameterTypes;
+        this.argumentTypes = new Class<?>[parameterTypes.length];
+        for (int t = 0; t < parameterTypes.length; t++) {
+            // the handle unboxes primitive arguments, so these are checked against their wrapper types
+            argumentTypes[t] = MethodType.methodType(parameterTypes[t]).wrap().returnType();
+        }
+        this.methodHandle = createMethodHandle(method);
+    }
+
+    /**
+     * Creates a handle for the given <code>method</code> that accepts the target and parameters as Object and returns
+     * an Object. Returns <code>null</code> if no such handle can be created.
+     */
+    private static MethodHandle createMethodHandle(Method method) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        if (!method.isAccessible()) {
+            doPrivileged(new MethodAccessibilityCallback(method));
+        }
+        try {
+            return MethodHandles.lookup().unreflect(method)
+                                .asType(MethodType.genericMethodType(method.getParameterTypes().length + 1));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
     }
 
     /**
@@ -99,6 +136,22 @@ public class Handler {
      */
     public Object invoke(Object target, Object parameter, Object secondHandlerParameter)
             throws IllegalAccessException, InvocationTargetException {
+        if (methodHandle != null) {
+            // arguments are checked up front, so that anything thrown by the handle comes from the handler itself
+            checkTarget(target);
+            checkArgument(0, parameter);
+            if (hasOptionalParameter()) {
+                checkArgument(1, secondHandlerParameter);
+            }
+            try {
+                if (hasOptionalParameter()) {
+                    return (Object) methodHandle.invokeExact(target, parameter, secondHandlerParameter);
+                }
+                return (Object) methodHandle.invokeExact(target, parameter);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
         if (!method.isAccessible()) {
             doPrivileged(new MethodAccessibilityCallback(method));
         }
@@ -111,4 +164,22 @@ public class Handler {
         }
         return retVal;
     }
+
+    private void checkTarget(Object target) {
+        if (target == null) {
+            throw new NullPointerException("The target to invoke the handler on may not be null");
+        }
+        if (!declaringClass.isInstance(target)) {
+            throw new IllegalArgumentException("object is not an instance of declaring class");
+        }
+    }
+
+    private void checkArgument(int index, Object argument) {
+        boolean valid = argument == null
+                ? !parameterTypes[index].isPrimitive()
+                : argumentTypes[index].isInstance(argument);
+        if (!valid) {
+            throw new IllegalArgumentException("argument type mismatch");
+        }
+    }
 }
@@ -98,8 +98,15 @@ public class BinaryEntryInputStream {
             return null;
         }
         byte[] bytesToRead = new byte[numberOfBytes];
-        int bytesRead = in.read(bytesToRead);
-        return bytesRead == bytesToRead.length ? bytesToRead : null;
+        int bytesRead = 0;
+        while (bytesRead < numberOfBytes) {
+            int count = in.read(bytesToRead, bytesRead, numberOfBytes - bytesRead);
+            if (count < 0) {
+                return null;
+            }
+            bytesRead += count;
+        }
+        return bytesToRead;
     }
 
     private int readFistNonWhitespaceCharacter() throws IOException {
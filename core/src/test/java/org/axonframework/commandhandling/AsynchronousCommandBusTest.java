@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import org.axonframework.commandhandling.callbacks.FutureCallback;
+import org.axonframework.eventhandling.SequencingPolicy;
+import org.axonframework.unitofwork.CurrentUnitOfWork;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AsynchronousCommandBusTest {
+
+    private AsynchronousCommandBus testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new AsynchronousCommandBus(4, new SequencingPolicy<Object>() {
+            @Override
+            public Object getSequenceIdentifierFor(Object command) {
+                return command.toString().substring(0, 1);
+            }
+        }, false);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        testSubject.shutdown(1000);
+    }
+
+    @Test
+    public void testDispatchCommand_HandledInWorkerThread() throws Exception {
+        final Thread callingThread = Thread.currentThread();
+        testSubject.subscribe(String.class, new CommandHandler<String>() {
+            @Override
+            public Object handle(String command, UnitOfWork unitOfWork) throws Throwable {
+                assertNotSame(callingThread, Thread.currentThread());
+                assertSame(unitOfWork, CurrentUnitOfWork.get());
+                return command;
+            }
+        });
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        testSubject.dispatch("Say hi!", callback);
+        assertEquals("Say hi!", callback.get(1, TimeUnit.SECONDS));
+        assertFalse(CurrentUnitOfWork.isStarted());
+    }
+
+    @Test
+    public void testDispatchCommand_HandlerThrowsException() throws Exception {
+        testSubject.subscribe(String.class, new CommandHandler<String>() {
+            @Override
+            public Object handle(String command, UnitOfWork unitOfWork) throws Throwable {
+                throw new IllegalArgumentException("Mock");
+            }
+        });
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+        testSubject.dispatch("Say hi!", callback);
+        try {
+            callback.get(1, TimeUnit.SECONDS);
+            fail("Expected exception");
+        } catch (ExecutionException e) {
+            assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+        }
+    }
+
+    @Test(expected = NoHandlerForCommandException.class)
+    public void testDispatchCommand_NoHandlerSubscribed() {
+        testSubject.dispatch("Say hi!");
+    }
+
+    @Test
+    public void testCommandsWithSameSequenceIdentifierHandledInOrderBySameThread() throws Exception {
+        final List<String> handled = new CopyOnWriteArrayList<String>();
+        final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+        final CountDownLatch latch = new CountDownLatch(100);
+        testSubject.subscribe(String.class, new CommandHandler<String>() {
+            @Override
+            public Object handle(String command, UnitOfWork unitOfWork) throws Throwable {
+                if (command.startsWith("a")) {
+                    handled.add(command);
+                    threads.add(Thread.currentThread());
+                }
+                latch.countDown();
+                return null;
+            }
+        });
+        for (int t = 0; t < 50; t++) {
+            testSubject.dispatch("a" + t);
+            testSubject.dispatch("b" + t);
+        }
+        assertTrue("Commands were not handled in time", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(50, handled.size());
+        for (int t = 0; t < 50; t++) {
+            assertEquals("a" + t, handled.get(t));
+            assertSame(threads.get(0), threads.get(t));
+        }
+    }
+
+    @Test
+    public void testDispatchBatch_CommandsHandledByTheirOwnWorker() throws Exception {
+        final Thread callingThread = Thread.currentThread();
+        final ConcurrentMap<String, Thread> threadsPerSequence = new ConcurrentHashMap<String, Thread>();
+        final List<String> handled = new CopyOnWriteArrayList<String>();
+        testSubject.subscribe(String.class, new CommandHandler<String>() {
+            @Override
+            public Object handle(String command, UnitOfWork unitOfWork) throws Throwable {
+                assertNotSame(callingThread, Thread.currentThread());
+                Thread previous = threadsPerSequence.putIfAbsent(command.substring(0, 1), Thread.currentThread());
+                assertTrue(previous == null || previous == Thread.currentThread());
+                handled.add(command);
+                return command;
+            }
+        });
+        final CountDownLatch latch = new CountDownLatch(100);
+        final List<Object> results = new CopyOnWriteArrayList<Object>();
+        List<String> commands = new ArrayList<String>();
+        for (int t = 0; t < 50; t++) {
+            commands.add("a" + t);
+            commands.add("b" + t);
+        }
+        testSubject.dispatchBatch(commands, new CommandCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                results.add(result);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                latch.countDown();
+            }
+        });
+        assertTrue("Commands were not handled in time", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(100, results.size());
+        List<String> handledForA = new ArrayList<String>();
+        for (String command : handled) {
+            if (command.startsWith("a")) {
+                handledForA.add(command);
+            }
+        }
+        for (int t = 0; t < 50; t++) {
+            assertEquals("a" + t, handledForA.get(t));
+        }
+    }
+}
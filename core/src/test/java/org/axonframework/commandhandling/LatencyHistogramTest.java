@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class LatencyHistogramTest {
+
+    private LatencyHistogram testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new LatencyHistogram();
+    }
+
+    @Test
+    public void testEmptyHistogramReportsZero() {
+        assertEquals(0, testSubject.getCount());
+        assertEquals(0, testSubject.getPercentile(0.5));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        for (int t = 0; t < 8; t++) {
+            testSubject.record(t);
+        }
+        assertEquals(8, testSubject.getCount());
+        assertEquals(3, testSubject.getPercentile(0.5));
+        assertEquals(7, testSubject.getPercentile(1));
+    }
+
+    @Test
+    public void testPercentilesWithinPrecision() {
+        for (int t = 1; t <= 100000; t++) {
+            testSubject.record(t * 1000L);
+        }
+        assertWithinPrecision(50000000L, testSubject.getPercentile(0.5));
+        assertWithinPrecision(99000000L, testSubject.getPercentile(0.99));
+        assertWithinPrecision(99900000L, testSubject.getPercentile(0.999));
+    }
+
+    @Test
+    public void testExtremeValuesAreRecorded() {
+        testSubject.record(-1);
+        testSubject.record(Long.MAX_VALUE);
+        assertEquals(2, testSubject.getCount());
+        assertEquals(0, testSubject.getPercentile(0.5));
+        assertTrue(testSubject.getPercentile(1) >= (1L << 40));
+    }
+
+    @Test
+    public void testReset() {
+        testSubject.record(100);
+        testSubject.reset();
+        assertEquals(0, testSubject.getCount());
+    }
+
+    private void assertWithinPrecision(long expected, long actual) {
+        assertTrue("Expected " + actual + " to be close to " + expected,
+                   actual >= expected && actual <= expected * 1.125);
+    }
+}
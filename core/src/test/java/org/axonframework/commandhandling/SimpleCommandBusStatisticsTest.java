@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import org.junit.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class SimpleCommandBusStatisticsTest {
+
+    private SimpleCommandBusStatistics testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new SimpleCommandBusStatistics();
+    }
+
+    @Test
+    public void testStatisticsRecordedPerCommandType() {
+        testSubject.recordHandledCommand(String.class, TimeUnit.MILLISECONDS.toNanos(3),
+                                         TimeUnit.MILLISECONDS.toNanos(2), TimeUnit.MILLISECONDS.toNanos(1));
+        testSubject.recordFailedCommand(String.class);
+        testSubject.recordHandledCommand(Long.class, 1000, 1000, 1000);
+
+        List<CommandTypeStatistics> statistics = testSubject.getCommandTypeStatistics();
+        assertEquals(2, statistics.size());
+        CommandTypeStatistics stringStatistics = statistics.get(0).getCommandType().equals("String")
+                ? statistics.get(0) : statistics.get(1);
+        assertEquals(1, stringStatistics.getHandledCount());
+        assertEquals(1, stringStatistics.getFailureCount());
+        assertEquals(3, stringStatistics.getDispatchLatencyPercentiles().length);
+        assertTrue(stringStatistics.getDispatchLatencyPercentiles()[0] >= 3000);
+        assertTrue(stringStatistics.getHandlerTimePercentiles()[1] >= 2000);
+        assertTrue(stringStatistics.getCommitTimePercentiles()[2] >= 1000);
+
+        testSubject.resetCommandTypeStatistics();
+        assertTrue(testSubject.getCommandTypeStatistics().isEmpty());
+    }
+
+    @Test
+    public void testRolledBackBatchesCountedSeparately() {
+        testSubject.recordRolledBackBatch();
+        testSubject.recordRolledBackBatch();
+
+        assertEquals(2, testSubject.getRolledBackBatchCount());
+        assertTrue(testSubject.getCommandTypeStatistics().isEmpty());
+
+        testSubject.resetCommandTypeStatistics();
+        assertEquals(0, testSubject.getRolledBackBatchCount());
+    }
+
+    @Test
+    public void testStatisticsExposedThroughJmx() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.axonframework.test:type=SimpleCommandBusStatisticsTest");
+        mBeanServer.registerMBean(testSubject, name);
+        try {
+            testSubject.recordHandledCommand(String.class, 1000, 1000, 1000);
+            CompositeData[] data = (CompositeData[]) mBeanServer.getAttribute(name, "CommandTypeStatistics");
+            assertEquals(1, data.length);
+            assertEquals("String", data[0].get("commandType"));
+            assertEquals(1L, data[0].get("handledCount"));
+        } finally {
+            mBeanServer.unregisterMBean(name);
+        }
+    }
+}
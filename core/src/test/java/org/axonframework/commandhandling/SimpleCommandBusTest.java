@@ -16,17 +16,24 @@
 
 package org.axonframework.commandhandling;
 
+import org.axonframework.commandhandling.callbacks.NoOpCallback;
 import org.axonframework.unitofwork.CurrentUnitOfWork;
 import org.axonframework.unitofwork.DefaultUnitOfWorkFactory;
 import org.axonframework.unitofwork.UnitOfWork;
 import org.axonframework.unitofwork.UnitOfWorkFactory;
+import org.axonframework.unitofwork.UnitOfWorkListenerAdapter;
 import org.junit.*;
 import org.mockito.*;
 import org.mockito.invocation.*;
 import org.mockito.stubbing.*;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -280,6 +287,126 @@ public class SimpleCommandBusTest {
 
     }
 
+    @Test
+    public void testDispatchBatch_AllCommandsHandledInSingleUnitOfWork() {
+        UnitOfWorkFactory spyUnitOfWorkFactory = spy(new DefaultUnitOfWorkFactory());
+        testSubject.setUnitOfWorkFactory(spyUnitOfWorkFactory);
+        final Set<UnitOfWork> unitsOfWork = new HashSet<UnitOfWork>();
+        testSubject.subscribe(String.class, new CommandHandler<String>() {
+            @Override
+            public Object handle(String command, UnitOfWork unitOfWork) throws Throwable {
+                unitsOfWork.add(unitOfWork);
+                return command;
+            }
+        });
+        final List<Object> results = new ArrayList<Object>();
+        testSubject.dispatchBatch(Arrays.asList("1", "2", "3"), new CommandCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                results.add(result);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                fail("Did not expect exception");
+            }
+        });
+        assertEquals(Arrays.<Object>asList("1", "2", "3"), results);
+        assertEquals(1, unitsOfWork.size());
+        verify(spyUnitOfWorkFactory, times(1)).createUnitOfWork();
+        assertFalse(CurrentUnitOfWork.isStarted());
+    }
+
+    @Test
+    public void testDispatchBatch_BatchesLimitedToMaxBatchSize() {
+        UnitOfWorkFactory spyUnitOfWorkFactory = spy(new DefaultUnitOfWorkFactory());
+        testSubject.setUnitOfWorkFactory(spyUnitOfWorkFactory);
+        testSubject.setMaxBatchSize(2);
+        testSubject.subscribe(String.class, new MyStringCommandHandler());
+        CommandCallback<Object> callback = mock(CommandCallback.class);
+        testSubject.dispatchBatch(Arrays.asList("1", "2", "3", "4", "5"), callback);
+        verify(spyUnitOfWorkFactory, times(3)).createUnitOfWork();
+        verify(callback, times(5)).onSuccess(any());
+        verify(callback, never()).onFailure(isA(Throwable.class));
+    }
+
+    @Test
+    public void testDispatchBatch_FailingBatchIsSplitUntilFailingCommandIsIsolated() {
+        final List<String> committed = new ArrayList<String>();
+        testSubject.subscribe(String.class, new CommandHandler<String>() {
+            @Override
+            public Object handle(final String command, UnitOfWork unitOfWork) throws Throwable {
+                if ("3".equals(command)) {
+                    throw new RuntimeException("Mock");
+                }
+                unitOfWork.registerListener(new UnitOfWorkListenerAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        committed.add(command);
+                    }
+                });
+                return command;
+            }
+        });
+        final List<Object> results = new ArrayList<Object>();
+        testSubject.dispatchBatch(Arrays.asList("1", "2", "3", "4"), new CommandCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                results.add(result);
+            }
+
+            @Override
+            public void onFailure(Throwable cause) {
+                assertEquals("Mock", cause.getMessage());
+                results.add(cause);
+            }
+        });
+        assertEquals(4, results.size());
+        assertEquals("1", results.get(0));
+        assertEquals("2", results.get(1));
+        assertTrue(results.get(2) instanceof RuntimeException);
+        assertEquals("4", results.get(3));
+        assertEquals(new HashSet<String>(Arrays.asList("1", "2", "4")), new HashSet<String>(committed));
+        assertFalse(CurrentUnitOfWork.isStarted());
+    }
+
+    @Test
+    public void testDispatchBatch_OnlyIsolatedCommandCountedAsFailed() throws Exception {
+        testSubject.subscribe(String.class, new CommandHandler<String>() {
+            @Override
+            public Object handle(String command, UnitOfWork unitOfWork) throws Throwable {
+                if ("3".equals(command)) {
+                    throw new RuntimeException("Mock");
+                }
+                return command;
+            }
+        });
+        testSubject.dispatchBatch(Arrays.asList("1", "2", "3", "4"), NoOpCallback.INSTANCE);
+
+        Field statisticsField = testSubject.getClass().getDeclaredField("statistics");
+        statisticsField.setAccessible(true);
+        SimpleCommandBusStatistics statistics = (SimpleCommandBusStatistics) statisticsField.get(testSubject);
+        List<CommandTypeStatistics> commandTypeStatistics = statistics.getCommandTypeStatistics();
+        assertEquals(1, commandTypeStatistics.size());
+        assertEquals(3, commandTypeStatistics.get(0).getHandledCount());
+        assertEquals(1, commandTypeStatistics.get(0).getFailureCount());
+        // the batch of 4 and the batch containing "3" and "4" are rolled back
+        assertEquals(2, statistics.getRolledBackBatchCount());
+    }
+
+    @Test
+    public void testDispatchBatch_NoHandlerForOneOfTheCommands() {
+        CommandHandler<String> commandHandler = spy(new MyStringCommandHandler());
+        testSubject.subscribe(String.class, commandHandler);
+        try {
+            testSubject.dispatchBatch(Arrays.asList("1", 2L), NoOpCallback.INSTANCE);
+            fail("Expected exception");
+        } catch (NoHandlerForCommandException e) {
+            // expected
+        }
+        verifyZeroInteractions(commandHandler);
+    }
+
     private static class MyStringCommandHandler implements CommandHandler<String> {
 
         @Override
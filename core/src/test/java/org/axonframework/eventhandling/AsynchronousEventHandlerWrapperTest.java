@@ -25,11 +25,15 @@ import org.junit.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -58,6 +62,16 @@ public class AsynchronousEventHandlerWrapperTest {
 
     @Test
     public void testEventsAreExecutedInOrder() throws InterruptedException {
+        assertEventsAreExecutedInOrder();
+    }
+
+    @Test
+    public void testEventsAreExecutedInOrder_Striped() throws InterruptedException {
+        testSubject.setStripeCount(4);
+        assertEventsAreExecutedInOrder();
+    }
+
+    private void assertEventsAreExecutedInOrder() throws InterruptedException {
         AggregateIdentifier[] groupIds = new AggregateIdentifier[100];
         CountDownLatch start = new CountDownLatch(1);
         CountDownLatch finish = new CountDownLatch(groupIds.length);
@@ -85,6 +99,91 @@ public class AsynchronousEventHandlerWrapperTest {
         }
     }
 
+    @Test
+    public void testTasksRejectedWhenMaxPendingTasksReached() throws InterruptedException {
+        BlockingEventListener listener = new BlockingEventListener();
+        ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        AsynchronousEventHandlerWrapper wrapper = new AsynchronousEventHandlerWrapper(listener, new SequentialPolicy(),
+                                                                                      singleThreadExecutor);
+        wrapper.setMaxPendingTasks(2);
+        wrapper.setOverflowStrategy(OverflowStrategy.REJECT);
+        List<Event> events = publishWhileListenerBlocked(wrapper, listener, 5);
+        singleThreadExecutor.shutdown();
+        assertTrue(singleThreadExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(2, wrapper.getRejectedTaskCount());
+        assertEquals(new ArrayList<Event>(events.subList(0, 3)), new ArrayList<Event>(((StubEventListener) listener).events));
+    }
+
+    @Test
+    public void testTasksSpilledToDiskWhenMaxPendingTasksPerSequenceReached() throws InterruptedException {
+        BlockingEventListener listener = new BlockingEventListener();
+        ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        AsynchronousEventHandlerWrapper wrapper = new AsynchronousEventHandlerWrapper(listener, new SequentialPolicy(),
+                                                                                      singleThreadExecutor);
+        wrapper.setMaxPendingTasksPerSequence(2);
+        wrapper.setOverflowStrategy(OverflowStrategy.SPILL_TO_DISK);
+        List<Event> events = publishWhileListenerBlocked(wrapper, listener, 5);
+        // spilled tasks are moved back into memory by a separate task, which needs the executor to be running
+        waitForEvents(listener, events.size());
+        singleThreadExecutor.shutdown();
+        assertTrue(singleThreadExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(0, wrapper.getRejectedTaskCount());
+        assertEquals(0, wrapper.getSpilledTaskCount());
+        assertEquals(events, new ArrayList<Event>(((StubEventListener) listener).events));
+    }
+
+    @Test
+    public void testBatchListenerReceivesEventsOfTransactionAtOnce() {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final List<List<Event>> batches = new ArrayList<List<Event>>();
+        AsynchronousEventHandlerWrapper wrapper = new AsynchronousEventHandlerWrapper(new BatchEventListener() {
+            @Override
+            public void handleBatch(List<Event> events) {
+                batches.add(new ArrayList<Event>(events));
+            }
+
+            @Override
+            public void handle(Event event) {
+                fail("Expected events to be handled as a batch");
+            }
+        }, new SequentialPolicy(), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        AggregateIdentifier aggregateIdentifier = new UUIDAggregateIdentifier();
+        for (int t = 0; t < 10; t++) {
+            wrapper.handle(new StubDomainEvent(aggregateIdentifier, t));
+        }
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+
+        assertEquals(1, batches.size());
+        assertEquals(10, batches.get(0).size());
+        assertEquals(9L, (long) ((DomainEvent) batches.get(0).get(9)).getSequenceNumber());
+    }
+
+    private List<Event> publishWhileListenerBlocked(AsynchronousEventHandlerWrapper wrapper,
+                                                    BlockingEventListener listener, int eventCount)
+            throws InterruptedException {
+        List<Event> events = new ArrayList<Event>();
+        AggregateIdentifier aggregateIdentifier = new UUIDAggregateIdentifier();
+        for (int t = 0; t < eventCount; t++) {
+            events.add(new StubDomainEvent(aggregateIdentifier, t));
+        }
+        wrapper.handle(events.get(0));
+        assertTrue("Listener did not start handling", listener.handling.await(5, TimeUnit.SECONDS));
+        for (Event event : events.subList(1, eventCount)) {
+            wrapper.handle(event);
+        }
+        listener.proceed.countDown();
+        return events;
+    }
+
     private AggregateIdentifier startEventDispatcher(final CountDownLatch waitToStart, final CountDownLatch waitToEnd,
                                                      int eventCount) {
         AggregateIdentifier id = new UUIDAggregateIdentifier();
@@ -111,6 +210,13 @@ public class AsynchronousEventHandlerWrapperTest {
         return id;
     }
 
+    private void waitForEvents(StubEventListener listener, int eventCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (listener.events.size() < eventCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
     private static class StubEventListener implements EventListener {
 
         private final BlockingQueue<Event> events = new ArrayBlockingQueue<Event>(10000);
@@ -120,4 +226,21 @@ public class AsynchronousEventHandlerWrapperTest {
             events.add(event);
         }
     }
+
+    private static class BlockingEventListener extends StubEventListener {
+
+        private final CountDownLatch handling = new CountDownLatch(1);
+        private final CountDownLatch proceed = new CountDownLatch(1);
+
+        @Override
+        public void handle(Event event) {
+            handling.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.handle(event);
+        }
+    }
 }
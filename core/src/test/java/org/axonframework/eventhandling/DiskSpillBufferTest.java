@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class DiskSpillBufferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DiskSpillBuffer<Serializable> testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new DiskSpillBuffer<Serializable>(folder.getRoot());
+    }
+
+    @After
+    public void tearDown() {
+        testSubject.close();
+    }
+
+    @Test
+    public void testFileIsCompactedWhileBufferIsNeverEmpty() {
+        byte[] payload = new byte[1024];
+        int next = 0;
+        for (int t = 0; t < 10; t++) {
+            testSubject.add(new Entry(t, payload));
+        }
+        for (int t = 10; t < 5000; t++) {
+            testSubject.add(new Entry(t, payload));
+            assertEquals(next++, ((Entry) testSubject.peek()).number);
+            testSubject.remove();
+        }
+
+        assertEquals(10, testSubject.size());
+        assertTrue("Expected the buffer file to be compacted",
+                   bufferFile().length() < 3 * DiskSpillBuffer.COMPACTION_THRESHOLD);
+        while (!testSubject.isEmpty()) {
+            assertEquals(next++, ((Entry) testSubject.peek()).number);
+            testSubject.remove();
+        }
+        assertEquals(0, bufferFile().length());
+    }
+
+    @Test
+    public void testUnreadableEntryIsDiscarded() {
+        testSubject.add("first");
+        testSubject.add(new Unreadable());
+        testSubject.add("third");
+
+        assertEquals("first", testSubject.peek());
+        testSubject.remove();
+        assertEquals("third", testSubject.peek());
+        assertEquals(1, testSubject.size());
+        assertEquals(1, testSubject.clearDiscardedCount());
+        assertEquals(0, testSubject.clearDiscardedCount());
+    }
+
+    @Test
+    public void testCloseDeletesFile() {
+        testSubject.add("first");
+        File file = bufferFile();
+
+        testSubject.close();
+
+        assertFalse(file.exists());
+        assertTrue(testSubject.isEmpty());
+    }
+
+    private File bufferFile() {
+        File[] files = folder.getRoot().listFiles();
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    private static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 4371634227165447152L;
+        private final int number;
+        private final byte[] payload;
+
+        private Entry(int number, byte[] payload) {
+            this.number = number;
+            this.payload = payload;
+        }
+    }
+
+    private static class Unreadable implements Serializable {
+
+        private static final long serialVersionUID = -5462512337520926418L;
+
+        private void readObject(ObjectInputStream in) throws IOException {
+            throw new InvalidObjectException("Mock");
+        }
+    }
+}
@@ -16,9 +16,16 @@
 
 package org.axonframework.eventhandling;
 
+import org.axonframework.domain.Event;
+import org.axonframework.domain.StubAggregateDeletedEvent;
 import org.axonframework.domain.StubDomainEvent;
 import org.junit.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.*;
 
@@ -29,7 +36,7 @@ public class SimpleEventBusTest {
 
     private EventListener listener1;
     private EventListener listener2;
-    private EventBus testSubject;
+    private SimpleEventBus testSubject;
     private EventListener listener3;
 
     @Before
@@ -37,7 +44,7 @@ public class SimpleEventBusTest {
         listener1 = mock(EventListener.class);
         listener2 = mock(EventListener.class);
         listener3 = mock(EventListener.class);
-        testSubject = new SimpleEventBus();
+        testSubject = new SimpleEventBus(false);
     }
 
     @Test
@@ -62,4 +69,69 @@ public class SimpleEventBusTest {
         verify(listener2, times(2)).handle(isA(StubDomainEvent.class));
         verify(listener3, times(2)).handle(isA(StubDomainEvent.class));
     }
+
+    @Test
+    public void testEventIsOnlyDispatchedToSelectiveListenersThatCanHandleIt() {
+        SelectiveEventListener selectiveListener = mock(SelectiveEventListener.class);
+        when(selectiveListener.canHandle(StubDomainEvent.class)).thenReturn(true);
+        testSubject.subscribe(listener1);
+        testSubject.subscribe(selectiveListener);
+
+        testSubject.publish(new StubDomainEvent());
+        testSubject.publish(new StubAggregateDeletedEvent());
+        testSubject.publish(new StubAggregateDeletedEvent());
+
+        verify(listener1, times(3)).handle(isA(Event.class));
+        verify(selectiveListener).handle(isA(StubDomainEvent.class));
+        verify(selectiveListener, never()).handle(isA(StubAggregateDeletedEvent.class));
+        // the outcome is cached per type of event
+        verify(selectiveListener, times(1)).canHandle(StubAggregateDeletedEvent.class);
+
+        testSubject.subscribe(listener2);
+        testSubject.publish(new StubAggregateDeletedEvent());
+        verify(listener2).handle(isA(StubAggregateDeletedEvent.class));
+    }
+
+    @Test
+    public void testPublishBatch_BatchListenersReceiveAllEventsAtOnce() {
+        BatchEventListener batchListener = mock(BatchEventListener.class);
+        testSubject.subscribe(listener1);
+        testSubject.subscribe(batchListener);
+
+        List<Event> events = Arrays.<Event>asList(new StubDomainEvent(), new StubDomainEvent());
+        testSubject.publish(events);
+
+        verify(listener1, times(2)).handle(isA(StubDomainEvent.class));
+        verify(batchListener).handleBatch(events);
+        verify(batchListener, never()).handle(isA(Event.class));
+    }
+
+    @Test
+    public void testPublishBatch_EventsDispatchedToAllListenersBeforeNextEvent() {
+        final List<String> invocations = new ArrayList<String>();
+        testSubject.subscribe(new RecordingEventListener("listener1", invocations));
+        testSubject.subscribe(new RecordingEventListener("listener2", invocations));
+
+        testSubject.publish(Arrays.<Event>asList(new StubDomainEvent(), new StubAggregateDeletedEvent()));
+
+        assertEquals(Arrays.asList("listener1:StubDomainEvent", "listener2:StubDomainEvent",
+                                   "listener1:StubAggregateDeletedEvent", "listener2:StubAggregateDeletedEvent"),
+                     invocations);
+    }
+
+    private static class RecordingEventListener implements EventListener {
+
+        private final String name;
+        private final List<String> invocations;
+
+        private RecordingEventListener(String name, List<String> invocations) {
+            this.name = name;
+            this.invocations = invocations;
+        }
+
+        @Override
+        public void handle(Event event) {
+            invocations.add(name + ":" + event.getClass().getSimpleName());
+        }
+    }
 }
@@ -87,6 +87,20 @@ public class AnnotationEventHandlerInvokerTest {
         assertEquals(0, handler.invocationCount2);
     }
 
+    @Test
+    public void testInvokeEventHandler_InvokersForSameTypeInvokeTheirOwnTarget() {
+        FirstSubclass handler1 = new FirstSubclass();
+        FirstSubclass handler2 = new FirstSubclass();
+        new AnnotationEventHandlerInvoker(handler1).invokeEventHandlerMethod(new StubEventTwo());
+        new AnnotationEventHandlerInvoker(handler2).invokeEventHandlerMethod(new StubEventTwo());
+        new AnnotationEventHandlerInvoker(handler2).invokeEventHandlerMethod(new StubEventOne());
+
+        assertEquals(1, handler1.invocationCount2);
+        assertEquals(0, handler1.invocationCount1);
+        assertEquals(1, handler2.invocationCount2);
+        assertEquals(1, handler2.invocationCount1);
+    }
+
     /*
     Test scenario:
     within a single class, the most specific handler is chosen, even if an exact handler isn't found.
@@ -17,12 +17,22 @@
 package org.axonframework.eventhandling.annotation;
 
 import org.axonframework.domain.Event;
+import org.axonframework.domain.StubAggregateDeletedEvent;
 import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.eventhandling.BatchEventListener;
+import org.axonframework.eventhandling.EventListener;
+import org.axonframework.eventhandling.OverflowStrategy;
 import org.axonframework.eventhandling.SequencingPolicy;
+import org.axonframework.eventhandling.SimpleEventBus;
 import org.axonframework.eventhandling.TransactionStatus;
 import org.axonframework.util.DirectExecutor;
 import org.junit.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -46,6 +56,17 @@ public class AnnotationEventListenerAdapterTest {
         verify(handler).handleEvent(event);
     }
 
+    @Test
+    public void testCanHandle() {
+        AnnotationEventListenerAdapter adapter = new AnnotationEventListenerAdapter(new DomainEventHandler(), null);
+        assertTrue(adapter.canHandle(StubDomainEvent.class));
+        assertFalse(adapter.canHandle(StubAggregateDeletedEvent.class));
+
+        AnnotationEventListenerAdapter genericAdapter = new AnnotationEventListenerAdapter(new AnnotatedEventHandler(),
+                                                                                           null);
+        assertTrue(genericAdapter.canHandle(StubAggregateDeletedEvent.class));
+    }
+
     @Test
     public void testAdaptAsyncEventHandler_NoExecutor() {
         AsyncAnnotatedEventHandler handler = mock(AsyncAnnotatedEventHandler.class);
@@ -77,6 +98,37 @@ public class AnnotationEventListenerAdapterTest {
         verify(handler).afterTransaction(transactionStatus);
     }
 
+    @Test
+    public void testCreateAdapter_BatchListenerOnlyForBatchOrAsynchronousBeans() {
+        assertFalse(AnnotationEventListenerAdapter.createAdapter(new AnnotatedEventHandler(), null, null)
+                            instanceof BatchEventListener);
+        assertTrue(AnnotationEventListenerAdapter.createAdapter(new BatchAnnotatedEventHandler(), null, null)
+                           instanceof BatchEventListener);
+        assertTrue(AnnotationEventListenerAdapter.createAdapter(new AsyncAnnotatedEventHandler(),
+                                                                DirectExecutor.INSTANCE,
+                                                                null) instanceof BatchEventListener);
+    }
+
+    @Test
+    public void testPublishBatch_AnnotatedListenerReceivesEventsInTurnWithPlainListener() {
+        final List<String> invocations = new ArrayList<String>();
+        SimpleEventBus eventBus = new SimpleEventBus(false);
+        eventBus.subscribe(new EventListener() {
+            @Override
+            public void handle(Event event) {
+                invocations.add("plain:" + event.getClass().getSimpleName());
+            }
+        });
+        AnnotationEventListenerAdapter.createAdapter(new RecordingEventHandler(invocations), null, eventBus)
+                                      .subscribe();
+
+        eventBus.publish(Arrays.<Event>asList(new StubDomainEvent(), new StubAggregateDeletedEvent()));
+
+        assertEquals(Arrays.asList("plain:StubDomainEvent", "annotated:StubDomainEvent",
+                                   "plain:StubAggregateDeletedEvent", "annotated:StubAggregateDeletedEvent"),
+                     invocations);
+    }
+
     @Test
     public void testAdaptSyncTransactionAwareEventHandler() {
         TransactionAwareSyncHandler handler = mock(TransactionAwareSyncHandler.class);
@@ -105,6 +157,20 @@ public class AnnotationEventListenerAdapterTest {
         }
     }
 
+    @Test
+    public void testBoundedAsynchronousListener_EventsRejectedWhenMaxPendingEventsReached() {
+        Executor executor = mock(Executor.class);
+        AnnotationEventListenerAdapter adapter = new AnnotationEventListenerAdapter(
+                new BoundedAsyncAnnotatedEventHandler(), executor, null);
+
+        adapter.handle(new StubDomainEvent());
+        adapter.handle(new StubDomainEvent());
+        adapter.handle(new StubDomainEvent());
+
+        assertEquals(2, adapter.getRejectedEventCount());
+        assertEquals(0, adapter.getSpilledEventCount());
+    }
+
     @Test
     public void testManagerWithAnnotatedMethods() {
         AnnotatedTransactionMethods bean = new AnnotatedTransactionMethods();
@@ -180,6 +246,42 @@ public class AnnotationEventListenerAdapterTest {
         }
     }
 
+    private static class BatchAnnotatedEventHandler implements BatchEventListener {
+
+        @EventHandler
+        public void handleEvent(Event event) {
+        }
+
+        @Override
+        public void handleBatch(List<Event> events) {
+        }
+
+        @Override
+        public void handle(Event event) {
+        }
+    }
+
+    private static class RecordingEventHandler {
+
+        private final List<String> invocations;
+
+        private RecordingEventHandler(List<String> invocations) {
+            this.invocations = invocations;
+        }
+
+        @EventHandler
+        public void handleEvent(Event event) {
+            invocations.add("annotated:" + event.getClass().getSimpleName());
+        }
+    }
+
+    private static class DomainEventHandler {
+
+        @EventHandler
+        public void handleEvent(StubDomainEvent event) {
+        }
+    }
+
     @AsynchronousEventListener
     private static class AsyncAnnotatedEventHandler {
 
@@ -198,6 +300,14 @@ public class AnnotationEventListenerAdapterTest {
         }
     }
 
+    @AsynchronousEventListener(maxPendingEvents = 1, overflowStrategy = OverflowStrategy.REJECT)
+    private static class BoundedAsyncAnnotatedEventHandler {
+
+        @EventHandler
+        public void handleEvent(Event event) {
+        }
+    }
+
     @AsynchronousEventListener(sequencingPolicyClass = WrongPolicy.class)
     private static class AsyncAnnotatedEventHandler_IllegalPolicy {
 
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.transactionmanagers;
+
+import org.axonframework.eventhandling.TransactionManager;
+import org.axonframework.eventhandling.TransactionStatus;
+import org.junit.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AdaptiveBatchSizeTransactionManagerTest {
+
+    private AdaptiveBatchSizeTransactionManager testSubject;
+    private SlowCommitTransactionManager delegate;
+
+    @Before
+    public void setUp() {
+        delegate = new SlowCommitTransactionManager();
+        testSubject = new AdaptiveBatchSizeTransactionManager(delegate, false);
+        testSubject.setInitialBatchSize(100);
+    }
+
+    @Test
+    public void testMBeanRegisteredForEachInstance() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        new AdaptiveBatchSizeTransactionManager(delegate, "listener1");
+        new AdaptiveBatchSizeTransactionManager(delegate, "listener2");
+        new AdaptiveBatchSizeTransactionManager(new SlowCommitTransactionManager());
+        new AdaptiveBatchSizeTransactionManager(new SlowCommitTransactionManager());
+
+        Set<ObjectName> names = mBeanServer.queryNames(
+                new ObjectName("org.axonframework:type=AdaptiveBatchSizeTransactionManager,*"), null);
+        assertEquals(4, names.size());
+        assertTrue(mBeanServer.isRegistered(
+                new ObjectName("org.axonframework:type=AdaptiveBatchSizeTransactionManager,name=listener1")));
+        assertTrue(mBeanServer.isRegistered(
+                new ObjectName("org.axonframework:type=AdaptiveBatchSizeTransactionManager,name=listener2")));
+    }
+
+    @Test
+    public void testBatchSizeOverridesDelegate() {
+        StubTransactionStatus status = new StubTransactionStatus();
+        testSubject.beforeTransaction(status);
+        assertEquals(100, status.getMaxTransactionSize());
+    }
+
+    @Test
+    public void testBatchSizeDecreasedWhenCommitExceedsTargetLatency() {
+        testSubject.setTargetCommitLatency(5);
+        delegate.commitTime = 20;
+        executeTransaction(true);
+        assertTrue("Expected batch size to decrease", testSubject.getBatchSize() < 100);
+        assertTrue("Batch size should not decrease by more than half", testSubject.getBatchSize() >= 50);
+    }
+
+    @Test
+    public void testBatchSizeIncreasedWhenFullBatchCommitsWithinTargetLatency() {
+        testSubject.setTargetCommitLatency(1000);
+        executeTransaction(true);
+        assertEquals(110, testSubject.getBatchSize());
+
+        executeTransaction(false);
+        assertEquals("Partial batches should not increase the batch size", 110, testSubject.getBatchSize());
+    }
+
+    @Test
+    public void testBatchSizeRespectsBounds() {
+        testSubject.setTargetCommitLatency(1000);
+        testSubject.setMaxBatchSize(105);
+        executeTransaction(true);
+        assertEquals(105, testSubject.getBatchSize());
+    }
+
+    @Test
+    public void testFailedTransactionsDoNotAffectBatchSize() {
+        testSubject.setTargetCommitLatency(1000);
+        StubTransactionStatus status = new StubTransactionStatus();
+        testSubject.beforeTransaction(status);
+        status.processEvents(status.getMaxTransactionSize());
+        status.fail(new RuntimeException("Mock"));
+        testSubject.afterTransaction(status);
+        assertEquals(100, testSubject.getBatchSize());
+    }
+
+    private void executeTransaction(boolean fillBatch) {
+        StubTransactionStatus status = new StubTransactionStatus();
+        testSubject.beforeTransaction(status);
+        status.processEvents(fillBatch ? status.getMaxTransactionSize() : 1);
+        testSubject.afterTransaction(status);
+    }
+
+    private static class StubTransactionStatus extends TransactionStatus {
+
+        private void processEvents(int count) {
+            for (int t = 0; t < count; t++) {
+                recordEventProcessed();
+            }
+        }
+
+        private void fail(Throwable cause) {
+            markFailed(cause);
+        }
+    }
+
+    private static class SlowCommitTransactionManager implements TransactionManager {
+
+        private long commitTime;
+
+        @Override
+        public void beforeTransaction(TransactionStatus transactionStatus) {
+            transactionStatus.setMaxTransactionSize(25);
+        }
+
+        @Override
+        public void afterTransaction(TransactionStatus transactionStatus) {
+            if (commitTime > 0) {
+                try {
+                    Thread.sleep(commitTime);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
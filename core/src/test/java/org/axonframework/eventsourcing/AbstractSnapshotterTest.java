@@ -22,6 +22,9 @@ import org.axonframework.domain.DomainEventStream;
 import org.axonframework.domain.SimpleDomainEventStream;
 import org.axonframework.domain.StubDomainEvent;
 import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventstore.AbstractSerializedDomainEventStream;
+import org.axonframework.eventstore.EventSerializer;
+import org.axonframework.eventstore.SerializedDomainEvent;
 import org.axonframework.eventstore.SnapshotEventStore;
 import org.axonframework.util.DirectExecutor;
 import org.hamcrest.Matcher;
@@ -77,6 +80,55 @@ public class AbstractSnapshotterTest {
         verify(mockEventStore, never()).appendSnapshotEvent(any(String.class), any(DomainEvent.class));
     }
 
+    @Test
+    public void testScheduleSnapshot_SingleSerializedEventNotDeserialized() {
+        AggregateIdentifier aggregateIdentifier = new UUIDAggregateIdentifier();
+        EventSerializer serializer = mock(EventSerializer.class);
+        final SerializedDomainEvent snapshot = new SerializedDomainEvent(new byte[]{1}, serializer,
+                                                                         aggregateIdentifier, 5);
+        when(mockEventStore.readEvents("test", aggregateIdentifier)).thenReturn(
+                new AbstractSerializedDomainEventStream(snapshot) {
+                    @Override
+                    protected SerializedDomainEvent readNext() {
+                        return null;
+                    }
+                });
+
+        testSubject.scheduleSnapshot("test", aggregateIdentifier);
+
+        verify(serializer, never()).deserialize(any(byte[].class));
+        verify(mockEventStore, never()).appendSnapshotEvent(any(String.class), any(DomainEvent.class));
+    }
+
+    @Test
+    public void testScheduleSnapshot_SerializedEvents() {
+        AggregateIdentifier aggregateIdentifier = new UUIDAggregateIdentifier();
+        EventSerializer serializer = mock(EventSerializer.class);
+        byte[] firstBytes = new byte[]{1};
+        byte[] secondBytes = new byte[]{2};
+        when(serializer.deserialize(firstBytes)).thenReturn(new StubDomainEvent(aggregateIdentifier, 0));
+        when(serializer.deserialize(secondBytes)).thenReturn(new StubDomainEvent(aggregateIdentifier, 1));
+        final SerializedDomainEvent second = new SerializedDomainEvent(secondBytes, serializer, aggregateIdentifier, 1);
+        when(mockEventStore.readEvents("test", aggregateIdentifier)).thenReturn(
+                new AbstractSerializedDomainEventStream(
+                        new SerializedDomainEvent(firstBytes, serializer, aggregateIdentifier, 0)) {
+                    private boolean read;
+
+                    @Override
+                    protected SerializedDomainEvent readNext() {
+                        if (read) {
+                            return null;
+                        }
+                        read = true;
+                        return second;
+                    }
+                });
+
+        testSubject.scheduleSnapshot("test", aggregateIdentifier);
+
+        verify(mockEventStore).appendSnapshotEvent(eq("test"), argThat(event(aggregateIdentifier, 1)));
+    }
+
     private Matcher<DomainEvent> event(final AggregateIdentifier aggregateIdentifier, final long i) {
         return new ArgumentMatcher<DomainEvent>() {
             @Override
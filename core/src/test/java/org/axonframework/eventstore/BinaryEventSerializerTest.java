@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.StringAggregateIdentifier;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.serializer.GenericBinarySerializer;
+import org.axonframework.util.SerializationException;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class BinaryEventSerializerTest {
+
+    private BinaryEventSerializer testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new BinaryEventSerializer();
+    }
+
+    @Test
+    public void testSerializeAndDeserializeDomainEvent() {
+        AggregateIdentifier aggregateIdentifier = new UUIDAggregateIdentifier();
+        DateTime dateTime = new DateTime(2011, 3, 14, 9, 30, 0, 0, DateTimeZone.forID("Europe/Amsterdam"));
+        BinaryTestEvent event = new BinaryTestEvent(aggregateIdentifier, "Henk", dateTime);
+
+        BinaryTestEvent actualEvent = (BinaryTestEvent) testSubject.deserialize(testSubject.serialize(event));
+
+        assertEquals(event.getEventIdentifier(), actualEvent.getEventIdentifier());
+        assertEquals(event.getTimestamp(), actualEvent.getTimestamp());
+        assertEquals("someValue", actualEvent.getMetaDataValue("someMetaData"));
+        assertEquals(aggregateIdentifier, actualEvent.getAggregateIdentifier());
+        assertEquals(new Long(1), actualEvent.getSequenceNumber());
+        assertEquals(2, actualEvent.getEventRevision());
+        assertEquals("Henk", actualEvent.name);
+        assertEquals(dateTime, actualEvent.dateTime);
+        assertEquals(event.uuid, actualEvent.uuid);
+        assertEquals(Arrays.asList("a", null, "c"), actualEvent.names);
+        assertEquals(event.counts, actualEvent.counts);
+        assertTrue(actualEvent.sortedNames instanceof TreeSet);
+        assertEquals(event.sortedNames, actualEvent.sortedNames);
+        assertArrayEquals(event.numbers, actualEvent.numbers);
+        assertEquals(Status.ACTIVE, actualEvent.status);
+        assertEquals(-42, actualEvent.primitiveInt);
+        assertEquals(Long.MAX_VALUE, actualEvent.primitiveLong);
+        assertEquals(1.5, actualEvent.primitiveDouble, 0);
+        assertTrue(actualEvent.primitiveBoolean);
+        assertEquals('x', actualEvent.primitiveChar);
+        assertEquals(2.5f, actualEvent.primitiveFloat, 0);
+
+        assertEquals(new StringAggregateIdentifier("other"), actualEvent.reference);
+        assertNull(actualEvent.nothing);
+    }
+
+    @Test
+    public void testSerializedFormIsSmallerThanXml() {
+        MoneyDepositedEvent event = new MoneyDepositedEvent(new UUIDAggregateIdentifier(), 3, "Salary", 250000L,
+                                                            1750000L);
+        byte[] xml = new XStreamEventSerializer().serialize(event);
+        byte[] binary = testSubject.serialize(event);
+        assertTrue(String.format("Expected less than half of %s bytes, but was %s", xml.length, binary.length),
+                   binary.length * 2 < xml.length);
+
+        testSubject.registerType(1, MoneyDepositedEvent.class);
+        byte[] registered = testSubject.serialize(event);
+        assertTrue(String.format("Expected less than 40%% of %s bytes, but was %s", xml.length, registered.length),
+                   registered.length * 5 < xml.length * 2);
+        assertEquals(1750000L, ((MoneyDepositedEvent) testSubject.deserialize(registered)).balance);
+    }
+
+    @Test
+    public void testJavaSerializedValueMayOnlyContainPlatformClasses() throws IOException {
+        ByteArrayOutputStream javaSerialized = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(javaSerialized);
+        out.writeObject(new ArrayList<Object>(Arrays.asList(new DateTime(), new NameChangedEvent("Henk"))));
+        out.close();
+        byte[] payload = javaSerialized.toByteArray();
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        serialized.write(22);
+        // the length of the payload as a variable length number
+        serialized.write(payload.length & 0x7F | 0x80);
+        serialized.write(payload.length >>> 7);
+        serialized.write(payload);
+
+        try {
+            new GenericBinarySerializer().deserialize(serialized.toByteArray(), 0);
+            fail("Expected a SerializationException");
+        } catch (SerializationException e) {
+            assertTrue(e.getCause() instanceof InvalidClassException);
+            assertTrue(e.getCause().getMessage().contains(NameChangedEvent.class.getName()));
+        }
+    }
+
+    @Test
+    public void testDeserializeLegacyXmlEvent() {
+        BinaryTestEvent event = new BinaryTestEvent(new UUIDAggregateIdentifier(), "Henk", new DateTime());
+        byte[] xml = new XStreamEventSerializer().serialize(event);
+
+        BinaryTestEvent actualEvent = (BinaryTestEvent) testSubject.deserialize(xml);
+
+        assertEquals(event.getEventIdentifier(), actualEvent.getEventIdentifier());
+        assertEquals("Henk", actualEvent.name);
+        assertEquals(BinaryTestEvent.class, testSubject.readEventType(xml));
+        assertEquals(2, testSubject.readEventRevision(xml));
+    }
+
+    @Test
+    public void testReadEventTypeAndRevision() {
+        byte[] serialized = testSubject.serialize(new BinaryTestEvent(new UUIDAggregateIdentifier(), "Henk",
+                                                                      new DateTime()));
+        assertEquals(BinaryTestEvent.class, testSubject.readEventType(serialized));
+        assertEquals(2, testSubject.readEventRevision(serialized));
+
+        testSubject.registerType(7, BinaryTestEvent.class);
+        serialized = testSubject.serialize(new BinaryTestEvent(new UUIDAggregateIdentifier(), "Henk",
+                                                               new DateTime()));
+        assertEquals(BinaryTestEvent.class, testSubject.readEventType(serialized));
+    }
+
+    @Test
+    public void testSerializeAndDeserializeEventWithHiddenField() {
+        HiddenFieldEvent event = new HiddenFieldEvent();
+
+        HiddenFieldEvent actualEvent = (HiddenFieldEvent) testSubject.deserialize(testSubject.serialize(event));
+
+        assertEquals("sub", actualEvent.shadowed);
+        assertEquals("super", ((ShadowedFieldEvent) actualEvent).shadowed);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testDeserializeEventOfChangedClass() {
+        testSubject.registerType(1, NameChangedEvent.class);
+        byte[] serialized = testSubject.serialize(new NameChangedEvent("Henk"));
+
+        BinaryEventSerializer changedSerializer = new BinaryEventSerializer();
+        changedSerializer.registerType(1, FullNameChangedEvent.class);
+        changedSerializer.deserialize(serialized);
+    }
+
+    @Test
+    public void testUpcastEventOfChangedClass() {
+        testSubject.registerType(1, NameChangedEvent.class);
+        byte[] serialized = testSubject.serialize(new NameChangedEvent("Henk"));
+
+        BinaryEventSerializer changedSerializer = new BinaryEventSerializer();
+        changedSerializer.registerType(1, FullNameChangedEvent.class);
+        changedSerializer.setEventUpcasters(Arrays.<EventUpcaster<Map>>asList(new NameUpcaster()));
+        FullNameChangedEvent actualEvent = (FullNameChangedEvent) changedSerializer.deserialize(serialized);
+
+        assertEquals("Henk", actualEvent.fullName);
+        assertEquals(0, actualEvent.age);
+        assertEquals(1, actualEvent.getEventRevision());
+        // events of the current revision are deserialized directly
+        FullNameChangedEvent currentEvent = new FullNameChangedEvent("Henk de Vries", 42);
+        assertEquals(42, ((FullNameChangedEvent) changedSerializer.deserialize(
+                changedSerializer.serialize(currentEvent))).age);
+    }
+
+    private static class NameUpcaster implements SelectiveEventUpcaster<Map> {
+
+        @Override
+        public boolean canUpcast(String eventType, String eventRevision) {
+            return FullNameChangedEvent.class.getName().equals(eventType) && "0".equals(eventRevision);
+        }
+
+        @Override
+        public Class<Map> getSupportedRepresentation() {
+            return Map.class;
+        }
+
+        @SuppressWarnings({"unchecked"})
+        @Override
+        public Map upcast(Map event) {
+            event.put("fullName", event.remove("name"));
+            event.put("eventRevision", 1L);
+            return event;
+        }
+    }
+
+    private static enum Status {
+        ACTIVE, INACTIVE
+    }
+
+    private static class ShadowedFieldEvent extends DomainEvent {
+
+        private static final long serialVersionUID = 2271069342612006406L;
+
+        private final String shadowed = "super";
+
+        public ShadowedFieldEvent(AggregateIdentifier aggregateIdentifier) {
+            super(1, aggregateIdentifier);
+        }
+    }
+
+    private static class HiddenFieldEvent extends ShadowedFieldEvent {
+
+        private static final long serialVersionUID = -4305496014683279163L;
+
+        private final String shadowed = "sub";
+
+        public HiddenFieldEvent() {
+            super(new UUIDAggregateIdentifier());
+        }
+    }
+
+    private static class NameChangedEvent extends DomainEvent {
+
+        private static final long serialVersionUID = -6193479281372529373L;
+
+        private final String name;
+
+        public NameChangedEvent(String name) {
+            super(0, new UUIDAggregateIdentifier());
+            this.name = name;
+        }
+    }
+
+    private static class FullNameChangedEvent extends DomainEvent {
+
+        private static final long serialVersionUID = 4427843012380129563L;
+
+        private final String fullName;
+        private final int age;
+
+        public FullNameChangedEvent(String fullName, int age) {
+            super(0, new UUIDAggregateIdentifier());
+            this.fullName = fullName;
+            this.age = age;
+            setEventRevision(1);
+        }
+    }
+
+    private static class MoneyDepositedEvent extends DomainEvent {
+
+        private static final long serialVersionUID = 8286214524563423426L;
+
+        private final String description;
+        private final long amount;
+        private final long balance;
+
+        public MoneyDepositedEvent(AggregateIdentifier aggregateIdentifier, long sequenceNumber, String description,
+                                   long amount, long balance) {
+            super(sequenceNumber, aggregateIdentifier);
+            this.description = description;
+            this.amount = amount;
+            this.balance = balance;
+        }
+    }
+
+    private static class BinaryTestEvent extends DomainEvent {
+
+        private static final long serialVersionUID = -2521445372373485395L;
+
+        private final String name;
+        private final DateTime dateTime;
+        private final UUID uuid = UUID.randomUUID();
+        private final List<String> names = new ArrayList<String>(Arrays.asList("a", null, "c"));
+        private final Map<String, Integer> counts = new HashMap<String, Integer>();
+        private final Set<String> sortedNames = new TreeSet<String>(Arrays.asList("b", "a"));
+        private final long[] numbers = {1, -1, Long.MIN_VALUE};
+        private final Status status = Status.ACTIVE;
+        private int primitiveInt = -42;
+        private long primitiveLong = Long.MAX_VALUE;
+        private double primitiveDouble = 1.5;
+        private boolean primitiveBoolean = true;
+        private char primitiveChar = 'x';
+        private float primitiveFloat = 2.5f;
+        private final AggregateIdentifier reference = new StringAggregateIdentifier("other");
+        private final Object nothing = null;
+
+        public BinaryTestEvent(AggregateIdentifier aggregateIdentifier, String name, DateTime dateTime) {
+            super(1, aggregateIdentifier);
+            this.name = name;
+            this.dateTime = dateTime;
+            counts.put("one", 1);
+            counts.put("many", Integer.MAX_VALUE);
+            addMetaData("someMetaData", "someValue");
+            setEventRevision(2);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.domain.StringAggregateIdentifier;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.repository.ConcurrencyException;
+import org.junit.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class GroupCommitEventStoreTest {
+
+    private static final int THREAD_COUNT = 5;
+
+    private RecordingEventStore delegate;
+    private GroupCommitEventStore testSubject;
+
+    @Before
+    public void setUp() {
+        delegate = new RecordingEventStore();
+        testSubject = new GroupCommitEventStore(delegate);
+        testSubject.setCommitWindow(5000);
+        testSubject.setMaxBatchSize(THREAD_COUNT);
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentAppendsWrittenBeforeSync() throws InterruptedException {
+
+        Map<String, Throwable> failures = appendConcurrently();
+
+        assertTrue(failures.isEmpty());
+        assertEquals(THREAD_COUNT, delegate.appendedEvents.size());
+        assertEquals(THREAD_COUNT, delegate.syncedAggregates.size());
+        assertEquals(THREAD_COUNT, delegate.appendCountAtFirstSync);
+    }
+
+    @Test(timeout = 10000)
+    public void testConflictingAppendOnlyFailsForItsCaller() throws InterruptedException {
+        delegate.conflictingAggregate = "aggregate2";
+
+        Map<String, Throwable> failures = appendConcurrently();
+
+        assertTrue(failures.get("aggregate2") instanceof ConcurrencyException);
+        assertEquals(1, failures.size());
+        assertEquals(THREAD_COUNT - 1, delegate.syncedAggregates.size());
+        assertFalse(delegate.syncedAggregates.contains("aggregate2"));
+    }
+
+    @Test(timeout = 10000)
+    public void testFailingSyncOnlyFailsForAffectedCallers() throws InterruptedException {
+        delegate.unsyncableAggregate = "aggregate3";
+
+        Map<String, Throwable> failures = appendConcurrently();
+
+        assertTrue(failures.get("aggregate3") instanceof EventStoreException);
+        assertEquals(1, failures.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDelegateIsRequired() {
+        new GroupCommitEventStore(null);
+    }
+
+    @Test(timeout = 10000)
+    public void testSingleAppendDoesNotWaitLongerThanCommitWindow() {
+        testSubject.setCommitWindow(10);
+        long start = System.currentTimeMillis();
+        testSubject.appendEvents("test", new SimpleDomainEventStream(new StubDomainEvent(
+                new StringAggregateIdentifier("single"), 0)));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(1, delegate.appendedEvents.size());
+    }
+
+    /**
+     * Appends an event for each of the aggregates concurrently, and returns the failures, by aggregate identifier.
+     */
+    private Map<String, Throwable> appendConcurrently() throws InterruptedException {
+        final Map<String, Throwable> failures = new ConcurrentHashMap<String, Throwable>();
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(THREAD_COUNT);
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final String aggregate = "aggregate" + t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                        testSubject.appendEvents("test", new SimpleDomainEventStream(new StubDomainEvent(
+                                new StringAggregateIdentifier(aggregate), 0)));
+                    } catch (Exception e) {
+                        failures.put(aggregate, e);
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }).start();
+        }
+        startSignal.countDown();
+        assertTrue("Appends did not complete in time", finished.await(8, TimeUnit.SECONDS));
+        return failures;
+    }
+
+    private static class RecordingEventStore implements SyncableEventStore {
+
+        private final List<DomainEvent> appendedEvents = new CopyOnWriteArrayList<DomainEvent>();
+        private final List<String> syncedAggregates = new CopyOnWriteArrayList<String>();
+        private volatile int appendCountAtFirstSync = -1;
+        private volatile String conflictingAggregate;
+        private volatile String unsyncableAggregate;
+
+        @Override
+        public void appendEvents(String type, DomainEventStream events) {
+            while (events.hasNext()) {
+                DomainEvent event = events.next();
+                if (event.getAggregateIdentifier().asString().equals(conflictingAggregate)) {
+                    throw new ConcurrencyException("Mock conflict");
+                }
+                appendedEvents.add(event);
+            }
+        }
+
+        @Override
+        public void sync(String type, AggregateIdentifier identifier) {
+            if (syncedAggregates.isEmpty()) {
+                appendCountAtFirstSync = appendedEvents.size();
+            }
+            if (identifier.asString().equals(unsyncableAggregate)) {
+                throw new EventStoreException("Mock sync failure");
+            }
+            syncedAggregates.add(identifier.asString());
+        }
+
+        @Override
+        public DomainEventStream readEvents(String type, AggregateIdentifier identifier) {
+            throw new UnsupportedOperationException("Not implemented");
+        }
+    }
+}
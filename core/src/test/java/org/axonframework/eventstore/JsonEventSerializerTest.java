@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.StringAggregateIdentifier;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.joda.time.DateTime;
+import org.junit.*;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class JsonEventSerializerTest {
+
+    private JsonEventSerializer testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new JsonEventSerializer();
+    }
+
+    @Test
+    public void testSerializeAndDeserializeDomainEvent() throws Exception {
+        AggregateIdentifier aggregateIdentifier = new UUIDAggregateIdentifier();
+        JsonTestEvent event = new JsonTestEvent(aggregateIdentifier, "Henk \"the\" \\ é\n");
+
+        byte[] serialized = testSubject.serialize(event);
+        JsonTestEvent actualEvent = (JsonTestEvent) testSubject.deserialize(serialized);
+
+        assertEquals(event.getEventIdentifier(), actualEvent.getEventIdentifier());
+        assertTrue(event.getTimestamp().isEqual(actualEvent.getTimestamp()));
+        assertEquals("someValue", actualEvent.getMetaDataValue("someMetaData"));
+        assertEquals(7, actualEvent.getMetaDataValue("number"));
+        assertEquals(aggregateIdentifier, actualEvent.getAggregateIdentifier());
+        assertEquals(new Long(1), actualEvent.getSequenceNumber());
+        assertEquals(5, actualEvent.getEventRevision());
+        assertEquals(event.name, actualEvent.name);
+        assertEquals(Arrays.asList("a", null, "c"), actualEvent.names);
+        assertEquals(event.counts, actualEvent.counts);
+        assertEquals(event.keyedByNumber, actualEvent.keyedByNumber);
+        assertTrue(actualEvent.sortedNames instanceof TreeSet);
+        assertEquals(event.sortedNames, actualEvent.sortedNames);
+        assertArrayEquals(event.numbers, actualEvent.numbers);
+        assertArrayEquals(event.bytes, actualEvent.bytes);
+        assertEquals(JsonTestEvent.Status.ACTIVE, actualEvent.status);
+        assertEquals(Arrays.<Object>asList(1, "two", JsonTestEvent.Status.INACTIVE), actualEvent.anything);
+        assertEquals(1.5, actualEvent.primitiveDouble, 0);
+        assertEquals('x', actualEvent.primitiveChar);
+        assertEquals(new StringAggregateIdentifier("other"), actualEvent.reference);
+
+        String json = new String(serialized, "UTF-8");
+        assertTrue("Expected the type as first property", json.startsWith(
+                "{\"@class\":\"org.axonframework.eventstore.JsonEventSerializerTest$JsonTestEvent\""));
+    }
+
+    @Test
+    public void testUnknownPropertiesAreIgnored() throws Exception {
+        String json = "{\"@class\":\"org.axonframework.eventstore.JsonEventSerializerTest$JsonTestEvent\","
+                + "\"removedField\":{\"nested\":[1,2.5,true,null,\"x\"]}, \"name\" : \"Henk\"}";
+
+        JsonTestEvent actualEvent = (JsonTestEvent) testSubject.deserialize(json.getBytes("UTF-8"));
+
+        assertEquals("Henk", actualEvent.name);
+        assertNull(actualEvent.names);
+    }
+
+    @Test
+    public void testReadEventTypeAndRevision() {
+        byte[] serialized = testSubject.serialize(new JsonTestEvent(new UUIDAggregateIdentifier(), "Henk"));
+        assertEquals(JsonTestEvent.class, testSubject.readEventType(serialized));
+        assertEquals(5, testSubject.readEventRevision(serialized));
+    }
+
+    @Test
+    public void testSerializeAndDeserializeHiddenField() throws Exception {
+        ShadowingEvent event = new ShadowingEvent("sub", "base");
+
+        byte[] serialized = testSubject.serialize(event);
+        String json = new String(serialized, "UTF-8");
+        assertTrue("Hidden field was not qualified: " + json,
+                   json.contains("\"" + ShadowedEvent.class.getName() + ".name\":\"base\""));
+        assertTrue(json.contains("\"name\":\"sub\""));
+
+        ShadowingEvent actualEvent = (ShadowingEvent) testSubject.deserialize(serialized);
+        assertEquals("sub", actualEvent.name);
+        assertEquals("base", ((ShadowedEvent) actualEvent).name);
+    }
+
+    @Test
+    public void testKeysResemblingTypeInformationAreEscaped() throws Exception {
+        JsonTestEvent event = new JsonTestEvent(new UUIDAggregateIdentifier(), "Henk");
+        event.attributes.put("@class", "java.lang.Integer");
+        event.attributes.put("@@other", "value");
+        event.putMetaData("@class", "java.lang.Integer");
+
+        byte[] serialized = testSubject.serialize(event);
+        JsonTestEvent actualEvent = (JsonTestEvent) testSubject.deserialize(serialized);
+
+        assertEquals(event.attributes, actualEvent.attributes);
+        assertEquals("java.lang.Integer", actualEvent.getMetaDataValue("@class"));
+        assertEquals(JsonTestEvent.class, testSubject.readEventType(serialized));
+    }
+
+    private static class JsonTestEvent extends DomainEvent {
+
+        private static final long serialVersionUID = 4606330424434929917L;
+
+        private static enum Status {
+            ACTIVE, INACTIVE
+        }
+
+        private final String name;
+        private final List<String> names = new ArrayList<String>(Arrays.asList("a", null, "c"));
+        private final Map<String, Integer> counts = new HashMap<String, Integer>();
+        private final Map<Long, String> keyedByNumber = new HashMap<Long, String>();
+        private final Map<String, Object> attributes = new HashMap<String, Object>();
+        private final Set<String> sortedNames = new TreeSet<String>(Arrays.asList("b", "a"));
+        private final long[] numbers = {1, -1, Long.MIN_VALUE};
+        private final byte[] bytes = {0, 1, -1, 127};
+        private final Status status = Status.ACTIVE;
+        private final List<Object> anything = Arrays.<Object>asList(1, "two", Status.INACTIVE);
+        private double primitiveDouble = 1.5;
+        private char primitiveChar = 'x';
+        private final AggregateIdentifier reference = new StringAggregateIdentifier("other");
+
+        public JsonTestEvent(AggregateIdentifier aggregateIdentifier, String name) {
+            super(1, aggregateIdentifier);
+            this.name = name;
+            counts.put("one", 1);
+            counts.put("many", Integer.MAX_VALUE);
+            keyedByNumber.put(1L, "one");
+            addMetaData("someMetaData", "someValue");
+            addMetaData("number", (Serializable) 7);
+            setEventRevision(5);
+        }
+
+        private void putMetaData(String key, Serializable value) {
+            addMetaData(key, value);
+        }
+    }
+
+    private static class ShadowedEvent extends DomainEvent {
+
+        private static final long serialVersionUID = -2278413735226402735L;
+
+        private final String name;
+
+        public ShadowedEvent(String name) {
+            super(1, new UUIDAggregateIdentifier());
+            this.name = name;
+        }
+    }
+
+    private static class ShadowingEvent extends ShadowedEvent {
+
+        private static final long serialVersionUID = 2410946379577574117L;
+
+        private final String name;
+
+        public ShadowingEvent(String name, String hiddenName) {
+            super(hiddenName);
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class SerializedDomainEventTest {
+
+    private InspectingEventSerializer serializer;
+    private byte[] serializedEvent;
+    private SerializedDomainEvent testSubject;
+
+    @Before
+    public void setUp() {
+        serializer = mock(InspectingEventSerializer.class);
+        serializedEvent = new byte[]{1, 2, 3};
+        testSubject = new SerializedDomainEvent(serializedEvent, serializer, new UUIDAggregateIdentifier(), 0);
+    }
+
+    @Test
+    public void testEventTypeAndRevisionAreReadOnce() {
+        doReturn(StubDomainEvent.class).when(serializer).readEventType(serializedEvent);
+        when(serializer.readEventRevision(serializedEvent)).thenReturn(2L);
+
+        for (int t = 0; t < 3; t++) {
+            assertEquals(StubDomainEvent.class, testSubject.getEventType());
+            assertEquals(2L, testSubject.getEventRevision());
+        }
+
+        verify(serializer, times(1)).readEventType(serializedEvent);
+        verify(serializer, times(1)).readEventRevision(serializedEvent);
+        assertFalse(testSubject.isDeserialized());
+    }
+
+    @Test
+    public void testUnknownEventTypeIsReadOnce() {
+        assertNull(testSubject.getEventType());
+        assertNull(testSubject.getEventType());
+
+        verify(serializer, times(1)).readEventType(serializedEvent);
+    }
+
+    private interface InspectingEventSerializer extends EventSerializer, SerializedEventInspector {
+
+    }
+}
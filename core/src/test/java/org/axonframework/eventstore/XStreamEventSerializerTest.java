@@ -19,6 +19,8 @@ package org.axonframework.eventstore;
 import org.axonframework.domain.DomainEvent;
 import org.axonframework.domain.StubDomainEvent;
 import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.dom4j.Attribute;
+import org.dom4j.Document;
 import org.joda.time.DateMidnight;
 import org.joda.time.DateTime;
 import org.joda.time.Period;
@@ -26,6 +28,7 @@ import org.junit.*;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.Arrays;
 
 import static org.junit.Assert.*;
 
@@ -96,6 +99,98 @@ public class XStreamEventSerializerTest {
         assertEquals(new Long(1), deserialized.getSequenceNumber());
     }
 
+    @Test
+    public void testReadEventTypeAndRevisionWithoutDeserializing() {
+        testSubject.addAlias("stub", StubDomainEvent.class);
+        byte[] serializedTestEvent = testSubject.serialize(new TestEvent("Henk"));
+        byte[] serializedStubEvent = testSubject.serialize(new StubDomainEvent(new UUIDAggregateIdentifier(), 1));
+
+        assertEquals(TestEvent.class, testSubject.readEventType(serializedTestEvent));
+        assertEquals(StubDomainEvent.class, testSubject.readEventType(serializedStubEvent));
+        assertEquals(3L, testSubject.readEventRevision(serializedTestEvent));
+        assertEquals(0L, testSubject.readEventRevision(serializedStubEvent));
+    }
+
+    @Test
+    public void testReadEventType_UnknownWhenUpcastersAreConfigured() {
+        testSubject.setEventUpcasters(Arrays.<EventUpcaster<Document>>asList(new EventUpcaster<Document>() {
+            @Override
+            public Class<Document> getSupportedRepresentation() {
+                return Document.class;
+            }
+
+            @Override
+            public Document upcast(Document event) {
+                return event;
+            }
+        }));
+        byte[] serializedTestEvent = testSubject.serialize(new TestEvent("Henk"));
+
+        assertNull(testSubject.readEventType(serializedTestEvent));
+        assertEquals(3L, testSubject.readEventRevision(serializedTestEvent));
+    }
+
+    @Test
+    public void testSelectiveUpcasterOnlyInvokedForMatchingEvents() {
+        RevisionUpcaster upcaster = new RevisionUpcaster("2");
+        testSubject.setEventUpcasters(Arrays.<EventUpcaster<Document>>asList(upcaster));
+        byte[] serializedTestEvent = testSubject.serialize(new TestEvent("Henk"));
+
+        TestEvent actualEvent = (TestEvent) testSubject.deserialize(serializedTestEvent);
+        assertEquals("Henk", actualEvent.getName());
+        assertEquals(0, upcaster.invocationCount);
+        assertEquals(TestEvent.class, testSubject.readEventType(serializedTestEvent));
+
+        upcaster.revisionToUpcast = "3";
+        actualEvent = (TestEvent) testSubject.deserialize(serializedTestEvent);
+        assertEquals("Upcast", actualEvent.getName());
+        assertEquals(1, upcaster.invocationCount);
+        assertNull(testSubject.readEventType(serializedTestEvent));
+    }
+
+    @Test
+    public void testSelectiveUpcastersReceiveRevisionOfPreviousUpcaster() {
+        RevisionUpcaster first = new RevisionUpcaster("3");
+        RevisionUpcaster second = new RevisionUpcaster("4");
+        RevisionUpcaster third = new RevisionUpcaster("3");
+        testSubject.setEventUpcasters(Arrays.<EventUpcaster<Document>>asList(first, second, third));
+
+        testSubject.deserialize(testSubject.serialize(new TestEvent("Henk")));
+
+        assertEquals(1, first.invocationCount);
+        assertEquals(1, second.invocationCount);
+        assertEquals(0, third.invocationCount);
+    }
+
+    private static class RevisionUpcaster implements SelectiveEventUpcaster<Document> {
+
+        private String revisionToUpcast;
+        private int invocationCount;
+
+        private RevisionUpcaster(String revisionToUpcast) {
+            this.revisionToUpcast = revisionToUpcast;
+        }
+
+        @Override
+        public boolean canUpcast(String eventType, String eventRevision) {
+            return TestEvent.class.getName().equals(eventType) && revisionToUpcast.equals(eventRevision);
+        }
+
+        @Override
+        public Class<Document> getSupportedRepresentation() {
+            return Document.class;
+        }
+
+        @Override
+        public Document upcast(Document event) {
+            invocationCount++;
+            event.getRootElement().element("name").setText("Upcast");
+            Attribute revision = event.getRootElement().attribute("eventRevision");
+            revision.setValue(Long.toString(Long.parseLong(revision.getValue()) + 1));
+            return event;
+        }
+    }
+
     public static class TestEvent extends DomainEvent {
 
         private static final long serialVersionUID = 1657550542124835062L;
@@ -111,6 +206,7 @@ public class XStreamEventSerializerTest {
             this.dateTime = new DateTime();
             this.period = new Period(100);
             addMetaData("someMetaData", "someValue");
+            setEventRevision(3);
         }
 
         public String getName() {
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.axonframework.eventstore.EventSerializer;
+import org.axonframework.util.io.BinaryEntryOutputStream;
+import org.junit.*;
+import org.mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.axonframework.eventstore.fs.EventSerializationUtils.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class EventSerializationUtilsTest {
+
+    private static final String TIMESTAMP = "2011-03-01T12:00:00.000+01:00";
+
+    @Test
+    public void testReadTextualAndBinaryEntries() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTextualEventEntry(out, 0, "text event".getBytes("UTF-8"));
+        writeEventEntry(out, 1, TIMESTAMP, "framed \n event".getBytes("UTF-8"));
+        writeEventEntry(out, 2, TIMESTAMP, new byte[0]);
+        byte[] data = out.toByteArray();
+
+        ByteArrayInputStream in = new ByteArrayInputStream(data);
+        assertEntry(readEventEntry(in), 0, "text event");
+        assertEntry(readEventEntry(in), 1, "framed \n event");
+        assertEntry(readEventEntry(in), 2, "");
+        assertNull(readEventEntry(in));
+
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        assertEntry(readEventEntry(buffer), 0, "text event");
+        assertEntry(readEventEntry(buffer), 1, "framed \n event");
+        assertEntry(readEventEntry(buffer), 2, "");
+        assertNull(readEventEntry(buffer));
+        assertEquals(data.length, readValidLength(ByteBuffer.wrap(data), false));
+    }
+
+    @Test
+    public void testIncompleteFrameIsNotRead() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeEventEntry(out, 0, TIMESTAMP, "first".getBytes("UTF-8"));
+        int validLength = out.size();
+        writeEventEntry(out, 1, TIMESTAMP, "second".getBytes("UTF-8"));
+        for (int t = validLength + 1; t < out.size(); t++) {
+            byte[] data = Arrays.copyOf(out.toByteArray(), t);
+
+            ByteArrayInputStream in = new ByteArrayInputStream(data);
+            assertEntry(readEventEntry(in), 0, "first");
+            assertNull(readEventEntry(in));
+
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            assertEntry(readEventEntry(buffer), 0, "first");
+            assertNull(readEventEntry(buffer));
+            assertEquals(validLength, readValidLength(ByteBuffer.wrap(data), false));
+        }
+    }
+
+    @Test
+    public void testCorruptFrameIsNotRead() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeEventEntry(out, 0, TIMESTAMP, "first".getBytes("UTF-8"));
+        int validLength = out.size();
+        writeEventEntry(out, 1, TIMESTAMP, "second".getBytes("UTF-8"));
+        byte[] data = out.toByteArray();
+        data[data.length - 12] ^= 0x01;
+
+        ByteArrayInputStream in = new ByteArrayInputStream(data);
+        assertEntry(readEventEntry(in), 0, "first");
+        assertNull(readEventEntry(in));
+
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        assertEntry(readEventEntry(buffer), 0, "first");
+        assertNull(readEventEntry(buffer));
+        assertEquals(validLength, readValidLength(ByteBuffer.wrap(data), false));
+    }
+
+    @Test
+    public void testReadLastSnapshotEntry_IgnoresIncompleteFrame() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeSnapshotEntry(out, new SnapshotEventEntry("first".getBytes("UTF-8"), 4, TIMESTAMP, 100));
+        writeSnapshotEntry(out, new SnapshotEventEntry("second".getBytes("UTF-8"), 9, TIMESTAMP, 200));
+        int validLength = out.size();
+        writeSnapshotEntry(out, new SnapshotEventEntry("third".getBytes("UTF-8"), 14, TIMESTAMP, 300));
+        byte[] data = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+
+        SnapshotEventEntry entry = readLastSnapshotEntry(new ByteArrayInputStream(data));
+        assertEquals(9, entry.getSequenceNumber());
+        assertEquals(200, entry.getOffset());
+        assertEquals("second", new String(entry.getBytes(), "UTF-8"));
+
+        entry = readLastSnapshotEntry(ByteBuffer.wrap(data));
+        assertEquals(9, entry.getSequenceNumber());
+        assertEquals(200, entry.getOffset());
+        assertEquals(TIMESTAMP, entry.getTimeStamp());
+        assertEquals(validLength, readValidLength(ByteBuffer.wrap(data), true));
+    }
+
+    @Test
+    public void testFrameWithCorruptLengthIsIgnored() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeEventEntry(out, 1, TIMESTAMP, "event".getBytes("UTF-8"));
+        byte[] data = out.toByteArray();
+        // replace the length of the timestamp with a varint close to Integer.MAX_VALUE
+        byte[] corrupt = new byte[data.length + 4];
+        System.arraycopy(data, 0, corrupt, 0, 18);
+        corrupt[18] = (byte) 0xF0;
+        corrupt[19] = (byte) 0xFF;
+        corrupt[20] = (byte) 0xFF;
+        corrupt[21] = (byte) 0xFF;
+        corrupt[22] = (byte) 0x07;
+        System.arraycopy(data, 19, corrupt, 23, data.length - 19);
+
+        assertNull(readEventEntry(new ByteArrayInputStream(corrupt)));
+        assertNull(readEventEntry(ByteBuffer.wrap(corrupt)));
+
+        // a length that does not fit in an int
+        corrupt[22] = (byte) 0xFF;
+        assertNull(readEventEntry(new ByteArrayInputStream(corrupt)));
+        assertNull(readEventEntry(ByteBuffer.wrap(corrupt)));
+    }
+
+    @Test
+    public void testReadOffsetAfterEntry() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTextualEventEntry(out, 0, "text event".getBytes("UTF-8"));
+        int[] offsets = new int[6];
+        offsets[0] = out.size();
+        for (int t = 1; t < offsets.length; t++) {
+            writeEventEntry(out, t, TIMESTAMP, ("event " + t).getBytes("UTF-8"));
+            offsets[t] = out.size();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+
+        for (int t = 1; t < offsets.length; t++) {
+            assertEquals(offsets[t], readOffsetAfterEntry(buffer, t));
+        }
+        // the entry is preceded by an entry that isn't a frame
+        assertEquals(-1, readOffsetAfterEntry(buffer, 0));
+        // the requested entry does not exist
+        assertEquals(-1, readOffsetAfterEntry(buffer, 6));
+
+        ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(out.toByteArray(), out.size() - 1));
+        assertEquals(-1, readOffsetAfterEntry(truncated, 3));
+    }
+
+    @Test
+    public void testReadLastSnapshotEntry_AfterTextualEntries() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEntryOutputStream textOut = new BinaryEntryOutputStream(out);
+        textOut.writeNumber(0);
+        textOut.writeNumber(4);
+        textOut.writeString(TIMESTAMP);
+        textOut.writeNumber(100);
+        textOut.writeBytes("first".getBytes("UTF-8"));
+        writeSnapshotEntry(out, new SnapshotEventEntry("second".getBytes("UTF-8"), 9, TIMESTAMP, 200));
+
+        SnapshotEventEntry entry = readLastSnapshotEntry(ByteBuffer.wrap(out.toByteArray()));
+        assertEquals(9, entry.getSequenceNumber());
+        assertEquals(200, entry.getOffset());
+        assertEquals("second", new String(entry.getBytes(), "UTF-8"));
+    }
+
+    private void writeTextualEventEntry(ByteArrayOutputStream out, long sequenceNumber, byte[] serializedEvent)
+            throws IOException {
+        BinaryEntryOutputStream textOut = new BinaryEntryOutputStream(out);
+        textOut.writeNumber(0);
+        textOut.writeNumber(sequenceNumber);
+        textOut.writeString(TIMESTAMP);
+        textOut.writeBytes(serializedEvent);
+    }
+
+    private void assertEntry(EventEntry entry, long expectedSequenceNumber, String expectedEvent)
+            throws IOException {
+        assertNotNull(entry);
+        assertEquals(expectedSequenceNumber, entry.getSequenceNumber());
+        assertEquals(TIMESTAMP, entry.getTimeStamp());
+        EventSerializer serializer = mock(EventSerializer.class);
+        entry.deserialize(serializer);
+        ArgumentCaptor<byte[]> serializedEvent = ArgumentCaptor.forClass(byte[].class);
+        verify(serializer).deserialize(serializedEvent.capture());
+        assertEquals(expectedEvent, new String(serializedEvent.getValue(), "UTF-8"));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class FileChannelCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileChannelCache testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new FileChannelCache(2);
+    }
+
+    @After
+    public void tearDown() {
+        testSubject.close();
+    }
+
+    @Test
+    public void testChannelIsReusedForSameFile() throws IOException {
+        File file = folder.newFile("file1");
+        FileChannelCache.CachedChannel first = testSubject.acquire(file, false);
+        first.release();
+        FileChannelCache.CachedChannel second = testSubject.acquire(file, false);
+
+        assertSame(first, second);
+        assertTrue(second.getChannel().isOpen());
+        second.release();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedChannelIsClosed() throws IOException {
+        FileChannelCache.CachedChannel[] channels = new FileChannelCache.CachedChannel[3];
+        for (int t = 0; t < channels.length; t++) {
+            channels[t] = testSubject.acquire(new File(folder.getRoot(), "file" + t), true);
+            channels[t].release();
+        }
+
+        assertFalse(channels[0].getChannel().isOpen());
+        assertTrue(channels[1].getChannel().isOpen());
+        assertTrue(channels[2].getChannel().isOpen());
+        assertFalse(testSubject.isOpen(new File(folder.getRoot(), "file0")));
+    }
+
+    @Test
+    public void testChannelInUseIsNotClosed() throws IOException {
+        FileChannelCache.CachedChannel inUse = testSubject.acquire(new File(folder.getRoot(), "file0"), true);
+        FileChannelCache.CachedChannel[] channels = new FileChannelCache.CachedChannel[2];
+        for (int t = 0; t < channels.length; t++) {
+            channels[t] = testSubject.acquire(new File(folder.getRoot(), "file" + (t + 1)), true);
+            channels[t].release();
+        }
+
+        assertTrue(inUse.getChannel().isOpen());
+        assertFalse(channels[0].getChannel().isOpen());
+        assertSame(inUse, testSubject.acquire(new File(folder.getRoot(), "file0"), false));
+
+        inUse.release();
+        inUse.release();
+        assertTrue(inUse.getChannel().isOpen());
+        testSubject.acquire(new File(folder.getRoot(), "file3"), true).release();
+        testSubject.acquire(new File(folder.getRoot(), "file4"), true).release();
+        assertFalse(inUse.getChannel().isOpen());
+    }
+
+    @Test
+    public void testChannelIsOpenedForWritingWhenNeeded() throws IOException {
+        File file = folder.newFile("file1");
+        FileChannelCache.CachedChannel reading = testSubject.acquire(file, false);
+        FileChannel readOnlyChannel = reading.getChannel();
+        try {
+            readOnlyChannel.write(ByteBuffer.wrap(new byte[]{1}), 0);
+            fail("Expected the channel to be read-only");
+        } catch (NonWritableChannelException e) {
+            // expected
+        }
+
+        FileChannelCache.CachedChannel writing = testSubject.acquire(file, true);
+        assertSame(reading, writing);
+        assertEquals(1, writing.getChannel().write(ByteBuffer.wrap(new byte[]{1}), 0));
+        assertTrue("The read-only channel may still be in use", readOnlyChannel.isOpen());
+        assertEquals(1, readOnlyChannel.size());
+        reading.release();
+        writing.release();
+
+        testSubject.close();
+        assertFalse(readOnlyChannel.isOpen());
+        assertFalse(writing.getChannel().isOpen());
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testMissingFileIsNotCreated() throws IOException {
+        try {
+            testSubject.acquire(new File(folder.getRoot(), "missing"), false);
+        } finally {
+            assertFalse(new File(folder.getRoot(), "missing").exists());
+        }
+    }
+}
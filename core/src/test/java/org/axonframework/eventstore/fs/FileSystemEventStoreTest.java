@@ -28,8 +28,10 @@ import org.junit.*;
 import org.mockito.*;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -143,6 +145,31 @@ public class FileSystemEventStoreTest {
         }
     }
 
+    @Test
+    public void testSync_ResolverDoesNotSupportSyncing() {
+        eventStore.setEventFileResolver(mock(EventFileResolver.class));
+        try {
+            eventStore.sync("test", aggregateIdentifier);
+            fail("Expected an exception");
+        } catch (EventStoreException e) {
+            assertNull(e.getCause());
+        }
+    }
+
+    @Test
+    public void testSync_ForcesEventFile() throws IOException {
+        IOException exception = new IOException("Mock");
+        SyncableEventFileResolver mockEventFileResolver = mock(SyncableEventFileResolver.class);
+        doThrow(exception).when(mockEventFileResolver).syncEventFile("test", aggregateIdentifier);
+        eventStore.setEventFileResolver(mockEventFileResolver);
+        try {
+            eventStore.sync("test", aggregateIdentifier);
+            fail("Expected an exception");
+        } catch (EventStoreException e) {
+            assertSame(exception, e.getCause());
+        }
+    }
+
     @Test
     public void testAppendSnapShot() {
         AtomicInteger counter = new AtomicInteger(0);
@@ -164,6 +191,66 @@ public class FileSystemEventStoreTest {
         assertEquals(3, actualEvents.size());
     }
 
+    @Test
+    public void testReadEvents_IncompleteLastEntryIsIgnored() throws IOException {
+        StubDomainEvent event1 = new StubDomainEvent(aggregateIdentifier, 0);
+        StubDomainEvent event2 = new StubDomainEvent(aggregateIdentifier, 1);
+        eventStore.appendEvents("test", new SimpleDomainEventStream(event1, event2));
+        FileOutputStream out = new FileOutputStream(new File("target/test/" + aggregateIdentifier + ".events"), true);
+        try {
+            out.write("0 2 2011-01-01T00:00:00.000Z 1234 <incomplete".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+
+        DomainEventStream eventStream = eventStore.readEvents("test", aggregateIdentifier);
+        assertEquals(event1, eventStream.next());
+        assertEquals(event2, eventStream.next());
+        assertFalse(eventStream.hasNext());
+    }
+
+    @Test
+    public void testAppendEvents_IncompleteLastEntryIsCutOff() throws IOException {
+        eventStore.appendEvents("test", new SimpleDomainEventStream(new StubDomainEvent(aggregateIdentifier, 0)));
+        File eventFile = new File("target/test/" + aggregateIdentifier + ".events");
+        long validLength = eventFile.length();
+        eventStore.appendEvents("test", new SimpleDomainEventStream(new StubDomainEvent(aggregateIdentifier, 1)));
+        RandomAccessFile file = new RandomAccessFile(eventFile, "rw");
+        try {
+            file.setLength(validLength + 10);
+        } finally {
+            file.close();
+        }
+
+        FileSystemEventStore restartedEventStore = new FileSystemEventStore(new XStreamEventSerializer());
+        restartedEventStore.setBaseDir(new File("target/"));
+        restartedEventStore.appendEvents("test", new SimpleDomainEventStream(new StubDomainEvent(aggregateIdentifier,
+                                                                                                 1)));
+
+        DomainEventStream eventStream = restartedEventStore.readEvents("test", aggregateIdentifier);
+        assertEquals(new Long(0), eventStream.next().getSequenceNumber());
+        assertEquals(new Long(1), eventStream.next().getSequenceNumber());
+        assertFalse(eventStream.hasNext());
+    }
+
+    @Test
+    public void testReadEvents_MappedFileIsRemappedAfterAppend() {
+        eventStore.appendEvents("test", new SimpleDomainEventStream(new StubDomainEvent(aggregateIdentifier, 0)));
+        assertEquals(1, countEvents(eventStore.readEvents("test", aggregateIdentifier)));
+
+        eventStore.appendEvents("test", new SimpleDomainEventStream(new StubDomainEvent(aggregateIdentifier, 1)));
+        assertEquals(2, countEvents(eventStore.readEvents("test", aggregateIdentifier)));
+    }
+
+    private int countEvents(DomainEventStream eventStream) {
+        int count = 0;
+        while (eventStream.hasNext()) {
+            eventStream.next();
+            count++;
+        }
+        return count;
+    }
+
     private void writeEvents(AtomicInteger counter, int numberOfEvents) {
         List<DomainEvent> events = new ArrayList<DomainEvent>();
         for (int t = 0; t < numberOfEvents; t++) {
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.fs;
+
+import org.apache.commons.io.IOUtils;
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.eventstore.XStreamEventSerializer;
+import org.junit.*;
+import org.junit.rules.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class SegmentedEventFileResolverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SegmentedEventFileResolver resolver;
+    private FileSystemEventStore eventStore;
+    private AggregateIdentifier aggregate1;
+    private AggregateIdentifier aggregate2;
+
+    @Before
+    public void setUp() {
+        aggregate1 = new UUIDAggregateIdentifier();
+        aggregate2 = new UUIDAggregateIdentifier();
+        eventStore = new FileSystemEventStore(new XStreamEventSerializer());
+        resolver = createResolver();
+    }
+
+    @After
+    public void tearDown() {
+        resolver.close();
+    }
+
+    @Test
+    public void testInterleavedAppendsAreReadPerAggregate() {
+        appendEvents(aggregate1, 0, 3);
+        appendEvents(aggregate2, 0, 2);
+        appendEvents(aggregate1, 3, 2);
+
+        assertSequenceNumbers(readEvents(aggregate1), 0, 1, 2, 3, 4);
+        assertSequenceNumbers(readEvents(aggregate2), 0, 1);
+    }
+
+    @Test
+    public void testSegmentsRollOverAtMaximumSize() {
+        resolver.setMaxSegmentSize(1024);
+        for (int t = 0; t < 10; t++) {
+            appendEvents(aggregate1, t * 2, 2);
+            appendEvents(aggregate2, t, 1);
+        }
+
+        File[] segments = new File(folder.getRoot(), "test").listFiles();
+        assertTrue("Expected multiple segments, but got " + (segments.length - 1), segments.length > 3);
+        assertEquals(20, readEvents(aggregate1).size());
+        assertEquals(10, readEvents(aggregate2).size());
+    }
+
+    @Test
+    public void testSnapshotSkipsEventsInEarlierChunks() {
+        resolver.setMaxSegmentSize(1024);
+        appendEvents(aggregate1, 0, 5);
+        appendEvents(aggregate2, 0, 5);
+        appendEvents(aggregate1, 5, 5);
+        eventStore.appendSnapshotEvent("test", new StubDomainEvent(aggregate1, 6));
+        appendEvents(aggregate1, 10, 2);
+
+        assertSequenceNumbers(readEvents(aggregate1), 6, 7, 8, 9, 10, 11);
+    }
+
+    @Test
+    public void testSnapshotReadsOnlyLastChunks() throws IOException {
+        appendEvents(aggregate1, 0, 5);
+        appendEvents(aggregate2, 0, 5);
+        appendEvents(aggregate1, 5, 5);
+        appendEvents(aggregate1, 10, 5);
+        eventStore.appendSnapshotEvent("test", new StubDomainEvent(aggregate1, 2));
+        SegmentedEventFileResolver spy = spy(resolver);
+        eventStore.setEventFileResolver(spy);
+
+        eventStore.appendSnapshotEvent("test", new StubDomainEvent(aggregate1, 9));
+        eventStore.appendSnapshotEvent("test", new StubDomainEvent(aggregate1, 11));
+
+        verify(spy, never()).openEventFileForReading("test", aggregate1);
+        verify(spy, never()).readEventChunk("test", aggregate1, 0);
+        assertSequenceNumbers(readEvents(aggregate1), 11, 12, 13, 14);
+        verify(spy, never()).openSnapshotFileForReading("test", aggregate1);
+        verify(spy).readLastSnapshotChunk("test", aggregate1);
+    }
+
+    @Test
+    public void testSnapshotAtEndOfChunk() {
+        appendEvents(aggregate1, 0, 5);
+        appendEvents(aggregate1, 5, 5);
+        appendEvents(aggregate1, 10, 2);
+        eventStore.appendSnapshotEvent("test", new StubDomainEvent(aggregate1, 9));
+
+        assertSequenceNumbers(readEvents(aggregate1), 9, 10, 11);
+    }
+
+    @Test
+    public void testIndexIsReloadedFromDisk() {
+        resolver.setMaxSegmentSize(1024);
+        appendEvents(aggregate1, 0, 5);
+        appendEvents(aggregate2, 0, 1);
+        resolver.close();
+
+        resolver = createResolver();
+        appendEvents(aggregate1, 5, 1);
+
+        assertSequenceNumbers(readEvents(aggregate1), 0, 1, 2, 3, 4, 5);
+        assertSequenceNumbers(readEvents(aggregate2), 0);
+    }
+
+    @Test
+    public void testIncompleteIndexRecordIsDiscarded() throws IOException {
+        appendEvents(aggregate1, 0, 2);
+        appendEvents(aggregate2, 0, 1);
+        resolver.close();
+
+        File indexFile = new File(new File(folder.getRoot(), "test"), SegmentedEventFileResolver.INDEX_FILE_NAME);
+        RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+        try {
+            file.setLength(file.length() - 3);
+        } finally {
+            file.close();
+        }
+
+        resolver = createResolver();
+        assertSequenceNumbers(readEvents(aggregate1), 0, 1);
+        try {
+            readEvents(aggregate2);
+            fail("Expected the events of the incomplete index record to be discarded");
+        } catch (EventStreamNotFoundException e) {
+            // expected
+        }
+        appendEvents(aggregate2, 0, 1);
+        resolver.close();
+
+        resolver = createResolver();
+        assertSequenceNumbers(readEvents(aggregate2), 0);
+    }
+
+    @Test
+    public void testClosingStreamDoesNotCloseSharedSegment() throws IOException {
+        appendEvents(aggregate1, 0, 2);
+        appendEvents(aggregate2, 0, 1);
+
+        InputStream first = resolver.openEventFileForReading("test", aggregate1);
+        InputStream second = resolver.openEventFileForReading("test", aggregate1);
+        byte[] expected = IOUtils.toByteArray(first);
+        first.close();
+
+        assertTrue(expected.length > 0);
+        assertArrayEquals(expected, IOUtils.toByteArray(second));
+        second.close();
+        assertSequenceNumbers(readEvents(aggregate2), 0);
+    }
+
+    @Test
+    public void testSyncedEventsAreReadAfterReopening() throws IOException {
+        appendEvents(aggregate1, 0, 2);
+        eventStore.sync("test", aggregate1);
+        // a sync without new appends has nothing to force
+        resolver.syncEventFile("test", aggregate2);
+        resolver.close();
+
+        resolver = createResolver();
+        assertSequenceNumbers(readEvents(aggregate1), 0, 1);
+    }
+
+    private SegmentedEventFileResolver createResolver() {
+        SegmentedEventFileResolver newResolver = new SegmentedEventFileResolver(folder.getRoot());
+        eventStore.setEventFileResolver(newResolver);
+        return newResolver;
+    }
+
+    private void appendEvents(AggregateIdentifier aggregateIdentifier, int firstSequenceNumber, int count) {
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+        for (int t = 0; t < count; t++) {
+            events.add(new StubDomainEvent(aggregateIdentifier, firstSequenceNumber + t));
+        }
+        eventStore.appendEvents("test", new SimpleDomainEventStream(events));
+    }
+
+    private List<DomainEvent> readEvents(AggregateIdentifier aggregateIdentifier) {
+        DomainEventStream eventStream = eventStore.readEvents("test", aggregateIdentifier);
+        List<DomainEvent> events = new ArrayList<DomainEvent>();
+        while (eventStream.hasNext()) {
+            DomainEvent event = eventStream.next();
+            assertEquals(aggregateIdentifier, event.getAggregateIdentifier());
+            events.add(event);
+        }
+        return events;
+    }
+
+    private void assertSequenceNumbers(List<DomainEvent> events, long... expected) {
+        assertEquals(expected.length, events.size());
+        for (int t = 0; t < expected.length; t++) {
+            assertEquals(Long.valueOf(expected[t]), events.get(t).getSequenceNumber());
+        }
+    }
+}
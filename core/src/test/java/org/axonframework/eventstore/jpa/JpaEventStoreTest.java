@@ -27,6 +27,10 @@ import org.axonframework.eventhandling.annotation.EventHandler;
 import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
 import org.axonframework.eventstore.EventStreamNotFoundException;
 import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.PositionAwareEventVisitor;
+import org.axonframework.eventstore.SerializedDomainEvent;
+import org.axonframework.eventstore.SerializedDomainEventStream;
+import org.axonframework.eventstore.SerializedEventVisitor;
 import org.axonframework.repository.ConcurrencyException;
 import org.junit.*;
 import org.junit.runner.*;
@@ -170,6 +174,27 @@ public class JpaEventStoreTest {
         assertEquals(2, domainEvents.size());
     }
 
+    @Test
+    public void testLoad_EventsDeserializedWhenRead() {
+        testSubject.appendEvents("test", aggregate1.getUncommittedEvents());
+        entityManager.flush();
+        entityManager.clear();
+
+        SerializedDomainEventStream events =
+                (SerializedDomainEventStream) testSubject.readEvents("test", aggregate1.getIdentifier());
+        SerializedDomainEvent first = events.peekSerialized();
+        assertEquals(0L, first.getSequenceNumber());
+        assertFalse(first.isDeserialized());
+
+        assertEquals((Long) 0L, events.next().getSequenceNumber());
+        assertTrue(first.isDeserialized());
+
+        SerializedDomainEvent second = events.nextSerialized();
+        assertEquals(1L, second.getSequenceNumber());
+        assertEquals((Long) 2L, events.next().getSequenceNumber());
+        assertFalse(second.isDeserialized());
+    }
+
     @Test(expected = EventStreamNotFoundException.class)
     public void testLoadNonExistent() {
         testSubject.readEvents("test", new UUIDAggregateIdentifier());
@@ -185,6 +210,99 @@ public class JpaEventStoreTest {
         verify(eventVisitor, times(100)).doWithEvent(isA(DomainEvent.class));
     }
 
+    @Test
+    public void testVisitEvents_ResumeFromPosition() {
+        testSubject.setBatchSize(10);
+        testSubject.appendEvents("type1", new SimpleDomainEventStream(createDomainEvents(77)));
+        testSubject.appendEvents("type2", new SimpleDomainEventStream(createDomainEvents(23)));
+
+        final List<String> positions = new ArrayList<String>();
+        final List<DomainEvent> events = new ArrayList<DomainEvent>();
+        PositionAwareEventVisitor visitor = new PositionAwareEventVisitor() {
+            @Override
+            public void positionVisited(String position) {
+                positions.add(position);
+            }
+
+            @Override
+            public void doWithEvent(DomainEvent domainEvent) {
+                events.add(domainEvent);
+            }
+        };
+        testSubject.visitEvents(visitor);
+        assertEquals(100, events.size());
+        assertEquals(100, positions.size());
+        List<DomainEvent> allEvents = new ArrayList<DomainEvent>(events);
+
+        events.clear();
+        testSubject.visitEvents(visitor, positions.get(49));
+        assertEquals(allEvents.subList(50, 100), events);
+    }
+
+    @Test
+    public void testVisitEvents_OrderedByPosition() throws InterruptedException {
+        List<StubStateChangedEvent> earlyEvents = createDomainEvents(3);
+        Thread.sleep(20);
+        List<StubStateChangedEvent> lateEvents = createDomainEvents(3);
+        testSubject.setBatchSize(2);
+        testSubject.appendEvents("type", new SimpleDomainEventStream(lateEvents));
+        testSubject.appendEvents("type", new SimpleDomainEventStream(earlyEvents));
+
+        final List<DomainEvent> events = new ArrayList<DomainEvent>();
+        final List<String> positions = new ArrayList<String>();
+        testSubject.visitEvents(new PositionAwareEventVisitor() {
+            @Override
+            public void positionVisited(String position) {
+                positions.add(position);
+            }
+
+            @Override
+            public void doWithEvent(DomainEvent domainEvent) {
+                events.add(domainEvent);
+            }
+        });
+        List<DomainEvent> expected = new ArrayList<DomainEvent>(lateEvents);
+        expected.addAll(earlyEvents);
+        assertEquals(expected, events);
+        for (int t = 1; t < positions.size(); t++) {
+            assertTrue(Long.parseLong(positions.get(t - 1)) < Long.parseLong(positions.get(t)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testVisitEvents_InvalidPosition() {
+        testSubject.visitEvents(mock(EventVisitor.class), "not-a-position");
+    }
+
+    @Test
+    public void testVisitEvents_SerializedEventsAreNotDeserialized() {
+        List<StubStateChangedEvent> domainEvents = createDomainEvents(5);
+        testSubject.appendEvents("type1", new SimpleDomainEventStream(domainEvents));
+
+        final List<SerializedDomainEvent> serializedEvents = new ArrayList<SerializedDomainEvent>();
+        testSubject.visitEvents(new SerializedEventVisitor() {
+            @Override
+            public void doWithSerializedEvent(SerializedDomainEvent serializedEvent) {
+                serializedEvents.add(serializedEvent);
+            }
+
+            @Override
+            public void doWithEvent(DomainEvent domainEvent) {
+                fail("Expected events to be passed in serialized form");
+            }
+        });
+        assertEquals(5, serializedEvents.size());
+        for (int t = 0; t < 5; t++) {
+            SerializedDomainEvent serializedEvent = serializedEvents.get(t);
+            assertEquals(domainEvents.get(t).getAggregateIdentifier(), serializedEvent.getAggregateIdentifier());
+            assertEquals(t, serializedEvent.getSequenceNumber());
+            assertEquals(StubStateChangedEvent.class, serializedEvent.getEventType());
+            assertFalse(serializedEvent.isDeserialized());
+        }
+        assertEquals(domainEvents.get(2).getEventIdentifier(),
+                     serializedEvents.get(2).getDomainEvent().getEventIdentifier());
+    }
+
     @Test(expected = ConcurrencyException.class)
     public void testStoreDuplicateEvent_WithSqlExceptionTranslator() {
         testSubject.appendEvents("test",
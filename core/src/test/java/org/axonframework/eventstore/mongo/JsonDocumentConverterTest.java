@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore.mongo;
+
+import com.mongodb.DBObject;
+import org.junit.*;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class JsonDocumentConverterTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testConvertToDocumentAndBack() {
+        String json = "{\"@class\":\"com.example.Event\",\"name\":\"Henk \\\"the\\\" é\",\"count\":7,"
+                + "\"ratio\":1.5,\"big\":-9223372036854775808,\"flag\":true,\"nothing\":null,"
+                + "\"nested\":{\"list\":[1,\"two\",[3.0E10]]}}";
+
+        DBObject document = JsonDocumentConverter.toDocument(json.getBytes(UTF8), UTF8);
+
+        assertNotNull(document);
+        assertEquals("@class", document.keySet().iterator().next());
+        assertEquals(7L, document.get("count"));
+        assertEquals(1.5, document.get("ratio"));
+        assertEquals(json, new String(JsonDocumentConverter.toJson(document, UTF8), UTF8));
+    }
+
+    @Test
+    public void testJsonWithInvalidFieldNamesIsNotConverted() {
+        assertNull(JsonDocumentConverter.toDocument("{\"com.example.Base.name\":\"x\"}".getBytes(UTF8), UTF8));
+        assertNull(JsonDocumentConverter.toDocument("{\"map\":{\"$gt\":1}}".getBytes(UTF8), UTF8));
+        assertNull(JsonDocumentConverter.toDocument("\"just a string\"".getBytes(UTF8), UTF8));
+    }
+}
@@ -26,6 +26,7 @@ import org.axonframework.eventhandling.annotation.EventHandler;
 import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
 import org.axonframework.eventstore.EventStreamNotFoundException;
 import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.PositionAwareEventVisitor;
 import org.junit.*;
 import org.junit.runner.*;
 import org.slf4j.Logger;
@@ -36,6 +37,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -110,6 +112,22 @@ public class MongoEventStoreTest {
         assertEquals(aggregate1.getUncommittedEventCount(), actualEvents.size());
     }
 
+    @Test
+    public void testLoad_LargeAmountOfEventsInSmallBatches() {
+        eventStore.setBatchSize(10);
+        List<StubStateChangedEvent> domainEvents = createDomainEvents(110);
+        eventStore.appendEvents("test", new SimpleDomainEventStream(domainEvents));
+
+        DomainEventStream events = eventStore.readEvents("test", domainEvents.get(0).getAggregateIdentifier());
+        long t = 0L;
+        while (events.hasNext()) {
+            DomainEvent event = events.next();
+            assertEquals(t, (long) event.getSequenceNumber());
+            t++;
+        }
+        assertEquals(110L, t);
+    }
+
     @Test
     public void testLoadWithSnapshotEvent() {
         eventStore.appendEvents("test", aggregate1.getUncommittedEvents());
@@ -143,6 +161,55 @@ public class MongoEventStoreTest {
         verify(eventVisitor, times(100)).doWithEvent(isA(DomainEvent.class));
     }
 
+    @Test
+    public void testVisitEvents_ResumeFromPosition() {
+        eventStore.appendEvents("type1", new SimpleDomainEventStream(createDomainEvents(77)));
+        eventStore.appendEvents("type2", new SimpleDomainEventStream(createDomainEvents(23)));
+
+        final List<String> positions = new ArrayList<String>();
+        final List<DomainEvent> events = new ArrayList<DomainEvent>();
+        PositionAwareEventVisitor visitor = new PositionAwareEventVisitor() {
+            @Override
+            public void positionVisited(String position) {
+                positions.add(position);
+            }
+
+            @Override
+            public void doWithEvent(DomainEvent domainEvent) {
+                events.add(domainEvent);
+            }
+        };
+        eventStore.visitEvents(visitor);
+        assertEquals(100, events.size());
+        assertEquals(100, positions.size());
+        List<DomainEvent> allEvents = new ArrayList<DomainEvent>(events);
+
+        events.clear();
+        eventStore.visitEvents(visitor, positions.get(49));
+        assertEquals(allEvents.subList(50, 100), events);
+    }
+
+    @Test
+    public void testVisitEvents_InOrderOfAppendingRegardlessOfTimeStamp() throws InterruptedException {
+        AggregateIdentifier aggregateIdentifier = new UUIDAggregateIdentifier();
+        StubStateChangedEvent secondEvent = new StubStateChangedEvent(1, aggregateIdentifier);
+        Thread.sleep(10);
+        StubStateChangedEvent firstEvent = new StubStateChangedEvent(0, aggregateIdentifier);
+        assertTrue(secondEvent.getTimestamp().isBefore(firstEvent.getTimestamp()));
+
+        eventStore.appendEvents("test", new SimpleDomainEventStream(firstEvent));
+        eventStore.appendEvents("test", new SimpleDomainEventStream(secondEvent));
+
+        final List<Long> sequenceNumbers = new ArrayList<Long>();
+        eventStore.visitEvents(new EventVisitor() {
+            @Override
+            public void doWithEvent(DomainEvent domainEvent) {
+                sequenceNumbers.add(domainEvent.getSequenceNumber());
+            }
+        });
+        assertEquals(Arrays.asList(0L, 1L), sequenceNumbers);
+    }
+
     private List<StubStateChangedEvent> createDomainEvents(int numberOfEvents) {
         List<StubStateChangedEvent> events = new ArrayList<StubStateChangedEvent>();
         final AggregateIdentifier aggregateIdentifier = new UUIDAggregateIdentifier();
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2010. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.eventstore.replay;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.Event;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventhandling.EventListener;
+import org.axonframework.eventhandling.SelectiveEventListener;
+import org.axonframework.eventstore.EventSerializer;
+import org.axonframework.eventstore.EventStoreManagement;
+import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.PositionAwareEventVisitor;
+import org.axonframework.eventstore.ResumableEventStoreManagement;
+import org.axonframework.eventstore.SerializedDomainEvent;
+import org.axonframework.eventstore.SerializedEventVisitor;
+import org.axonframework.eventstore.XStreamEventSerializer;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class EventReplayerTest {
+
+    private InMemoryEventStore eventStore;
+    private SequenceCheckingListener listener;
+    private List<String> checkpoints;
+    private EventReplayer testSubject;
+
+    @Before
+    public void setUp() {
+        eventStore = new InMemoryEventStore();
+        AggregateIdentifier[] aggregates = new AggregateIdentifier[20];
+        for (int t = 0; t < aggregates.length; t++) {
+            aggregates[t] = new UUIDAggregateIdentifier();
+        }
+        for (int sequence = 0; sequence < 50; sequence++) {
+            for (AggregateIdentifier aggregate : aggregates) {
+                eventStore.events.add(new StubDomainEvent(aggregate, sequence));
+            }
+        }
+        listener = new SequenceCheckingListener();
+        checkpoints = new CopyOnWriteArrayList<String>();
+        testSubject = new EventReplayer(eventStore, Arrays.asList(listener), false);
+        testSubject.setPartitionCount(4);
+        testSubject.setQueueCapacity(10);
+        testSubject.setCheckpointInterval(100);
+        testSubject.setCheckpointListener(new ReplayCheckpointListener() {
+            @Override
+            public void checkpointReached(String position) {
+                checkpoints.add(position);
+            }
+        });
+    }
+
+    @Test(timeout = 10000)
+    public void testEventsOfAggregateAreHandledInOrder() {
+        testSubject.replay();
+
+        assertEquals(1000, listener.handledEvents.get());
+        assertTrue("Events were handled out of order", listener.outOfOrderEvents.isEmpty());
+        assertEquals(10, checkpoints.size());
+        assertEquals("999", checkpoints.get(checkpoints.size() - 1));
+    }
+
+    @Test(timeout = 10000)
+    public void testReplayResumesFromCheckpointAfterFailure() {
+        listener.failOnEvent = eventStore.events.get(550);
+        try {
+            testSubject.replay();
+            fail("Expected ReplayFailedException");
+        } catch (ReplayFailedException e) {
+            assertEquals("Mock", e.getCause().getMessage());
+        }
+        String lastCheckpoint = checkpoints.get(checkpoints.size() - 1);
+        assertEquals("499", lastCheckpoint);
+
+        listener.reset();
+        testSubject.replay(lastCheckpoint);
+        assertEquals(500, listener.handledEvents.get());
+        assertEquals("999", checkpoints.get(checkpoints.size() - 1));
+    }
+
+    @Test(timeout = 10000)
+    public void testReplayFailsWhenListenerThrowsError() {
+        final StackOverflowError error = new StackOverflowError();
+        testSubject = new EventReplayer(eventStore, Arrays.<EventListener>asList(new EventListener() {
+            @Override
+            public void handle(Event event) {
+                throw error;
+            }
+        }), false);
+        testSubject.setPartitionCount(2);
+        testSubject.setQueueCapacity(10);
+        try {
+            testSubject.replay();
+            fail("Expected ReplayFailedException");
+        } catch (ReplayFailedException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testEventsNoListenerCanHandleAreNotDeserialized() {
+        eventStore.serializer = new XStreamEventSerializer();
+        SelectiveEventListener selectiveListener = mock(SelectiveEventListener.class);
+        when(selectiveListener.canHandle(StubDomainEvent.class)).thenReturn(false);
+        testSubject = new EventReplayer(eventStore, Arrays.asList(selectiveListener), false);
+
+        testSubject.replay();
+
+        verify(selectiveListener, never()).handle(isA(Event.class));
+        assertEquals(1000, eventStore.serializedEvents.size());
+        for (SerializedDomainEvent serializedEvent : eventStore.serializedEvents) {
+            assertFalse(serializedEvent.isDeserialized());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testReplayOfEventStoreThatCannotResume() {
+        EventStoreManagement nonResumableEventStore = new EventStoreManagement() {
+            @Override
+            public void visitEvents(EventVisitor visitor) {
+                for (DomainEvent event : eventStore.events) {
+                    visitor.doWithEvent(event);
+                }
+            }
+        };
+        testSubject = new EventReplayer(nonResumableEventStore, Arrays.asList(listener), false);
+        testSubject.setPartitionCount(4);
+
+        testSubject.replay();
+        assertEquals(1000, listener.handledEvents.get());
+        assertTrue("Events were handled out of order", listener.outOfOrderEvents.isEmpty());
+
+        try {
+            testSubject.replay("499");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("checkpoint"));
+        }
+    }
+
+    private static class InMemoryEventStore implements ResumableEventStoreManagement {
+
+        private final List<DomainEvent> events = new ArrayList<DomainEvent>();
+        private final List<SerializedDomainEvent> serializedEvents = new ArrayList<SerializedDomainEvent>();
+        private EventSerializer serializer;
+
+        @Override
+        public void visitEvents(EventVisitor visitor) {
+            visitEvents(visitor, null);
+        }
+
+        @Override
+        public void visitEvents(EventVisitor visitor, String afterPosition) {
+            int first = afterPosition == null ? 0 : Integer.parseInt(afterPosition) + 1;
+            for (int t = first; t < events.size(); t++) {
+                DomainEvent event = events.get(t);
+                if (serializer == null) {
+                    visitor.doWithEvent(event);
+                } else {
+                    SerializedDomainEvent serializedEvent = new SerializedDomainEvent(
+                            serializer.serialize(event), serializer, event.getAggregateIdentifier(),
+                            event.getSequenceNumber());
+                    serializedEvents.add(serializedEvent);
+                    ((SerializedEventVisitor) visitor).doWithSerializedEvent(serializedEvent);
+                }
+                ((PositionAwareEventVisitor) visitor).positionVisited(Integer.toString(t));
+            }
+        }
+    }
+
+    private static class SequenceCheckingListener implements EventListener {
+
+        private final Map<AggregateIdentifier, Long> lastSequenceNumbers =
+                new ConcurrentHashMap<AggregateIdentifier, Long>();
+        private final List<Event> outOfOrderEvents = new CopyOnWriteArrayList<Event>();
+        private final AtomicInteger handledEvents = new AtomicInteger();
+        private volatile DomainEvent failOnEvent;
+
+        @Override
+        public void handle(Event event) {
+            if (event == failOnEvent) {
+                failOnEvent = null;
+                throw new RuntimeException("Mock");
+            }
+            DomainEvent domainEvent = (DomainEvent) event;
+            Long last = lastSequenceNumbers.put(domainEvent.getAggregateIdentifier(),
+                                                domainEvent.getSequenceNumber());
+            if (last != null && last + 1 != domainEvent.getSequenceNumber()) {
+                outOfOrderEvents.add(event);
+            }
+            handledEvents.incrementAndGet();
+        }
+
+        private void reset() {
+            lastSequenceNumbers.clear();
+            handledEvents.set(0);
+        }
+    }
+}
@@ -32,7 +32,10 @@ import org.axonframework.eventsourcing.ConflictResolver;
 import org.axonframework.eventsourcing.EventSourcedAggregateRoot;
 import org.axonframework.eventsourcing.EventSourcingRepository;
 import org.axonframework.eventsourcing.EventStreamDecorator;
+import org.axonframework.eventstore.AbstractSerializedDomainEventStream;
+import org.axonframework.eventstore.EventSerializer;
 import org.axonframework.eventstore.EventStore;
+import org.axonframework.eventstore.SerializedDomainEvent;
 import org.axonframework.eventstore.SnapshotEventStore;
 import org.axonframework.unitofwork.CurrentUnitOfWork;
 import org.axonframework.unitofwork.DefaultUnitOfWork;
@@ -45,6 +48,7 @@ import org.mockito.stubbing.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -173,6 +177,69 @@ public class EventSourcingRepositoryTest {
         testSubject.load(identifier, 1L);
     }
 
+    @Test
+    public void testLoadWithConflictingChanges_SerializedEventsNotDeserialized() {
+        AggregateIdentifier identifier = new UUIDAggregateIdentifier();
+        EventSerializer serializer = mock(EventSerializer.class);
+        final List<SerializedDomainEvent> serializedEvents = new ArrayList<SerializedDomainEvent>();
+        for (int t = 1; t <= 3; t++) {
+            byte[] bytes = new byte[]{(byte) t};
+            when(serializer.deserialize(bytes)).thenReturn(new StubDomainEvent(identifier, t));
+            serializedEvents.add(new SerializedDomainEvent(bytes, serializer, identifier, t));
+        }
+        when(mockEventStore.readEvents("test", identifier)).thenReturn(new AbstractSerializedDomainEventStream() {
+            private int next;
+
+            @Override
+            protected SerializedDomainEvent readNext() {
+                return next < serializedEvents.size() ? serializedEvents.get(next++) : null;
+            }
+        });
+
+        try {
+            testSubject.load(identifier, 1L);
+            fail("Expected ConflictingAggregateVersionException");
+        } catch (ConflictingAggregateVersionException e) {
+            assertTrue(e.getMessage().contains("[2]"));
+        }
+        assertTrue(serializedEvents.get(0).isDeserialized());
+        assertFalse(serializedEvents.get(1).isDeserialized());
+        assertFalse(serializedEvents.get(2).isDeserialized());
+    }
+
+    @Test
+    public void testLoadWithConflictingChanges_StreamClosed() {
+        AggregateIdentifier identifier = new UUIDAggregateIdentifier();
+        EventSerializer serializer = mock(EventSerializer.class);
+        final List<SerializedDomainEvent> serializedEvents = new ArrayList<SerializedDomainEvent>();
+        for (int t = 1; t <= 3; t++) {
+            byte[] bytes = new byte[]{(byte) t};
+            when(serializer.deserialize(bytes)).thenReturn(new StubDomainEvent(identifier, t));
+            serializedEvents.add(new SerializedDomainEvent(bytes, serializer, identifier, t));
+        }
+        final AtomicInteger closedCursors = new AtomicInteger();
+        when(mockEventStore.readEvents("test", identifier)).thenReturn(new AbstractSerializedDomainEventStream() {
+            private int next;
+
+            @Override
+            protected SerializedDomainEvent readNext() {
+                return next < serializedEvents.size() ? serializedEvents.get(next++) : null;
+            }
+
+            @Override
+            public void close() {
+                closedCursors.incrementAndGet();
+            }
+        });
+
+        try {
+            testSubject.load(identifier, 1L);
+            fail("Expected ConflictingAggregateVersionException");
+        } catch (ConflictingAggregateVersionException e) {
+            assertEquals(1, closedCursors.get());
+        }
+    }
+
     @Test
     public void testLoadAndSaveWithoutConflictingChanges() {
         ConflictResolver conflictResolver = mock(ConflictResolver.class);
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.repository;
+
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.Saga;
+import org.axonframework.saga.repository.XStreamSagaSerializerTest.MyTestSaga;
+import org.junit.*;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class JsonSagaSerializerTest {
+
+    private MyTestSaga saga;
+
+    @Before
+    public void setUp() {
+        this.saga = new MyTestSaga("123");
+        saga.getAssociationValues().add(new AssociationValue("orderId", 42L));
+    }
+
+    @Test
+    public void testSerializeAndDeserializeSaga() {
+        JsonSagaSerializer serializer = new JsonSagaSerializer();
+        Saga result = serializer.deserialize(serializer.serialize(saga));
+
+        assertEquals(saga, result);
+        assertTrue(result.isActive());
+        assertTrue(result.getAssociationValues().contains(new AssociationValue("orderId", 42L)));
+        assertTrue(result.getAssociationValues().contains(new AssociationValue("sagaIdentifier", "123")));
+    }
+
+    @Test
+    public void testTransientStateInitializedAfterDeserialization() {
+        JsonSagaSerializer serializer = new JsonSagaSerializer(Charset.forName("UTF-16"));
+        Saga result = serializer.deserialize(serializer.serialize(saga));
+
+        result.getAssociationValues().add(new AssociationValue("key", "value"));
+        result.handle(new StubDomainEvent());
+        assertEquals(3, result.getAssociationValues().size());
+    }
+}